@@ -11,6 +11,10 @@ import org.slf4j.LoggerFactory;
 import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystemImplementation;
 import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
 import com.uk.xarixa.cloud.filesystem.core.nio.DefaultCloudFileSystemImplementation;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.ListingCache;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.MetadataCache;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.MetadataCacheMode;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.NegativeCache;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.CloudWatchService;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.CloudWatchServiceFactory;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.DefaultCloudWatchServiceConfiguration;
@@ -22,6 +26,10 @@ import com.uk.xarixa.cloud.filesystem.core.security.UserGroupLookupService;
 public abstract class AbstractDefaultCloudHostConfiguration extends AbstractCloudHostConfiguration {
 	private final static Logger LOG = LoggerFactory.getLogger(AbstractDefaultCloudHostConfiguration.class);
 	public static final long DEFAULT_WATCH_SERVICE_CLOUD_POLL_TIME_MS = 120000;
+	public static final int DEFAULT_LISTING_CACHE_MAX_SIZE = 1000;
+	public static final long DEFAULT_METADATA_CACHE_TIME_TO_LIVE_MS = 30000;
+	public static final int DEFAULT_METADATA_CACHE_MAX_SIZE = 10000;
+	public static final int DEFAULT_NEGATIVE_CACHE_MAX_SIZE = 10000;
 	private static final CloudFileSystemImplementation defaultCloudFileSystemImplementation =
 			new DefaultCloudFileSystemImplementation();
 	private static final CloudHostSecurityManager defaultCloudHostSecurityManager = new DeferringCloudHostSecurityManager();
@@ -31,6 +39,14 @@ public abstract class AbstractDefaultCloudHostConfiguration extends AbstractClou
 	private Optional<CloudWatchServiceFactory> watchServiceFactory = Optional.ofNullable(null);
 	private Optional<CloudHostSecurityManager> cloudHostSecurityManager = Optional.ofNullable(null);
 	private long watchServiceCloudPollTimeMs = DEFAULT_WATCH_SERVICE_CLOUD_POLL_TIME_MS;
+	private long listingCacheTimeToLiveMs = 0L;
+	private int listingCacheMaxSize = DEFAULT_LISTING_CACHE_MAX_SIZE;
+	private long rootDirectoriesCacheTimeToLiveMs = 0L;
+	private MetadataCacheMode metadataCacheMode = MetadataCacheMode.STRICT;
+	private long metadataCacheTimeToLiveMs = DEFAULT_METADATA_CACHE_TIME_TO_LIVE_MS;
+	private int metadataCacheMaxSize = DEFAULT_METADATA_CACHE_MAX_SIZE;
+	private long negativeCacheTimeToLiveMs = 0L;
+	private int negativeCacheMaxSize = DEFAULT_NEGATIVE_CACHE_MAX_SIZE;
 
 	/**
 	 * This simple implementation tests if the cloud host settings are {@link #equals(Object) equivalent} and returns true if so.
@@ -222,4 +238,126 @@ public abstract class AbstractDefaultCloudHostConfiguration extends AbstractClou
 		return cloudHostSecurityManager.orElse(getDefaultCloudHostSecurityManager());
 	}
 
+	/**
+	 * Sets the time in ms that directory listing pages are cached for. If not set, or set to zero,
+	 * then directory listings are not cached.
+	 * @see #createListingCache()
+	 */
+	public void setListingCacheTimeToLive(long listingCacheTimeToLiveMs) {
+		this.listingCacheTimeToLiveMs = listingCacheTimeToLiveMs;
+	}
+
+	/**
+	 * Sets the maximum number of directory listing pages which are cached, if not set this defaults to
+	 * {@link #DEFAULT_LISTING_CACHE_MAX_SIZE}
+	 * @see #createListingCache()
+	 */
+	public void setListingCacheMaxSize(int listingCacheMaxSize) {
+		this.listingCacheMaxSize = listingCacheMaxSize;
+	}
+
+	/**
+	 * @see #setListingCacheTimeToLive(long)
+	 * @see #setListingCacheMaxSize(int)
+	 * @return A new {@link ListingCache} or null if the listing cache time to live has not been set
+	 */
+	@Override
+	public ListingCache createListingCache() {
+		if (listingCacheTimeToLiveMs <= 0L) {
+			return null;
+		}
+
+		return new ListingCache(listingCacheTimeToLiveMs, listingCacheMaxSize);
+	}
+
+	/**
+	 * Sets the time in ms that the list of containers is cached for. If not set, or set to zero, then the
+	 * containers are listed every time. Whilst cached, containers created or deleted by other clients are not seen.
+	 * @see #getRootDirectoriesCacheTimeToLive()
+	 */
+	public void setRootDirectoriesCacheTimeToLive(long rootDirectoriesCacheTimeToLiveMs) {
+		this.rootDirectoriesCacheTimeToLiveMs = rootDirectoriesCacheTimeToLiveMs;
+	}
+
+	@Override
+	public long getRootDirectoriesCacheTimeToLive() {
+		return rootDirectoriesCacheTimeToLiveMs;
+	}
+
+	/**
+	 * Sets the consistency of cached file attributes, if not set this defaults to {@link MetadataCacheMode#STRICT}
+	 * and file attributes are not cached
+	 * @see #createMetadataCache()
+	 */
+	public void setMetadataCacheMode(MetadataCacheMode metadataCacheMode) {
+		this.metadataCacheMode = metadataCacheMode;
+	}
+
+	/**
+	 * Sets the time in ms that file attributes are cached for in {@link MetadataCacheMode#TTL} mode, if not set
+	 * this defaults to {@link #DEFAULT_METADATA_CACHE_TIME_TO_LIVE_MS}
+	 * @see #createMetadataCache()
+	 */
+	public void setMetadataCacheTimeToLive(long metadataCacheTimeToLiveMs) {
+		this.metadataCacheTimeToLiveMs = metadataCacheTimeToLiveMs;
+	}
+
+	/**
+	 * Sets the maximum number of paths which have their file attributes cached, if not set this defaults to
+	 * {@link #DEFAULT_METADATA_CACHE_MAX_SIZE}
+	 * @see #createMetadataCache()
+	 */
+	public void setMetadataCacheMaxSize(int metadataCacheMaxSize) {
+		this.metadataCacheMaxSize = metadataCacheMaxSize;
+	}
+
+	/**
+	 * @see #setMetadataCacheMode(MetadataCacheMode)
+	 * @see #setMetadataCacheTimeToLive(long)
+	 * @see #setMetadataCacheMaxSize(int)
+	 * @return A new {@link MetadataCache} or null in {@link MetadataCacheMode#STRICT} mode
+	 */
+	@Override
+	public MetadataCache createMetadataCache() {
+		if (metadataCacheMode == null || MetadataCacheMode.STRICT.equals(metadataCacheMode) ||
+				(MetadataCacheMode.TTL.equals(metadataCacheMode) && metadataCacheTimeToLiveMs <= 0L)) {
+			return null;
+		}
+
+		return new MetadataCache(metadataCacheMode, metadataCacheTimeToLiveMs, metadataCacheMaxSize);
+	}
+
+	/**
+	 * Sets the time in ms that paths which were found not to exist are remembered for. If not set, or set
+	 * to zero, then missing paths are not cached. Paths created by other clients are not seen until this
+	 * time has passed, so a few seconds is usually enough.
+	 * @see #createNegativeCache()
+	 */
+	public void setNegativeCacheTimeToLive(long negativeCacheTimeToLiveMs) {
+		this.negativeCacheTimeToLiveMs = negativeCacheTimeToLiveMs;
+	}
+
+	/**
+	 * Sets the maximum number of missing paths which are remembered, if not set this defaults to
+	 * {@link #DEFAULT_NEGATIVE_CACHE_MAX_SIZE}
+	 * @see #createNegativeCache()
+	 */
+	public void setNegativeCacheMaxSize(int negativeCacheMaxSize) {
+		this.negativeCacheMaxSize = negativeCacheMaxSize;
+	}
+
+	/**
+	 * @see #setNegativeCacheTimeToLive(long)
+	 * @see #setNegativeCacheMaxSize(int)
+	 * @return A new {@link NegativeCache} or null if the negative cache time to live has not been set
+	 */
+	@Override
+	public NegativeCache createNegativeCache() {
+		if (negativeCacheTimeToLiveMs <= 0L) {
+			return null;
+		}
+
+		return new NegativeCache(negativeCacheTimeToLiveMs, negativeCacheMaxSize);
+	}
+
 }
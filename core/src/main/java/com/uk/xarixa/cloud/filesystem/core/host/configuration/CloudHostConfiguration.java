@@ -10,6 +10,10 @@ import com.uk.xarixa.cloud.filesystem.core.host.factory.CloudHostProvider;
 import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystemImplementation;
 import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystemProviderDelegate;
 import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.ListingCache;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.MetadataCache;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.MetadataCacheMode;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.NegativeCache;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.CloudWatchService;
 import com.uk.xarixa.cloud.filesystem.core.security.CloudHostSecurityManager;
 import com.uk.xarixa.cloud.filesystem.core.security.UserGroupLookupService;
@@ -76,6 +80,30 @@ public interface CloudHostConfiguration {
 	 */
 	void setWatchServiceCloudPollTime(long pollTimeMs);
 
+	/**
+	 * Creates the cache of directory listing pages for a file system which uses this configuration
+	 * @return null if directory listings should not be cached
+	 */
+	ListingCache createListingCache();
+
+	/**
+	 * Gets the time in ms that the list of containers returned by {@link FileSystem#getRootDirectories()} is cached for
+	 * @return The time to live, zero if the list of containers should not be cached
+	 */
+	long getRootDirectoriesCacheTimeToLive();
+
+	/**
+	 * Creates the cache of file attributes for a file system which uses this configuration
+	 * @return null if file attributes should not be cached, which is the {@link MetadataCacheMode#STRICT} mode
+	 */
+	MetadataCache createMetadataCache();
+
+	/**
+	 * Creates the cache of paths which were found not to exist for a file system which uses this configuration
+	 * @return null if missing paths should not be cached
+	 */
+	NegativeCache createNegativeCache();
+
 	/**
 	 * <p>
 	 * Determines whether a delete/copy/move can be performed using native optimised delete/copy/move operations
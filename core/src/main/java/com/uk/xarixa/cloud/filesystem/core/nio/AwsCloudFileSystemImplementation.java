@@ -1,7 +1,13 @@
 package com.uk.xarixa.cloud.filesystem.core.nio;
 
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jclouds.blobstore.domain.BlobAccess;
 import org.jclouds.s3.S3Client;
 import org.jclouds.s3.domain.AccessControlList;
+import org.jclouds.s3.domain.AccessControlList.Grant;
+import org.jclouds.s3.domain.CannedAccessPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,21 +17,46 @@ import com.uk.xarixa.cloud.filesystem.core.nio.channels.CloudFileChannel;
 import com.uk.xarixa.cloud.filesystem.core.nio.channels.CloudFileChannelTransport;
 import com.uk.xarixa.cloud.filesystem.core.nio.channels.DefaultCloudFileChannelTransport;
 
+/**
+ * An implementation for AWS S3 whose transport applies {@link CloudPermissionFileAttribute
+ * CloudPermissionFileAttribute&lt;AccessControlList&gt;} attributes to uploaded files. An access control list
+ * which is the same as a canned {@link BlobAccess} is put in the upload request itself, any other access control
+ * list is set with a separate request once the file has been uploaded.
+ */
 public class AwsCloudFileSystemImplementation extends DefaultCloudFileSystemImplementation {
 	private final static Logger LOG = LoggerFactory.getLogger(AwsCloudFileSystemImplementation.class);
 
 	private final static CloudFileChannelTransport TRANSPORT = new DefaultCloudFileChannelTransport() {
-		
+
+		@SuppressWarnings("unchecked")
+		private CloudPermissionFileAttribute<AccessControlList> getAccessControlListAttribute(
+				CloudFileChannel cloudFileChannel) {
+			FileAttributeLookupMap lookupMap = cloudFileChannel.getCloudFileAttributes();
+			return lookupMap.getFileAttributeOfType(CloudPermissionFileAttribute.class, AccessControlList.class);
+		}
+
+		@Override
+		protected BlobAccess getBlobAccessToPut(CloudFileChannel cloudFileChannel) {
+			CloudPermissionFileAttribute<AccessControlList> aclAttribute = getAccessControlListAttribute(cloudFileChannel);
+
+			if (aclAttribute != null) {
+				return canPutBlobAccess(cloudFileChannel.getContext()) ? toCannedBlobAccess(aclAttribute.value()) : null;
+			}
+
+			return super.getBlobAccessToPut(cloudFileChannel);
+		}
+
 		@Override
 		public void postSyncToCloud(CloudFileChannel cloudFileChannel, boolean writeMetadata) {
 			// Other options only apply if we are writing metadata
 			if (writeMetadata) {
-				FileAttributeLookupMap lookupMap = cloudFileChannel.getCloudFileAttributes();
-				@SuppressWarnings("unchecked")
 				CloudPermissionFileAttribute<AccessControlList> aclAttribute =
-						lookupMap.getFileAttributeOfType(CloudPermissionFileAttribute.class, AccessControlList.class);
+						getAccessControlListAttribute(cloudFileChannel);
 
-				if (aclAttribute != null) {
+				if (aclAttribute != null && getBlobAccessToPut(cloudFileChannel) != null) {
+					LOG.debug("AWS ACL attributes were set in the upload of {}, no file post-sync action",
+							cloudFileChannel.getPath());
+				} else if (aclAttribute != null) {
 					LOG.info("Setting AWS ACL attributes: path={}, owner={}, grants={}",
 							cloudFileChannel.getPath(), aclAttribute.value().getOwner(), aclAttribute.value().getGrants());
 					S3Client s3Client = cloudFileChannel.getContext().unwrapApi(S3Client.class);
@@ -42,7 +73,33 @@ public class AwsCloudFileSystemImplementation extends DefaultCloudFileSystemImpl
 		}
 
 	};
-	
+
+	/**
+	 * Works out if the access control list grants exactly the same as one of the canned access policies
+	 * which can be set with a {@link BlobAccess}
+	 * @return The equivalent access, or null if there is none
+	 */
+	protected static BlobAccess toCannedBlobAccess(AccessControlList accessControlList) {
+		if (accessControlList.getOwner() == null) {
+			return null;
+		}
+
+		Set<Grant> grants = new HashSet<>(accessControlList.getGrants());
+		String ownerId = accessControlList.getOwner().getId();
+
+		if (grants.equals(new HashSet<>(
+				AccessControlList.fromCannedAccessPolicy(CannedAccessPolicy.PRIVATE, ownerId).getGrants()))) {
+			return BlobAccess.PRIVATE;
+		}
+
+		if (grants.equals(new HashSet<>(
+				AccessControlList.fromCannedAccessPolicy(CannedAccessPolicy.PUBLIC_READ, ownerId).getGrants()))) {
+			return BlobAccess.PUBLIC_READ;
+		}
+
+		return null;
+	}
+
 	@Override
 	protected CloudFileChannelTransport getCloudFileChannelTransport() {
 		return TRANSPORT;
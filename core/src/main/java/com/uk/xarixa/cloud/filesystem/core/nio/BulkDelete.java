@@ -0,0 +1,185 @@
+package com.uk.xarixa.cloud.filesystem.core.nio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jclouds.blobstore.BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.uk.xarixa.cloud.filesystem.core.utils.ParallelRequests;
+import com.uk.xarixa.cloud.filesystem.core.utils.ParallelRequests.BoundedRequests;
+
+/**
+ * <p>
+ * Deletes many keys of a container with multi-object delete requests, {@link BlobStore#removeBlobs(String, Iterable)},
+ * of up to {@link #MAX_KEYS_PER_REQUEST} keys each, rather than a request for each key. The requests are made by a
+ * bounded number of workers whilst keys are still being {@link #add(String) added}, so that the keys of a large
+ * listing are deleted as the listing is read. Clouds with a multi-object delete API, such as S3, delete each batch
+ * with a single request.
+ * </p>
+ * <p>
+ * An optional {@link KeyCheck} is run by the workers for each key before it is deleted, such as to check access,
+ * and a key which fails the check is not deleted. A batch which cannot be deleted does not stop the other batches,
+ * the exception for each of its keys is returned from {@link #finish()}. When the keys should no longer be deleted,
+ * such as when the delete is cancelled, {@link #abort()} drops the keys which have not been sent.
+ * </p>
+ */
+public class BulkDelete {
+	private static final Logger LOG = LoggerFactory.getLogger(BulkDelete.class);
+	public static final int MAX_KEYS_PER_REQUEST = 1000;
+	public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 16;
+	private final BlobStore blobStore;
+	private final String containerName;
+	private final KeyCheck keyCheck;
+	private final int keysPerRequest;
+	private final BoundedRequests requests;
+	private final Map<String,IOException> failures = new ConcurrentHashMap<>();
+	private final AtomicLong deletedKeys = new AtomicLong();
+	private List<String> batch = new ArrayList<>();
+
+	/**
+	 * Checks a key before it is deleted
+	 */
+	@FunctionalInterface
+	public interface KeyCheck {
+		/**
+		 * @throws IOException If the key must not be deleted
+		 */
+		void check(String key) throws IOException;
+	}
+
+	/**
+	 * Deletes with the largest requests and the {@link #DEFAULT_MAX_CONCURRENT_REQUESTS default number} of requests
+	 * in flight at once, on the shared {@link ParallelRequests#EXECUTOR}
+	 * @param blobStore
+	 * @param containerName
+	 * @param keyCheck		Checks each key before it is deleted, or null to delete every key
+	 */
+	public BulkDelete(BlobStore blobStore, String containerName, KeyCheck keyCheck) {
+		this(blobStore, containerName, keyCheck, MAX_KEYS_PER_REQUEST, DEFAULT_MAX_CONCURRENT_REQUESTS,
+				ParallelRequests.EXECUTOR);
+	}
+
+	/**
+	 * @param blobStore
+	 * @param containerName
+	 * @param keyCheck				Checks each key before it is deleted, or null to delete every key
+	 * @param keysPerRequest		The number of keys to delete with each request, up to {@link #MAX_KEYS_PER_REQUEST}
+	 * @param maxConcurrentRequests	The maximum number of requests in flight at once
+	 * @param executor				The executor to make the requests on
+	 */
+	public BulkDelete(BlobStore blobStore, String containerName, KeyCheck keyCheck, int keysPerRequest,
+			int maxConcurrentRequests, ExecutorService executor) {
+		if (keysPerRequest < 1 || keysPerRequest > MAX_KEYS_PER_REQUEST) {
+			throw new IllegalArgumentException("The number of keys per request must be between 1 and " +
+					MAX_KEYS_PER_REQUEST + ": " + keysPerRequest);
+		}
+
+		if (maxConcurrentRequests < 1) {
+			throw new IllegalArgumentException("The maximum number of concurrent requests must be positive: " +
+					maxConcurrentRequests);
+		}
+
+		this.blobStore = blobStore;
+		this.containerName = containerName;
+		this.keyCheck = keyCheck;
+		this.keysPerRequest = keysPerRequest;
+		this.requests = new BoundedRequests(maxConcurrentRequests, executor,
+				"delete keys from container '" + containerName + "'");
+	}
+
+	/**
+	 * Adds a key to delete. Once there are enough keys for a request they are deleted by a worker, this waits
+	 * whilst the maximum number of requests are in flight.
+	 * @throws InterruptedIOException If the calling thread is interrupted whilst waiting for a worker
+	 */
+	public void add(String key) throws IOException {
+		batch.add(key);
+
+		if (batch.size() >= keysPerRequest) {
+			submitBatch();
+		}
+	}
+
+	/**
+	 * Deletes any keys which have not been deleted yet and waits for every request to complete
+	 * @return The exception for each key which could not be deleted, sorted by key
+	 * @throws InterruptedIOException If the calling thread is interrupted whilst waiting for the requests
+	 * @throws IOException If the requests could not be run
+	 */
+	public Map<String,IOException> finish() throws IOException {
+		if (!batch.isEmpty()) {
+			submitBatch();
+		}
+
+		requests.await();
+		LOG.debug("Deleted {} keys from container '{}', {} keys could not be deleted",
+				deletedKeys.get(), containerName, failures.size());
+		return failures.isEmpty() ? Collections.emptyMap() : new TreeMap<>(failures);
+	}
+
+	/**
+	 * Drops the keys which have not been sent in a request yet and waits for the requests in flight to complete
+	 * @throws InterruptedIOException If the calling thread is interrupted whilst waiting for the requests
+	 * @throws IOException If the requests could not be run
+	 */
+	public void abort() throws IOException {
+		LOG.debug("Aborting the delete of keys from container '{}', {} keys were not sent", containerName, batch.size());
+		batch = new ArrayList<>();
+		requests.await();
+	}
+
+	/**
+	 * @return The number of keys which have been deleted so far
+	 */
+	public long getDeletedKeys() {
+		return deletedKeys.get();
+	}
+
+	private void submitBatch() throws IOException {
+		List<String> keys = batch;
+		batch = new ArrayList<>(keysPerRequest);
+		requests.submit(() -> deleteKeys(keys));
+	}
+
+	private void deleteKeys(List<String> keys) {
+		List<String> checkedKeys = keys;
+
+		if (keyCheck != null) {
+			checkedKeys = new ArrayList<>(keys.size());
+			for (String key : keys) {
+				try {
+					keyCheck.check(key);
+					checkedKeys.add(key);
+				} catch (IOException e) {
+					failures.put(key, e);
+				} catch (RuntimeException e) {
+					failures.put(key, new IOException("Could not check key '" + key + "' before deleting it", e));
+				}
+			}
+		}
+
+		if (checkedKeys.isEmpty() || Thread.currentThread().isInterrupted()) {
+			return;
+		}
+
+		try {
+			blobStore.removeBlobs(containerName, checkedKeys);
+			deletedKeys.addAndGet(checkedKeys.size());
+		} catch (RuntimeException e) {
+			IOException failure = new IOException("Could not delete " + checkedKeys.size() +
+					" keys from container '" + containerName + "'", e);
+			checkedKeys.forEach(k -> failures.put(k, failure));
+		}
+	}
+
+}
@@ -5,17 +5,29 @@ import java.nio.file.FileStore;
 import java.nio.file.attribute.FileAttributeView;
 import java.nio.file.attribute.FileStoreAttributeView;
 
+import org.apache.commons.lang3.StringUtils;
+
 import com.uk.xarixa.cloud.filesystem.core.host.configuration.CloudHostConfiguration;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudFileStoreUsageView;
 
 /**
- * A simple implementation for {@link FileStore}
+ * A simple implementation for {@link FileStore}. The space in the cloud is unbounded, so the usage of
+ * each container is given by the {@link CloudFileStoreUsageView} instead, when the file store is created
+ * for a {@link CloudFileSystem}.
  */
 public class CloudFileStore extends FileStore {
 	public static final String CLOUD_FILE_STORE_TYPE = "cloud";
 	private final CloudHostConfiguration settings;
+	private final CloudFileStoreUsageView usageView;
 
 	public CloudFileStore(CloudHostConfiguration settings) {
 		this.settings = settings;
+		this.usageView = null;
+	}
+
+	public CloudFileStore(CloudHostConfiguration settings, CloudFileSystem fileSystem) {
+		this.settings = settings;
+		this.usageView = new CloudFileStoreUsageView(fileSystem);
 	}
 
 	/**
@@ -51,6 +63,9 @@ public class CloudFileStore extends FileStore {
 		return Long.MAX_VALUE;
 	}
 
+	/**
+	 * Only a {@link CloudFileStoreUsageView} is supported, which is not a {@link FileAttributeView}
+	 */
 	@Override
 	public boolean supportsFileAttributeView(Class<? extends FileAttributeView> type) {
 		return false;
@@ -61,14 +76,39 @@ public class CloudFileStore extends FileStore {
 		return false;
 	}
 
+	/**
+	 * @return The {@link CloudFileStoreUsageView} if it is requested and available, otherwise null
+	 */
 	@Override
 	public <V extends FileStoreAttributeView> V getFileStoreAttributeView(Class<V> type) {
-		throw new IllegalArgumentException("No file store attribute view available");
+		if (usageView != null && type.isAssignableFrom(CloudFileStoreUsageView.class)) {
+			return type.cast(usageView);
+		}
+
+		return null;
 	}
 
+	/**
+	 * Supports the attribute <em>usage:&lt;container name&gt;</em>, which returns the
+	 * {@link CloudFileStoreUsageView#getContainerUsage(String) container usage}
+	 */
 	@Override
 	public Object getAttribute(String attribute) throws IOException {
-		throw new IllegalArgumentException("No file store attribute view available");
+		String containerName = StringUtils.substringAfter(attribute, CloudFileStoreUsageView.VIEW_NAME + ":");
+
+		if (usageView == null || !attribute.startsWith(CloudFileStoreUsageView.VIEW_NAME + ":") ||
+				StringUtils.isBlank(containerName)) {
+			throw new UnsupportedOperationException("Unsupported file store attribute '" + attribute + "'");
+		}
+
+		return usageView.getContainerUsage(containerName);
+	}
+
+	/**
+	 * @return The usage view, or null if this file store was not created for a {@link CloudFileSystem}
+	 */
+	public CloudFileStoreUsageView getUsageView() {
+		return usageView;
 	}
 
 }
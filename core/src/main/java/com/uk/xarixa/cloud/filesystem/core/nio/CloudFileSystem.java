@@ -17,31 +17,51 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jclouds.blobstore.BlobStoreContext;
-import org.jclouds.blobstore.domain.PageSet;
 import org.jclouds.blobstore.domain.StorageMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Sets;
 import com.uk.xarixa.cloud.filesystem.core.host.configuration.CloudHostConfiguration;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.ExistenceFilter;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.ExpiringCache;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.ListingCache;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.MetadataCache;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.NegativeCache;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.CloudWatchService;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudBasicFileAttributes;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudFileAttributesView;
+import com.uk.xarixa.cloud.filesystem.core.nio.index.ListingIndex;
+import com.uk.xarixa.cloud.filesystem.core.nio.index.MetadataIndex;
+import com.uk.xarixa.cloud.filesystem.core.nio.index.MetadataQuery;
 import com.uk.xarixa.cloud.filesystem.core.utils.DefaultPathMatcher;
 
 public class CloudFileSystem extends FileSystem {
 	private final static Logger LOG = LoggerFactory.getLogger(CloudFileSystem.class);
+	private final static String ROOT_DIRECTORIES_KEY = "";
 	private final static Set<String> supportedFileAttributeViews = Sets.newHashSet("basic", CloudFileAttributesView.VIEW_NAME);
 	private final CloudHostConfiguration config;
 	private final BlobStoreContext context;
 	private final List<FileStore> fileStores = new ArrayList<>(1);
+	private final CloudFileStore fileStore;
 	private AtomicBoolean closed = new AtomicBoolean(false);
 	private FileSystemProvider provider;
+	private volatile Optional<ListingCache> listingCache;
+	private volatile Optional<MetadataCache> metadataCache;
+	private volatile Optional<NegativeCache> negativeCache;
+	private final List<ListingIndex> listingIndexes = new CopyOnWriteArrayList<>();
+	private final ConcurrentMap<String,ExistenceFilter> existenceFilters = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String,MetadataIndex> metadataIndexes = new ConcurrentHashMap<>();
+	private volatile Optional<ExpiringCache<String,List<Path>>> rootDirectoriesCache;
 	private Set<WeakReference<CloudWatchService>> cloudWatchServices =
 			new ConcurrentSkipListSet<>(new Comparator<WeakReference<CloudWatchService>>() {
 				@Override
@@ -56,7 +76,8 @@ public class CloudFileSystem extends FileSystem {
 		this.provider = provider;
 		this.config = config;
 		this.context = context;
-		fileStores.add(new CloudFileStore(config));
+		this.fileStore = new CloudFileStore(config, this);
+		fileStores.add(fileStore);
 	}
 	
 	public CloudHostConfiguration getCloudHostConfiguration() {
@@ -87,6 +108,25 @@ public class CloudFileSystem extends FileSystem {
 				}
 			}
 			cloudWatchServices.clear();
+
+			if (listingCache != null && listingCache.isPresent()) {
+				listingCache.get().clear();
+			}
+			if (metadataCache != null && metadataCache.isPresent()) {
+				metadataCache.get().clear();
+			}
+			if (negativeCache != null && negativeCache.isPresent()) {
+				negativeCache.get().clear();
+			}
+			fileStore.getUsageView().clear();
+			listingIndexes.clear();
+			existenceFilters.clear();
+			metadataIndexes.values().forEach(MetadataIndex::clear);
+			metadataIndexes.clear();
+			if (rootDirectoriesCache != null && rootDirectoriesCache.isPresent()) {
+				rootDirectoriesCache.get().clear();
+			}
+
 			LOG.info("Closed filesystem '{}'", config.getName());
 		}
 	}
@@ -117,17 +157,51 @@ public class CloudFileSystem extends FileSystem {
 	}
 
 	/**
-	 * This lists all accessible containers
+	 * This lists all accessible containers, reading every page of containers where the blob store pages them,
+	 * see {@link ContainerLister}. The list is cached for
+	 * {@link CloudHostConfiguration#getRootDirectoriesCacheTimeToLive()}, and is invalidated when a container
+	 * is created or deleted through this file system.
 	 */
 	@Override
 	public Iterable<Path> getRootDirectories() {
 		checkClosed();
-		PageSet<? extends StorageMetadata> list = context.getBlobStore().list();
-		List<Path> paths = new ArrayList<>();
-		list.stream().forEach(m -> paths.add(new CloudPath(this, true, m.getName())));
+		ExpiringCache<String,List<Path>> cache = getRootDirectoriesCache();
+		List<Path> paths = cache == null ? null : cache.get(ROOT_DIRECTORIES_KEY);
+
+		if (paths == null) {
+			paths = listRootDirectories();
+			if (cache != null) {
+				cache.put(ROOT_DIRECTORIES_KEY, paths);
+			}
+		}
+
 		return paths;
 	}
 
+	private List<Path> listRootDirectories() {
+		List<String> containerNames = ContainerLister.listContainerNames(context);
+		List<Path> paths = new ArrayList<>(containerNames.size());
+		containerNames.forEach(name -> paths.add(new CloudPath(this, true, name)));
+		return Collections.unmodifiableList(paths);
+	}
+
+	private ExpiringCache<String,List<Path>> getRootDirectoriesCache() {
+		Optional<ExpiringCache<String,List<Path>>> cache = rootDirectoriesCache;
+
+		if (cache == null) {
+			synchronized (this) {
+				if (rootDirectoriesCache == null) {
+					long timeToLiveMs = config.getRootDirectoriesCacheTimeToLive();
+					rootDirectoriesCache = Optional.ofNullable(timeToLiveMs <= 0L ? null : new ExpiringCache<>(timeToLiveMs, 1));
+				}
+
+				cache = rootDirectoriesCache;
+			}
+		}
+
+		return cache.orElse(null);
+	}
+
 	/**
 	 * This will always return a single file store as the notion of volumes is essentially the containers
 	 * in the Cloud, and so is addressed as the root part of the {@link CloudPath}
@@ -196,6 +270,274 @@ public class CloudFileSystem extends FileSystem {
 		}
 	}
 
+	/**
+	 * Gets the cache of directory listing pages for this file system, which is created on first use from
+	 * {@link CloudHostConfiguration#createListingCache()}
+	 * @return The listing cache or null if listings are not cached
+	 */
+	public ListingCache getListingCache() {
+		Optional<ListingCache> cache = listingCache;
+
+		if (cache == null) {
+			synchronized (this) {
+				if (listingCache == null) {
+					listingCache = Optional.ofNullable(config.createListingCache());
+				}
+
+				cache = listingCache;
+			}
+		}
+
+		return cache.orElse(null);
+	}
+
+	/**
+	 * Gets the cache of file attributes for this file system, which is created on first use from
+	 * {@link CloudHostConfiguration#createMetadataCache()}
+	 * @return The metadata cache or null if file attributes are not cached
+	 */
+	public MetadataCache getMetadataCache() {
+		Optional<MetadataCache> cache = metadataCache;
+
+		if (cache == null) {
+			synchronized (this) {
+				if (metadataCache == null) {
+					metadataCache = Optional.ofNullable(config.createMetadataCache());
+				}
+
+				cache = metadataCache;
+			}
+		}
+
+		return cache.orElse(null);
+	}
+
+	/**
+	 * Gets the cache of paths which were found not to exist for this file system, which is created on first
+	 * use from {@link CloudHostConfiguration#createNegativeCache()}
+	 * @return The negative cache or null if missing paths are not cached
+	 */
+	public NegativeCache getNegativeCache() {
+		Optional<NegativeCache> cache = negativeCache;
+
+		if (cache == null) {
+			synchronized (this) {
+				if (negativeCache == null) {
+					negativeCache = Optional.ofNullable(config.createNegativeCache());
+				}
+
+				cache = negativeCache;
+			}
+		}
+
+		return cache.orElse(null);
+	}
+
+	/**
+	 * Attaches a {@link ListingIndex} to this file system, which switches the paths covered by the index into
+	 * snapshot read mode. Directory listings and basic attribute reads for these paths are answered from the
+	 * index, so they do not see changes made after the index was built or refreshed. To pick up a refreshed
+	 * index, detach the old index and attach the new one.
+	 * @param index
+	 */
+	public void attachListingIndex(ListingIndex index) {
+		checkClosed();
+		listingIndexes.add(index);
+	}
+
+	/**
+	 * Detaches a {@link ListingIndex}, the paths it covered are read from the cloud again
+	 * @param index
+	 * @return true if the index was attached
+	 */
+	public boolean detachListingIndex(ListingIndex index) {
+		return listingIndexes.remove(index);
+	}
+
+	/**
+	 * Gets the attached {@link ListingIndex} which covers a path
+	 * @param containerName	The container
+	 * @param pathName		The path within the container, or null for the container itself
+	 * @return The most recently attached index covering the path, or null if the path is not in snapshot read mode
+	 */
+	public ListingIndex getListingIndex(String containerName, String pathName) {
+		for (int i = listingIndexes.size() - 1; i >= 0; i--) {
+			ListingIndex index = listingIndexes.get(i);
+			if (index.covers(containerName, pathName)) {
+				return index;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Enables an {@link ExistenceFilter} for a container, which is populated from a recursive listing of the
+	 * container before this method returns. Existence checks for paths in the container which the filter says
+	 * do not exist then fail without a request to the cloud. The filter only sees the keys written through
+	 * this file system, so it must not be used for containers which are also written by other clients.
+	 * @param containerName				The container
+	 * @param expectedEntries			The number of keys and directories the container is expected to hold
+	 * @param falsePositiveProbability	The probability that a path which does not exist is checked in the cloud
+	 * @return The populated filter
+	 */
+	public ExistenceFilter enableExistenceFilter(String containerName, long expectedEntries,
+			double falsePositiveProbability) {
+		checkClosed();
+		ExistenceFilter filter = new ExistenceFilter(containerName, expectedEntries, falsePositiveProbability);
+
+		// Register the filter before the listing so that paths written during the listing are added to it
+		existenceFilters.put(containerName, filter);
+		try {
+			filter.populate(getBlobStoreContext().getBlobStore());
+		} catch (RuntimeException e) {
+			existenceFilters.remove(containerName, filter);
+			throw e;
+		}
+
+		return filter;
+	}
+
+	/**
+	 * Disables the {@link ExistenceFilter} for a container
+	 * @param containerName
+	 */
+	public void disableExistenceFilter(String containerName) {
+		existenceFilters.remove(containerName);
+	}
+
+	/**
+	 * @param containerName
+	 * @return The {@link ExistenceFilter} for the container, or null if it is not enabled
+	 */
+	public ExistenceFilter getExistenceFilter(String containerName) {
+		return existenceFilters.get(containerName);
+	}
+
+	/**
+	 * Enables a {@link MetadataIndex} for a container, which can then be {@link #queryMetadataIndex(CloudPath, MetadataQuery)
+	 * queried} for the objects with given user metadata values or content type. The index starts empty and holds
+	 * the objects written or listed through this file system from then on. To query the objects which are already
+	 * in the container, {@link MetadataIndex#populate(org.jclouds.blobstore.BlobStore, String) populate} the index.
+	 * @param containerName	The container
+	 * @return The index for the container, which is the existing index if one was already enabled
+	 */
+	public MetadataIndex enableMetadataIndex(String containerName) {
+		checkClosed();
+		return metadataIndexes.computeIfAbsent(containerName, MetadataIndex::new);
+	}
+
+	/**
+	 * Disables the {@link MetadataIndex} for a container
+	 * @param containerName
+	 */
+	public void disableMetadataIndex(String containerName) {
+		MetadataIndex index = metadataIndexes.remove(containerName);
+		if (index != null) {
+			index.clear();
+		}
+	}
+
+	/**
+	 * @param containerName
+	 * @return The {@link MetadataIndex} for the container, or null if it is not enabled
+	 */
+	public MetadataIndex getMetadataIndex(String containerName) {
+		return metadataIndexes.get(containerName);
+	}
+
+	/**
+	 * @param path
+	 * @return The metadata of the path in the container's {@link MetadataIndex}, or null if it is not indexed
+	 */
+	public StorageMetadata getIndexedMetadata(CloudPath path) {
+		MetadataIndex index = metadataIndexes.get(path.getContainerName());
+		return index == null ? null : index.get(path.getPathName());
+	}
+
+	/**
+	 * Finds the objects under a directory which match a query from the container's {@link MetadataIndex}, without
+	 * any requests to the cloud
+	 * @param directory	The container or directory to search beneath
+	 * @param query		The user metadata values and content type to match
+	 * @return The matching paths sorted by key, with their attributes
+	 * @throws IllegalStateException If the container does not have a metadata index
+	 */
+	public List<CloudPathWithAttributes> queryMetadataIndex(CloudPath directory, MetadataQuery query) {
+		checkClosed();
+		String containerName = directory.getContainerName();
+		MetadataIndex index = metadataIndexes.get(containerName);
+		if (index == null) {
+			throw new IllegalStateException("A metadata index is not enabled for container '" + containerName + "'");
+		}
+
+		String prefix = directory.getPathName() == null ? null :
+			StringUtils.appendIfMissing(directory.getPathName(), CloudPath.DEFAULT_PATH_SEPARATOR);
+		List<CloudPathWithAttributes> paths = new ArrayList<>();
+		index.query(prefix, query).forEach((key, meta) -> paths.add(new CloudPathWithAttributes(this, true,
+				CloudPath.DEFAULT_PATH_SEPARATOR + containerName + CloudPath.DEFAULT_PATH_SEPARATOR + key,
+				new CloudBasicFileAttributes(meta))));
+		return paths;
+	}
+
+	/**
+	 * Invalidates any cached state for a path which has been created, modified or deleted through this
+	 * file system, as for {@link #invalidateCaches(CloudPath)}, and then puts the metadata which was written
+	 * for the path into the container's {@link MetadataIndex}
+	 * @param path
+	 * @param writtenMetadata	The metadata written for the path, or null if this is not known
+	 */
+	public void invalidateCaches(CloudPath path, StorageMetadata writtenMetadata) {
+		invalidateCaches(path);
+
+		MetadataIndex index = metadataIndexes.get(path.getContainerName());
+		if (index != null && writtenMetadata != null && path.getPathName() != null) {
+			index.put(path.getPathName(), writtenMetadata);
+		}
+	}
+
+	/**
+	 * Invalidates any cached state for a path which has been created, modified or deleted through this
+	 * file system. If the path is a container then all of the cached state for the container is invalidated.
+	 * The path is added to the container's {@link ExistenceFilter}, as it may now exist, and removed from the
+	 * container's {@link MetadataIndex}, as its metadata is no longer known.
+	 * @param path
+	 */
+	public void invalidateCaches(CloudPath path) {
+		ListingCache cache = getListingCache();
+
+		if (cache != null) {
+			cache.invalidate(path);
+		}
+
+		Optional<MetadataCache> attributesCache = metadataCache;
+		if (attributesCache != null && attributesCache.isPresent()) {
+			attributesCache.get().invalidate(path);
+		}
+
+		Optional<NegativeCache> missingPathsCache = negativeCache;
+		if (missingPathsCache != null && missingPathsCache.isPresent()) {
+			missingPathsCache.get().invalidate(path);
+		}
+
+		Optional<ExpiringCache<String,List<Path>>> rootCache = rootDirectoriesCache;
+		if (path.getPathName() == null && rootCache != null && rootCache.isPresent()) {
+			rootCache.get().invalidate(ROOT_DIRECTORIES_KEY);
+		}
+
+		ExistenceFilter existenceFilter = existenceFilters.get(path.getContainerName());
+		if (existenceFilter != null && path.getPathName() != null) {
+			existenceFilter.add(path.getPathName());
+		}
+
+		MetadataIndex index = metadataIndexes.get(path.getContainerName());
+		if (index != null) {
+			index.remove(path.getPathName());
+		}
+
+		fileStore.getUsageView().invalidate(path.getContainerName());
+	}
+
 	/**
 	 * Returns the underlying JClouds {@link BlobStoreContext}
 	 * @return
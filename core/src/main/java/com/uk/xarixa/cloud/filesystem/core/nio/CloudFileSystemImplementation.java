@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.nio.file.AccessMode;
 import java.nio.file.CopyOption;
 import java.nio.file.DirectoryStream.Filter;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
@@ -14,14 +16,25 @@ import java.nio.file.attribute.FileAttributeView;
 import java.nio.file.spi.FileSystemProvider;
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.jclouds.blobstore.BlobStoreContext;
 
 import com.uk.xarixa.cloud.filesystem.core.host.configuration.CloudHostConfiguration;
 import com.uk.xarixa.cloud.filesystem.core.nio.channels.CloudFileChannel;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.CloudDirectoryStream;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.DirectoryUsage;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.DirectoryUsageCalculator;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.KeyRange;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.KeyRangePartitioner;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.ListingSnapshot;
+import com.uk.xarixa.cloud.filesystem.core.nio.index.ListingIndex;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.ListingContinuationToken;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.ListingMode;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.AttributeSelector;
 import com.uk.xarixa.cloud.filesystem.core.nio.options.DeleteOption;
 
 /**
@@ -72,6 +85,70 @@ public interface CloudFileSystemImplementation {
 	CloudDirectoryStream newDirectoryStream(BlobStoreContext context, CloudPath dir,
 			Filter<CloudPath> filter, boolean isRecursive) throws IOException;
 
+	/**
+	 * Lists the direct children of a directory using a {@link ListingMode#DELIMITED delimited} listing, where
+	 * subdirectories are returned from the common key prefixes whether or not they have directory marker blobs.
+	 * The <em>dir</em> is always treated as a directory, so there is no request to read its attributes.
+	 * @see FileSystemProvider#newDirectoryStream(Path, Filter)
+	 */
+	CloudDirectoryStream newDelimitedDirectoryStream(BlobStoreContext context, CloudPath dir,
+			Filter<CloudPath> filter) throws IOException;
+
+	/**
+	 * Resumes a directory listing from the position recorded in a continuation token obtained from
+	 * {@link CloudDirectoryStream#getContinuationToken()}. The <em>dir</em> must be the same path which
+	 * was used to create the original directory stream.
+	 * @see #newDirectoryStream(BlobStoreContext, CloudPath, Filter, boolean)
+	 */
+	CloudDirectoryStream resumeDirectoryStream(BlobStoreContext context, CloudPath dir,
+			ListingContinuationToken continuationToken, Filter<CloudPath> filter) throws IOException;
+
+	/**
+	 * Splits the keys beneath a directory or container into a number of roughly balanced key ranges, which
+	 * can be listed independently with {@link #newKeyRangeDirectoryStream(BlobStoreContext, CloudPath, KeyRange, Filter)}
+	 * @see KeyRangePartitioner
+	 */
+	List<KeyRange> partitionKeySpace(BlobStoreContext context, CloudPath dir, int partitions) throws IOException;
+
+	/**
+	 * Recursively lists all of the keys beneath a directory or container within a single key range
+	 * @see #partitionKeySpace(BlobStoreContext, CloudPath, int)
+	 */
+	CloudDirectoryStream newKeyRangeDirectoryStream(BlobStoreContext context, CloudPath dir, KeyRange keyRange,
+			Filter<CloudPath> filter) throws IOException;
+
+	/**
+	 * Lists a directory or container into a compact {@link ListingSnapshot}, which uses far less memory
+	 * than holding a path for each entry when the listing is very large
+	 * @param isRecursive	Whether to list all of the keys beneath the directory or only its direct children
+	 */
+	ListingSnapshot createListingSnapshot(BlobStoreContext context, CloudPath dir, boolean isRecursive) throws IOException;
+
+	/**
+	 * Builds a {@link ListingIndex} of all of the keys beneath a directory or container from a recursive listing
+	 */
+	ListingIndex buildListingIndex(BlobStoreContext context, CloudPath dir) throws IOException;
+
+	/**
+	 * Calculates the total size and number of files beneath a directory or container, and for each
+	 * subdirectory down to a maximum depth
+	 * @param maxDepth	The depth of subdirectories to calculate the usage for, 0 for just the directory itself
+	 * @param executor	The executor to list the key ranges on, or null to use a single listing on this thread
+	 * @param shards	The number of key ranges to split the listing into when an executor is given
+	 * @see DirectoryUsageCalculator
+	 */
+	DirectoryUsage getDirectoryUsage(BlobStoreContext context, CloudPath dir, int maxDepth, ExecutorService executor,
+			int shards) throws IOException;
+
+	/**
+	 * Walks the file tree beneath the <em>start</em> path in the same manner as
+	 * {@link Files#walkFileTree(Path, java.util.Set, int, FileVisitor)}, but using a single recursive
+	 * listing for the whole tree rather than a listing per directory.
+	 * @see CloudFileSystemProvider#walkFileTree(Path, int, FileVisitor)
+	 */
+	void walkFileTree(BlobStoreContext context, CloudPath start, int maxDepth,
+			FileVisitor<? super Path> visitor) throws IOException;
+
 	/**
 	 * @see FileSystemProvider#createDirectory(Path, FileAttribute...)
 	 */
@@ -88,12 +165,23 @@ public interface CloudFileSystemImplementation {
 	 */
 	void delete(BlobStoreContext context, Collection<CloudPath> paths, EnumSet<DeleteOption> options) throws IOException;
 
+	/**
+	 * @see CloudFileSystemProvider#emptyContainer(CloudPath, DeleteProgressListener)
+	 */
+	void emptyContainer(BlobStoreContext context, CloudPath container, DeleteProgressListener progressListener)
+			throws IOException;
+
 	/**
 	 * @see FileSystemProvider#copy(Path, Path, CopyOption...)
 	 */
 	CloudMethod copy(BlobStoreContext context, CloudPath source, Path target, Set<CopyOption> options) throws IOException;
 
 	/**
+	 * Copies each of the sources to the target
+	 * @return The method used to copy each source, and for a recursive copy each path copied beneath a source
+	 * 			directory, or null if {@link com.uk.xarixa.cloud.filesystem.core.nio.options.CloudCopyOption#DONT_RETURN_COPY_METHOD}
+	 * 			was specified. The default implementation returns a {@link CopyResults}, which also has the
+	 * 			paths which could not be copied and the throughput of the copy.
 	 * @see FileSystemProvider#copy(Path, Path, CopyOption...)
 	 */
 	Map<CloudPath,CloudMethod> copy(BlobStoreContext context, Set<CloudPath> sources, Path target, Set<CopyOption> options) throws IOException;
@@ -109,6 +197,12 @@ public interface CloudFileSystemImplementation {
 	void checkAccess(BlobStoreContext context,
 			CloudPath path, Set<AclEntryPermission> checkPermissions) throws IOException;
 
+	/**
+	 * Tests if a path exists with the cheapest request possible
+	 * @see Files#exists(Path, java.nio.file.LinkOption...)
+	 */
+	boolean exists(BlobStoreContext context, CloudPath path) throws IOException;
+
 	/**
 	 * @see FileSystemProvider#getFileAttributeView(Path, Class, LinkOption...)
 	 */
@@ -130,6 +224,13 @@ public interface CloudFileSystemImplementation {
 	Map<String, Object> readAttributes(BlobStoreContext context,
 			CloudPath path, String attributes) throws IOException;
 
+	/**
+	 * Reads only the attributes chosen by a compiled {@link AttributeSelector}
+	 * @see #readAttributes(BlobStoreContext, CloudPath, String)
+	 */
+	Map<String, Object> readAttributes(BlobStoreContext context,
+			CloudPath path, AttributeSelector selector) throws IOException;
+
 	/**
 	 * @throws IOException 
 	 * @see FileSystemProvider#setAttribute(Path, String, Object, LinkOption...)
@@ -4,11 +4,27 @@ import java.io.IOException;
 import java.nio.file.CopyOption;
 import java.nio.file.DirectoryStream;
 import java.nio.file.DirectoryStream.Filter;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.spi.FileSystemProvider;
+import java.util.Collection;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
+import com.uk.xarixa.cloud.filesystem.core.nio.file.CloudDirectoryStream;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.DirectoryUsage;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.KeyRange;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.ListingSnapshot;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.MergedDirectoryStream;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.AttributeSelector;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.AttributeWriteBatch;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.BulkAttributesResult;
+import com.uk.xarixa.cloud.filesystem.core.nio.index.ListingIndex;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.ListingContinuationToken;
 import com.uk.xarixa.cloud.filesystem.core.nio.options.DeleteOption;
 
 /**
@@ -28,6 +44,134 @@ public interface CloudFileSystemProvider {
 	DirectoryStream<Path> newDirectoryStream(Path dir, Filter<? super Path> filter, boolean isRecursive)
 			throws IOException;
 
+	/**
+	 * Similar to {@link FileSystemProvider#newDirectoryStream(Path, Filter)} except that subdirectories are
+	 * found from the common key prefixes in the listing, so directories which only exist implicitly as part
+	 * of the keys beneath them are returned without needing directory marker blobs. Each directory level
+	 * costs a single listing request for each page.
+	 * @param dir
+	 * @param filter
+	 * @return
+	 * @throws IOException
+	 */
+	DirectoryStream<Path> newDelimitedDirectoryStream(Path dir, Filter<? super Path> filter) throws IOException;
+
+	/**
+	 * Lists several directories, usually the same directory in different containers, as a single stream
+	 * merged in key order. Paths with the same key are returned in the order of the directories.
+	 * @param dirs
+	 * @param filter
+	 * @param isRecursive
+	 * @return
+	 * @throws IOException
+	 * @see MergedDirectoryStream
+	 */
+	DirectoryStream<Path> newMergedDirectoryStream(List<Path> dirs, Filter<? super Path> filter, boolean isRecursive)
+			throws IOException;
+
+	/**
+	 * Resumes a directory listing from an encoded continuation token, which is obtained from
+	 * {@link CloudDirectoryStream#getContinuationToken()} and {@link ListingContinuationToken#encode()}.
+	 * This allows a listing to be continued by another process after a failure, or to be paged through
+	 * by a stateless service.
+	 * @param dir					The path which was used to open the original directory stream
+	 * @param continuationToken		The encoded continuation token
+	 * @param filter
+	 * @return
+	 * @throws IOException
+	 * @throws IllegalArgumentException If the token is invalid or is not for a listing of <em>dir</em>
+	 */
+	DirectoryStream<Path> resumeDirectoryStream(Path dir, String continuationToken, Filter<? super Path> filter)
+			throws IOException;
+
+	/**
+	 * Splits the keys beneath a directory or container into a number of roughly balanced lexical key ranges
+	 * by sampling the listing. Each range can be listed with
+	 * {@link #newKeyRangeDirectoryStream(Path, KeyRange, Filter)}, so that separate workers can process
+	 * a slice of a large container each without any coordination.
+	 * @param dir
+	 * @param partitions	The number of key ranges to create
+	 * @return The key ranges in order, which together cover all keys beneath the directory
+	 * @throws IOException
+	 */
+	List<KeyRange> partitionKeySpace(Path dir, int partitions) throws IOException;
+
+	/**
+	 * Recursively lists the keys beneath a directory or container which are within a key range
+	 * @param dir			The directory which was partitioned
+	 * @param keyRange		The key range from {@link #partitionKeySpace(Path, int)}
+	 * @param filter
+	 * @return
+	 * @throws IOException
+	 */
+	DirectoryStream<Path> newKeyRangeDirectoryStream(Path dir, KeyRange keyRange, Filter<? super Path> filter)
+			throws IOException;
+
+	/**
+	 * Lists a directory or container into a compact, columnar {@link ListingSnapshot} for bulk operations
+	 * over very large listings
+	 * @param dir
+	 * @param isRecursive	Whether to list all of the keys beneath the directory or only its direct children
+	 * @return
+	 * @throws IOException
+	 */
+	ListingSnapshot createListingSnapshot(Path dir, boolean isRecursive) throws IOException;
+
+	/**
+	 * Builds a sorted, compressed {@link ListingIndex} of all of the keys beneath a directory or container, which
+	 * can be saved and {@link CloudFileSystem#attachListingIndex(ListingIndex) attached} to a file system to answer
+	 * listings and attribute reads in snapshot read mode
+	 * @param dir
+	 * @return The index
+	 * @throws IOException
+	 */
+	ListingIndex buildListingIndex(Path dir) throws IOException;
+
+	/**
+	 * Calculates the total size and number of files beneath a directory or container, similar to <em>du</em>,
+	 * from a single recursive listing
+	 * @param dir
+	 * @param maxDepth	The depth of subdirectories to return the usage for, 0 for just the directory itself
+	 * @return The usage of the directory and its subdirectories
+	 * @throws IOException
+	 */
+	DirectoryUsage getDirectoryUsage(Path dir, int maxDepth) throws IOException;
+
+	/**
+	 * Calculates the usage of a very large directory or container by splitting the listing into key ranges
+	 * which are listed in parallel
+	 * @param dir
+	 * @param maxDepth	The depth of subdirectories to return the usage for, 0 for just the directory itself
+	 * @param executor	The executor to list each key range on
+	 * @param shards	The number of key ranges to split the listing into
+	 * @return The usage of the directory and its subdirectories
+	 * @throws IOException
+	 * @see #partitionKeySpace(Path, int)
+	 */
+	DirectoryUsage getDirectoryUsage(Path dir, int maxDepth, ExecutorService executor, int shards) throws IOException;
+
+	/**
+	 * Similar to {@link Files#walkFileTree(Path, FileVisitor)} except that the whole tree is walked
+	 * using a single recursive listing rather than listing each directory in turn.
+	 * @param start
+	 * @param visitor
+	 * @return The <em>start</em> path
+	 * @throws IOException
+	 */
+	Path walkFileTree(Path start, FileVisitor<? super Path> visitor) throws IOException;
+
+	/**
+	 * Similar to {@link Files#walkFileTree(Path, Set, int, FileVisitor)} except that the whole tree is walked
+	 * using a single recursive listing rather than listing each directory in turn. Symbolic links are not
+	 * supported so there are no file visit options.
+	 * @param start
+	 * @param maxDepth
+	 * @param visitor
+	 * @return The <em>start</em> path
+	 * @throws IOException
+	 */
+	Path walkFileTree(Path start, int maxDepth, FileVisitor<? super Path> visitor) throws IOException;
+
 	/**
 	 * Delete a single path with the given delete options
 	 * @param path
@@ -52,6 +196,16 @@ public interface CloudFileSystemProvider {
 	 */
 	void delete(Set<CloudPath> path, EnumSet<DeleteOption> options) throws IOException;
 
+	/**
+	 * Deletes everything in a container but leaves the container itself. When the caller can delete the container
+	 * this does not read or check the ACL's of each key.
+	 * @param container			The container to empty
+	 * @param progressListener	Receives the progress of the delete and can cancel it, or null
+	 * @throws CancelException If the progress listener cancelled the delete
+	 * @throws IOException
+	 */
+	void emptyContainer(CloudPath container, DeleteProgressListener progressListener) throws IOException;
+
 	/**
 	 * Copy multiple paths to the target
 	 * @param source
@@ -70,4 +224,45 @@ public interface CloudFileSystemProvider {
 	 */
 	void copy(Set<CloudPath> source, Path target, Set<CopyOption> options) throws IOException;
 
+	/**
+	 * Reads the basic attributes of many paths with up to <em>maxConcurrentRequests</em> reads in flight at once.
+	 * Each distinct path is read once. Paths which could not be read, such as those which do not exist, are
+	 * returned in the {@link BulkAttributesResult#getFailures() failures} rather than failing the whole read.
+	 * @param paths
+	 * @param maxConcurrentRequests
+	 * @return The attributes and failures for each distinct path
+	 * @throws IOException
+	 */
+	BulkAttributesResult readAttributes(Collection<? extends Path> paths, int maxConcurrentRequests) throws IOException;
+
+	/**
+	 * Similar to {@link FileSystemProvider#readAttributes(Path, String, java.nio.file.LinkOption...)} except that
+	 * the attributes string has already been compiled, so a selector can be reused across many paths
+	 * @param path
+	 * @param selector
+	 * @return A map of the selected attribute names to their values
+	 * @throws IOException
+	 */
+	Map<String, Object> readAttributes(Path path, AttributeSelector selector) throws IOException;
+
+	/**
+	 * Tests if a path exists with the cheapest request possible, which does not read the ACL's of the path
+	 * unless the {@link com.uk.xarixa.cloud.filesystem.core.security.CloudHostSecurityManager} protects existence
+	 * @param path
+	 * @return true if the path exists
+	 * @throws IOException
+	 */
+	boolean exists(Path path) throws IOException;
+
+	/**
+	 * Writes the attributes in the batch with up to <em>maxConcurrentRequests</em> paths written at once. Each
+	 * path is written with a single request. Paths which could not be written are returned rather than failing
+	 * the whole batch.
+	 * @param batch
+	 * @param maxConcurrentRequests
+	 * @return The exception for each path which could not be written
+	 * @throws IOException
+	 */
+	Map<CloudPath,IOException> writeAttributes(AttributeWriteBatch batch, int maxConcurrentRequests) throws IOException;
+
 }
@@ -12,6 +12,7 @@ import java.nio.file.DirectoryStream.Filter;
 import java.nio.file.FileStore;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileVisitor;
 import java.nio.file.LinkOption;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
@@ -20,15 +21,18 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.FileAttributeView;
 import java.nio.file.spi.FileSystemProvider;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jclouds.blobstore.BlobStoreContext;
 
@@ -37,6 +41,16 @@ import com.uk.xarixa.cloud.filesystem.core.host.configuration.CloudHostConfigura
 import com.uk.xarixa.cloud.filesystem.core.host.factory.CloudHostProvider;
 import com.uk.xarixa.cloud.filesystem.core.host.factory.JCloudsCloudHostProvider;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.CloudDirectoryStream;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.DirectoryUsage;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.KeyRange;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.ListingSnapshot;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.MergedDirectoryStream;
+import com.uk.xarixa.cloud.filesystem.core.nio.index.ListingIndex;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.ListingContinuationToken;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.AttributeSelector;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.AttributeWriteBatch;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.BulkAttributesReader;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.BulkAttributesResult;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudBasicFileAttributes;
 import com.uk.xarixa.cloud.filesystem.core.nio.options.CloudCopyOption;
 import com.uk.xarixa.cloud.filesystem.core.nio.options.DeleteOption;
@@ -149,6 +163,114 @@ public class CloudFileSystemProviderDelegate extends FileSystemProvider implemen
 		return (DirectoryStream)newDirectoryStream;
 	}
 
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public DirectoryStream<Path> newDelimitedDirectoryStream(Path dir, Filter<? super Path> filter) throws IOException {
+		CloudPath cloudPath = getCloudPath(dir);
+		CloudFileSystemImplementation cloudFileSystemImplementation = getCloudFileSystemImplementation(cloudPath);
+		CloudDirectoryStream delimitedDirectoryStream =
+				cloudFileSystemImplementation.newDelimitedDirectoryStream(getBlobStoreContext(cloudPath), cloudPath,
+						(Filter)filter);
+		return (DirectoryStream)delimitedDirectoryStream;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public DirectoryStream<Path> newMergedDirectoryStream(List<Path> dirs, Filter<? super Path> filter,
+			boolean isRecursive) throws IOException {
+		List<CloudDirectoryStream> streams = new ArrayList<>(dirs.size());
+
+		try {
+			for (Path dir : dirs) {
+				CloudPath cloudPath = getCloudPath(dir);
+				CloudFileSystemImplementation cloudFileSystemImplementation = getCloudFileSystemImplementation(cloudPath);
+				streams.add(cloudFileSystemImplementation.newDirectoryStream(getBlobStoreContext(cloudPath), cloudPath,
+						(Filter)filter, isRecursive));
+			}
+		} catch (IOException | RuntimeException e) {
+			for (CloudDirectoryStream stream : streams) {
+				IOUtils.closeQuietly(stream);
+			}
+			throw e;
+		}
+
+		return (DirectoryStream)new MergedDirectoryStream(streams);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public DirectoryStream<Path> resumeDirectoryStream(Path dir, String continuationToken, Filter<? super Path> filter)
+			throws IOException {
+		CloudPath cloudPath = getCloudPath(dir);
+		CloudFileSystemImplementation cloudFileSystemImplementation = getCloudFileSystemImplementation(cloudPath);
+		CloudDirectoryStream resumedDirectoryStream =
+				cloudFileSystemImplementation.resumeDirectoryStream(getBlobStoreContext(cloudPath), cloudPath,
+						ListingContinuationToken.decode(continuationToken), (Filter)filter);
+		return (DirectoryStream)resumedDirectoryStream;
+	}
+
+	@Override
+	public List<KeyRange> partitionKeySpace(Path dir, int partitions) throws IOException {
+		CloudPath cloudPath = getCloudPath(dir);
+		CloudFileSystemImplementation cloudFileSystemImplementation = getCloudFileSystemImplementation(cloudPath);
+		return cloudFileSystemImplementation.partitionKeySpace(getBlobStoreContext(cloudPath), cloudPath, partitions);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public DirectoryStream<Path> newKeyRangeDirectoryStream(Path dir, KeyRange keyRange, Filter<? super Path> filter)
+			throws IOException {
+		CloudPath cloudPath = getCloudPath(dir);
+		CloudFileSystemImplementation cloudFileSystemImplementation = getCloudFileSystemImplementation(cloudPath);
+		CloudDirectoryStream keyRangeDirectoryStream =
+				cloudFileSystemImplementation.newKeyRangeDirectoryStream(getBlobStoreContext(cloudPath), cloudPath,
+						keyRange, (Filter)filter);
+		return (DirectoryStream)keyRangeDirectoryStream;
+	}
+
+	@Override
+	public ListingSnapshot createListingSnapshot(Path dir, boolean isRecursive) throws IOException {
+		CloudPath cloudPath = getCloudPath(dir);
+		CloudFileSystemImplementation cloudFileSystemImplementation = getCloudFileSystemImplementation(cloudPath);
+		return cloudFileSystemImplementation.createListingSnapshot(getBlobStoreContext(cloudPath), cloudPath, isRecursive);
+	}
+
+	@Override
+	public ListingIndex buildListingIndex(Path dir) throws IOException {
+		CloudPath cloudPath = getCloudPath(dir);
+		CloudFileSystemImplementation cloudFileSystemImplementation = getCloudFileSystemImplementation(cloudPath);
+		return cloudFileSystemImplementation.buildListingIndex(getBlobStoreContext(cloudPath), cloudPath);
+	}
+
+	@Override
+	public DirectoryUsage getDirectoryUsage(Path dir, int maxDepth) throws IOException {
+		CloudPath cloudPath = getCloudPath(dir);
+		CloudFileSystemImplementation cloudFileSystemImplementation = getCloudFileSystemImplementation(cloudPath);
+		return cloudFileSystemImplementation.getDirectoryUsage(getBlobStoreContext(cloudPath), cloudPath, maxDepth, null, 1);
+	}
+
+	@Override
+	public DirectoryUsage getDirectoryUsage(Path dir, int maxDepth, ExecutorService executor, int shards)
+			throws IOException {
+		CloudPath cloudPath = getCloudPath(dir);
+		CloudFileSystemImplementation cloudFileSystemImplementation = getCloudFileSystemImplementation(cloudPath);
+		return cloudFileSystemImplementation.getDirectoryUsage(getBlobStoreContext(cloudPath), cloudPath, maxDepth,
+				executor, shards);
+	}
+
+	@Override
+	public Path walkFileTree(Path start, FileVisitor<? super Path> visitor) throws IOException {
+		return walkFileTree(start, Integer.MAX_VALUE, visitor);
+	}
+
+	@Override
+	public Path walkFileTree(Path start, int maxDepth, FileVisitor<? super Path> visitor) throws IOException {
+		CloudPath cloudPath = getCloudPath(start);
+		CloudFileSystemImplementation cloudFileSystemImplementation = getCloudFileSystemImplementation(cloudPath);
+		cloudFileSystemImplementation.walkFileTree(getBlobStoreContext(cloudPath), cloudPath, maxDepth, visitor);
+		return start;
+	}
+
 	@Override
 	public void createDirectory(Path dir, FileAttribute<?>... attrs) throws IOException {
 		CloudPath cloudPath = getCloudPath(dir);
@@ -191,6 +313,12 @@ public class CloudFileSystemProviderDelegate extends FileSystemProvider implemen
 		}
 	}
 
+	@Override
+	public void emptyContainer(CloudPath container, DeleteProgressListener progressListener) throws IOException {
+		CloudFileSystemImplementation cloudFileSystemImplementation = getCloudFileSystemImplementation(container);
+		cloudFileSystemImplementation.emptyContainer(getBlobStoreContext(container), container, progressListener);
+	}
+
 	EnumSet<DeleteOption> deleteOptionsToEnumSet(DeleteOption... options) {
 		return Arrays.stream(options).collect(Collectors.toCollection(() -> EnumSet.noneOf(DeleteOption.class)));
 	}
@@ -331,6 +459,42 @@ public class CloudFileSystemProviderDelegate extends FileSystemProvider implemen
 		return sourceCloudFileSystemImplementation.readAttributes(getBlobStoreContext(cloudPath), cloudPath, attributes);
 	}
 
+	@Override
+	public Map<String, Object> readAttributes(Path path, AttributeSelector selector) throws IOException {
+		CloudPath cloudPath = getCloudPath(path);
+		CloudFileSystemImplementation sourceCloudFileSystemImplementation = getCloudFileSystemImplementation(cloudPath);
+		return sourceCloudFileSystemImplementation.readAttributes(getBlobStoreContext(cloudPath), cloudPath, selector);
+	}
+
+	@Override
+	public boolean exists(Path path) throws IOException {
+		CloudPath cloudPath = getCloudPath(path);
+		CloudFileSystemImplementation sourceCloudFileSystemImplementation = getCloudFileSystemImplementation(cloudPath);
+		return sourceCloudFileSystemImplementation.exists(getBlobStoreContext(cloudPath), cloudPath);
+	}
+
+	/**
+	 * Reads each path with {@link #readAttributes(Path, Class, LinkOption...)} using a {@link BulkAttributesReader}
+	 */
+	@Override
+	public BulkAttributesResult readAttributes(Collection<? extends Path> paths, int maxConcurrentRequests)
+			throws IOException {
+		List<CloudPath> cloudPaths = paths.stream().map(this::getCloudPath).collect(Collectors.toList());
+		return new BulkAttributesReader(p -> readAttributes(p, CloudBasicFileAttributes.class), maxConcurrentRequests)
+				.read(cloudPaths);
+	}
+
+	/**
+	 * Sets the {@link DefaultCloudFileSystemImplementation#ACL_SET_ATTRIBUTE ACL's} of each path in the batch
+	 * with {@link #setAttribute(Path, String, Object, LinkOption...)}
+	 */
+	@Override
+	public Map<CloudPath,IOException> writeAttributes(AttributeWriteBatch batch, int maxConcurrentRequests)
+			throws IOException {
+		return batch.write((path, aclSet) ->
+				setAttribute(path, DefaultCloudFileSystemImplementation.ACL_SET_ATTRIBUTE, aclSet), maxConcurrentRequests);
+	}
+
 	@Override
 	public void setAttribute(Path path, String attribute, Object value, LinkOption... options) throws IOException {
 		CloudPath cloudPath = getCloudPath(path);
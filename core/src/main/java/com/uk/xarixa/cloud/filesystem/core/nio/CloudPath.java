@@ -12,6 +12,7 @@ import java.nio.file.WatchEvent.Kind;
 import java.nio.file.WatchEvent.Modifier;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.nio.file.spi.FileSystemProvider;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -461,11 +462,19 @@ public class CloudPath implements Path {
 	}
 	
 	/**
+	 * Uses the cheap existence check of the {@link CloudFileSystemProvider} if there is one
 	 * @see Files#exists(Path, LinkOption...)
+	 * @see CloudFileSystemProvider#exists(Path)
 	 * @return
 	 * @throws IOException 
 	 */
 	public boolean exists() throws IOException {
+		FileSystemProvider provider = getFileSystem().provider();
+
+		if (provider instanceof CloudFileSystemProvider) {
+			return ((CloudFileSystemProvider)provider).exists(this);
+		}
+
 		return Files.exists(this);
 	}
 
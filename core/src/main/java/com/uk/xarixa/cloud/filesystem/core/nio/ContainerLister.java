@@ -0,0 +1,109 @@
+package com.uk.xarixa.cloud.filesystem.core.nio;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jclouds.apis.ApiMetadata;
+import org.jclouds.azure.storage.domain.BoundedSet;
+import org.jclouds.azure.storage.options.ListOptions;
+import org.jclouds.azureblob.AzureBlobApiMetadata;
+import org.jclouds.azureblob.AzureBlobClient;
+import org.jclouds.azureblob.domain.ContainerProperties;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.domain.Location;
+import org.jclouds.openstack.swift.v1.SwiftApi;
+import org.jclouds.openstack.swift.v1.SwiftApiMetadata;
+import org.jclouds.openstack.swift.v1.domain.Container;
+import org.jclouds.openstack.swift.v1.features.ContainerApi;
+import org.jclouds.openstack.swift.v1.options.ListContainerOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.Iterables;
+
+/**
+ * <p>
+ * Lists the names of every container in a blob store. The jclouds {@link org.jclouds.blobstore.BlobStore#list()}
+ * has no options to read a further page of containers, and drops the marker of any further page, so the
+ * containers are paged with the provider API where the provider pages them:
+ * </p>
+ * <ul>
+ * <li>Azure returns up to 5000 containers in each page, which are paged with the next marker.
+ * <li>OpenStack Swift returns up to 10000 containers in each page, which are paged from the last container name.
+ * </ul>
+ * <p>
+ * For any other blob store, such as S3 which returns every bucket in one response, the single page from
+ * {@link org.jclouds.blobstore.BlobStore#list()} is returned.
+ * </p>
+ */
+public final class ContainerLister {
+	private static final Logger LOG = LoggerFactory.getLogger(ContainerLister.class);
+
+	private ContainerLister() {
+	}
+
+	/**
+	 * @return The names of every container in the blob store
+	 */
+	public static List<String> listContainerNames(BlobStoreContext context) {
+		ApiMetadata apiMetadata = context.unwrap().getProviderMetadata().getApiMetadata();
+
+		if (apiMetadata instanceof AzureBlobApiMetadata) {
+			return listAzureContainerNames(context.unwrapApi(AzureBlobClient.class));
+		}
+
+		if (apiMetadata instanceof SwiftApiMetadata) {
+			// The blob store lists the containers of its own region, which is its only assignable location
+			Location location = Iterables.getFirst(context.getBlobStore().listAssignableLocations(), null);
+			if (location != null) {
+				return listSwiftContainerNames(context.unwrapApi(SwiftApi.class).getContainerApi(location.getId()));
+			}
+		}
+
+		return listFirstPage(context);
+	}
+
+	static List<String> listAzureContainerNames(AzureBlobClient client) {
+		List<String> names = new ArrayList<>();
+		String marker = null;
+
+		do {
+			BoundedSet<ContainerProperties> page = marker == null ? client.listContainers() :
+				client.listContainers(ListOptions.Builder.marker(marker));
+			page.forEach(c -> names.add(c.getName()));
+			marker = StringUtils.trimToNull(page.getNextMarker());
+		} while (marker != null);
+
+		return names;
+	}
+
+	static List<String> listSwiftContainerNames(ContainerApi containerApi) {
+		List<String> names = new ArrayList<>();
+		FluentIterable<Container> page = containerApi.list();
+
+		while (!page.isEmpty()) {
+			page.forEach(c -> names.add(c.getName()));
+			page = containerApi.list(ListContainerOptions.Builder.marker(page.last().get().getName()));
+		}
+
+		return names;
+	}
+
+	private static List<String> listFirstPage(BlobStoreContext context) {
+		PageSet<? extends StorageMetadata> page = context.getBlobStore().list();
+		List<String> names = new ArrayList<>(page.size());
+		page.forEach(m -> names.add(m.getName()));
+
+		if (page.getNextMarker() != null) {
+			LOG.warn("The blob store returned a partial list of {} containers, next marker '{}'",
+					names.size(), page.getNextMarker());
+		}
+
+		return names;
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.uk.xarixa.cloud.filesystem.core.nio;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystemImplementation.CloudMethod;
+import com.uk.xarixa.cloud.filesystem.core.nio.options.CloudCopyOption;
+
+/**
+ * <p>
+ * The {@link CloudMethod} which was used to copy each source path of a copy, sorted by path. For a recursive
+ * copy this has an entry for every path beneath the copied directory as well as for the directory itself.
+ * Paths can be added from many threads.
+ * </p>
+ * <p>
+ * The number of bytes copied and the time taken are also recorded, so that the throughput of a large copy
+ * can be reported. The paths which could not be copied when {@link CloudCopyOption#FAIL_SILENTLY} was specified
+ * are returned from {@link #getFailures()}.
+ * </p>
+ */
+public class CopyResults extends ConcurrentSkipListMap<CloudPath,CloudMethod> {
+	private static final long serialVersionUID = -3920413658436104147L;
+	private final Map<CloudPath,IOException> failures = new ConcurrentSkipListMap<>();
+	private final AtomicLong copiedBytes = new AtomicLong();
+	private final long startNanos = System.nanoTime();
+	private volatile long finishNanos;
+
+	/**
+	 * Records that a path was copied
+	 * @param source	The source path
+	 * @param method	The method which was used to copy it
+	 * @param bytes		The size of the path, or 0 for a directory or if the size is not known
+	 */
+	public void copied(CloudPath source, CloudMethod method, long bytes) {
+		put(source, method);
+		copiedBytes.addAndGet(bytes);
+	}
+
+	/**
+	 * Records that a path could not be copied
+	 */
+	public void failed(CloudPath source, IOException exception) {
+		failures.put(source, exception);
+	}
+
+	/**
+	 * Records the time that the copy finished, after which the throughput does not change
+	 */
+	public void finished() {
+		finishNanos = System.nanoTime();
+	}
+
+	/**
+	 * @return The exception for each path which could not be copied, sorted by path
+	 */
+	public Map<CloudPath,IOException> getFailures() {
+		return Collections.unmodifiableMap(failures);
+	}
+
+	/**
+	 * @return The number of bytes copied
+	 */
+	public long getCopiedBytes() {
+		return copiedBytes.get();
+	}
+
+	/**
+	 * @return The time taken by the copy, or so far if it has not {@link #finished()}
+	 */
+	public long getElapsedMillis() {
+		long finished = finishNanos;
+		return TimeUnit.NANOSECONDS.toMillis((finished == 0L ? System.nanoTime() : finished) - startNanos);
+	}
+
+	/**
+	 * @return The number of paths copied each second
+	 */
+	public double getPathsPerSecond() {
+		return perSecond(size());
+	}
+
+	/**
+	 * @return The number of bytes copied each second
+	 */
+	public double getBytesPerSecond() {
+		return perSecond(copiedBytes.get());
+	}
+
+	private double perSecond(long count) {
+		return count * 1000d / Math.max(1L, getElapsedMillis());
+	}
+
+	@Override
+	public String toString() {
+		return "CopyResults [paths=" + size() + ", failures=" + failures.size() + ", copiedBytes=" +
+				copiedBytes.get() + ", elapsedMillis=" + getElapsedMillis() + "]";
+	}
+
+}
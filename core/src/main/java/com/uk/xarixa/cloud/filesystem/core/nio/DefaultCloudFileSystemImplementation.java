@@ -2,10 +2,13 @@ package com.uk.xarixa.cloud.filesystem.core.nio;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.AccessDeniedException;
 import java.nio.file.CopyOption;
 import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.DirectoryStream.Filter;
 import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
@@ -16,19 +19,35 @@ import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.FileAttributeView;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.StringUtils;
 import org.jclouds.apis.ApiMetadata;
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.ContainerNotFoundException;
+import org.jclouds.blobstore.KeyNotFoundException;
+import org.jclouds.blobstore.domain.BlobAccess;
+import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.StorageType;
 import org.jclouds.blobstore.options.CopyOptions;
+import org.jclouds.blobstore.options.ListContainerOptions;
 import org.jclouds.domain.Location;
 import org.jclouds.io.ContentMetadata;
 import org.jclouds.io.ContentMetadataBuilder;
@@ -38,19 +57,34 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Iterables;
 import com.uk.xarixa.cloud.filesystem.core.host.configuration.CloudHostConfiguration;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.ExistenceFilter;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.MetadataCache;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.NegativeCache;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.SingleFlight;
 import com.uk.xarixa.cloud.filesystem.core.nio.channels.CloudFileChannel;
 import com.uk.xarixa.cloud.filesystem.core.nio.channels.CloudFileChannelTransport;
 import com.uk.xarixa.cloud.filesystem.core.nio.channels.DefaultCloudFileChannelTransport;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.CloudDirectoryStream;
-import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudAclEntry;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.KeyRange;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.KeyRangePartitioner;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.ListingContinuationToken;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.ListingMode;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.ListingSnapshot;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.CloudFileTreeWalker;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.DirectoryUsage;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.DirectoryUsageCalculator;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.AttributeSelector;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.AttributeWriteBatch;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudAclEntrySet;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudAclFileAttributes;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudBasicFileAttributes;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudFileAttributesView;
-import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.PublicPrivateCloudPermissionsPrincipal;
+import com.uk.xarixa.cloud.filesystem.core.nio.index.ListingIndex;
 import com.uk.xarixa.cloud.filesystem.core.nio.options.CloudCopyOption;
 import com.uk.xarixa.cloud.filesystem.core.nio.options.DeleteOption;
 import com.uk.xarixa.cloud.filesystem.core.security.CloudHostSecurityManager;
+import com.uk.xarixa.cloud.filesystem.core.utils.ParallelRequests;
+import com.uk.xarixa.cloud.filesystem.core.utils.ParallelRequests.BoundedRequests;
 
 /**
  * <p>
@@ -75,6 +109,7 @@ import com.uk.xarixa.cloud.filesystem.core.security.CloudHostSecurityManager;
 public class DefaultCloudFileSystemImplementation implements CloudFileSystemImplementation {
 	public static final String ACL_SET_ATTRIBUTE = "aclSet";
 	private static final Logger LOG = LoggerFactory.getLogger(DefaultCloudFileSystemImplementation.class);
+	public static final int DEFAULT_MAX_CONCURRENT_COPIES = 16;
 	private static final Set<AclEntryPermission> CREATE_NEW_FILE_PERMS = EnumSet.of(AclEntryPermission.ADD_FILE);
 	private static final Set<AclEntryPermission> NEW_DIRECTORY_STREAM_PERMS = EnumSet.of(AclEntryPermission.LIST_DIRECTORY);
 	private static final Set<AclEntryPermission> CREATE_DIRECTORY_STREAM_PERMS = EnumSet.of(AclEntryPermission.ADD_SUBDIRECTORY);
@@ -101,6 +136,7 @@ public class DefaultCloudFileSystemImplementation implements CloudFileSystemImpl
 			EnumSet.of(AclEntryPermission.WRITE_ATTRIBUTES, COPY_DIR_TARGET_PERMS.toArray(new AclEntryPermission[0]));
 	private static final Set<AclEntryPermission> COPY_DIR_TARGET_PARENT_PERMS =
 			EnumSet.of(AclEntryPermission.ADD_FILE, AclEntryPermission.ADD_SUBDIRECTORY);
+	private final SingleFlight<List<Object>,CloudAclFileAttributes> attributeReads = new SingleFlight<>();
 
 	/**
 	 * File access is checked using {@link #checkAccess(BlobStoreContext, CloudPath, Set)}
@@ -206,6 +242,134 @@ public class DefaultCloudFileSystemImplementation implements CloudFileSystemImpl
 		return new CloudDirectoryStream(dirPath, isContainer, isRecursive, filter);
 	}
 
+	/**
+	 * Directory access is checked using {@link #checkAccess(BlobStoreContext, CloudPath, Set)}
+	 * with {@link AclEntryPermission#LIST_DIRECTORY}.
+	 */
+	@Override
+	public CloudDirectoryStream newDelimitedDirectoryStream(BlobStoreContext context, CloudPath dir,
+			Filter<CloudPath> filter) throws IOException {
+		checkAccess(context, dir, NEW_DIRECTORY_STREAM_PERMS);
+		return new CloudDirectoryStream(dir, dir.getRoot() == null, ListingMode.DELIMITED, filter);
+	}
+
+	/**
+	 * Directory access is checked using {@link #checkAccess(BlobStoreContext, CloudPath, Set)}
+	 * with {@link AclEntryPermission#LIST_DIRECTORY}. The directory listed is taken from the token, which
+	 * avoids reading the attributes of <em>dir</em> again. If the original stream was opened on a file
+	 * then the token is for a listing of the parent directory.
+	 * @throws IllegalArgumentException If the token is not for a listing of <em>dir</em> or its parent
+	 */
+	@Override
+	public CloudDirectoryStream resumeDirectoryStream(BlobStoreContext context, CloudPath dir,
+			ListingContinuationToken continuationToken, Filter<CloudPath> filter) throws IOException {
+		checkAccess(context, dir, NEW_DIRECTORY_STREAM_PERMS);
+		CloudPath dirPath = dir;
+
+		if (!continuationToken.isListingOf(dirPath)) {
+			dirPath = dir.getParent();
+
+			if (dirPath == null || !continuationToken.isListingOf(dirPath)) {
+				throw new IllegalArgumentException("The continuation token " + continuationToken +
+						" is not for a listing of '" + dir + "'");
+			}
+		}
+
+		return new CloudDirectoryStream(dirPath, dirPath.getRoot() == null, continuationToken, filter);
+	}
+
+	/**
+	 * Directory access is checked using {@link #checkAccess(BlobStoreContext, CloudPath, Set)}
+	 * with {@link AclEntryPermission#LIST_DIRECTORY}. The key space is sampled using a {@link KeyRangePartitioner}.
+	 */
+	@Override
+	public List<KeyRange> partitionKeySpace(BlobStoreContext context, CloudPath dir, int partitions) throws IOException {
+		checkAccess(context, dir, NEW_DIRECTORY_STREAM_PERMS);
+		return new KeyRangePartitioner(context.getBlobStore(), dir.getContainerName(), dir.getPathName())
+				.partition(partitions);
+	}
+
+	/**
+	 * Directory access is checked using {@link #checkAccess(BlobStoreContext, CloudPath, Set)}
+	 * with {@link AclEntryPermission#LIST_DIRECTORY}.
+	 */
+	@Override
+	public CloudDirectoryStream newKeyRangeDirectoryStream(BlobStoreContext context, CloudPath dir, KeyRange keyRange,
+			Filter<CloudPath> filter) throws IOException {
+		checkAccess(context, dir, NEW_DIRECTORY_STREAM_PERMS);
+		return new CloudDirectoryStream(dir, dir.getRoot() == null, keyRange, filter);
+	}
+
+	/**
+	 * Directory access is checked using {@link #checkAccess(BlobStoreContext, CloudPath, Set)}
+	 * with {@link AclEntryPermission#LIST_DIRECTORY}.
+	 */
+	@Override
+	public ListingSnapshot createListingSnapshot(BlobStoreContext context, CloudPath dir, boolean isRecursive)
+			throws IOException {
+		checkAccess(context, dir, NEW_DIRECTORY_STREAM_PERMS);
+		return ListingSnapshot.create(dir, dir.getRoot() == null, isRecursive);
+	}
+
+	/**
+	 * Directory access is checked using {@link #checkAccess(BlobStoreContext, CloudPath, Set)}
+	 * with {@link AclEntryPermission#LIST_DIRECTORY}.
+	 */
+	@Override
+	public ListingIndex buildListingIndex(BlobStoreContext context, CloudPath dir) throws IOException {
+		checkAccess(context, dir, NEW_DIRECTORY_STREAM_PERMS);
+		return ListingIndex.build(context.getBlobStore(), dir.getContainerName(), dir.getPathName());
+	}
+
+	/**
+	 * Directory access is checked using {@link #checkAccess(BlobStoreContext, CloudPath, Set)}
+	 * with {@link AclEntryPermission#LIST_DIRECTORY}. The usage is calculated by a {@link DirectoryUsageCalculator}.
+	 */
+	@Override
+	public DirectoryUsage getDirectoryUsage(BlobStoreContext context, CloudPath dir, int maxDepth,
+			ExecutorService executor, int shards) throws IOException {
+		checkAccess(context, dir, NEW_DIRECTORY_STREAM_PERMS);
+		DirectoryUsageCalculator calculator =
+				new DirectoryUsageCalculator(context.getBlobStore(), dir.getContainerName(), dir.getPathName(), maxDepth);
+		return executor == null ? calculator.calculate() : calculator.calculate(executor, shards);
+	}
+
+	/**
+	 * Directory access is checked using {@link #checkAccess(BlobStoreContext, CloudPath, Set)}
+	 * with {@link AclEntryPermission#LIST_DIRECTORY}. The walk is performed by a {@link CloudFileTreeWalker}
+	 * from a single recursive {@link CloudDirectoryStream}. If the <em>start</em> path is a file then only
+	 * {@link FileVisitor#visitFile(Object, BasicFileAttributes)} is invoked.
+	 */
+	@Override
+	public void walkFileTree(BlobStoreContext context, CloudPath start, int maxDepth,
+			FileVisitor<? super Path> visitor) throws IOException {
+		boolean isContainer = start.getRoot() == null;
+		BasicFileAttributes startAttributes;
+
+		if (isContainer) {
+			startAttributes = new CloudBasicFileAttributes();
+		} else {
+			try {
+				startAttributes = readAttributes(context, CloudBasicFileAttributes.class, start);
+			} catch (FileNotFoundException e) {
+				LOG.warn("Cloud file path '{}' does not exist, will assume that this is a directory", start);
+				startAttributes = new CloudBasicFileAttributes();
+			}
+
+			if (!startAttributes.isDirectory()) {
+				FileVisitResult result = visitor.visitFile(start, startAttributes);
+				LOG.debug("Walked file '{}' with result {}", start, result);
+				return;
+			}
+		}
+
+		checkAccess(context, start, NEW_DIRECTORY_STREAM_PERMS);
+		LOG.debug("Walking file tree from '{}' with a maximum depth of {}...", start, maxDepth);
+		CloudDirectoryStream recursiveListing = new CloudDirectoryStream(start, isContainer, true, null);
+		boolean completed = new CloudFileTreeWalker(maxDepth, visitor).walk(start, startAttributes, recursiveListing);
+		LOG.debug("Finished walking file tree from '{}', completed={}", start, completed);
+	}
+
 	/**
 	 * Directory access is checked using {@link #checkAccess(BlobStoreContext, CloudPath, Set)}
 	 * with {@link AclEntryPermission#ADD_SUBDIRECTORY}.
@@ -230,6 +394,8 @@ public class DefaultCloudFileSystemImplementation implements CloudFileSystemImpl
 				throw new IOException("Could not create container '" + dir.toAbsolutePath().toString() + "'");
 			}
 
+			dir.getFileSystem().invalidateCaches(dir);
+
 			LOG.debug("Created container '{}' OK", dir.getContainerName());
 		} else {
 			LOG.debug("Creating directory '{}'...", dir);
@@ -245,23 +411,23 @@ public class DefaultCloudFileSystemImplementation implements CloudFileSystemImpl
 	
 			// File attributes don't apply here, directories are just placeholders with no access
 			context.getBlobStore().createDirectory(dir.getContainerName(), dir.getPathName());
+			dir.getFileSystem().invalidateCaches(dir);
 			LOG.debug("Created directory '{}' OK", dir);
 		}
 	}
 
 	/**
 	 * Delete access is checked using {@link #checkAccess(BlobStoreContext, CloudPath, Set)}
-	 * with {@link AclEntryPermission#DELETE}.
+	 * with {@link AclEntryPermission#DELETE}. A directory is deleted with
+	 * {@link #deleteDirectory(BlobStoreContext, CloudPath, EnumSet)} and a container with
+	 * {@link #deleteContainer(BlobStoreContext, CloudPath, DeleteProgressListener)}.
 	 */
 	@Override
 	public void delete(BlobStoreContext context, CloudPath path, EnumSet<DeleteOption> options) throws IOException {
 
 		// A container
 		if (path.getRoot() == null) {
-			checkAccess(context, path, DELETE_DIRECTORY_STREAM_PERMS);
-			LOG.debug("Deleting Container '{}'...", path);
-			context.getBlobStore().deleteContainer(path.getContainerName());
-			LOG.debug("Deleted Container '{}' OK", path);
+			deleteContainer(context, path, null);
 			return;
 		}
 
@@ -270,39 +436,269 @@ public class DefaultCloudFileSystemImplementation implements CloudFileSystemImpl
 
 		if (readAttributes.isDirectory()) {
 			checkAccess(context, path, DELETE_DIRECTORY_STREAM_PERMS);
-
-			// Delete all subpaths using the recursive directory listing
-			Iterator<CloudPath> recursiveIterator = newDirectoryStream(context, path, null).iterator();
-
-			if (recursiveIterator.hasNext() && !options.contains(DeleteOption.RECURSIVE)) {
-				throw new DirectoryNotEmptyException("Directory '" + path.toAbsolutePath() +
-						"' is not empty and the recursive delete option has not been specified");
-			}
-
-			LOG.debug("Deleting directory '{}' and all content recursively...", path);
-			while (recursiveIterator.hasNext()) {
-				delete(context, recursiveIterator.next(), options);
-			}
-
-			// Delete this path
-			context.getBlobStore().deleteDirectory(path.getContainerName(), path.getPathName());
-			LOG.debug("Deleted directory '{}' and all content recursively OK", path);
+			deleteDirectory(context, path, options);
 		} else if (readAttributes.isRegularFile()) {
 			checkAccess(context, path, DELETE_FILE_STREAM_PERMS);
 			LOG.debug("Deleting BLOB file '{}'...", path);
 			context.getBlobStore().removeBlob(path.getContainerName(), path.getPathName());
+			path.getFileSystem().invalidateCaches(path);
 			LOG.debug("Deleted BLOB file '{}' OK", path);
 		} else if (readAttributes.isContainer()) {
-			checkAccess(context, path, DELETE_DIRECTORY_STREAM_PERMS);
-			LOG.debug("Deleting Container '{}'...", path);
-			context.getBlobStore().deleteContainer(path.getContainerName());
-			LOG.debug("Deleted Container '{}' OK", path);
+			deleteContainer(context, path, null);
 		} else {
 			throw new IllegalArgumentException("Cannot delete this path '" + path.toString() +
 					"' it is not a directory, file or container");
 		}
 	}
 
+	/**
+	 * <p>
+	 * Deletes a directory and, with {@link DeleteOption#RECURSIVE}, everything beneath it. The tree is listed once
+	 * with a recursive listing, rather than listing and reading the attributes of each path in turn. The keys are
+	 * deleted as the listing is read with a {@link BulkDelete}, which sends multi-object delete requests from a
+	 * bounded pool of workers. The directory markers beneath the directory are then deleted, deepest first.
+	 * </p>
+	 * <p>
+	 * When there is a {@link CloudHostSecurityManager} the delete access of each key is checked by the workers,
+	 * as ACL's are held for each key. The check uses the metadata from the listing, so only the blob access of the
+	 * key is read. Otherwise the access of the paths beneath the directory is not checked and their attributes are
+	 * not read, as access is always allowed. Unlike a delete of each path in turn, a key which is deleted by another
+	 * client during the delete is then not reported as missing.
+	 * The paths which cannot be deleted are added to the thrown exception, unless
+	 * {@link DeleteOption#FAIL_SILENTLY} is specified. The directory itself is only deleted if everything beneath
+	 * it was deleted.
+	 * </p>
+	 * @throws DirectoryNotEmptyException If the directory is not empty and {@link DeleteOption#RECURSIVE} is not specified
+	 */
+	protected void deleteDirectory(BlobStoreContext context, CloudPath path, EnumSet<DeleteOption> options)
+			throws IOException {
+		BlobStore blobStore = context.getBlobStore();
+		boolean checkAccess = path.getFileSystem().getCloudHostConfiguration().getCloudHostSecurityManager() != null;
+		LOG.debug("Deleting directory '{}'...", path);
+
+		Map<String,IOException> failures;
+		try {
+			failures = deleteBeneath(context, path, checkAccess, options.contains(DeleteOption.RECURSIVE), null);
+			if (failures.isEmpty()) {
+				blobStore.deleteDirectory(path.getContainerName(), path.getPathName());
+			}
+		} finally {
+			path.getFileSystem().invalidateCaches(path);
+		}
+
+		if (failures.isEmpty()) {
+			LOG.debug("Deleted directory '{}' and all content recursively OK", path);
+			return;
+		}
+
+		IOException exception = new IOException("Could not delete " + failures.size() +
+				" paths beneath directory '" + path.toAbsolutePath() + "': " + failures.keySet());
+		failures.values().forEach(exception::addSuppressed);
+
+		if (!options.contains(DeleteOption.FAIL_SILENTLY)) {
+			throw exception;
+		}
+
+		LOG.warn("Delete failed for some of the paths beneath {}, slient failure specified, continuing", path, exception);
+	}
+
+	/**
+	 * Deletes a container and everything in it. Once delete access to the container has been checked it is
+	 * emptied with {@link #emptyContainer(BlobStoreContext, CloudPath, DeleteProgressListener)}, so without a
+	 * progress listener the cloud's own bulk delete is used, and the empty container is then deleted.
+	 * @param progressListener	Receives the progress of emptying the container and can cancel it, or null
+	 * @throws CancelException If the progress listener cancelled the delete, the container is not deleted
+	 * @throws DirectoryNotEmptyException If a key was written to the container whilst it was being emptied
+	 */
+	protected void deleteContainer(BlobStoreContext context, CloudPath container,
+			DeleteProgressListener progressListener) throws IOException {
+		checkAccess(context, container, DELETE_DIRECTORY_STREAM_PERMS);
+		LOG.debug("Deleting Container '{}'...", container);
+		emptyContainer(context, container, progressListener);
+
+		try {
+			if (!context.getBlobStore().deleteContainerIfEmpty(container.getContainerName())) {
+				throw new DirectoryNotEmptyException("Container '" + container.toAbsolutePath() +
+						"' is not empty, keys were written to it whilst it was being deleted");
+			}
+		} finally {
+			container.getFileSystem().invalidateCaches(container);
+		}
+
+		LOG.debug("Deleted Container '{}' OK", container);
+	}
+
+	/**
+	 * <p>
+	 * Deletes everything in a container. When the caller has delete access to the container itself, the ACL's of
+	 * the keys are not read or checked. Without a progress listener the container is then emptied with
+	 * {@link BlobStore#clearContainer(String)}, which uses the cloud's own bulk delete where jclouds has one.
+	 * With a progress listener the container is listed once and the keys deleted with a {@link BulkDelete}, so
+	 * that progress can be reported after each page of the listing and the delete cancelled.
+	 * </p>
+	 * <p>
+	 * When the caller cannot delete the container, the delete access of each key is checked as it is deleted.
+	 * The keys which cannot be deleted are added to the thrown exception.
+	 * </p>
+	 */
+	@Override
+	public void emptyContainer(BlobStoreContext context, CloudPath container, DeleteProgressListener progressListener)
+			throws IOException {
+		if (container.getPathName() != null) {
+			throw new IllegalArgumentException("The path '" + container + "' is not a container");
+		}
+
+		boolean checkEachKey = false;
+		try {
+			checkAccess(context, container, DELETE_DIRECTORY_STREAM_PERMS);
+		} catch (AccessDeniedException e) {
+			LOG.debug("Cannot delete container '{}', the access of each key will be checked", container);
+			checkEachKey = true;
+		}
+
+		Map<String,IOException> failures = Collections.emptyMap();
+		try {
+			if (!checkEachKey && progressListener == null) {
+				LOG.debug("Clearing container '{}'...", container);
+				context.getBlobStore().clearContainer(container.getContainerName());
+			} else {
+				LOG.debug("Emptying container '{}'...", container);
+				failures = deleteBeneath(context, container, checkEachKey, true, progressListener);
+			}
+		} finally {
+			container.getFileSystem().invalidateCaches(container);
+		}
+
+		if (!failures.isEmpty()) {
+			IOException exception = new IOException("Could not delete " + failures.size() +
+					" paths in container '" + container + "': " + failures.keySet());
+			failures.values().forEach(exception::addSuppressed);
+			throw exception;
+		}
+
+		LOG.debug("Emptied container '{}' OK", container);
+	}
+
+	/**
+	 * Lists everything beneath a container or directory once, deletes the keys with a {@link BulkDelete} as the
+	 * listing is read and then deletes the directory markers, deepest first. The container or directory itself
+	 * is not deleted.
+	 * @param checkAccess		Whether to check the delete access of each path before it is deleted
+	 * @param recursive			Whether a non-empty directory may be deleted
+	 * @param progressListener	Receives the progress after each page of the listing, or null
+	 * @return The exception for each path which could not be deleted, sorted by key
+	 * @throws DirectoryNotEmptyException If the directory is not empty and <em>recursive</em> is false
+	 * @throws CancelException If the progress listener cancelled the delete
+	 */
+	private Map<String,IOException> deleteBeneath(BlobStoreContext context, CloudPath path, boolean checkAccess,
+			boolean recursive, DeleteProgressListener progressListener) throws IOException {
+		BlobStore blobStore = context.getBlobStore();
+		String containerName = path.getContainerName();
+		String pathName = path.getPathName();
+		String directoryKey = pathName == null ? null :
+			StringUtils.appendIfMissing(pathName, CloudPath.DEFAULT_PATH_SEPARATOR);
+		// The metadata of each listed key waiting for its access check, so that it is not read again
+		Map<String,BlobMetadata> listedBlobs = checkAccess ? new ConcurrentHashMap<>() : null;
+		BulkDelete bulkDelete = new BulkDelete(blobStore, containerName, !checkAccess ? null :
+			key -> checkListedAccess(context, toCloudPath(path, key), listedBlobs.remove(key)));
+		List<String> directories = new ArrayList<>();
+
+		try {
+			ListContainerOptions listOptions = new ListContainerOptions().recursive();
+			if (directoryKey != null) {
+				listOptions.prefix(directoryKey);
+			}
+			String marker = null;
+
+			do {
+				ListContainerOptions pageOptions = listOptions.clone();
+				if (marker != null) {
+					pageOptions.afterMarker(marker);
+				}
+
+				PageSet<? extends StorageMetadata> pageSet = blobStore.list(containerName, pageOptions);
+				for (StorageMetadata meta : pageSet) {
+					if (directoryKey != null && (directoryKey.equals(meta.getName()) || pathName.equals(meta.getName()))) {
+						continue;
+					}
+
+					if (!recursive) {
+						throw new DirectoryNotEmptyException("Directory '" + path.toAbsolutePath() +
+								"' is not empty and the recursive delete option has not been specified");
+					}
+
+					if (StorageType.BLOB.equals(meta.getType()) &&
+							!meta.getName().endsWith(CloudPath.DEFAULT_PATH_SEPARATOR)) {
+						if (checkAccess && meta instanceof BlobMetadata) {
+							listedBlobs.put(meta.getName(), (BlobMetadata)meta);
+						}
+						bulkDelete.add(meta.getName());
+					} else {
+						directories.add(StringUtils.removeEnd(meta.getName(), CloudPath.DEFAULT_PATH_SEPARATOR));
+					}
+				}
+
+				if (progressListener != null) {
+					progressListener.deleted(path, bulkDelete.getDeletedKeys());
+				}
+
+				marker = pageSet.getNextMarker();
+			} while (marker != null);
+		} catch (IOException | RuntimeException e) {
+			// The keys which have not been sent are not deleted, but the requests in flight must finish
+			try {
+				bulkDelete.abort();
+			} catch (IOException abortFailure) {
+				e.addSuppressed(abortFailure);
+			}
+			throw e;
+		}
+
+		Map<String,IOException> failures = new TreeMap<>(bulkDelete.finish());
+
+		// Sub-directories sort after their parents, so they are deleted first in reverse order
+		Collections.sort(directories, Collections.reverseOrder());
+		for (String directory : directories) {
+			try {
+				if (checkAccess) {
+					checkAccess(context, toCloudPath(path, directory), DELETE_DIRECTORY_STREAM_PERMS);
+				}
+				blobStore.deleteDirectory(containerName, directory);
+			} catch (IOException e) {
+				failures.put(directory, e);
+			} catch (RuntimeException e) {
+				failures.put(directory, new IOException("Could not delete directory '" + directory + "'", e));
+			}
+		}
+
+		if (progressListener != null) {
+			progressListener.deleted(path, bulkDelete.getDeletedKeys());
+		}
+
+		LOG.debug("Deleted {} keys beneath '{}', {} paths could not be deleted",
+				bulkDelete.getDeletedKeys(), path, failures.size());
+		return failures;
+	}
+
+	/**
+	 * Checks the delete access of a file from the metadata in the listing, which saves a request to read the
+	 * metadata of each file. Without the metadata, the access is checked as for any other path.
+	 */
+	private void checkListedAccess(BlobStoreContext context, CloudPath path, BlobMetadata listedMetadata)
+			throws IOException {
+		if (listedMetadata == null) {
+			checkAccess(context, path, DELETE_FILE_STREAM_PERMS);
+		} else {
+			getFileAttributeView(context, CloudFileAttributesView.class, path)
+				.checkAccess(listedMetadata, DELETE_FILE_STREAM_PERMS);
+		}
+	}
+
+	private static CloudPath toCloudPath(CloudPath path, String key) {
+		return new CloudPath(path.getFileSystem(), true, CloudPath.DEFAULT_PATH_SEPARATOR + path.getContainerName() +
+				CloudPath.DEFAULT_PATH_SEPARATOR + key);
+	}
+
 	/**
 	 * A non-optimised delete method using vanilla JClouds functionality which invokes
 	 * {@link #delete(BlobStoreContext, CloudPath, EnumSet)} for each entry.
@@ -330,25 +726,49 @@ public class DefaultCloudFileSystemImplementation implements CloudFileSystemImpl
 		}
 	}
 
+	/**
+	 * Returns a {@link CopyResults} with the method used to copy each of the sources, and each of the paths copied
+	 * beneath a source directory by a recursive copy, unless {@link CloudCopyOption#DONT_RETURN_COPY_METHOD} is
+	 * specified in which case null is returned.
+	 */
 	@Override
-	public Map<CloudPath,CloudMethod> copy(BlobStoreContext context, Set<CloudPath> sources, Path target, Set<CopyOption> options)
+	public CopyResults copy(BlobStoreContext context, Set<CloudPath> sources, Path target, Set<CopyOption> options)
 			throws IOException {
 		boolean copyMethodReturns = !options.contains(CloudCopyOption.DONT_RETURN_COPY_METHOD);
-		Map<CloudPath,CloudMethod> copyMethodsMap = copyMethodReturns ? new HashMap<>() : null;
+		CopyResults results = copyMethodReturns ? new CopyResults() : null;
+		AttributeWriteBatch aclWrites = new AttributeWriteBatch();
 
 		for (CloudPath source : sources) {
 			try {
-				copy(context, source, target, options);
-			} catch (IOException e) {
-				if (options.contains(CloudCopyOption.FAIL_SILENTLY)) {
+				copy(context, source, target, options, aclWrites, results);
+			} catch (IOException | RuntimeException e) {
+				if (e instanceof IOException && options.contains(CloudCopyOption.FAIL_SILENTLY)) {
 					LOG.warn("Copy from {} to {} failed, slient failure specified, continuing", source, target, e);
+					if (results != null) {
+						results.failed(source, (IOException)e);
+					}
 				} else {
+					writeAclsAfterFailure(context, aclWrites, e);
 					throw e;
 				}
 			}
 		}
 
-		return copyMethodsMap;
+		try {
+			writeAcls(context, aclWrites);
+		} catch (IOException e) {
+			if (options.contains(CloudCopyOption.FAIL_SILENTLY)) {
+				LOG.warn("Setting the ACL's of the copies in {} failed, slient failure specified, continuing", target, e);
+			} else {
+				throw e;
+			}
+		}
+
+		if (results != null) {
+			results.finished();
+		}
+
+		return results;
 	}
 
 	/**
@@ -373,7 +793,8 @@ public class DefaultCloudFileSystemImplementation implements CloudFileSystemImpl
 	 * </ul>
 	 * ACL's will not be modified to include this user as an owner of any of the copied files, the ACL's are copied as-is
 	 * using {@link #setAttribute(BlobStoreContext, CloudPath, String, Object) setAttribute(context, targetPath, ACL_SET_ATTRIBUTE, aclSet)}
-	 * for each copied path.
+	 * for each copied path. The ACL's are collected in an {@link AttributeWriteBatch} and written concurrently, once
+	 * for each path, when the whole copy has finished.
 	 * 
 	 * @param context
 	 * @param source
@@ -384,17 +805,53 @@ public class DefaultCloudFileSystemImplementation implements CloudFileSystemImpl
 	 */
 	@Override
 	public CloudMethod copy(BlobStoreContext context, CloudPath source, Path target, Set<CopyOption> options) throws IOException {
+		AttributeWriteBatch aclWrites = new AttributeWriteBatch();
+		CloudMethod method;
+		try {
+			method = copy(context, source, target, options, aclWrites, null);
+		} catch (IOException | RuntimeException e) {
+			writeAclsAfterFailure(context, aclWrites, e);
+			throw e;
+		}
+
+		writeAcls(context, aclWrites);
+		return method;
+	}
+
+	/**
+	 * Writes the ACL's of the paths which were copied before a copy failed, so that the copies do not keep the
+	 * default ACL's of a new path. A failure to write them is added to the copy failure.
+	 */
+	private void writeAclsAfterFailure(BlobStoreContext context, AttributeWriteBatch aclWrites, Exception copyFailure) {
+		try {
+			writeAcls(context, aclWrites);
+		} catch (IOException | RuntimeException e) {
+			copyFailure.addSuppressed(e);
+		}
+	}
+
+	/**
+	 * As for {@link #copy(BlobStoreContext, CloudPath, Path, Set)} except that the ACL's of the copied paths are
+	 * added to <em>aclWrites</em> rather than written, and the method used to copy each path is added to
+	 * <em>results</em> if it is not null
+	 */
+	protected CloudMethod copy(BlobStoreContext context, CloudPath source, Path target, Set<CopyOption> options,
+			AttributeWriteBatch aclWrites, CopyResults results) throws IOException {
 		CloudMethod method = determineCloudMethodForCopyOrMoveOperations("copy", source, target, options);
 		boolean fallbackToLocalFileSystemCopy = true;
 
 		// Try cloud optimised method
 		if (CloudMethod.CLOUD_OPTIMISED.equals(method)) {
-			fallbackToLocalFileSystemCopy = !copyUsingOptimisedCopy(context, source, (CloudPath)target, options);
+			fallbackToLocalFileSystemCopy =
+					!copyUsingOptimisedCopy(context, source, (CloudPath)target, options, aclWrites, results);
 		}
 
 		// Use fallback if required
 		if (fallbackToLocalFileSystemCopy) {
 			copyUsingLocalFilesystem(context, source, target, options);
+			if (results != null) {
+				results.copied(source, CloudMethod.LOCAL_FILESYSTEM_FALLBACK, 0L);
+			}
 			return CloudMethod.LOCAL_FILESYSTEM_FALLBACK;
 		}
 		
@@ -482,20 +939,24 @@ public class DefaultCloudFileSystemImplementation implements CloudFileSystemImpl
 	 * @param source
 	 * @param target
 	 * @param options
+	 * @param aclWrites	The batch to add the ACL's of the copied paths to
+	 * @param results	The results to add the method used for each copied path to, or null
 	 * @return true if the copy succeeded, false otherwise. If false is returned then
 	 * 				{@link #copyUsingLocalFilesystem(BlobStoreContext, CloudPath, Path, CopyOption...)} will be invoked from the
 	 * 				{@link #copy(BlobStoreContext, CloudPath, Path, CopyOption...)} method.
 	 * @throws IOException
 	 */
-	protected boolean copyUsingOptimisedCopy(BlobStoreContext context, CloudPath source, CloudPath target, Set<CopyOption> options) throws IOException {
+	protected boolean copyUsingOptimisedCopy(BlobStoreContext context, CloudPath source, CloudPath target,
+			Set<CopyOption> options, AttributeWriteBatch aclWrites, CopyResults results) throws IOException {
 		CloudBasicFileAttributes sourceAttributes = readAttributes(context, CloudBasicFileAttributes.class, source);
 
 		if (sourceAttributes.isDirectory()) {
 			checkAccess(context, source,
 					options.contains(StandardCopyOption.COPY_ATTRIBUTES) ?
 							COPY_DIR_SOURCE_WITH_ATTRIBUTES_PERMS : COPY_DIR_SOURCE_PERMS);
-			
-			if (Files.exists(target)) {
+			boolean targetExists = Files.exists(target);
+
+			if (targetExists) {
 				// Check if target dir exists and replace existing hasn't been specified
 				if (!options.contains(StandardCopyOption.REPLACE_EXISTING)) {
 					throw new FileAlreadyExistsException("The file '" + target +
@@ -527,26 +988,26 @@ public class DefaultCloudFileSystemImplementation implements CloudFileSystemImpl
 					source.toAbsolutePath(), target.toAbsolutePath());
 			try {
 				context.getBlobStore().createDirectory(target.getContainerName(), target.getPathName());
+				target.getFileSystem().invalidateCaches(target);
 			} catch (Exception e) {
 				LOG.error("Internal JClouds created directory failed for '{}', will try to copy using fallback method",
 						target.toAbsolutePath(), e);
 				return false;
 			}
 
-			// Copy ACL's
-			copyAcls(context, source, target);
+			// Copy ACL's, before the paths beneath the directory whose access depends on them
+			if (options.contains(CloudCopyOption.RECURSIVE)) {
+				copyAclsNow(context, source, target);
+			} else {
+				copyAcls(context, source, target, aclWrites);
+			}
+			if (results != null) {
+				results.copied(source, CloudMethod.CLOUD_OPTIMISED, 0L);
+			}
 
 			// Recursively copy the directory?
 			if (options.contains(CloudCopyOption.RECURSIVE)) {
-				// Copy all subpaths using the recursive directory listing
-				Iterator<CloudPath> recursiveIterator = newDirectoryStream(context, source, null).iterator();
-	
-				LOG.debug("Copying directory '{}' and all content recursively...", source);
-				while (recursiveIterator.hasNext()) {
-					CloudPath nextSourcePath = recursiveIterator.next();
-					CloudPath nextTargetPath = new CloudPath(target, nextSourcePath.getNameString(-1));
-					copy(context, nextSourcePath, nextTargetPath, options);
-				}
+				copyDirectoryContents(context, source, target, options, targetExists, aclWrites, results);
 			}
 		} else {
 			checkAccess(context, source,
@@ -565,72 +1026,521 @@ public class DefaultCloudFileSystemImplementation implements CloudFileSystemImpl
 				checkAccess(context, parent, COPY_FILE_TARGET_PARENT_PERMS);
 			}
 
-			LOG.debug("Performing optimised file copy from '{}' -> '{}'...",
-					source.toAbsolutePath(), target.toAbsolutePath());
+			if (!copyBlob(context, source, target, options, aclWrites)) {
+				return false;
+			}
 
-			// Copy options?
-			CopyOptions copyOptions = CopyOptions.NONE;
-			CloudAclFileAttributes originalAttributes = null;
-			if (options.contains(StandardCopyOption.COPY_ATTRIBUTES)) {
-				originalAttributes = readAttributes(context, CloudAclFileAttributes.class, source);
-				ContentMetadata contentMetadata =
-						new ContentMetadataBuilder().contentDisposition(originalAttributes.getContentDisposition())
-						 	.contentEncoding(originalAttributes.getContentEncoding())
-						 	.contentLanguage(originalAttributes.getContentLanguage())
-						 	.contentLength(originalAttributes.size())
-						 	.contentMD5(originalAttributes.getContentMD5())
-						 	.contentType(originalAttributes.getContentType())
-						 	.build();
-				copyOptions =
-					CopyOptions.builder()
-						.contentMetadata(contentMetadata)
-						.userMetadata(originalAttributes.getUserMetadata())
-						.build();
+			if (results != null) {
+				results.copied(source, CloudMethod.CLOUD_OPTIMISED, sourceAttributes.size());
 			}
+		}
+
+		LOG.debug("Finished optimised copy from '{}' -> '{}' OK",
+				source.toAbsolutePath(), target.toAbsolutePath());
+
+		return true;
+	}
+
+	/**
+	 * Copies a single file with {@link BlobStore#copyBlob(String, String, String, String, CopyOptions)}, with the
+	 * metadata of the source if {@link StandardCopyOption#COPY_ATTRIBUTES} is specified, and adds the ACL's of the
+	 * source to the batch of writes for the target. The access checks must already have been made.
+	 * @param context
+	 * @param source
+	 * @param target
+	 * @param options
+	 * @param aclWrites
+	 * @return true if the copy succeeded, false if the fallback method should be used instead
+	 * @throws IOException
+	 */
+	protected boolean copyBlob(BlobStoreContext context, CloudPath source, CloudPath target, Set<CopyOption> options,
+			AttributeWriteBatch aclWrites) throws IOException {
+		CloudAclFileAttributes originalAttributes = options.contains(StandardCopyOption.COPY_ATTRIBUTES) ?
+				readAttributes(context, CloudAclFileAttributes.class, source) : null;
+		if (!copyBlobContent(context, source, target, originalAttributes)) {
+			return false;
+		}
+
+		// Copy ACL's, reusing the source attributes if they have already been read
+		if (originalAttributes != null) {
+			aclWrites.setAclSet(target, originalAttributes.getAclSet());
+		} else {
+			copyAcls(context, source, target, aclWrites);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Copies a single file with {@link BlobStore#copyBlob(String, String, String, String, CopyOptions)}, without
+	 * its ACL's
+	 * @param context
+	 * @param source
+	 * @param target
+	 * @param originalAttributes	The attributes of the source to copy with it, or null to copy the file only
+	 * @return true if the copy succeeded, false if the fallback method should be used instead
+	 * @throws IOException
+	 */
+	protected boolean copyBlobContent(BlobStoreContext context, CloudPath source, CloudPath target,
+			CloudAclFileAttributes originalAttributes) throws IOException {
+		LOG.debug("Performing optimised file copy from '{}' -> '{}'...",
+				source.toAbsolutePath(), target.toAbsolutePath());
+
+		// Copy options?
+		CopyOptions copyOptions = CopyOptions.NONE;
+		if (originalAttributes != null) {
+			ContentMetadata contentMetadata =
+					new ContentMetadataBuilder().contentDisposition(originalAttributes.getContentDisposition())
+					 	.contentEncoding(originalAttributes.getContentEncoding())
+					 	.contentLanguage(originalAttributes.getContentLanguage())
+					 	.contentLength(originalAttributes.size())
+					 	.contentMD5(originalAttributes.getContentMD5())
+					 	.contentType(originalAttributes.getContentType())
+					 	.build();
+			copyOptions =
+				CopyOptions.builder()
+					.contentMetadata(contentMetadata)
+					.userMetadata(originalAttributes.getUserMetadata())
+					.build();
+		}
+
+		try {
+			context.getBlobStore().copyBlob(source.getContainerName(), source.getPathName(),
+					target.getContainerName(), target.getPathName(), copyOptions);
+			// The copy has the metadata of the source
+			target.getFileSystem().invalidateCaches(target, source.getFileSystem().getIndexedMetadata(source));
+		} catch (Exception e) {
+			LOG.error("Internal JClouds copy failed for '{}' -> '{}', will try to copy using fallback method",
+					source.toAbsolutePath(), target.toAbsolutePath(), e);
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * <p>
+	 * Copies everything beneath the source directory to the target directory, which has already been created.
+	 * The source is listed once, recursively, rather than once for each sub-directory. When the target existed
+	 * before the copy its keys are listed once as well, rather than checking whether each target path exists.
+	 * </p>
+	 * <p>
+	 * The target directories are created by the calling thread, parents before children, with the access of
+	 * each parent checked before it is created, and the ACL's of each directory are written before anything
+	 * beneath it is copied. Whether files can be added to each target directory is checked once rather than for
+	 * each file copied into it. As for a recursive delete, no access is checked when there is no
+	 * {@link CloudHostSecurityManager}.
+	 * </p>
+	 * <p>
+	 * Whilst the listing is read the files are copied by up to {@link #DEFAULT_MAX_CONCURRENT_COPIES} workers
+	 * with {@link #copyBlobContent(BlobStoreContext, CloudPath, CloudPath, CloudAclFileAttributes)}, or with
+	 * {@link #copyUsingLocalFilesystem(BlobStoreContext, CloudPath, Path, Set)} if that fails. The listed metadata
+	 * is used rather than reading the attributes of each file, and without a security manager only the
+	 * {@link BlobAccess} of each file is read in place of its ACL's.
+	 * </p>
+	 * <p>
+	 * When {@link CloudCopyOption#FAIL_SILENTLY} is specified a path which cannot be copied is added to the
+	 * failures of the results and the copy continues. Otherwise no more paths are copied and an exception with
+	 * the failure of each path is thrown once the copies in progress have finished.
+	 * </p>
+	 * @param context
+	 * @param source
+	 * @param target
+	 * @param options
+	 * @param targetExisted	true if the target directory existed before the copy
+	 * @param aclWrites		The batch to add the ACL's of the copied paths to
+	 * @param results		The results to add the method used for each copied path to, or null
+	 * @throws IOException
+	 */
+	protected void copyDirectoryContents(BlobStoreContext context, CloudPath source, CloudPath target,
+			Set<CopyOption> options, boolean targetExisted, AttributeWriteBatch aclWrites, CopyResults results)
+			throws IOException {
+		new RecursiveCopy(context, source, target, options, targetExisted, aclWrites, results).copy();
+	}
+
+	/**
+	 * The state of a single {@link DefaultCloudFileSystemImplementation#copyDirectoryContents(BlobStoreContext,
+	 * CloudPath, CloudPath, Set, boolean, AttributeWriteBatch, CopyResults) recursive copy}. The target directories
+	 * are only used by the calling thread, the failures are also added to by the workers.
+	 */
+	private class RecursiveCopy {
+		private final BlobStoreContext context;
+		private final CloudPath source;
+		private final CloudPath target;
+		private final Set<CopyOption> options;
+		private final AttributeWriteBatch aclWrites;
+		private final CopyResults results;
+		private final boolean failSilently;
+		private final boolean copyAttributes;
+		private final boolean checkAccess;
+		private final Set<String> existingTargetNames;
+		// The failure to create each target directory, or null if it was created
+		private final Map<String,IOException> targetDirectories = new HashMap<>();
+		// The nearest directory with a marker, which has the ACL's, for each target directory
+		private final Map<String,String> aclDirectories = new HashMap<>();
+		// The failure to check that files can be added to each target directory, or null if they can
+		private final Map<String,IOException> fileParentChecks = new HashMap<>();
+		private final Map<CloudPath,IOException> failures = new ConcurrentSkipListMap<>();
+		private final BoundedRequests copies = new BoundedRequests(DEFAULT_MAX_CONCURRENT_COPIES,
+				ParallelRequests.EXECUTOR, "copy files");
+		private final AtomicLong copiedFiles = new AtomicLong();
+		private final AtomicLong copiedBytes = new AtomicLong();
+
+		RecursiveCopy(BlobStoreContext context, CloudPath source, CloudPath target, Set<CopyOption> options,
+				boolean targetExisted, AttributeWriteBatch aclWrites, CopyResults results) {
+			this.context = context;
+			this.source = source;
+			this.target = target;
+			this.options = options;
+			this.aclWrites = aclWrites;
+			this.results = results;
+			this.failSilently = options.contains(CloudCopyOption.FAIL_SILENTLY);
+			this.copyAttributes = options.contains(StandardCopyOption.COPY_ATTRIBUTES);
+			this.checkAccess = source.getFileSystem().getCloudHostConfiguration().getCloudHostSecurityManager() != null;
+			this.existingTargetNames = targetExisted ?
+					listRelativeNames(context.getBlobStore(), target) : Collections.<String>emptySet();
+			targetDirectories.put("", null);
+			aclDirectories.put("", "");
+		}
+
+		void copy() throws IOException {
+			BlobStore blobStore = context.getBlobStore();
+			String sourceKey = toDirectoryKey(source);
+			// Don't copy the copies when the target is beneath the source
+			String targetKey = toDirectoryKey(target);
+			String excludedKey = targetKey != null && source.getContainerName().equals(target.getContainerName()) &&
+					(sourceKey == null || targetKey.startsWith(sourceKey)) ? targetKey : null;
+			long startNanos = System.nanoTime();
+			LOG.debug("Copying directory '{}' and all content recursively...", source);
 
 			try {
-				context.getBlobStore().copyBlob(source.getContainerName(), source.getPathName(),
-						target.getContainerName(), target.getPathName(), copyOptions);
-			} catch (Exception e) {
-				LOG.error("Internal JClouds copy failed for '{}' -> '{}', will try to copy using fallback method",
-						source.toAbsolutePath(), target.toAbsolutePath(), e);
-				return false;
+				ListContainerOptions listOptions = new ListContainerOptions().recursive();
+				if (sourceKey != null) {
+					listOptions.prefix(sourceKey);
+				}
+				String marker = null;
+
+				do {
+					ListContainerOptions pageOptions = listOptions.clone();
+					if (marker != null) {
+						pageOptions.afterMarker(marker);
+					}
+
+					PageSet<? extends StorageMetadata> pageSet = blobStore.list(source.getContainerName(), pageOptions);
+					for (StorageMetadata meta : pageSet) {
+						if (isStopped()) {
+							break;
+						}
+
+						String relativeName = StringUtils.removeEnd(
+								StringUtils.removeStart(meta.getName(), sourceKey), CloudPath.DEFAULT_PATH_SEPARATOR);
+						if (relativeName.isEmpty() || (excludedKey != null && meta.getName().startsWith(excludedKey))) {
+							continue;
+						}
+
+						if (!StorageType.BLOB.equals(meta.getType()) ||
+								meta.getName().endsWith(CloudPath.DEFAULT_PATH_SEPARATOR)) {
+							try {
+								copyTargetDirectory(relativeName, true);
+							} catch (IOException e) {
+								failures.put(toRelativeCloudPath(source, relativeName), e);
+							}
+						} else {
+							copyFile(relativeName, meta);
+						}
+					}
+
+					marker = isStopped() ? null : pageSet.getNextMarker();
+				} while (marker != null);
+			} finally {
+				// Wait for the copies in progress
+				copies.awaitUninterruptibly();
 			}
 
-			// Copy ACL's
-			copyAcls(context, source, target);
-			
-			// Now apply ACL's to the copy
-			if (options.contains(StandardCopyOption.COPY_ATTRIBUTES)) {
-				// We can only apply the BLOB access attributes here
-				Set<CloudAclEntry<PublicPrivateCloudPermissionsPrincipal>> aclEntries =
-						originalAttributes.getAclSet().findAclsWithPrincipalType(PublicPrivateCloudPermissionsPrincipal.class);
-
-				if (aclEntries != null && !aclEntries.isEmpty()) {
-					LOG.debug("Setting BLOB access permissions {} for '{}'", aclEntries, target);
-					aclEntries.stream().forEach(acl ->
-						context.getBlobStore().setBlobAccess(target.getContainerName(), target.getPathName(),
-								acl.getPrincipal().getBlobAccess()));
+			long elapsedMillis = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+			LOG.debug("Copied {} files of {} bytes from '{}' -> '{}' in {}ms, {} files/s, {} bytes/s, {} paths failed",
+					copiedFiles.get(), copiedBytes.get(), source.toAbsolutePath(), target.toAbsolutePath(), elapsedMillis,
+					copiedFiles.get() * 1000L / elapsedMillis, copiedBytes.get() * 1000L / elapsedMillis, failures.size());
+
+			if (failures.isEmpty()) {
+				return;
+			}
+
+			if (results != null) {
+				failures.forEach(results::failed);
+			}
+
+			IOException exception = new IOException("Could not copy " + failures.size() + " paths from directory '" +
+					source.toAbsolutePath() + "' to '" + target.toAbsolutePath() + "': " + failures.keySet());
+			failures.values().forEach(exception::addSuppressed);
+
+			if (!failSilently) {
+				throw exception;
+			}
+
+			LOG.warn("Copy failed for some of the paths beneath {}, slient failure specified, continuing", source, exception);
+		}
+
+		private boolean isStopped() {
+			return !failSilently && !failures.isEmpty();
+		}
+
+		/**
+		 * Checks the target parent directory of a listed file, then submits the copy to a worker
+		 */
+		private void copyFile(String relativeName, StorageMetadata meta) throws IOException {
+			CloudPath sourcePath = toRelativeCloudPath(source, relativeName);
+			CloudPath targetPath = toRelativeCloudPath(target, relativeName);
+			boolean targetExists = existingTargetNames.contains(relativeName);
+			long size = meta.getSize() == null ? 0L : meta.getSize();
+
+			try {
+				String parentName = parentName(relativeName);
+				copyTargetDirectory(parentName, false);
+				checkFileParent(parentName);
+			} catch (IOException e) {
+				failures.put(sourcePath, e);
+				return;
+			}
+
+			copies.submit(() -> {
+				try {
+					CloudMethod method = copyListedFile(sourcePath, targetPath, targetExists);
+					copiedFiles.incrementAndGet();
+					copiedBytes.addAndGet(size);
+					if (results != null) {
+						results.copied(sourcePath, method, size);
+					}
+				} catch (IOException e) {
+					failures.put(sourcePath, e);
+				} catch (RuntimeException e) {
+					failures.put(sourcePath, new IOException("Could not copy '" + sourcePath.toAbsolutePath() +
+							"' to '" + targetPath.toAbsolutePath() + "'", e));
+				}
+			});
+		}
+
+		/**
+		 * Creates the target directory for a directory beneath the source, once, after creating its parents. The
+		 * access checks of a directory copy are made before the directory is created, on the nearest parent which
+		 * has a directory marker. A failure is remembered so that it is returned for every path in the directory.
+		 * A directory which was not listed, because it has no directory marker, has no ACL's to check or copy and
+		 * only exists in the target because of the paths beneath it, as in the source.
+		 */
+		private void copyTargetDirectory(String relativeName, boolean listed) throws IOException {
+			if (targetDirectories.containsKey(relativeName)) {
+				IOException failure = targetDirectories.get(relativeName);
+				if (failure != null) {
+					throw failure;
 				}
+				return;
 			}
 
+			try {
+				String parentName = parentName(relativeName);
+				copyTargetDirectory(parentName, false);
+				if (!listed) {
+					aclDirectories.put(relativeName, aclDirectories.get(parentName));
+					targetDirectories.put(relativeName, null);
+					return;
+				}
+
+				CloudPath sourceDirectory = toRelativeCloudPath(source, relativeName);
+				CloudPath targetDirectory = toRelativeCloudPath(target, relativeName);
+				boolean targetExists = existingTargetNames.contains(relativeName);
+				if (targetExists && !options.contains(StandardCopyOption.REPLACE_EXISTING)) {
+					throw new FileAlreadyExistsException("The file '" + targetDirectory +
+							"' already exists and the replace option was not specified");
+				}
+
+				if (checkAccess) {
+					checkAccess(context, sourceDirectory,
+							copyAttributes ? COPY_DIR_SOURCE_WITH_ATTRIBUTES_PERMS : COPY_DIR_SOURCE_PERMS);
+					if (targetExists) {
+						checkAccess(context, targetDirectory,
+								copyAttributes ? COPY_DIR_TARGET_WITH_ATTRIBUTES_PERMS : COPY_DIR_TARGET_PERMS);
+					} else {
+						checkAccess(context, toRelativeCloudPath(target, aclDirectories.get(parentName)),
+								COPY_DIR_TARGET_PARENT_PERMS);
+					}
+				}
+
+				LOG.debug("Copying directory marker from '{}' -> '{}'...",
+						sourceDirectory.toAbsolutePath(), targetDirectory.toAbsolutePath());
+				try {
+					context.getBlobStore().createDirectory(targetDirectory.getContainerName(), targetDirectory.getPathName());
+					targetDirectory.getFileSystem().invalidateCaches(targetDirectory);
+				} catch (RuntimeException e) {
+					throw new IOException("Could not create directory '" + targetDirectory.toAbsolutePath() + "'", e);
+				}
+
+				copyAclsNow(context, sourceDirectory, targetDirectory);
+				if (results != null) {
+					results.copied(sourceDirectory, CloudMethod.CLOUD_OPTIMISED, 0L);
+				}
+				aclDirectories.put(relativeName, relativeName);
+				targetDirectories.put(relativeName, null);
+			} catch (IOException e) {
+				targetDirectories.put(relativeName, e);
+				throw e;
+			}
 		}
 
-		LOG.debug("Finished optimised copy from '{}' -> '{}' OK",
-				source.toAbsolutePath(), target.toAbsolutePath());
+		/**
+		 * Checks that files can be added to a target directory, once for all of the files copied into it, on the
+		 * nearest directory which has a directory marker
+		 */
+		private void checkFileParent(String relativeName) throws IOException {
+			if (!checkAccess) {
+				return;
+			}
 
-		return true;
+			if (fileParentChecks.containsKey(relativeName)) {
+				IOException failure = fileParentChecks.get(relativeName);
+				if (failure != null) {
+					throw failure;
+				}
+				return;
+			}
+
+			try {
+				checkAccess(context, toRelativeCloudPath(target, aclDirectories.get(relativeName)),
+						COPY_FILE_TARGET_PARENT_PERMS);
+				fileParentChecks.put(relativeName, null);
+			} catch (IOException e) {
+				fileParentChecks.put(relativeName, e);
+				throw e;
+			}
+		}
+
+		/**
+		 * Copies a file listed beneath the source, for which the target parent directory has already been created
+		 * and checked. The listing has shown that the source is a file and whether the target exists, so neither
+		 * is read again. Without a {@link CloudHostSecurityManager} there are no access checks, and rather than
+		 * reading and writing the ACL's of the paths only the {@link BlobAccess} of the source is read. It is
+		 * written to the target when it is public, or when the target existed, as a new copy is private.
+		 */
+		private CloudMethod copyListedFile(CloudPath sourcePath, CloudPath targetPath, boolean targetExists)
+				throws IOException {
+			if (targetExists && !options.contains(StandardCopyOption.REPLACE_EXISTING)) {
+				throw new FileAlreadyExistsException("Cannot copy from " + sourcePath.toAbsolutePath() +
+						" to " + targetPath.toAbsolutePath() + ", the file already exists and file replace was not specified");
+			}
+
+			boolean copied;
+			if (checkAccess) {
+				checkAccess(context, sourcePath,
+						copyAttributes ? COPY_FILE_SOURCE_WITH_ATTRIBUTES_PERMS : COPY_FILE_SOURCE_PERMS);
+				if (targetExists) {
+					checkAccess(context, targetPath,
+							copyAttributes ? COPY_FILE_TARGET_WITH_ATTRIBUTES_PERMS : COPY_FILE_TARGET_PERMS);
+				}
+				copied = copyBlob(context, sourcePath, targetPath, options, aclWrites);
+			} else {
+				BlobStore blobStore = context.getBlobStore();
+				BlobAccess sourceAccess;
+				try {
+					sourceAccess = blobStore.getBlobAccess(sourcePath.getContainerName(), sourcePath.getPathName());
+				} catch (KeyNotFoundException e) {
+					throw new FileNotFoundException("The file '" + sourcePath.toAbsolutePath() +
+							"' was deleted whilst it was being copied");
+				}
+
+				copied = copyBlobContent(context, sourcePath, targetPath, copyAttributes ?
+						readAttributes(context, CloudAclFileAttributes.class, sourcePath) : null);
+				if (copied && (targetExists || BlobAccess.PUBLIC_READ.equals(sourceAccess))) {
+					blobStore.setBlobAccess(targetPath.getContainerName(), targetPath.getPathName(), sourceAccess);
+				}
+			}
+
+			if (copied) {
+				return CloudMethod.CLOUD_OPTIMISED;
+			}
+
+			copyUsingLocalFilesystem(context, sourcePath, targetPath, options);
+			return CloudMethod.LOCAL_FILESYSTEM_FALLBACK;
+		}
+
+	}
+
+	/**
+	 * @return The names of all of the paths beneath the directory relative to it, including the parent
+	 * 			directories of keys which do not have a directory marker
+	 */
+	private static Set<String> listRelativeNames(BlobStore blobStore, CloudPath directory) {
+		String directoryKey = toDirectoryKey(directory);
+		Set<String> names = new HashSet<>();
+		ListContainerOptions listOptions = new ListContainerOptions().recursive();
+		if (directoryKey != null) {
+			listOptions.prefix(directoryKey);
+		}
+		String marker = null;
+
+		do {
+			ListContainerOptions pageOptions = listOptions.clone();
+			if (marker != null) {
+				pageOptions.afterMarker(marker);
+			}
+
+			PageSet<? extends StorageMetadata> pageSet = blobStore.list(directory.getContainerName(), pageOptions);
+			for (StorageMetadata meta : pageSet) {
+				String name = StringUtils.removeEnd(
+						StringUtils.removeStart(meta.getName(), directoryKey), CloudPath.DEFAULT_PATH_SEPARATOR);
+				while (!name.isEmpty() && names.add(name)) {
+					name = parentName(name);
+				}
+			}
+
+			marker = pageSet.getNextMarker();
+		} while (marker != null);
+
+		return names;
+	}
+
+	private static String toDirectoryKey(CloudPath path) {
+		String pathName = path.getPathName();
+		return pathName == null ? null : StringUtils.appendIfMissing(pathName, CloudPath.DEFAULT_PATH_SEPARATOR);
+	}
+
+	private static String parentName(String relativeName) {
+		int separator = relativeName.lastIndexOf(CloudPath.DEFAULT_PATH_SEPARATOR);
+		return separator < 0 ? "" : relativeName.substring(0, separator);
+	}
+
+	private static CloudPath toRelativeCloudPath(CloudPath directory, String relativeName) {
+		if (relativeName.isEmpty()) {
+			return directory;
+		}
+
+		String pathName = directory.getPathName();
+		return toCloudPath(directory,
+				pathName == null ? relativeName : pathName + CloudPath.DEFAULT_PATH_SEPARATOR + relativeName);
+	}
+
+	/**
+	 * Copies the ACL's of the source path to the target path straight away rather than in the batch of the copy,
+	 * for a directory whose ACL's are checked by the copies of the paths beneath it
+	 * @param context
+	 * @param source
+	 * @param target
+	 * @throws IOException
+	 */
+	protected void copyAclsNow(BlobStoreContext context, CloudPath source, CloudPath target) throws IOException {
+		AttributeWriteBatch aclWrites = new AttributeWriteBatch();
+		copyAcls(context, source, target, aclWrites);
+		writeAcls(context, aclWrites);
 	}
 
 	/**
-	 * Copies the ACL's from the source to the target paths.
+	 * Reads the ACL's of the source path and adds them to the batch of writes for the target path.
 	 * @param context
 	 * @param source
 	 * @param target
+	 * @param aclWrites
 	 * @throws IOException
 	 */
-	protected void copyAcls(BlobStoreContext context, CloudPath source, CloudPath target) throws IOException {
-		// Set the ACL's
+	protected void copyAcls(BlobStoreContext context, CloudPath source, CloudPath target, AttributeWriteBatch aclWrites)
+			throws IOException {
 		CloudFileAttributesView fileAttributeView =
 				getFileAttributeView(context, CloudFileAttributesView.class, source);
 		if (fileAttributeView != null) {
@@ -638,7 +1548,7 @@ public class DefaultCloudFileSystemImplementation implements CloudFileSystemImpl
 
 			if (fileAttributes != null) {
 				LOG.debug("Setting ACL's for {} to {}", target, fileAttributes);
-				setAttribute(context, target, ACL_SET_ATTRIBUTE, fileAttributes.getAclSet());
+				aclWrites.setAclSet(target, fileAttributes.getAclSet());
 			} else {
 				LOG.warn("Cannot set ACL's for {}, no ACL file attributes are available", target);
 			}
@@ -648,6 +1558,24 @@ public class DefaultCloudFileSystemImplementation implements CloudFileSystemImpl
 		}
 	}
 
+	/**
+	 * Writes a batch of ACL's with {@link #setAttribute(BlobStoreContext, CloudPath, String, Object)}, up to
+	 * {@link AttributeWriteBatch#DEFAULT_MAX_CONCURRENT_REQUESTS} paths at once
+	 * @throws IOException If any of the paths could not be written, with the failure of each path suppressed
+	 */
+	protected void writeAcls(BlobStoreContext context, AttributeWriteBatch aclWrites) throws IOException {
+		Map<CloudPath,IOException> failures = aclWrites.write(
+				(path, aclSet) -> setAttribute(context, path, ACL_SET_ATTRIBUTE, aclSet),
+				AttributeWriteBatch.DEFAULT_MAX_CONCURRENT_REQUESTS);
+
+		if (!failures.isEmpty()) {
+			IOException exception =
+					new IOException("Could not set the ACL's of " + failures.size() + " paths: " + failures.keySet());
+			failures.values().forEach(exception::addSuppressed);
+			throw exception;
+		}
+	}
+
 	@Override
 	public CloudMethod move(BlobStoreContext context, CloudPath source, Path target, Set<CopyOption> options) throws IOException {
 		LOG.info("Performing move operation from '{}' -> '{}' using copy/delete", source, target);
@@ -659,30 +1587,116 @@ public class DefaultCloudFileSystemImplementation implements CloudFileSystemImpl
 
 	/**
 	 * Retrieves the {@link #getFileAttributeView(BlobStoreContext, Class, CloudPath) CloudFileAttributesView} and
-	 * then invokes {@link CloudFileAttributesView#checkAccess(Set)}
+	 * then invokes {@link CloudFileAttributesView#checkAccess(Set)}. If the container has an {@link ExistenceFilter}
+	 * which says that the path does not exist then a {@link FileNotFoundException} is thrown without any request.
 	 */
 	@Override
 	public void checkAccess(BlobStoreContext context, CloudPath path, Set<AclEntryPermission> checkPermissions) throws IOException {
+		checkMightExist(path);
 		CloudFileAttributesView fileAttributeView = getFileAttributeView(context, CloudFileAttributesView.class, path);
 		fileAttributeView.checkAccess(checkPermissions);
 	}
 
 	/**
-	 * Can return a {@link CloudFileAttributesView}
+	 * <p>
+	 * When the {@link CloudHostSecurityManager} says that {@link CloudHostSecurityManager#isExistenceProtected()
+	 * existence is protected} then this is the same as {@link Files#exists(Path, java.nio.file.LinkOption...)},
+	 * which reads the ACL's of the path to check access. Otherwise no ACL's are read or evaluated:
+	 * </p>
+	 * <ul>
+	 * <li>The negative, metadata and existence filter caches of the file system are checked first</li>
+	 * <li>A container is checked with {@link BlobStore#containerExists(String)}</li>
+	 * <li>A file is checked with {@link BlobStore#blobMetadata(String, String)}, a HEAD request</li>
+	 * <li>Otherwise the path is a directory if a listing of a single key beneath it returns anything</li>
+	 * </ul>
+	 */
+	@Override
+	public boolean exists(BlobStoreContext context, CloudPath path) throws IOException {
+		CloudHostSecurityManager securityManager =
+				path.getFileSystem().getCloudHostConfiguration().getCloudHostSecurityManager();
+		if (securityManager != null && securityManager.isExistenceProtected()) {
+			return Files.exists(path);
+		}
+
+		String containerName = path.getContainerName();
+		String pathName = path.getPathName();
+		BlobStore blobStore = context.getBlobStore();
+		if (pathName == null) {
+			return blobStore.containerExists(containerName);
+		}
+
+		NegativeCache negativeCache = path.getFileSystem().getNegativeCache();
+		if (negativeCache != null && negativeCache.isMissing(path)) {
+			return false;
+		}
+
+		MetadataCache metadataCache = path.getFileSystem().getMetadataCache();
+		if (metadataCache != null && metadataCache.get(path) != null) {
+			return true;
+		}
+
+		ExistenceFilter existenceFilter = path.getFileSystem().getExistenceFilter(containerName);
+		if (existenceFilter != null && !existenceFilter.mightExist(pathName)) {
+			return false;
+		}
+
+		boolean exists;
+		try {
+			exists = blobStore.blobMetadata(containerName, pathName) != null ||
+					!blobStore.list(containerName, new ListContainerOptions().recursive()
+							.prefix(pathName + CloudPath.DEFAULT_PATH_SEPARATOR).maxResults(1)).isEmpty();
+		} catch (ContainerNotFoundException | KeyNotFoundException e) {
+			exists = false;
+		}
+
+		if (!exists && negativeCache != null) {
+			negativeCache.putMissing(path);
+		}
+
+		return exists;
+	}
+
+	/**
+	 * Can return a {@link CloudFileAttributesView}. Concurrent attribute reads of the same path through the
+	 * views share a single read, see {@link #getAttributeReads()}.
 	 * @param type {@link CloudFileAttributesView} or {@link BasicFileAttributeView}
 	 */
 	@Override
 	public <V extends FileAttributeView> V getFileAttributeView(BlobStoreContext blobStoreContext, Class<V> type, CloudPath cloudPath) {
 		if (CloudFileAttributesView.class.equals(type) || BasicFileAttributeView.class.equals(type)) {
-			return type.cast(new CloudFileAttributesView(blobStoreContext, cloudPath));
+			return type.cast(new CloudFileAttributesView(blobStoreContext, cloudPath, attributeReads));
 		}
 
 		return null;
 	}
 
+	/**
+	 * @return The attribute reads made through the {@link CloudFileAttributesView views} of this implementation,
+	 * 			whose {@link SingleFlight#getMergedCalls()} is the number of reads which shared another read
+	 */
+	public SingleFlight<List<Object>,CloudAclFileAttributes> getAttributeReads() {
+		return attributeReads;
+	}
+
+	/**
+	 * Basic attributes of a path covered by a {@link ListingIndex} attached to the file system are read from the
+	 * index. The index holds no ACLs, so when there is a {@link CloudHostSecurityManager} the attributes are
+	 * always read from the cloud so that access can be checked.
+	 */
 	@Override
 	public <A extends BasicFileAttributes> A readAttributes(BlobStoreContext blobStoreContext, Class<A> type,
 			CloudPath cloudPath) throws IOException {
+		if ((type.equals(BasicFileAttributes.class) || type.equals(CloudBasicFileAttributes.class)) &&
+				cloudPath.getFileSystem().getCloudHostConfiguration().getCloudHostSecurityManager() == null) {
+			ListingIndex listingIndex =
+					cloudPath.getFileSystem().getListingIndex(cloudPath.getContainerName(), cloudPath.getPathName());
+
+			if (listingIndex != null) {
+				return type.cast(readIndexedAttributes(listingIndex, cloudPath));
+			}
+		}
+
+		checkMightExist(cloudPath);
 		CloudFileAttributesView fileAttributeView = getFileAttributeView(blobStoreContext, CloudFileAttributesView.class, cloudPath);
 
 		if (fileAttributeView != null) {
@@ -696,55 +1710,53 @@ public class DefaultCloudFileSystemImplementation implements CloudFileSystemImpl
 		return null;
 	}
 
-	@Override
-	public Map<String, Object> readAttributes(BlobStoreContext context, CloudPath path, String attributes) throws IOException {
-		if (StringUtils.isBlank(attributes)) {
-			throw new IllegalArgumentException("Attributes to read is empty!");
+	/**
+	 * Fails without a request to the cloud if the container's {@link ExistenceFilter} says that the path does not exist
+	 * @throws FileNotFoundException If the path definitely does not exist
+	 */
+	void checkMightExist(CloudPath path) throws FileNotFoundException {
+		ExistenceFilter existenceFilter;
+
+		if (path.getPathName() != null &&
+				(existenceFilter = path.getFileSystem().getExistenceFilter(path.getContainerName())) != null &&
+				!existenceFilter.mightExist(path.getPathName())) {
+			throw new FileNotFoundException("Unable to locate the file '" + path.getContainerName() + "|" +
+					path.getPathName() + "'");
 		}
-		
-		String fileView = CloudFileAttributesView.VIEW_NAME;
-		if (StringUtils.contains(attributes, ":")) {
-			fileView = StringUtils.substringBefore(attributes, ":");
-			attributes = StringUtils.substringAfter(attributes, ":");
-		}
-
-		if (!fileView.equals(CloudFileAttributesView.VIEW_NAME) && !fileView.equals("basic")) {
-			throw new IllegalArgumentException("Unsupported file attributes view '" + fileView +
-					"' from attributes string: " + attributes);
-		}
-
-		String[] attributesToGet = StringUtils.split(attributes, ",");
-		boolean getAclAttributeView = StringUtils.equals(attributes, "*") ||
-				(attributesToGet != null &&
-					Arrays.stream(attributesToGet)
-						.anyMatch(a -> StringUtils.containsAny(a, ACL_SET_ATTRIBUTE)));
-
-		CloudBasicFileAttributes readAttributes =
-				getAclAttributeView ?
-						readAttributes(context, CloudAclFileAttributes.class, path) :
-						readAttributes(context, CloudBasicFileAttributes.class, path);
-		Map<String,Object> mapAttributes = new HashMap<>();
-		mapAttributes.put("lastAccessTime", readAttributes.lastAccessTime());
-		mapAttributes.put("lastModifiedTime", readAttributes.lastModifiedTime());
-		mapAttributes.put("fileKey", readAttributes.fileKey());
-		mapAttributes.put("creationTime", readAttributes.creationTime());
-		mapAttributes.put("contentDisposition", readAttributes.getContentDisposition());
-		mapAttributes.put("contentEncoding", readAttributes.getContentEncoding());
-		mapAttributes.put("contentExpires", readAttributes.getContentExpires());
-		mapAttributes.put("contentLanguage", readAttributes.getContentLanguage());
-		mapAttributes.put("contentMD5", readAttributes.getContentMD5());
-		mapAttributes.put("contentType", readAttributes.getContentType());
-		mapAttributes.put("eTag", readAttributes.getETag());
-		mapAttributes.put("physicalLocation", readAttributes.getPhysicalLocation());
-		mapAttributes.put("uri", readAttributes.getUri());
-		mapAttributes.put("userMetadata", readAttributes.getUserMetadata());
-		
-		if (getAclAttributeView) {
-			CloudAclFileAttributes aclReadAttributes = (CloudAclFileAttributes)readAttributes;
-			mapAttributes.put(ACL_SET_ATTRIBUTE, aclReadAttributes.getAclSet());
+	}
+
+	CloudBasicFileAttributes readIndexedAttributes(ListingIndex listingIndex, CloudPath cloudPath) throws IOException {
+		String pathName = cloudPath.getPathName();
+		StorageMetadata meta = pathName == null ? null : listingIndex.get(pathName);
+
+		if (meta != null) {
+			return new CloudBasicFileAttributes(meta);
 		}
-		
-		return mapAttributes;
+
+		// A container, or a directory which exists because there are keys beneath it
+		if (cloudPath.getRoot() == null || listingIndex.hasKeysBeneath(pathName)) {
+			return new CloudBasicFileAttributes();
+		}
+
+		throw new FileNotFoundException("Unable to locate the file '" + cloudPath.getContainerName() + "|" + pathName + "'");
+	}
+
+	@Override
+	public Map<String, Object> readAttributes(BlobStoreContext context, CloudPath path, String attributes) throws IOException {
+		return readAttributes(context, path, AttributeSelector.compile(attributes));
+	}
+
+	/**
+	 * Reads {@link CloudAclFileAttributes} only if the selector needs the ACL's, otherwise reads
+	 * {@link CloudBasicFileAttributes} which may be answered from a {@link ListingIndex}
+	 */
+	@Override
+	public Map<String, Object> readAttributes(BlobStoreContext context, CloudPath path, AttributeSelector selector)
+			throws IOException {
+		CloudBasicFileAttributes readAttributes = selector.isAclRequired() ?
+				readAttributes(context, CloudAclFileAttributes.class, path) :
+				readAttributes(context, CloudBasicFileAttributes.class, path);
+		return selector.select(readAttributes);
 	}
 
 	/**
@@ -0,0 +1,20 @@
+package com.uk.xarixa.cloud.filesystem.core.nio;
+
+/**
+ * Receives the progress of a delete of many keys, such as
+ * {@link CloudFileSystemProvider#emptyContainer(CloudPath, DeleteProgressListener)}
+ */
+@FunctionalInterface
+public interface DeleteProgressListener {
+
+	/**
+	 * Invoked each time another page of keys has been listed and handed to the delete requests, and once more
+	 * when every key has been deleted
+	 * @param path			The container or directory which is being emptied
+	 * @param deletedKeys	The number of keys which have been deleted so far
+	 * @throws CancelException To stop the delete, the keys which are already being deleted are deleted before
+	 * 			the exception is thrown to the caller
+	 */
+	void deleted(CloudPath path, long deletedKeys) throws CancelException;
+
+}
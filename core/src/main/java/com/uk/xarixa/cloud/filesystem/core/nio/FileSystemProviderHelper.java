@@ -10,12 +10,15 @@ import java.nio.file.DirectoryStream.Filter;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.ProviderMismatchException;
 import java.nio.file.ProviderNotFoundException;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.spi.FileSystemProvider;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -255,6 +258,27 @@ public final class FileSystemProviderHelper {
 		return 1;
 	}
 
+	/**
+	 * Walks a file tree using {@link CloudFileSystemProvider#walkFileTree(Path, int, FileVisitor)} if the
+	 * path's provider supports it, which uses a single recursive listing for the whole tree, otherwise
+	 * this falls back to {@link Files#walkFileTree(Path, Set, int, FileVisitor)}.
+	 * @param start		The path to start from
+	 * @param maxDepth	The maximum number of directory levels to visit
+	 * @param visitor	The file visitor
+	 * @return	The start path
+	 * @throws IOException
+	 */
+	public static Path walkFileTree(Path start, int maxDepth, FileVisitor<? super Path> visitor) throws IOException {
+		FileSystemProvider provider = start.getFileSystem().provider();
+
+		if (provider instanceof CloudFileSystemProvider) {
+			LOG.debug("Using optimised cloud file system provider to walk the file tree from {}", start);
+			return ((CloudFileSystemProvider)provider).walkFileTree(start, maxDepth, visitor);
+		}
+
+		return Files.walkFileTree(start, Collections.<FileVisitOption>emptySet(), maxDepth, visitor);
+	}
+
 	/**
 	 * Iterates across a directory's contents
 	 * @param path				An optional path. If the option is empty then iterate's over
@@ -0,0 +1,216 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Longs;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystem;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+
+/**
+ * <p>
+ * A Bloom filter of the keys in a container, and of the directories which contain them, which can say that a
+ * path definitely does not exist without a request to the cloud. When most of the paths checked do not exist,
+ * such as when an ingest process checks for each key before writing it, this saves a request for almost every
+ * check. A path which the filter says might exist is checked in the cloud as usual.
+ * </p>
+ * <p>
+ * The filter is {@link #populate(BlobStore) populated} from a recursive listing of the container. Keys written
+ * through the {@link CloudFileSystem} are {@link #add(String) added} as they are written. Deleted keys cannot be
+ * removed from a Bloom filter, so they are checked in the cloud. Keys written by other clients are <em>not</em>
+ * seen, so the filter should only be used for containers which are written through this file system.
+ * </p>
+ * <p>
+ * The filter is safe to use from many threads. Until it has been populated it says that every path might exist.
+ * </p>
+ * @see CloudFileSystem#enableExistenceFilter(String, long, double)
+ */
+public class ExistenceFilter {
+	private static final Logger LOG = LoggerFactory.getLogger(ExistenceFilter.class);
+	private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+	private static final char SEPARATOR = CloudPath.DEFAULT_PATH_SEPARATOR_CHAR;
+	private final String containerName;
+	private final AtomicLongArray bits;
+	private final long bitSize;
+	private final int hashFunctions;
+	private final AtomicLong insertions = new AtomicLong();
+	private volatile boolean populated;
+
+	/**
+	 * Creates an empty filter sized for the expected number of keys and directories
+	 * @param containerName				The container
+	 * @param expectedEntries			The number of keys and directories the container is expected to hold
+	 * @param falsePositiveProbability	The probability that a path which does not exist is checked in the cloud
+	 */
+	public ExistenceFilter(String containerName, long expectedEntries, double falsePositiveProbability) {
+		if (expectedEntries < 1) {
+			throw new IllegalArgumentException("The expected number of entries must be positive: " + expectedEntries);
+		}
+
+		if (falsePositiveProbability <= 0d || falsePositiveProbability >= 1d) {
+			throw new IllegalArgumentException("The false positive probability must be between 0 and 1: " +
+					falsePositiveProbability);
+		}
+
+		long optimalBits = (long)(-expectedEntries * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+		int words = (int)Math.min(Integer.MAX_VALUE, Math.max(1L, (optimalBits + Long.SIZE - 1) / Long.SIZE));
+		this.containerName = containerName;
+		this.bits = new AtomicLongArray(words);
+		this.bitSize = (long)words * Long.SIZE;
+		this.hashFunctions = Math.max(1, (int)Math.round((double)bitSize / expectedEntries * Math.log(2)));
+	}
+
+	/**
+	 * Adds all of the keys in the container from a recursive listing, after which the filter is used to answer
+	 * existence checks. Keys {@link #add(String) added} whilst the listing is in progress are kept.
+	 */
+	public void populate(BlobStore blobStore) {
+		ListContainerOptions options = new ListContainerOptions().recursive();
+		String marker = null;
+		String lastDirectory = null;
+		long keys = 0;
+
+		do {
+			ListContainerOptions pageOptions = options.clone();
+			if (marker != null) {
+				pageOptions.afterMarker(marker);
+			}
+
+			PageSet<? extends StorageMetadata> pageSet = blobStore.list(containerName, pageOptions);
+			for (StorageMetadata meta : pageSet) {
+				String key = StringUtils.removeEnd(meta.getName(), CloudPath.DEFAULT_PATH_SEPARATOR);
+				put(key);
+
+				// Keys are listed in order, so the directories of consecutive keys are usually the same
+				int separatorIndex = key.lastIndexOf(SEPARATOR);
+				String directory = separatorIndex > 0 ? key.substring(0, separatorIndex) : null;
+				if (directory != null && !directory.equals(lastDirectory)) {
+					addDirectories(directory);
+				}
+				lastDirectory = directory;
+				keys++;
+			}
+
+			marker = pageSet.getNextMarker();
+		} while (marker != null);
+
+		populated = true;
+		LOG.debug("Populated the existence filter for container '{}' with {} keys, {} entries in {} bits",
+				containerName, keys, insertions.get(), bitSize);
+	}
+
+	/**
+	 * Adds a path which has been written, and each of the directories which contain it
+	 * @param pathName	The path within the container
+	 */
+	public void add(String pathName) {
+		String key = StringUtils.removeEnd(pathName, CloudPath.DEFAULT_PATH_SEPARATOR);
+		if (StringUtils.isEmpty(key)) {
+			return;
+		}
+
+		put(key);
+		int separatorIndex = key.lastIndexOf(SEPARATOR);
+		if (separatorIndex > 0) {
+			addDirectories(key.substring(0, separatorIndex));
+		}
+	}
+
+	private void addDirectories(String directory) {
+		int separatorIndex = directory.length();
+
+		while (separatorIndex > 0) {
+			put(directory.substring(0, separatorIndex));
+			separatorIndex = directory.lastIndexOf(SEPARATOR, separatorIndex - 1);
+		}
+	}
+
+	/**
+	 * Tests if a path might exist
+	 * @param pathName	The path within the container
+	 * @return false if the path definitely does not exist, true if it might exist or the filter
+	 * 			has not been populated yet
+	 */
+	public boolean mightExist(String pathName) {
+		String key = StringUtils.removeEnd(pathName, CloudPath.DEFAULT_PATH_SEPARATOR);
+		if (!populated || StringUtils.isEmpty(key)) {
+			return true;
+		}
+
+		long[] hashes = hash(key);
+		for (int i = 0; i < hashFunctions; i++) {
+			long bitIndex = bitIndex(hashes, i);
+			if ((bits.get((int)(bitIndex >>> 6)) & (1L << bitIndex)) == 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void put(String key) {
+		long[] hashes = hash(key);
+
+		for (int i = 0; i < hashFunctions; i++) {
+			long bitIndex = bitIndex(hashes, i);
+			int wordIndex = (int)(bitIndex >>> 6);
+			long mask = 1L << bitIndex;
+			long word;
+
+			do {
+				word = bits.get(wordIndex);
+			} while ((word & mask) == 0 && !bits.compareAndSet(wordIndex, word, word | mask));
+		}
+
+		insertions.incrementAndGet();
+	}
+
+	private static long[] hash(String key) {
+		byte[] hash = HASH_FUNCTION.hashString(key, StandardCharsets.UTF_8).asBytes();
+		return new long[] {HashCode.fromBytes(hash).asLong(),
+				Longs.fromBytes(hash[15], hash[14], hash[13], hash[12], hash[11], hash[10], hash[9], hash[8])};
+	}
+
+	/**
+	 * The bit for each hash function is chosen by combining two hashes, as in Kirsch and Mitzenmacher
+	 */
+	private long bitIndex(long[] hashes, int hashFunction) {
+		return ((hashes[0] + hashFunction * hashes[1]) & Long.MAX_VALUE) % bitSize;
+	}
+
+	public String getContainerName() {
+		return containerName;
+	}
+
+	public boolean isPopulated() {
+		return populated;
+	}
+
+	/**
+	 * @return The number of keys and directories added to the filter, including repeated additions
+	 */
+	public long getInsertions() {
+		return insertions.get();
+	}
+
+	/**
+	 * @return The probability that a path which does not exist is reported as one that might exist, for
+	 * 			the number of entries added so far
+	 */
+	public double getExpectedFalsePositiveProbability() {
+		return Math.pow(1d - Math.exp(-hashFunctions * (double)insertions.get() / bitSize), hashFunctions);
+	}
+
+}
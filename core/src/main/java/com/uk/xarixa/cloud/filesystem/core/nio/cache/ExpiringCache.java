@@ -0,0 +1,262 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.cache;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * <p>
+ * A simple thread-safe cache where each entry expires after a time to live, and which holds at most a
+ * maximum number of entries. When the cache is full the least recently used entry is evicted.
+ * </p>
+ * <p>
+ * This is used as the basis for the caches held per {@link com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystem},
+ * where the number of entries is usually small enough that a single lock is not contended.
+ * </p>
+ * <p>
+ * A cache created with a {@link Function} giving the path of each key also keeps the keys sorted by path, so that
+ * the entries for a path, the paths beneath it or the paths which prefix it are invalidated with a range lookup
+ * rather than a test of every entry.
+ * </p>
+ *
+ * @param <K>	The key type
+ * @param <V>	The value type
+ */
+public class ExpiringCache<K,V> {
+	private final long timeToLiveNanos;
+	private final LongSupplier clock;
+	private final LinkedHashMap<K,ExpiringValue<V>> entries;
+	private final Function<? super K,String> keyPath;
+	private final NavigableMap<String,Set<K>> keysByPath;
+
+	/**
+	 * @param timeToLiveMs	The time in ms that an entry lives for, {@link Long#MAX_VALUE} for no expiry
+	 * @param maxSize		The maximum number of entries held
+	 */
+	public ExpiringCache(long timeToLiveMs, int maxSize) {
+		this(timeToLiveMs, maxSize, null, System::nanoTime);
+	}
+
+	/**
+	 * @param timeToLiveMs	The time in ms that an entry lives for, {@link Long#MAX_VALUE} for no expiry
+	 * @param maxSize		The maximum number of entries held
+	 * @param keyPath		Gives the path of a key, which entries are invalidated by
+	 */
+	public ExpiringCache(long timeToLiveMs, int maxSize, Function<? super K,String> keyPath) {
+		this(timeToLiveMs, maxSize, keyPath, System::nanoTime);
+	}
+
+	ExpiringCache(long timeToLiveMs, int maxSize, LongSupplier nanoClock) {
+		this(timeToLiveMs, maxSize, null, nanoClock);
+	}
+
+	ExpiringCache(long timeToLiveMs, int maxSize, Function<? super K,String> keyPath, LongSupplier nanoClock) {
+		if (timeToLiveMs <= 0) {
+			throw new IllegalArgumentException("The time to live must be greater than zero: " + timeToLiveMs);
+		}
+
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("The maximum cache size must be greater than zero: " + maxSize);
+		}
+
+		this.timeToLiveNanos = timeToLiveMs >= TimeUnit.NANOSECONDS.toMillis(Long.MAX_VALUE) ?
+				Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(timeToLiveMs);
+		this.clock = nanoClock;
+		this.keyPath = keyPath;
+		this.keysByPath = keyPath == null ? null : new TreeMap<>();
+		this.entries = new LinkedHashMap<K,ExpiringValue<V>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K,ExpiringValue<V>> eldest) {
+				if (size() > maxSize) {
+					unindex(eldest.getKey());
+					return true;
+				}
+
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * @return The cached value or null if there isn't one or it has expired
+	 */
+	public synchronized V get(K key) {
+		ExpiringValue<V> value = entries.get(key);
+
+		if (value == null) {
+			return null;
+		}
+
+		if (value.hasExpired(clock.getAsLong())) {
+			remove(key);
+			return null;
+		}
+
+		return value.value;
+	}
+
+	public synchronized void put(K key, V value) {
+		long now = clock.getAsLong();
+		long expiresAt = timeToLiveNanos == Long.MAX_VALUE || now + timeToLiveNanos < now ?
+				Long.MAX_VALUE : now + timeToLiveNanos;
+		if (entries.put(key, new ExpiringValue<V>(value, expiresAt)) == null && keysByPath != null) {
+			keysByPath.computeIfAbsent(keyPath.apply(key), path -> new HashSet<>()).add(key);
+		}
+	}
+
+	public synchronized void invalidate(K key) {
+		remove(key);
+	}
+
+	/**
+	 * Removes all entries whose key has the path
+	 * @return The number of entries removed
+	 */
+	public synchronized int invalidatePath(String path) {
+		Set<K> keys = getKeysByPath().remove(path);
+		return keys == null ? 0 : removeEntries(keys);
+	}
+
+	/**
+	 * Removes all entries whose key has a path starting with the prefix
+	 * @return The number of entries removed
+	 */
+	public synchronized int invalidatePathsStartingWith(String pathPrefix) {
+		int removed = 0;
+
+		for (Iterator<Map.Entry<String,Set<K>>> pathIterator =
+				getKeysByPath().tailMap(pathPrefix, true).entrySet().iterator(); pathIterator.hasNext();) {
+			Map.Entry<String,Set<K>> pathKeys = pathIterator.next();
+			if (!pathKeys.getKey().startsWith(pathPrefix)) {
+				break;
+			}
+
+			removed += removeEntries(pathKeys.getValue());
+			pathIterator.remove();
+		}
+
+		return removed;
+	}
+
+	/**
+	 * Removes all entries whose key has a path which is a prefix of the path, including the path itself
+	 * @return The number of entries removed
+	 */
+	public synchronized int invalidatePathsPrefixing(String path) {
+		NavigableMap<String,Set<K>> sortedKeys = getKeysByPath();
+		int removed = 0;
+		Map.Entry<String,Set<K>> floor = sortedKeys.floorEntry(path);
+
+		while (floor != null) {
+			String floorPath = floor.getKey();
+
+			if (path.startsWith(floorPath)) {
+				removed += removeEntries(floor.getValue());
+				sortedKeys.remove(floorPath);
+				floor = sortedKeys.lowerEntry(floorPath);
+			} else {
+				// Any path between the floor and the path which prefixes the path is no longer than their common prefix
+				floor = sortedKeys.floorEntry(path.substring(0, StringUtils.indexOfDifference(floorPath, path)));
+			}
+		}
+
+		return removed;
+	}
+
+	/**
+	 * Removes all entries whose key matches the predicate
+	 * @return The number of entries removed
+	 */
+	public synchronized int invalidateIf(Predicate<? super K> keyPredicate) {
+		int removed = 0;
+
+		for (Iterator<K> keyIterator = entries.keySet().iterator(); keyIterator.hasNext();) {
+			K key = keyIterator.next();
+			if (keyPredicate.test(key)) {
+				keyIterator.remove();
+				unindex(key);
+				removed++;
+			}
+		}
+
+		return removed;
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		if (keysByPath != null) {
+			keysByPath.clear();
+		}
+	}
+
+	/**
+	 * @return The number of entries held, which may include expired entries which haven't yet been removed
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	private NavigableMap<String,Set<K>> getKeysByPath() {
+		if (keysByPath == null) {
+			throw new IllegalStateException("Entries cannot be invalidated by path without the path of each key");
+		}
+
+		return keysByPath;
+	}
+
+	private void remove(K key) {
+		if (entries.remove(key) != null) {
+			unindex(key);
+		}
+	}
+
+	private void unindex(K key) {
+		if (keysByPath != null) {
+			String path = keyPath.apply(key);
+			Set<K> keys = keysByPath.get(path);
+
+			if (keys != null && keys.remove(key) && keys.isEmpty()) {
+				keysByPath.remove(path);
+			}
+		}
+	}
+
+	private int removeEntries(Set<K> keys) {
+		int removed = 0;
+
+		for (K key : keys) {
+			if (entries.remove(key) != null) {
+				removed++;
+			}
+		}
+
+		return removed;
+	}
+
+	private static final class ExpiringValue<V> {
+		private final V value;
+		private final long expiresAtNanos;
+
+		ExpiringValue(V value, long expiresAtNanos) {
+			this.value = value;
+			this.expiresAtNanos = expiresAtNanos;
+		}
+
+		boolean hasExpired(long nowNanos) {
+			return expiresAtNanos != Long.MAX_VALUE && nowNanos - expiresAtNanos >= 0;
+		}
+	}
+
+}
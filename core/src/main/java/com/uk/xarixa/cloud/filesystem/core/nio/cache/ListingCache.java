@@ -0,0 +1,127 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystem;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.CloudDirectoryStream;
+
+/**
+ * <p>
+ * A cache of directory listing pages held for a {@link CloudFileSystem}. Each page is cached by its
+ * {@link ListingCacheKey} for a limited time, and the cache holds a maximum number of pages.
+ * </p>
+ * <p>
+ * Changes made through this file system {@link #invalidate(CloudPath) invalidate} any cached pages whose
+ * listing could include the changed path. Changes made by other clients are only seen once the cached
+ * pages expire. A page which was being listed when its container was invalidated is not cached, as it may
+ * have been listed before the change.
+ * </p>
+ * @see CloudDirectoryStream
+ * @see CloudFileSystem#getListingCache()
+ */
+public class ListingCache {
+	private static final Logger LOG = LoggerFactory.getLogger(ListingCache.class);
+	private final ExpiringCache<ListingCacheKey,PageSet<? extends StorageMetadata>> pages;
+	private final ConcurrentMap<String,AtomicLong> generations = new ConcurrentHashMap<>();
+
+	/**
+	 * @param timeToLiveMs	The time in ms that a listing page is cached for
+	 * @param maxPages		The maximum number of listing pages to cache
+	 */
+	public ListingCache(long timeToLiveMs, int maxPages) {
+		this.pages = new ExpiringCache<>(timeToLiveMs, maxPages, ListingCacheKey::getPath);
+	}
+
+	/**
+	 * Returns the cached listing page or invokes {@link BlobStore#list(String, ListContainerOptions)}
+	 * and caches the result.
+	 */
+	public PageSet<? extends StorageMetadata> list(BlobStore blobStore, String containerName,
+			ListContainerOptions options) {
+		ListingCacheKey key = new ListingCacheKey(containerName, options);
+		PageSet<? extends StorageMetadata> pageSet = pages.get(key);
+
+		if (pageSet == null) {
+			AtomicLong generation = getGeneration(containerName);
+			long listedGeneration = generation.get();
+			pageSet = blobStore.list(containerName, options);
+
+			synchronized (generation) {
+				if (generation.get() == listedGeneration) {
+					pages.put(key, pageSet);
+				} else {
+					LOG.debug("Not caching listing page for {}, the container was invalidated whilst listing", key);
+				}
+			}
+		} else {
+			LOG.debug("Using cached listing page for {}", key);
+		}
+
+		return pageSet;
+	}
+
+	/**
+	 * Removes all cached pages which could contain the path, which are those listing a prefix of the path
+	 * and those listing beneath the path. If the path is a container then all pages for the container are removed.
+	 */
+	public void invalidate(CloudPath path) {
+		String containerName = path.getContainerName();
+		String key = path.getPathName();
+		AtomicLong generation = getGeneration(containerName);
+
+		synchronized (generation) {
+			generation.incrementAndGet();
+		}
+
+		String containerPath = containerName + CloudPath.DEFAULT_PATH_SEPARATOR;
+		int removed;
+
+		if (StringUtils.isEmpty(key)) {
+			removed = pages.invalidatePathsStartingWith(containerPath);
+		} else {
+			removed = pages.invalidatePathsPrefixing(containerPath + key) + pages.invalidatePathsStartingWith(
+					containerPath + StringUtils.appendIfMissing(key, CloudPath.DEFAULT_PATH_SEPARATOR));
+		}
+
+		if (removed > 0) {
+			LOG.debug("Invalidated {} cached listing pages for '{}'", removed, path);
+		}
+	}
+
+	public void clear() {
+		for (AtomicLong generation : generations.values()) {
+			synchronized (generation) {
+				generation.incrementAndGet();
+			}
+		}
+
+		pages.clear();
+	}
+
+	/**
+	 * @return The number of times that the container has been invalidated, which changes whenever the cached pages
+	 * 			of the container may be out of date
+	 */
+	private AtomicLong getGeneration(String containerName) {
+		return generations.computeIfAbsent(containerName, c -> new AtomicLong());
+	}
+
+	/**
+	 * @return The number of cached pages
+	 */
+	public int size() {
+		return pages.size();
+	}
+
+}
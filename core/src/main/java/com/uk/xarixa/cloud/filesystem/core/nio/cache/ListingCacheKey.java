@@ -0,0 +1,111 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.cache;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.jclouds.blobstore.options.ListContainerOptions;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+
+/**
+ * Identifies a single page of a container listing, by the container, the key prefix which was listed,
+ * whether the listing was recursive and the page marker. The remaining list options are also part of
+ * the key as these change the content of the page.
+ */
+public final class ListingCacheKey {
+	private final String containerName;
+	private final String prefix;
+	private final String delimiter;
+	private final boolean recursive;
+	private final boolean detailed;
+	private final String marker;
+	private final Integer maxResults;
+
+	public ListingCacheKey(String containerName, ListContainerOptions options) {
+		this.containerName = containerName;
+		this.prefix = getListingPrefix(options);
+		this.delimiter = options.getDelimiter();
+		this.recursive = options.isRecursive();
+		this.detailed = options.isDetailed();
+		this.marker = options.getMarker();
+		this.maxResults = options.getMaxResults();
+	}
+
+	/**
+	 * Works out the key prefix for the listing options
+	 * @return	The directory with a trailing separator, the prefix, or an empty string when
+	 * 			the whole container is listed
+	 */
+	static String getListingPrefix(ListContainerOptions options) {
+		if (StringUtils.isNotEmpty(options.getDir())) {
+			return StringUtils.appendIfMissing(options.getDir(), CloudPath.DEFAULT_PATH_SEPARATOR);
+		}
+
+		return StringUtils.defaultString(options.getPrefix());
+	}
+
+	/**
+	 * @return The container and listing prefix, which the cached pages are invalidated by
+	 */
+	public String getPath() {
+		return containerName + CloudPath.DEFAULT_PATH_SEPARATOR + prefix;
+	}
+
+	public String getContainerName() {
+		return containerName;
+	}
+
+	public String getPrefix() {
+		return prefix;
+	}
+
+	public boolean isRecursive() {
+		return recursive;
+	}
+
+	public String getMarker() {
+		return marker;
+	}
+
+	@Override
+	public int hashCode() {
+		return new HashCodeBuilder()
+				.append(containerName)
+				.append(prefix)
+				.append(delimiter)
+				.append(recursive)
+				.append(detailed)
+				.append(marker)
+				.append(maxResults)
+				.toHashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+
+		if (!(obj instanceof ListingCacheKey)) {
+			return false;
+		}
+
+		ListingCacheKey other = (ListingCacheKey)obj;
+		return new EqualsBuilder()
+				.append(containerName, other.containerName)
+				.append(prefix, other.prefix)
+				.append(delimiter, other.delimiter)
+				.append(recursive, other.recursive)
+				.append(detailed, other.detailed)
+				.append(marker, other.marker)
+				.append(maxResults, other.maxResults)
+				.isEquals();
+	}
+
+	@Override
+	public String toString() {
+		return ToStringBuilder.reflectionToString(this);
+	}
+
+}
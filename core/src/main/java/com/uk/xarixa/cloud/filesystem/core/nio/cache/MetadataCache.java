@@ -0,0 +1,158 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.cache;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystem;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudAclFileAttributes;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudFileAttributesView;
+
+/**
+ * <p>
+ * A cache of the attributes read for each path by a {@link CloudFileAttributesView}, held for a
+ * {@link CloudFileSystem}. Reading the attributes of a file takes several requests, for the directory check,
+ * the blob metadata and the blob access, and a single copy or move reads the attributes of the same paths
+ * several times.
+ * </p>
+ * <p>
+ * Changes made through this file system {@link #invalidate(CloudPath) invalidate} the cached attributes of the
+ * path, of its parent directories, and of anything beneath it. How long the attributes are cached for, and so
+ * when changes by other clients are seen, depends on the {@link MetadataCacheMode}.
+ * </p>
+ * @see CloudFileSystem#getMetadataCache()
+ */
+public class MetadataCache {
+	private static final Logger LOG = LoggerFactory.getLogger(MetadataCache.class);
+	private final MetadataCacheMode mode;
+	private final ExpiringCache<Key,CloudAclFileAttributes> attributes;
+
+	/**
+	 * @param mode			Either {@link MetadataCacheMode#TTL} or {@link MetadataCacheMode#SESSION}
+	 * @param timeToLiveMs	The time in ms that attributes are cached for in {@link MetadataCacheMode#TTL} mode
+	 * @param maxSize		The maximum number of paths to cache the attributes of
+	 */
+	public MetadataCache(MetadataCacheMode mode, long timeToLiveMs, int maxSize) {
+		if (MetadataCacheMode.STRICT.equals(mode)) {
+			throw new IllegalArgumentException("Attributes are not cached in " + mode + " mode");
+		}
+
+		this.mode = mode;
+		this.attributes = new ExpiringCache<>(MetadataCacheMode.SESSION.equals(mode) ? Long.MAX_VALUE : timeToLiveMs,
+				maxSize, Key::getPath);
+	}
+
+	/**
+	 * @return The cached attributes, or null if they are not cached or have expired
+	 */
+	public CloudAclFileAttributes get(CloudPath path) {
+		return attributes.get(new Key(path.getContainerName(), path.getPathName()));
+	}
+
+	public void put(CloudPath path, CloudAclFileAttributes pathAttributes) {
+		attributes.put(new Key(path.getContainerName(), path.getPathName()), pathAttributes);
+	}
+
+	/**
+	 * Removes the cached attributes of the path, each of its parent directories and all paths beneath it.
+	 * If the path is a container then all of the cached attributes for the container are removed.
+	 */
+	public void invalidate(CloudPath path) {
+		int removed = Key.invalidate(attributes, path.getContainerName(), path.getPathName());
+
+		if (removed > 0) {
+			LOG.debug("Invalidated {} cached attributes for '{}'", removed, path);
+		}
+	}
+
+	public void clear() {
+		attributes.clear();
+	}
+
+	/**
+	 * @return The number of paths with cached attributes
+	 */
+	public int size() {
+		return attributes.size();
+	}
+
+	public MetadataCacheMode getMode() {
+		return mode;
+	}
+
+	/**
+	 * The container and path within it
+	 */
+	static final class Key {
+		private final String containerName;
+		private final String pathName;
+
+		Key(String containerName, String pathName) {
+			this.containerName = containerName;
+			this.pathName = StringUtils.defaultString(pathName);
+		}
+
+		/**
+		 * @return The container and path name, which sorts the paths beneath a directory straight after it
+		 */
+		String getPath() {
+			return containerName + CloudPath.DEFAULT_PATH_SEPARATOR + pathName;
+		}
+
+		/**
+		 * Removes the entries affected by a change to a path, which are those for the path itself, the paths
+		 * beneath it and the directories above it
+		 * @return The number of entries removed
+		 */
+		static int invalidate(ExpiringCache<Key,?> cache, String containerName, String pathName) {
+			String containerPath = containerName + CloudPath.DEFAULT_PATH_SEPARATOR;
+
+			if (StringUtils.isEmpty(pathName)) {
+				return cache.invalidatePathsStartingWith(containerPath);
+			}
+
+			String path = containerPath + pathName;
+			int removed = cache.invalidatePath(path) +
+					cache.invalidatePathsStartingWith(path + CloudPath.DEFAULT_PATH_SEPARATOR) +
+					cache.invalidatePath(containerPath);
+
+			for (int separator = pathName.indexOf(CloudPath.DEFAULT_PATH_SEPARATOR_CHAR); separator > 0;
+					separator = pathName.indexOf(CloudPath.DEFAULT_PATH_SEPARATOR_CHAR, separator + 1)) {
+				removed += cache.invalidatePath(containerPath + pathName.substring(0, separator));
+			}
+
+			return removed;
+		}
+
+		@Override
+		public int hashCode() {
+			return new HashCodeBuilder().append(containerName).append(pathName).toHashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+
+			Key other = (Key)obj;
+			return new EqualsBuilder()
+					.append(containerName, other.containerName)
+					.append(pathName, other.pathName)
+					.isEquals();
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringBuilder(this)
+					.append("containerName", containerName)
+					.append("pathName", pathName)
+					.toString();
+		}
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.cache;
+
+/**
+ * The consistency of the attributes held in a {@link MetadataCache}
+ */
+public enum MetadataCacheMode {
+	/**
+	 * Attributes are not cached, every read goes to the cloud
+	 */
+	STRICT,
+
+	/**
+	 * Attributes are cached for a time to live. Changes made through the file system are seen straight away,
+	 * changes made by other clients are seen once the cached attributes expire.
+	 */
+	TTL,
+
+	/**
+	 * Attributes are cached for the life of the file system, or until the cache is cleared. Changes made through
+	 * the file system are seen straight away, changes made by other clients are not seen.
+	 */
+	SESSION;
+
+}
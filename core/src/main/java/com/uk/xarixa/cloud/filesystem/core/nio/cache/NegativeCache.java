@@ -0,0 +1,71 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystem;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+
+/**
+ * <p>
+ * A short lived cache of the paths which were found not to exist, held for a {@link CloudFileSystem}. Checks
+ * for paths which do not exist are common, such as an existence check before a file is created or the check
+ * of each directory level when creating directories, and each one otherwise repeats the same requests.
+ * </p>
+ * <p>
+ * Creating, copying or moving a path through this file system {@link #invalidate(CloudPath) invalidates}
+ * the path, its parent directories and anything beneath it, so these are seen straight away. A path created
+ * by another client is seen once the entry has expired, so the time to live should be kept short.
+ * </p>
+ * @see CloudFileSystem#getNegativeCache()
+ */
+public class NegativeCache {
+	private static final Logger LOG = LoggerFactory.getLogger(NegativeCache.class);
+	private final ExpiringCache<MetadataCache.Key,Boolean> missingPaths;
+
+	/**
+	 * @param timeToLiveMs	The time in ms that a path is remembered as missing for
+	 * @param maxSize		The maximum number of missing paths to remember
+	 */
+	public NegativeCache(long timeToLiveMs, int maxSize) {
+		this.missingPaths = new ExpiringCache<>(timeToLiveMs, maxSize, MetadataCache.Key::getPath);
+	}
+
+	/**
+	 * @return true if the path was recently found not to exist
+	 */
+	public boolean isMissing(CloudPath path) {
+		return missingPaths.get(new MetadataCache.Key(path.getContainerName(), path.getPathName())) != null;
+	}
+
+	/**
+	 * Remembers that the path does not exist
+	 */
+	public void putMissing(CloudPath path) {
+		missingPaths.put(new MetadataCache.Key(path.getContainerName(), path.getPathName()), Boolean.TRUE);
+	}
+
+	/**
+	 * Forgets that the path, each of its parent directories and all paths beneath it were missing.
+	 * If the path is a container then all of the missing paths for the container are forgotten.
+	 */
+	public void invalidate(CloudPath path) {
+		int removed = MetadataCache.Key.invalidate(missingPaths, path.getContainerName(), path.getPathName());
+
+		if (removed > 0) {
+			LOG.debug("Invalidated {} missing paths for '{}'", removed, path);
+		}
+	}
+
+	public void clear() {
+		missingPaths.clear();
+	}
+
+	/**
+	 * @return The number of paths remembered as missing
+	 */
+	public int size() {
+		return missingPaths.size();
+	}
+
+}
@@ -0,0 +1,241 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.cache;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Coalesces concurrent identical calls, so that when several threads make the same call at the same time
+ * only the first one runs and the others wait for and share its result, or its exception. A call made after
+ * the shared call has completed runs again, so results are never older than the call.
+ * </p>
+ * <p>
+ * A result which holds a resource, such as a temporary file, can be given a release action which is run once
+ * every thread sharing the result has {@link #execute(Object, Callable, SharedResultFunction, Consumer) used} it.
+ * Alternatively the thread which made the call can
+ * {@link #executeAndHandOver(Object, Callable, SharedResultFunction, SharedResultFunction) hand the result over},
+ * using it only once every other thread has, such as a file which that thread goes on to change.
+ * </p>
+ * @param <K>	The key which identifies identical calls
+ * @param <V>	The result of a call
+ */
+public class SingleFlight<K,V> {
+	private static final Logger LOG = LoggerFactory.getLogger(SingleFlight.class);
+	private final ConcurrentMap<K,Flight<V>> flights = new ConcurrentHashMap<>();
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong mergedCalls = new AtomicLong();
+
+	/**
+	 * Uses the result of a shared call
+	 */
+	@FunctionalInterface
+	public interface SharedResultFunction<V,R> {
+		R apply(V result) throws IOException;
+	}
+
+	/**
+	 * Runs the call, or waits for the identical call which is already in flight
+	 * @return The shared result
+	 * @throws IOException The exception thrown by the shared call, or an {@link IOException} wrapping a
+	 * 			checked exception which is not an {@link IOException}
+	 */
+	public V execute(K key, Callable<? extends V> call) throws IOException {
+		return execute(key, call, result -> result, null);
+	}
+
+	/**
+	 * Runs the call, or waits for the identical call which is already in flight, and then uses the result
+	 * @param key		Identifies identical calls
+	 * @param call		Makes the call
+	 * @param use		Uses the shared result in this thread
+	 * @param release	Run with the result once all of the threads sharing it have used it, may be null
+	 * @return The value returned by <em>use</em>
+	 */
+	public <R> R execute(K key, Callable<? extends V> call, SharedResultFunction<? super V,R> use,
+			Consumer<? super V> release) throws IOException {
+		return execute(key, call, use, use, release, false);
+	}
+
+	/**
+	 * Runs the call, or waits for the identical call which is already in flight, and then uses the result. The
+	 * thread which made the call waits until every other thread sharing the result has used it before using it
+	 * itself, so the result can be changed by that thread afterwards.
+	 * @param key			Identifies identical calls
+	 * @param call			Makes the call
+	 * @param leaderUse		Uses the result in the thread which made the call
+	 * @param followerUse	Uses the shared result in a thread which shared the call
+	 * @return The value returned by <em>leaderUse</em> or <em>followerUse</em>
+	 */
+	public <R> R executeAndHandOver(K key, Callable<? extends V> call, SharedResultFunction<? super V,R> leaderUse,
+			SharedResultFunction<? super V,R> followerUse) throws IOException {
+		return execute(key, call, leaderUse, followerUse, null, true);
+	}
+
+	private <R> R execute(K key, Callable<? extends V> call, SharedResultFunction<? super V,R> leaderUse,
+			SharedResultFunction<? super V,R> followerUse, Consumer<? super V> release, boolean handOver)
+			throws IOException {
+		calls.incrementAndGet();
+		Flight<V> flight = null;
+		boolean leader = false;
+
+		while (flight == null) {
+			Flight<V> newFlight = new Flight<>();
+			flight = flights.putIfAbsent(key, newFlight);
+
+			if (flight == null) {
+				flight = newFlight;
+				leader = true;
+				flight.join();
+			} else if (!flight.join()) {
+				// Released between the lookup and the join, it has already been removed
+				flights.remove(key, flight);
+				flight = null;
+			}
+		}
+
+		try {
+			if (leader) {
+				try {
+					flight.complete(call.call(), null);
+				} catch (Exception e) {
+					flight.complete(null, e);
+				} finally {
+					flights.remove(key, flight);
+				}
+			} else {
+				mergedCalls.incrementAndGet();
+				LOG.trace("Sharing the call in flight for {}", key);
+				flight.await();
+			}
+
+			if (flight.exception != null) {
+				throwException(flight.exception);
+			}
+
+			if (!leader) {
+				return followerUse.apply(flight.result);
+			}
+
+			if (handOver) {
+				flight.awaitFollowers();
+			}
+
+			return leaderUse.apply(flight.result);
+		} finally {
+			if (flight.leave() && release != null && flight.result != null) {
+				release.accept(flight.result);
+			}
+		}
+	}
+
+	private static void throwException(Exception e) throws IOException {
+		if (e instanceof IOException) {
+			throw (IOException)e;
+		}
+
+		if (e instanceof RuntimeException) {
+			throw (RuntimeException)e;
+		}
+
+		throw new IOException(e.getMessage(), e);
+	}
+
+	/**
+	 * @return The number of calls made, including those which shared another call
+	 */
+	public long getCalls() {
+		return calls.get();
+	}
+
+	/**
+	 * @return The number of calls which shared the result of a call already in flight
+	 */
+	public long getMergedCalls() {
+		return mergedCalls.get();
+	}
+
+	/**
+	 * @return The number of calls currently in flight
+	 */
+	public int getInFlight() {
+		return flights.size();
+	}
+
+	private static final class Flight<V> {
+		private final CountDownLatch completed = new CountDownLatch(1);
+		private int participants;
+		private boolean released;
+		private volatile V result;
+		private volatile Exception exception;
+
+		/**
+		 * @return false if every participant has already left
+		 */
+		synchronized boolean join() {
+			if (released) {
+				return false;
+			}
+
+			participants++;
+			return true;
+		}
+
+		/**
+		 * @return true if this was the last participant to leave
+		 */
+		synchronized boolean leave() {
+			notifyAll();
+
+			if (--participants == 0) {
+				released = true;
+				return true;
+			}
+
+			return false;
+		}
+
+		/**
+		 * Waits until the calling participant is the only one left, an interrupt is deferred until then
+		 */
+		synchronized void awaitFollowers() {
+			boolean interrupted = false;
+
+			while (participants > 1) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		void complete(V result, Exception exception) {
+			this.result = result;
+			this.exception = exception;
+			completed.countDown();
+		}
+
+		void await() throws InterruptedIOException {
+			try {
+				completed.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted whilst waiting for a shared call");
+			}
+		}
+	}
+
+}
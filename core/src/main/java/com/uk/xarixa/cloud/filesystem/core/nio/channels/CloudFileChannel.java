@@ -12,7 +12,6 @@ import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileAttribute;
 import java.util.ArrayList;
@@ -131,8 +130,7 @@ public class CloudFileChannel extends FileChannel {
 			// Copy the blob from S3 to local if required
 			if (download) {
 				LOG.debug("Downloading '{}' to '{}'", path, localPath);
-				Blob blob = transport.getBlob(context, path, getGetOption());
-				Files.copy(blob.getPayload().openStream(), localPath, StandardCopyOption.REPLACE_EXISTING);
+				transport.download(context, path, getGetOption(), localPath);
 				LOG.debug("Completed downloading '{}' to '{}'", path, localPath);
 			}
 
@@ -204,14 +202,19 @@ public class CloudFileChannel extends FileChannel {
 			
 			// Sync to blob store
 			Payload payload = transport.createPayload(localPath);
+			Blob blob;
 			try {
 				// Read the file content from the channel so far
 				BlobStore blobStore = context.getBlobStore();
 				BlobBuilder blobBuilder = buildPayload(pathFile, payload, blobStore);
-				transport.storeBlob(context, path.getContainerName(), blobBuilder.build(), getPutOption(), writeMetaData);
+				blob = blobBuilder.build();
+				transport.storeBlob(context, path.getContainerName(), blob,
+						transport.getPutOption(this, writeMetaData), writeMetaData);
 			} finally {
 				payload.close();
 			}
+
+			path.getFileSystem().invalidateCaches(path, blob.getMetadata());
 	
 			LOG.info("Synchronized from local file store '{}' to cloud path '{}' OK", localPath, path);
 			LOG.debug("Executing post-sync interceptor action {} for local file store '{}' to cloud path '{}'",
@@ -1,5 +1,6 @@
 package com.uk.xarixa.cloud.filesystem.core.nio.channels;
 
+import java.io.IOException;
 import java.nio.file.Path;
 
 import org.jclouds.blobstore.BlobStoreContext;
@@ -30,6 +31,17 @@ public interface CloudFileChannelTransport {
 	 */
 	Payload createPayload(Path localFile);
 
+	/**
+	 * Invoked by the {@link CloudFileChannel#syncToBlobStore(boolean)} action to create the put options which
+	 * are passed to {@link #storeBlob(BlobStoreContext, String, Blob, PutOptionFileAttribute, boolean)}. These
+	 * can carry attributes, such as the BLOB access, in the upload request itself rather than setting them
+	 * with a separate request in {@link #postSyncToCloud(CloudFileChannel, boolean)}.
+	 * @param cloudFileChannel
+	 * @param writeMetadata
+	 * @return The put options, or null for none
+	 */
+	PutOptionFileAttribute getPutOption(CloudFileChannel cloudFileChannel, boolean writeMetadata);
+
 	/**
 	 * Invoked by the {@link CloudFileChannel#syncToBlobStore(boolean)} action to store a BLOB
 	 * @param containerName	The container 
@@ -54,4 +66,15 @@ public interface CloudFileChannelTransport {
 	 */
 	Blob getBlob(BlobStoreContext blobStoreContext, CloudPath path, GetOptionFileAttribute getOption);
 
+	/**
+	 * Downloads the BLOB to a local file, invoked when a {@link CloudFileChannel} is opened on an existing BLOB
+	 * @param blobStoreContext
+	 * @param path
+	 * @param getOption
+	 * @param localFile	The file to write the BLOB content to, which is replaced
+	 * @throws IOException
+	 */
+	void download(BlobStoreContext blobStoreContext, CloudPath path, GetOptionFileAttribute getOption, Path localFile)
+			throws IOException;
+
 }
@@ -1,6 +1,13 @@
 package com.uk.xarixa.cloud.filesystem.core.nio.channels;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.BlobStoreContext;
@@ -13,11 +20,13 @@ import org.jclouds.io.payloads.FilePayload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableSet;
 import com.uk.xarixa.cloud.filesystem.core.file.attribute.CloudPermissionFileAttribute;
 import com.uk.xarixa.cloud.filesystem.core.file.attribute.FileAttributeLookupMap;
 import com.uk.xarixa.cloud.filesystem.core.file.attribute.GetOptionFileAttribute;
 import com.uk.xarixa.cloud.filesystem.core.file.attribute.PutOptionFileAttribute;
 import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.SingleFlight;
 
 /**
  * A default implementation of {@link CloudFileChannelTransport}. This can be overriden to provide
@@ -26,6 +35,13 @@ import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
 public class DefaultCloudFileChannelTransport implements CloudFileChannelTransport {
 	private final static Logger LOG = LoggerFactory.getLogger(DefaultCloudFileChannelTransport.class);
 	public final static DefaultCloudFileChannelTransport INSTANCE = new DefaultCloudFileChannelTransport();
+	/**
+	 * The JClouds API's whose blob stores set {@link PutOptions#getBlobAccess()} with the upload request. The
+	 * AWS provider reports its own "aws-s3" API rather than the generic S3 API used by other S3 compatible stores.
+	 */
+	public final static Set<String> BLOB_ACCESS_IN_PUT_APIS =
+			ImmutableSet.of("s3", "aws-s3", "google-cloud-storage", "transient", "filesystem");
+	private final SingleFlight<List<Object>,Path> downloads = new SingleFlight<>();
 
 	@Override
 	public void preSyncToCloud(CloudFileChannel cloudFileChannel, boolean writeMetadata) {
@@ -37,21 +53,65 @@ public class DefaultCloudFileChannelTransport implements CloudFileChannelTranspo
 		return new FilePayload(localFile.toFile());
 	}
 
+	/**
+	 * Adds the {@link BlobAccess} from {@link #getBlobAccessToPut(CloudFileChannel)}, if there is one, to the
+	 * {@link CloudFileChannel#getPutOption() put options} of the channel. The options of the channel are copied
+	 * rather than modified.
+	 */
+	@Override
+	public PutOptionFileAttribute getPutOption(CloudFileChannel cloudFileChannel, boolean writeMetadata) {
+		PutOptionFileAttribute putOption = cloudFileChannel.getPutOption();
+		BlobAccess blobAccess = writeMetadata ? getBlobAccessToPut(cloudFileChannel) : null;
+
+		if (blobAccess == null) {
+			return putOption;
+		}
+
+		LOG.debug("Putting BLOB access {} in the upload of {}", blobAccess, cloudFileChannel.getPath());
+		PutOptions putOptions = putOption == null ? new PutOptions() : putOption.value().clone();
+		putOptions.setBlobAccess(blobAccess);
+		return new PutOptionFileAttribute(putOptions);
+	}
+
+	/**
+	 * @return The {@link CloudPermissionFileAttribute CloudFilePermissionFileAttribute&lt;BlobAccess&gt;} of the
+	 * 			channel if the blob store {@link #canPutBlobAccess(BlobStoreContext) applies it in the upload},
+	 * 			otherwise null
+	 */
+	protected BlobAccess getBlobAccessToPut(CloudFileChannel cloudFileChannel) {
+		CloudPermissionFileAttribute<BlobAccess> aclAttribute = getBlobAccessAttribute(cloudFileChannel);
+		return aclAttribute != null && canPutBlobAccess(cloudFileChannel.getContext()) ? aclAttribute.value() : null;
+	}
+
+	/**
+	 * @return true if the blob store applies {@link PutOptions#getBlobAccess()} in the upload request, see
+	 * 			{@link #BLOB_ACCESS_IN_PUT_APIS}
+	 */
+	protected boolean canPutBlobAccess(BlobStoreContext blobStoreContext) {
+		return BLOB_ACCESS_IN_PUT_APIS.contains(blobStoreContext.unwrap().getProviderMetadata().getApiMetadata().getId());
+	}
+
+	@SuppressWarnings("unchecked")
+	protected CloudPermissionFileAttribute<BlobAccess> getBlobAccessAttribute(CloudFileChannel cloudFileChannel) {
+		FileAttributeLookupMap lookupMap = cloudFileChannel.getCloudFileAttributes();
+		return lookupMap.getFileAttributeOfType(CloudPermissionFileAttribute.class, BlobAccess.class);
+	}
+
 	/**
 	 * Looks for {@link CloudPermissionFileAttribute CloudFilePermissionFileAttribute&lt;BlobAccess&gt;}
-	 * from {@link CloudFileChannel#getCloudFileAttributes()} and applies these generically using JClouds.
+	 * from {@link CloudFileChannel#getCloudFileAttributes()} and applies these generically using JClouds,
+	 * unless they have already been applied in the upload by {@link #getPutOption(CloudFileChannel, boolean)}.
 	 * More specific behaviours can be achieved by extending/re-implementing this method.
 	 */
 	@Override
 	public void postSyncToCloud(CloudFileChannel cloudFileChannel, boolean writeMetadata) {
 		// Other options only apply if we are writing metadata
 		if (writeMetadata) {
-			FileAttributeLookupMap lookupMap = cloudFileChannel.getCloudFileAttributes();
-			@SuppressWarnings("unchecked")
-			CloudPermissionFileAttribute<BlobAccess> aclAttribute =
-					lookupMap.getFileAttributeOfType(CloudPermissionFileAttribute.class, BlobAccess.class);
+			CloudPermissionFileAttribute<BlobAccess> aclAttribute = getBlobAccessAttribute(cloudFileChannel);
 
-			if (aclAttribute != null) {
+			if (aclAttribute != null && getBlobAccessToPut(cloudFileChannel) != null) {
+				LOG.debug("ACL attributes were set in the upload of {}, no file post-sync action", cloudFileChannel.getPath());
+			} else if (aclAttribute != null) {
 				CloudPath path = cloudFileChannel.getPath();
 				LOG.info("Setting generic JClouds ACL attributes: path={}, access={}",
 						path, aclAttribute.value().name());
@@ -84,4 +144,36 @@ public class DefaultCloudFileChannelTransport implements CloudFileChannelTranspo
 		return blobStoreContext.getBlobStore().getBlob(path.getContainerName(), path.getPathName(), getOptions);
 	}
 
+	/**
+	 * Downloads the BLOB with {@link #getBlob(BlobStoreContext, CloudPath, GetOptionFileAttribute)}. Concurrent
+	 * downloads of the same BLOB with the same options share a single request: the first download writes the BLOB
+	 * to its own local file, which the other downloads then copy to theirs. The first download returns once every
+	 * other download has copied the file.
+	 */
+	@Override
+	public void download(BlobStoreContext blobStoreContext, CloudPath path, GetOptionFileAttribute getOption,
+			Path localFile) throws IOException {
+		GetOptions getOptions = getOption == null ? GetOptions.NONE : getOption.value();
+
+		downloads.executeAndHandOver(
+				Arrays.asList(blobStoreContext, path.getContainerName(), path.getPathName(), getOptions),
+				() -> {
+					Blob blob = getBlob(blobStoreContext, path, getOption);
+					try (InputStream content = blob.getPayload().openStream()) {
+						Files.copy(content, localFile, StandardCopyOption.REPLACE_EXISTING);
+					}
+					return localFile;
+				},
+				downloadedFile -> downloadedFile,
+				downloadedFile -> Files.copy(downloadedFile, localFile, StandardCopyOption.REPLACE_EXISTING));
+	}
+
+	/**
+	 * @return The downloads made by this transport, whose {@link SingleFlight#getMergedCalls()} is the number
+	 * 			of downloads which shared another download
+	 */
+	public SingleFlight<List<Object>,Path> getDownloads() {
+		return downloads;
+	}
+
 }
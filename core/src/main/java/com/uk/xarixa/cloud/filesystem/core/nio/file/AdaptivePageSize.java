@@ -0,0 +1,100 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+/**
+ * <p>
+ * Chooses the number of entries to request in each page of a {@link CloudDirectoryStream} listing, between a
+ * minimum and a maximum page size. Each page is one request to the cloud.
+ * </p>
+ * <ul>
+ * <li>When the consumer reads a page in less time than the page took to fetch, it is waiting on the cloud,
+ * so the page size is doubled to make fewer requests.</li>
+ * <li>When a limit is set on the number of paths returned, the page is sized to the number of paths still
+ * required, divided by the proportion of entries that the filter has accepted so far. A first-N listing
+ * with a filter that rejects most entries therefore fetches only about as much as it needs.</li>
+ * </ul>
+ * <p>
+ * A blob store caps the page size at its own maximum, so a maximum above this just means that the largest
+ * pages the blob store allows are used. Instances are not thread safe, each iterator has its own.
+ * </p>
+ */
+public class AdaptivePageSize {
+	public static final int DEFAULT_MIN_PAGE_SIZE = 100;
+	public static final int DEFAULT_INITIAL_PAGE_SIZE = 1000;
+	public static final int DEFAULT_MAX_PAGE_SIZE = 5000;
+	public static final int NO_LIMIT = -1;
+	private final int minPageSize;
+	private final int maxPageSize;
+	private int pageSize;
+	private long entriesRead;
+	private long entriesAccepted;
+
+	/**
+	 * A fixed page size
+	 */
+	public AdaptivePageSize(int pageSize) {
+		this(pageSize, pageSize, pageSize);
+	}
+
+	/**
+	 * @param minPageSize		The smallest page to request
+	 * @param initialPageSize	The size of the first page when there is no limit
+	 * @param maxPageSize		The largest page to request
+	 */
+	public AdaptivePageSize(int minPageSize, int initialPageSize, int maxPageSize) {
+		if (minPageSize < 1 || initialPageSize < minPageSize || maxPageSize < initialPageSize) {
+			throw new IllegalArgumentException("Page sizes must be positive with minimum <= initial <= maximum: " +
+					minPageSize + ", " + initialPageSize + ", " + maxPageSize);
+		}
+
+		this.minPageSize = minPageSize;
+		this.maxPageSize = maxPageSize;
+		this.pageSize = initialPageSize;
+	}
+
+	/**
+	 * @return A new instance with the same page sizes and no history
+	 */
+	public AdaptivePageSize copy() {
+		return new AdaptivePageSize(minPageSize, pageSize, maxPageSize);
+	}
+
+	/**
+	 * @param remainingResults	The number of paths still required by a limited listing, or {@link #NO_LIMIT}
+	 * @return The size of the next page to request
+	 */
+	public int getPageSize(long remainingResults) {
+		if (remainingResults == NO_LIMIT) {
+			return pageSize;
+		}
+
+		// Assume that all entries are accepted until some have been read
+		double acceptanceRate = entriesRead == 0 ? 1d : Math.max(entriesAccepted, 1L) / (double)entriesRead;
+		long required = (long)Math.ceil(remainingResults / acceptanceRate);
+		return (int)Math.max(minPageSize, Math.min(maxPageSize, required));
+	}
+
+	/**
+	 * Records that a page has been read by the consumer
+	 * @param entriesRead		The number of entries in the page which were read
+	 * @param entriesAccepted	The number of those entries which were accepted by the filter
+	 * @param fetchNanos		The time taken to fetch the page
+	 * @param consumeNanos		The time the consumer took to read the page
+	 */
+	public void pageRead(int entriesRead, int entriesAccepted, long fetchNanos, long consumeNanos) {
+		this.entriesRead += entriesRead;
+		this.entriesAccepted += entriesAccepted;
+
+		if (consumeNanos < fetchNanos && pageSize < maxPageSize) {
+			pageSize = (int)Math.min(maxPageSize, pageSize * 2L);
+		}
+	}
+
+	public int getMinPageSize() {
+		return minPageSize;
+	}
+
+	public int getMaxPageSize() {
+		return maxPageSize;
+	}
+
+}
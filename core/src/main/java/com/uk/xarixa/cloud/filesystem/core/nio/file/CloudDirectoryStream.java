@@ -1,30 +1,67 @@
 package com.uk.xarixa.cloud.filesystem.core.nio.file;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.DirectoryStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.lang3.StringUtils;
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.domain.PageSet;
 import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.internal.PageSetImpl;
 import org.jclouds.blobstore.options.ListContainerOptions;
 
 import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
 import com.uk.xarixa.cloud.filesystem.core.nio.CloudPathWithAttributes;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.ListingCache;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudBasicFileAttributes;
+import com.uk.xarixa.cloud.filesystem.core.nio.index.ListingIndex;
+import com.uk.xarixa.cloud.filesystem.core.nio.index.MetadataIndex;
+import com.uk.xarixa.cloud.filesystem.core.utils.ParallelRequests;
 
+/**
+ * <p>
+ * Lists a directory or container page by page as it is iterated. The size of each page is chosen by an
+ * {@link AdaptivePageSize}, which can be set with {@link #setPageSize(AdaptivePageSize)}. The next page can be
+ * {@link #setPrefetch(boolean) prefetched} on the shared {@link ParallelRequests#EXECUTOR} whilst the current page
+ * is read.
+ * </p>
+ * <p>
+ * When the file system has a {@link ListingCache} every page is requested at the maximum page size, as pages
+ * are cached by their size and an adapted size would never request the same page twice.
+ * </p>
+ * <p>
+ * Closing the stream cancels any fetches in progress, and iterators return no more paths once it is closed.
+ * </p>
+ */
 public class CloudDirectoryStream implements DirectoryStream<CloudPath> {
 	private final ListContainerOptions listContainerOptions;
 	private final CloudPath dirPath;
 	private final boolean isContainer;
-	private final boolean isRecursive;
+	private final ListingMode listingMode;
 	private final DirectoryStream.Filter<CloudPath> filter;
 	private final AtomicBoolean closed = new AtomicBoolean(false);
 	private final String dirPathName;
+	private final ListingContinuationToken startFrom;
+	private final KeyRange keyRange;
+	private volatile ListingContinuationToken continuationToken;
+	private final Set<Future<?>> pendingFetches = ConcurrentHashMap.newKeySet();
+	private volatile AdaptivePageSize pageSize = new AdaptivePageSize(AdaptivePageSize.DEFAULT_MIN_PAGE_SIZE,
+			AdaptivePageSize.DEFAULT_INITIAL_PAGE_SIZE, AdaptivePageSize.DEFAULT_MAX_PAGE_SIZE);
+	private volatile boolean prefetch = false;
+	private volatile long limit = AdaptivePageSize.NO_LIMIT;
 
 	/**
 	 * Lists the container in a non-recursive manner: <em>this(dirPath, isContainer, false, filter)</em>
@@ -44,25 +81,115 @@ public class CloudDirectoryStream implements DirectoryStream<CloudPath> {
 	 * @param filter
 	 */
 	public CloudDirectoryStream(CloudPath dirPath, boolean isContainer, boolean isRecursive, DirectoryStream.Filter<CloudPath> filter) {
+		this(dirPath, isContainer, ListingMode.valueOf(isRecursive), filter);
+	}
+
+	/**
+	 * @param dirPath		The path
+	 * @param isContainer	Whether this is a top-level container or not
+	 * @param listingMode	How the directory is listed
+	 * @param filter
+	 */
+	public CloudDirectoryStream(CloudPath dirPath, boolean isContainer, ListingMode listingMode,
+			DirectoryStream.Filter<CloudPath> filter) {
+		this(dirPath, isContainer, listingMode, filter, null, null);
+	}
+
+	/**
+	 * Recursively lists the keys in a single {@link KeyRange} beneath the path. The key range bounds are
+	 * full blob names within the container, such as those created by a {@link KeyRangePartitioner}.
+	 * @param dirPath		The path
+	 * @param isContainer	Whether this is a top-level container or not
+	 * @param keyRange		The range of keys to list
+	 * @param filter
+	 */
+	public CloudDirectoryStream(CloudPath dirPath, boolean isContainer, KeyRange keyRange,
+			DirectoryStream.Filter<CloudPath> filter) {
+		this(dirPath, isContainer, ListingMode.RECURSIVE, filter, null, keyRange);
+	}
+
+	/**
+	 * Resumes a listing from the position recorded in a continuation token. The first entry returned is
+	 * the entry after the last one returned by the stream which created the token, and a key range listing
+	 * carries on to the end of the same {@link KeyRange}.
+	 * @param dirPath		The path, which must be the path listed by the stream which created the token
+	 * @param isContainer	Whether this is a top-level container or not
+	 * @param resumeFrom	The token from {@link #getContinuationToken()}
+	 * @param filter
+	 * @throws IllegalArgumentException If the token is not for a listing of this path
+	 */
+	public CloudDirectoryStream(CloudPath dirPath, boolean isContainer, ListingContinuationToken resumeFrom,
+			DirectoryStream.Filter<CloudPath> filter) {
+		this(dirPath, isContainer, resumeFrom.getListingMode(), filter, resumeFrom, resumeFrom.getKeyRange());
+	}
+
+	private CloudDirectoryStream(CloudPath dirPath, boolean isContainer, ListingMode listingMode,
+			DirectoryStream.Filter<CloudPath> filter, ListingContinuationToken resumeFrom, KeyRange keyRange) {
+		if (resumeFrom != null && !resumeFrom.isListingOf(dirPath)) {
+			throw new IllegalArgumentException("The continuation token " + resumeFrom +
+					" is not for a listing of '" + dirPath + "'");
+		}
+
 		this.dirPath = dirPath;
 		this.isContainer = isContainer;
-		this.isRecursive = isRecursive;
+		this.listingMode = listingMode;
 		this.filter = filter;
+		this.keyRange = keyRange;
 		this.listContainerOptions = new ListContainerOptions();
 		this.dirPathName = dirPath.getPathName();
 
-		if (!isContainer) {
+		if (ListingMode.DELIMITED.equals(listingMode)) {
+			// List by prefix, each common prefix is returned as a directory
+			if (!isContainer) {
+				listContainerOptions.prefix(StringUtils.appendIfMissing(dirPathName, CloudPath.DEFAULT_PATH_SEPARATOR));
+			}
+			listContainerOptions.delimiter(CloudPath.DEFAULT_PATH_SEPARATOR);
+		} else if (!isContainer) {
 			listContainerOptions.inDirectory(dirPath.getPathName());
 		}
 
-		if (isRecursive) {
+		if (ListingMode.RECURSIVE.equals(listingMode)) {
 			listContainerOptions.recursive();
 		}
+
+		this.startFrom = resumeFrom != null ? resumeFrom :
+			new ListingContinuationToken(dirPath.getContainerName(), dirPathName, listingMode, keyRange, null, 0);
+		this.continuationToken = startFrom;
 	}
 
 	@Override
 	public void close() throws IOException {
 		closed.set(true);
+		pendingFetches.forEach(f -> f.cancel(true));
+	}
+
+	/**
+	 * Sets the page sizes for iterators created after this call, each iterator adapts its own copy
+	 * @param pageSize
+	 */
+	public void setPageSize(AdaptivePageSize pageSize) {
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Sets whether iterators created after this call fetch the next page whilst the current page is read
+	 * @param prefetch
+	 */
+	public void setPrefetch(boolean prefetch) {
+		this.prefetch = prefetch;
+	}
+
+	/**
+	 * Sets the maximum number of paths returned by iterators created after this call, for a first-N listing.
+	 * The pages are sized so that not much more than this is listed.
+	 * @param limit	The maximum number of paths, or {@link AdaptivePageSize#NO_LIMIT}
+	 */
+	public void setLimit(long limit) {
+		if (limit < 0 && limit != AdaptivePageSize.NO_LIMIT) {
+			throw new IllegalArgumentException("The limit cannot be negative: " + limit);
+		}
+
+		this.limit = limit;
 	}
 
 	@Override
@@ -71,7 +198,18 @@ public class CloudDirectoryStream implements DirectoryStream<CloudPath> {
 			throw new IllegalStateException("This directory stream has already been closed");
 		}
 		
-		return new DirectoryStreamIterator();
+		return new DirectoryStreamIterator(startFrom);
+	}
+
+	/**
+	 * Gets a token for the position in the listing after the last path returned by the most recently
+	 * created {@link #iterator()}. The token can be passed to
+	 * {@link #CloudDirectoryStream(CloudPath, boolean, ListingContinuationToken, DirectoryStream.Filter)}
+	 * to resume the listing from this point, even if this stream has been closed.
+	 * @return The continuation token, which is the start of the listing if nothing has been returned yet
+	 */
+	public ListingContinuationToken getContinuationToken() {
+		return continuationToken;
 	}
 
 	public boolean isContainer() {
@@ -79,71 +217,311 @@ public class CloudDirectoryStream implements DirectoryStream<CloudPath> {
 	}
 
 	public boolean isRecursive() {
-		return isRecursive;
+		return ListingMode.RECURSIVE.equals(listingMode);
+	}
+
+	public ListingMode getListingMode() {
+		return listingMode;
+	}
+
+	/**
+	 * @return The key range listed, or null if all keys are listed
+	 */
+	public KeyRange getKeyRange() {
+		return keyRange;
 	}
 
 	
 	class DirectoryStreamIterator implements Iterator<CloudPath> {
-		private boolean readNextPage = true;
-		private String pageSetMarker = null;
-		private Iterator<CloudPath> currentPage = null;
+		private final AdaptivePageSize pageSizer = pageSize.copy();
+		private final long limit = CloudDirectoryStream.this.limit;
+		private Boolean cachedListing;
+		private String pageMarker;
+		private int pageOffset;
+		private List<? extends StorageMetadata> page = null;
+		private String nextPageMarker = null;
+		private CloudPath nextPath = null;
+		private String nextPathPageMarker;
+		private int nextPathPageOffset;
+		private long returned;
+		private long pageFetchNanos;
+		private long pageReadyNanos;
+		private int pageEntriesRead;
+		private int pageEntriesAccepted;
+		private String prefetchMarker;
+		private FutureTask<FetchedPage> prefetchTask;
+
+		DirectoryStreamIterator(ListingContinuationToken startFrom) {
+			this.pageMarker = startFrom.getPageMarker();
+			this.pageOffset = startFrom.getPageOffset();
+		}
 
 		void ensureRead() {
-			if (readNextPage && (currentPage == null || !currentPage.hasNext())) {
+			if (nextPath == null) {
 				try {
-					readNextListing();
+					readNextPath();
 				} catch (IOException e) {
 					throw new RuntimeException("Cannot read file listing", e);
 				}
 			}
 		}
 
-		void readNextListing() throws IOException {
+		/**
+		 * Moves through the raw listing entries, reading further pages as required, until the next
+		 * path accepted by the filter is found. The page marker and offset after that path are recorded
+		 * so that they can be used as the continuation token once the path is returned.
+		 */
+		void readNextPath() throws IOException {
+			while (!closed.get() && (limit == AdaptivePageSize.NO_LIMIT || returned < limit)) {
+				if (page == null) {
+					readListing();
+				}
+
+				while (pageOffset < page.size()) {
+					StorageMetadata meta = page.get(pageOffset);
+
+					// Stop at the end of the key range
+					if (keyRange != null && keyRange.isBeyondEnd(meta.getName())) {
+						nextPageMarker = null;
+						break;
+					}
+
+					pageOffset++;
+					pageEntriesRead++;
+					CloudPath path = createPath(meta);
+
+					if (path != null && (filter == null || filter.accept(path))) {
+						pageEntriesAccepted++;
+						nextPath = path;
+						nextPathPageMarker = pageMarker;
+						nextPathPageOffset = pageOffset;
+						return;
+					}
+				}
+
+				if (nextPageMarker == null) {
+					return;
+				}
+
+				pageSizer.pageRead(pageEntriesRead, pageEntriesAccepted, pageFetchNanos, System.nanoTime() - pageReadyNanos);
+
+				// A resumed listing may be read with smaller pages than the listing which created the
+				// continuation token, so an offset beyond the end of this page carries on into the next page
+				pageOffset = Math.max(0, pageOffset - page.size());
+				pageMarker = nextPageMarker;
+				page = null;
+			}
+		}
+
+		/**
+		 * Reads the page after the current page marker, which may already have been prefetched, and then
+		 * starts prefetching the following page if prefetching is enabled
+		 */
+		void readListing() throws IOException {
+			FetchedPage fetchedPage;
+
+			if (prefetchTask != null && StringUtils.equals(prefetchMarker, pageMarker)) {
+				fetchedPage = awaitPrefetch();
+			} else {
+				if (prefetchTask != null) {
+					prefetchTask.cancel(true);
+					prefetchTask = null;
+				}
+
+				fetchedPage = fetchPage(pageMarker, nextPageSize());
+			}
+
+			pageReadyNanos = System.nanoTime();
+			pageEntriesRead = 0;
+			pageEntriesAccepted = 0;
+
+			// The stream was closed whilst the page was being fetched
+			if (fetchedPage == null) {
+				page = Collections.emptyList();
+				nextPageMarker = null;
+				return;
+			}
+
+			page = new ArrayList<>(fetchedPage.pageSet);
+			nextPageMarker = fetchedPage.pageSet.getNextMarker();
+			pageFetchNanos = fetchedPage.fetchNanos;
+
+			if (prefetch && nextPageMarker != null && !closed.get()) {
+				startPrefetch(nextPageMarker);
+			}
+		}
+
+		private int nextPageSize() {
+			if (isCachedListing()) {
+				return pageSizer.getMaxPageSize();
+			}
+
+			return pageSizer.getPageSize(limit == AdaptivePageSize.NO_LIMIT ? AdaptivePageSize.NO_LIMIT : limit - returned);
+		}
+
+		/**
+		 * @return true if the pages are read through the {@link ListingCache} rather than a listing index
+		 */
+		private boolean isCachedListing() {
+			if (cachedListing == null) {
+				cachedListing = dirPath.getFileSystem().getListingIndex(dirPath.getContainerName(), dirPathName) == null &&
+						dirPath.getFileSystem().getListingCache() != null;
+			}
+
+			return cachedListing;
+		}
+
+		private void startPrefetch(String marker) {
+			int prefetchPageSize = nextPageSize();
+			prefetchMarker = marker;
+			prefetchTask = new FutureTask<FetchedPage>(() -> fetchPage(marker, prefetchPageSize)) {
+				@Override
+				protected void done() {
+					pendingFetches.remove(this);
+				}
+			};
+
+			pendingFetches.add(prefetchTask);
+			ParallelRequests.EXECUTOR.execute(prefetchTask);
+
+			// Don't leave the fetch running if the stream was closed whilst it was being started
+			if (closed.get()) {
+				prefetchTask.cancel(true);
+			}
+		}
+
+		/**
+		 * @return The prefetched page, or null if the fetch was cancelled by closing the stream
+		 */
+		private FetchedPage awaitPrefetch() throws IOException {
+			try {
+				// Fetch the page on this thread if the shared pool has not started the fetch yet
+				prefetchTask.run();
+				return prefetchTask.get();
+			} catch (CancellationException e) {
+				return null;
+			} catch (InterruptedException e) {
+				prefetchTask.cancel(true);
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted whilst reading the listing of '" + dirPath + "'");
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException)e.getCause();
+				}
+
+				throw new IOException("Cannot read the listing of '" + dirPath + "'", e.getCause());
+			} finally {
+				prefetchTask = null;
+			}
+		}
+
+		/**
+		 * Fetches the page after a marker. This does not change the state of the iterator, so that it can
+		 * be run on another thread to prefetch the page.
+		 */
+		FetchedPage fetchPage(String marker, int maxResults) {
+			long startNanos = System.nanoTime();
 			BlobStore blobStore = dirPath.getFileSystem().getBlobStoreContext().getBlobStore();
-			List<CloudPath> paths = new ArrayList<>();
+			ListingIndex listingIndex = dirPath.getFileSystem().getListingIndex(dirPath.getContainerName(), dirPathName);
 
-			// Set next page marker
-			if (pageSetMarker != null) {
-				listContainerOptions.afterMarker(pageSetMarker);
+			// A key range starts with the start key itself, which is read as a single entry page
+			if (marker == null && keyRange != null && keyRange.getStart() != null) {
+				return new FetchedPage(readKeyRangeStart(blobStore, listingIndex), System.nanoTime() - startNanos);
 			}
 
-			// Perform a file listing
-			PageSet<? extends StorageMetadata> pageSet =
-					blobStore.list(dirPath.getContainerName(), listContainerOptions);
+			// Set the page marker and size
+			ListContainerOptions pageOptions = listContainerOptions.clone().maxResults(maxResults);
+			if (marker != null) {
+				pageOptions.afterMarker(marker);
+			}
 
-			for (StorageMetadata meta : pageSet) {
-				String filename = dirPathName == null ? meta.getName() :
-					StringUtils.substringAfter(meta.getName(), dirPathName);
+			// Perform a file listing, which is read from the listing index in snapshot read mode or may be cached
+			PageSet<? extends StorageMetadata> pageSet;
+			if (listingIndex != null) {
+				pageSet = listingIndex.list(pageOptions);
+			} else {
+				ListingCache listingCache = dirPath.getFileSystem().getListingCache();
+				pageSet = listingCache == null ?
+						blobStore.list(dirPath.getContainerName(), pageOptions) :
+						listingCache.list(blobStore, dirPath.getContainerName(), pageOptions);
 
-				// The listing returns the directory name as part of the listing, don't return this
-				if (StringUtils.isNotBlank(filename)) {
-					CloudBasicFileAttributes cloudFileAttributes = new CloudBasicFileAttributes(meta);
-					CloudPath path =
-							new CloudPathWithAttributes(dirPath.getFileSystem(), false, dirPath, filename, cloudFileAttributes);
-	
-					if (filter == null || filter.accept(path)) {
-						paths.add(path);
-					}
+				MetadataIndex metadataIndex = dirPath.getFileSystem().getMetadataIndex(dirPath.getContainerName());
+				if (metadataIndex != null) {
+					metadataIndex.putListed(pageSet);
 				}
 			}
 
-			currentPage = paths.iterator();
-			pageSetMarker = pageSet.getNextMarker();
-			readNextPage = pageSetMarker != null;
+			return new FetchedPage(pageSet, System.nanoTime() - startNanos);
+		}
+
+		/**
+		 * Listings return the keys after a marker, so the start key of a key range is read on its own.
+		 * The next page is then listed after the start key.
+		 */
+		PageSet<? extends StorageMetadata> readKeyRangeStart(BlobStore blobStore, ListingIndex listingIndex) {
+			String startKey = keyRange.getStart();
+			boolean isInDirectory = dirPathName == null ||
+					startKey.startsWith(StringUtils.appendIfMissing(dirPathName, CloudPath.DEFAULT_PATH_SEPARATOR));
+			StorageMetadata startMeta = !isInDirectory ? null : listingIndex != null ? listingIndex.get(startKey) :
+					blobStore.blobMetadata(dirPath.getContainerName(), startKey);
+			return new PageSetImpl<StorageMetadata>(startMeta == null ? Collections.<StorageMetadata>emptyList() :
+				Collections.singletonList(startMeta), startKey);
+		}
+
+		CloudPath createPath(StorageMetadata meta) {
+			String filename = dirPathName == null ? meta.getName() :
+				StringUtils.substringAfter(meta.getName(), dirPathName);
+
+			// The listing returns the directory name as part of the listing, don't return this
+			if (StringUtils.isBlank(filename) || CloudPath.DEFAULT_PATH_SEPARATOR.equals(filename)) {
+				return null;
+			}
+
+			// A common prefix from a delimited listing is a directory, which may not have a marker blob
+			if (ListingMode.DELIMITED.equals(listingMode) && filename.endsWith(CloudPath.DEFAULT_PATH_SEPARATOR)) {
+				return new CloudPathWithAttributes(dirPath.getFileSystem(), false, dirPath,
+						StringUtils.removeEnd(filename, CloudPath.DEFAULT_PATH_SEPARATOR), new CloudBasicFileAttributes());
+			}
+
+			CloudBasicFileAttributes cloudFileAttributes = new CloudBasicFileAttributes(meta);
+			return new CloudPathWithAttributes(dirPath.getFileSystem(), false, dirPath, filename, cloudFileAttributes);
 		}
 
 		@Override
 		public boolean hasNext() {
 			ensureRead();
-			return currentPage != null && currentPage.hasNext();
+			return nextPath != null;
 		}
 
 		@Override
 		public CloudPath next() {
 			ensureRead();
-			return currentPage.next();
+
+			if (nextPath == null) {
+				throw new NoSuchElementException();
+			}
+
+			CloudPath path = nextPath;
+			nextPath = null;
+			returned++;
+			continuationToken = new ListingContinuationToken(dirPath.getContainerName(), dirPathName, listingMode,
+					keyRange, nextPathPageMarker, nextPathPageOffset);
+			return path;
 		}
 		
 	}
 
+	/**
+	 * A page of a listing and the time it took to fetch
+	 */
+	static final class FetchedPage {
+		private final PageSet<? extends StorageMetadata> pageSet;
+		private final long fetchNanos;
+
+		FetchedPage(PageSet<? extends StorageMetadata> pageSet, long fetchNanos) {
+			this.pageSet = pageSet;
+			this.fetchNanos = fetchNanos;
+		}
+	}
+
 }
@@ -0,0 +1,367 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPathWithAttributes;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudBasicFileAttributes;
+
+/**
+ * <p>
+ * Walks a cloud file tree in the same manner as {@link Files#walkFileTree(Path, Set, int, FileVisitor)} but
+ * drives the whole walk from a single recursive {@link CloudDirectoryStream} rather than opening a directory
+ * listing for every directory in the tree. The recursive listing returns the keys in lexical order, so all of
+ * the content beneath a directory is returned contiguously and the directory events can be worked out from
+ * the key names:
+ * <ul>
+ * <li>{@link FileVisitor#preVisitDirectory(Object, BasicFileAttributes)} is invoked when the first entry
+ * beneath a directory is seen. If the directory has a marker entry in the listing then its attributes are
+ * used, otherwise the directory is implied by the key names and a placeholder
+ * {@link CloudBasicFileAttributes#CloudBasicFileAttributes() folder attribute} is used.
+ * <li>{@link FileVisitor#postVisitDirectory(Object, IOException)} is invoked when the first entry outside
+ * of that directory is seen, or the listing completes.
+ * <li>Directory markers without any content are visited as empty directories.
+ * </ul>
+ * </p>
+ * <p>
+ * The {@link FileVisitResult} values are honoured in the same way as for {@link Files#walkFileTree(Path, FileVisitor)}.
+ * Directories at the maximum depth are passed to {@link FileVisitor#visitFile(Object, BasicFileAttributes)}.
+ * If the listing fails then the error is passed to {@link FileVisitor#postVisitDirectory(Object, IOException)}
+ * for each of the open directories.
+ * </p>
+ */
+public class CloudFileTreeWalker {
+	private static final Logger LOG = LoggerFactory.getLogger(CloudFileTreeWalker.class);
+	private final FileVisitor<? super Path> visitor;
+	private final int maxDepth;
+	private final List<DirectoryFrame> frames = new ArrayList<>();
+	private CloudPath startPath;
+	private int startPathSize;
+	private boolean terminated;
+
+	/**
+	 * @param maxDepth	The maximum number of directory levels to visit, as for
+	 * 					{@link Files#walkFileTree(Path, Set, int, FileVisitor)}
+	 * @param visitor	The visitor to invoke for each entry
+	 */
+	public CloudFileTreeWalker(int maxDepth, FileVisitor<? super Path> visitor) {
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("The maximum depth cannot be negative: " + maxDepth);
+		}
+
+		this.maxDepth = maxDepth;
+		this.visitor = visitor;
+	}
+
+	/**
+	 * Walks the directory tree beneath the <em>startPath</em>.
+	 * @param startPath			The directory or container to start from
+	 * @param startAttributes	The attributes of the start path
+	 * @param recursiveListing	A recursive listing of the start path
+	 * @return	false if the walk was terminated by the visitor, true otherwise
+	 * @throws IOException If the visitor throws an exception
+	 */
+	public boolean walk(CloudPath startPath, BasicFileAttributes startAttributes,
+			CloudDirectoryStream recursiveListing) throws IOException {
+		if (!recursiveListing.isRecursive()) {
+			throw new IllegalArgumentException("The file tree can only be walked with a recursive listing");
+		}
+
+		this.startPath = startPath;
+		this.startPathSize = startPath.getAllPaths().size();
+
+		if (maxDepth == 0) {
+			return !FileVisitResult.TERMINATE.equals(visitor.visitFile(startPath, startAttributes));
+		}
+
+		FileVisitResult result = visitor.preVisitDirectory(startPath, startAttributes);
+		if (FileVisitResult.TERMINATE.equals(result)) {
+			return false;
+		} else if (!FileVisitResult.CONTINUE.equals(result)) {
+			// Skipping the subtree or siblings of the start path means there is nothing left to do
+			return true;
+		}
+
+		frames.add(new DirectoryFrame(startPath, null));
+
+		try {
+			Iterator<CloudPath> iterator = recursiveListing.iterator();
+
+			while (!terminated && iterator.hasNext()) {
+				visitEntry(iterator.next());
+			}
+		} catch (RuntimeException e) {
+			if (!(e.getCause() instanceof IOException)) {
+				throw e;
+			}
+
+			LOG.warn("Directory listing failed whilst walking the file tree from '{}'", startPath, e);
+			closeFramesWithError((IOException)e.getCause());
+			return false;
+		} finally {
+			recursiveListing.close();
+		}
+
+		// Close all of the open directories
+		while (!terminated && !frames.isEmpty()) {
+			popFrame();
+		}
+
+		return !terminated;
+	}
+
+	/**
+	 * Processes a single entry from the recursive listing
+	 */
+	void visitEntry(CloudPath entry) throws IOException {
+		List<String> allPaths = entry.getAllPaths();
+		List<String> components = allPaths.subList(startPathSize, allPaths.size());
+
+		if (components.isEmpty()) {
+			return;
+		}
+
+		// Close directories which this entry isn't in
+		int matchingFrames = countMatchingFrames(components);
+		while (!terminated && frames.size() > matchingFrames) {
+			popFrame();
+		}
+
+		if (terminated || isSkipping()) {
+			return;
+		}
+
+		// This entry is a directory which is already open, i.e. a duplicate directory marker
+		if (frames.size() > components.size()) {
+			return;
+		}
+
+		// Visit any empty directories which sort before this entry
+		flushPendingDirectories(topFrame(), components);
+
+		// Open all of the parent directories for this entry
+		int lastParentIndex = Math.min(components.size() - 1, maxDepth - 1);
+		while (!terminated && !isSkipping() && frames.size() <= lastParentIndex) {
+			openDirectory(components.subList(0, frames.size()));
+		}
+
+		if (terminated || isSkipping()) {
+			return;
+		}
+
+		if (components.size() > maxDepth) {
+			// The entry is too deep, just visit the directory at the maximum depth
+			visitDirectoryAsFile(components.subList(0, maxDepth), null);
+		} else if (isDirectory(entry)) {
+			if (components.size() == maxDepth) {
+				visitDirectoryAsFile(components, entry);
+			} else {
+				topFrame().pendingDirectories.putIfAbsent(components.get(components.size() - 1), entry);
+			}
+		} else {
+			handleFileResult(visitor.visitFile(entry, getAttributes(entry)));
+		}
+	}
+
+	/**
+	 * Works out how many of the open frames are parents of this entry, or the entry itself
+	 */
+	int countMatchingFrames(List<String> components) {
+		int matching = 1;
+
+		while (matching < frames.size() && matching <= components.size() &&
+				frames.get(matching).name.equals(components.get(matching - 1))) {
+			matching++;
+		}
+
+		return matching;
+	}
+
+	/**
+	 * Visits any pending empty directories in the frame whose key range has been passed by the entry
+	 */
+	void flushPendingDirectories(DirectoryFrame frame, List<String> components) throws IOException {
+		if (frame.pendingDirectories.isEmpty()) {
+			return;
+		}
+
+		int level = frames.size() - 1;
+		String entryName = components.get(level);
+		String remainingKey = StringUtils.join(components.subList(level, components.size()), CloudPath.DEFAULT_PATH_SEPARATOR);
+		Iterator<Map.Entry<String,CloudPath>> pendingIterator = frame.pendingDirectories.entrySet().iterator();
+
+		while (!terminated && !frame.skipRemaining && pendingIterator.hasNext()) {
+			Map.Entry<String,CloudPath> pending = pendingIterator.next();
+
+			// Directories which are keyed after this entry may still have content to come
+			if (pending.getKey().equals(entryName) ||
+					remainingKey.compareTo(pending.getKey() + CloudPath.DEFAULT_PATH_SEPARATOR) < 0) {
+				continue;
+			}
+
+			pendingIterator.remove();
+			visitEmptyDirectory(frame, pending.getValue());
+		}
+	}
+
+	void visitEmptyDirectory(DirectoryFrame parentFrame, CloudPath dir) throws IOException {
+		FileVisitResult result = visitor.preVisitDirectory(dir, getAttributes(dir));
+
+		if (FileVisitResult.CONTINUE.equals(result)) {
+			result = visitor.postVisitDirectory(dir, null);
+		}
+
+		handleDirectoryResult(parentFrame, result);
+	}
+
+	/**
+	 * Opens the directory, using the directory marker from the listing if one was seen
+	 */
+	void openDirectory(List<String> dirComponents) throws IOException {
+		DirectoryFrame parentFrame = topFrame();
+		String name = dirComponents.get(dirComponents.size() - 1);
+		CloudPath marker = parentFrame.pendingDirectories.remove(name);
+		CloudPath dir = marker != null ? marker : createImpliedDirectory(dirComponents);
+		FileVisitResult result = visitor.preVisitDirectory(dir, getAttributes(dir));
+
+		if (FileVisitResult.TERMINATE.equals(result)) {
+			terminated = true;
+		} else if (FileVisitResult.SKIP_SIBLINGS.equals(result)) {
+			parentFrame.skipRemaining = true;
+		} else {
+			DirectoryFrame frame = new DirectoryFrame(dir, name);
+			frame.skipSubtree = FileVisitResult.SKIP_SUBTREE.equals(result);
+			frames.add(frame);
+		}
+	}
+
+	/**
+	 * Directories at the maximum depth are visited once as a file
+	 */
+	void visitDirectoryAsFile(List<String> dirComponents, CloudPath marker) throws IOException {
+		DirectoryFrame frame = topFrame();
+		String name = dirComponents.get(dirComponents.size() - 1);
+
+		if (frame.visitedDirectories == null) {
+			frame.visitedDirectories = new HashSet<>();
+		}
+
+		if (frame.visitedDirectories.add(name)) {
+			CloudPath dir = marker != null ? marker : createImpliedDirectory(dirComponents);
+			handleFileResult(visitor.visitFile(dir, getAttributes(dir)));
+		}
+	}
+
+	void popFrame() throws IOException {
+		DirectoryFrame frame = topFrame();
+
+		// Any remaining directory markers are empty directories
+		Iterator<CloudPath> pendingIterator = frame.pendingDirectories.values().iterator();
+		while (!terminated && !frame.skipSubtree && !frame.skipRemaining && pendingIterator.hasNext()) {
+			visitEmptyDirectory(frame, pendingIterator.next());
+		}
+
+		frames.remove(frames.size() - 1);
+
+		if (!terminated && !frame.skipSubtree) {
+			FileVisitResult result = visitor.postVisitDirectory(frame.dir, null);
+			handleDirectoryResult(frames.isEmpty() ? null : topFrame(), result);
+		}
+	}
+
+	void closeFramesWithError(IOException exception) throws IOException {
+		while (!terminated && !frames.isEmpty()) {
+			DirectoryFrame frame = frames.remove(frames.size() - 1);
+
+			if (!frame.skipSubtree &&
+					FileVisitResult.TERMINATE.equals(visitor.postVisitDirectory(frame.dir, exception))) {
+				terminated = true;
+			}
+		}
+	}
+
+	void handleFileResult(FileVisitResult result) {
+		if (FileVisitResult.TERMINATE.equals(result)) {
+			terminated = true;
+		} else if (FileVisitResult.SKIP_SIBLINGS.equals(result)) {
+			topFrame().skipRemaining = true;
+		}
+	}
+
+	void handleDirectoryResult(DirectoryFrame parentFrame, FileVisitResult result) {
+		if (FileVisitResult.TERMINATE.equals(result)) {
+			terminated = true;
+		} else if (FileVisitResult.SKIP_SIBLINGS.equals(result) && parentFrame != null) {
+			parentFrame.skipRemaining = true;
+		}
+	}
+
+	/**
+	 * @return true if any of the open directories are being skipped
+	 */
+	boolean isSkipping() {
+		for (DirectoryFrame frame : frames) {
+			if (frame.skipSubtree || frame.skipRemaining) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	DirectoryFrame topFrame() {
+		return frames.get(frames.size() - 1);
+	}
+
+	CloudPath createImpliedDirectory(List<String> dirComponents) {
+		return new CloudPathWithAttributes(startPath.getFileSystem(), false, startPath,
+				StringUtils.join(dirComponents, CloudPath.DEFAULT_PATH_SEPARATOR), new CloudBasicFileAttributes());
+	}
+
+	static boolean isDirectory(CloudPath entry) {
+		return entry instanceof CloudPathWithAttributes &&
+				((CloudPathWithAttributes)entry).getAttributes().isDirectory();
+	}
+
+	static BasicFileAttributes getAttributes(CloudPath entry) {
+		if (entry instanceof CloudPathWithAttributes) {
+			return ((CloudPathWithAttributes)entry).getAttributes();
+		}
+
+		return new CloudBasicFileAttributes();
+	}
+
+	/**
+	 * An open directory in the walk
+	 */
+	static final class DirectoryFrame {
+		private final CloudPath dir;
+		private final String name;
+		private final TreeMap<String,CloudPath> pendingDirectories = new TreeMap<>();
+		private Set<String> visitedDirectories;
+		private boolean skipSubtree;
+		private boolean skipRemaining;
+
+		DirectoryFrame(CloudPath dir, String name) {
+			this.dir = dir;
+			this.name = name;
+		}
+	}
+
+}
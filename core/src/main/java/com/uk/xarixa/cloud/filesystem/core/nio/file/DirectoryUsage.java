@@ -0,0 +1,93 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * The disk usage of a directory, which includes all of the files beneath it at any depth, together with
+ * the usage of each of its subdirectories down to the depth that was requested.
+ * @see DirectoryUsageCalculator
+ */
+public final class DirectoryUsage {
+	private final String path;
+	private final long size;
+	private final long fileCount;
+	private final List<DirectoryUsage> children;
+
+	/**
+	 * @param path		The path of the directory relative to the directory the usage was calculated for,
+	 * 					which is an empty string for that directory itself
+	 * @param size		The total size in bytes of the files beneath the directory
+	 * @param fileCount	The number of files beneath the directory
+	 * @param children	The usage of the subdirectories, in name order
+	 */
+	public DirectoryUsage(String path, long size, long fileCount, List<DirectoryUsage> children) {
+		this.path = path;
+		this.size = size;
+		this.fileCount = fileCount;
+		this.children = Collections.unmodifiableList(children);
+	}
+
+	/**
+	 * @return The path relative to the directory the usage was calculated for, which is an empty string for
+	 * 			that directory itself
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return The last element of the {@link #getPath() path}
+	 */
+	public String getName() {
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+	/**
+	 * @return The total size in bytes of all of the files beneath this directory
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return The number of files beneath this directory
+	 */
+	public long getFileCount() {
+		return fileCount;
+	}
+
+	/**
+	 * @return The usage of each subdirectory in name order, which is empty beyond the requested depth
+	 */
+	public List<DirectoryUsage> getChildren() {
+		return children;
+	}
+
+	/**
+	 * @param name	The name of a subdirectory
+	 * @return The usage of the subdirectory or null if there is no such subdirectory
+	 */
+	public DirectoryUsage getChild(String name) {
+		for (DirectoryUsage child : children) {
+			if (child.getName().equals(name)) {
+				return child;
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this)
+				.append("path", path)
+				.append("size", size)
+				.append("fileCount", fileCount)
+				.append("children", children.size())
+				.toString();
+	}
+
+}
@@ -0,0 +1,232 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+
+/**
+ * <p>
+ * Calculates the {@link DirectoryUsage} of a directory or container, similar to <em>du</em>. The sizes of the
+ * files and the file counts are summed for each directory down to a maximum depth from a single recursive
+ * listing, which is read page by page without creating a path for each entry. Files below the maximum depth are
+ * included in the totals of their ancestor at the maximum depth.
+ * </p>
+ * <p>
+ * For very large directories the listing can be sharded into {@link KeyRange KeyRanges} using a
+ * {@link KeyRangePartitioner}, and each range listed on a separate thread.
+ * </p>
+ */
+public class DirectoryUsageCalculator {
+	private static final Logger LOG = LoggerFactory.getLogger(DirectoryUsageCalculator.class);
+	public static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
+	private static final char SEPARATOR = CloudPath.DEFAULT_PATH_SEPARATOR_CHAR;
+	private final BlobStore blobStore;
+	private final String containerName;
+	private final String dirPathName;
+	private final String listingPrefix;
+	private final int maxDepth;
+
+	/**
+	 * @param blobStore		The blob store
+	 * @param containerName	The container
+	 * @param dirPathName	The directory within the container, or null for the whole container
+	 * @param maxDepth		The depth of subdirectories to return the usage for, 0 for just the directory itself
+	 */
+	public DirectoryUsageCalculator(BlobStore blobStore, String containerName, String dirPathName, int maxDepth) {
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("The maximum depth cannot be negative: " + maxDepth);
+		}
+
+		this.blobStore = blobStore;
+		this.containerName = containerName;
+		this.dirPathName = dirPathName;
+		this.listingPrefix = dirPathName == null ? "" :
+			StringUtils.appendIfMissing(dirPathName, CloudPath.DEFAULT_PATH_SEPARATOR);
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Calculates the usage from a single listing on the calling thread
+	 */
+	public DirectoryUsage calculate() {
+		Totals totals = new Totals();
+		list(KeyRange.ALL, totals);
+		return totals.toUsage();
+	}
+
+	/**
+	 * Calculates the usage by splitting the listing into key ranges which are listed in parallel
+	 * @param executor	The executor to list each key range on
+	 * @param shards	The number of key ranges to split the listing into
+	 * @throws InterruptedIOException If the calling thread is interrupted while waiting for the listings
+	 * @throws IOException If any of the listings failed
+	 */
+	public DirectoryUsage calculate(ExecutorService executor, int shards) throws IOException {
+		if (shards <= 1) {
+			return calculate();
+		}
+
+		List<KeyRange> keyRanges = new KeyRangePartitioner(blobStore, containerName, dirPathName).partition(shards);
+		LOG.debug("Calculating the usage of '{}/{}' from {} key ranges",
+				containerName, StringUtils.defaultString(dirPathName), keyRanges.size());
+		List<Future<Totals>> futures = new ArrayList<>(keyRanges.size());
+
+		for (KeyRange keyRange : keyRanges) {
+			futures.add(executor.submit(() -> {
+				Totals rangeTotals = new Totals();
+				list(keyRange, rangeTotals);
+				return rangeTotals;
+			}));
+		}
+
+		Totals totals = new Totals();
+		try {
+			for (Future<Totals> future : futures) {
+				totals.addAll(future.get());
+			}
+		} catch (InterruptedException e) {
+			futures.forEach(f -> f.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted whilst calculating the usage of '" + containerName + "/" +
+					StringUtils.defaultString(dirPathName) + "'");
+		} catch (ExecutionException e) {
+			futures.forEach(f -> f.cancel(true));
+			throw new IOException("Could not calculate the usage of '" + containerName + "/" +
+					StringUtils.defaultString(dirPathName) + "'", e.getCause());
+		}
+
+		return totals.toUsage();
+	}
+
+	/**
+	 * Lists the keys in a key range page by page. The start key of a range is read on its own, as listings
+	 * return the keys after a marker.
+	 */
+	void list(KeyRange keyRange, Totals totals) {
+		ListContainerOptions options = new ListContainerOptions().recursive();
+		if (dirPathName != null) {
+			options.inDirectory(dirPathName);
+		}
+
+		String marker = keyRange.getStart();
+		if (marker != null && marker.startsWith(listingPrefix)) {
+			BlobMetadata startMeta = blobStore.blobMetadata(containerName, marker);
+			if (startMeta != null) {
+				totals.add(startMeta);
+			}
+		}
+
+		do {
+			ListContainerOptions pageOptions = options.clone();
+			if (marker != null) {
+				pageOptions.afterMarker(marker);
+			}
+
+			PageSet<? extends StorageMetadata> pageSet = blobStore.list(containerName, pageOptions);
+			for (StorageMetadata meta : pageSet) {
+				if (keyRange.isBeyondEnd(meta.getName())) {
+					return;
+				}
+
+				totals.add(meta);
+			}
+
+			marker = pageSet.getNextMarker();
+		} while (marker != null);
+	}
+
+	/**
+	 * The running totals for each directory path up to the maximum depth
+	 */
+	final class Totals {
+		private final Map<String,long[]> directories = new HashMap<>();
+
+		Totals() {
+			directories.put("", new long[2]);
+		}
+
+		void add(StorageMetadata meta) {
+			String relativeName = StringUtils.removeStart(meta.getName(), listingPrefix);
+			if (relativeName.isEmpty() || !meta.getName().startsWith(listingPrefix)) {
+				return;
+			}
+
+			boolean isDirectory = StorageType.FOLDER.equals(meta.getType()) ||
+					StorageType.RELATIVE_PATH.equals(meta.getType()) || relativeName.charAt(relativeName.length() - 1) == SEPARATOR;
+			long size = isDirectory || meta.getSize() == null ? 0L : meta.getSize();
+			long files = isDirectory ? 0L : 1L;
+			String directoryPath = isDirectory ? StringUtils.removeEnd(relativeName, CloudPath.DEFAULT_PATH_SEPARATOR) :
+				relativeName.substring(0, Math.max(0, relativeName.lastIndexOf(SEPARATOR)));
+
+			// Add to the directory itself and each ancestor directory down to the maximum depth
+			add("", size, files);
+			int depth = 0;
+			int separatorIndex = 0;
+			while (depth < maxDepth && separatorIndex < directoryPath.length()) {
+				separatorIndex = directoryPath.indexOf(SEPARATOR, separatorIndex + 1);
+				if (separatorIndex < 0) {
+					separatorIndex = directoryPath.length();
+				}
+
+				add(directoryPath.substring(0, separatorIndex), size, files);
+				depth++;
+			}
+		}
+
+		private void add(String directoryPath, long size, long files) {
+			long[] directoryTotals = directories.computeIfAbsent(directoryPath, p -> new long[2]);
+			directoryTotals[0] += size;
+			directoryTotals[1] += files;
+		}
+
+		void addAll(Totals other) {
+			other.directories.forEach((directoryPath, otherTotals) -> add(directoryPath, otherTotals[0], otherTotals[1]));
+		}
+
+		DirectoryUsage toUsage() {
+			// Build the tree from the deepest directories upwards, the sorted map puts each parent before its children
+			TreeMap<String,long[]> sortedDirectories = new TreeMap<>(directories);
+			Map<String,List<DirectoryUsage>> childrenByParent = new HashMap<>();
+
+			for (Map.Entry<String,long[]> entry : sortedDirectories.descendingMap().entrySet()) {
+				String directoryPath = entry.getKey();
+				List<DirectoryUsage> children = childrenByParent.remove(directoryPath);
+				if (children == null) {
+					children = new ArrayList<>();
+				} else {
+					children.sort((a, b) -> a.getName().compareTo(b.getName()));
+				}
+
+				DirectoryUsage usage = new DirectoryUsage(directoryPath, entry.getValue()[0], entry.getValue()[1], children);
+				if (directoryPath.isEmpty()) {
+					return usage;
+				}
+
+				String parentPath = directoryPath.substring(0, Math.max(0, directoryPath.lastIndexOf(SEPARATOR)));
+				childrenByParent.computeIfAbsent(parentPath, p -> new ArrayList<>()).add(usage);
+			}
+
+			throw new IllegalStateException("No usage for the directory itself");
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+import java.io.Serializable;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+/**
+ * <p>
+ * A lexical range of blob keys within a container, from the <em>start</em> key inclusive to the <em>end</em>
+ * key exclusive. A null start or end leaves that side of the range unbounded, so {@link #ALL} covers every key.
+ * </p>
+ * <p>
+ * Keys are compared using {@link String#compareTo(String)}, which is the same as the order of a cloud
+ * listing for keys without supplementary characters.
+ * </p>
+ * @see KeyRangePartitioner
+ */
+public final class KeyRange implements Serializable {
+	private static final long serialVersionUID = 1L;
+	public static final KeyRange ALL = new KeyRange(null, null);
+	private final String start;
+	private final String end;
+
+	/**
+	 * @param start	The first key in the range, or null for no lower bound
+	 * @param end	The key after the last key in the range, or null for no upper bound
+	 */
+	public KeyRange(String start, String end) {
+		if (start != null && end != null && start.compareTo(end) > 0) {
+			throw new IllegalArgumentException("The start key '" + start + "' is after the end key '" + end + "'");
+		}
+
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * @return The first key in the range, or null for no lower bound
+	 */
+	public String getStart() {
+		return start;
+	}
+
+	/**
+	 * @return The key after the last key in the range, or null for no upper bound
+	 */
+	public String getEnd() {
+		return end;
+	}
+
+	public boolean contains(String key) {
+		return (start == null || key.compareTo(start) >= 0) && !isBeyondEnd(key);
+	}
+
+	/**
+	 * @return true if the key is at or after the end of this range
+	 */
+	public boolean isBeyondEnd(String key) {
+		return end != null && key.compareTo(end) >= 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return new HashCodeBuilder().append(start).append(end).toHashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+
+		if (!(obj instanceof KeyRange)) {
+			return false;
+		}
+
+		KeyRange other = (KeyRange)obj;
+		return new EqualsBuilder().append(start, other.start).append(end, other.end).isEquals();
+	}
+
+	@Override
+	public String toString() {
+		return "[" + (start == null ? "" : start) + ", " + (end == null ? "" : end) + ")";
+	}
+
+}
@@ -0,0 +1,561 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+
+/**
+ * <p>
+ * Splits the keys beneath a container or directory into a number of roughly balanced lexical {@link KeyRange KeyRanges}
+ * without listing every key. Each range can then be listed independently, for example by a separate worker
+ * node, using {@link CloudDirectoryStream#CloudDirectoryStream(CloudPath, boolean, KeyRange, java.nio.file.DirectoryStream.Filter)}.
+ * </p>
+ * <p>
+ * The key space is sampled using small listing pages started at different points with
+ * {@link ListContainerOptions#afterMarker(String)}:
+ * <ol>
+ * <li>The common prefix of all keys is found by a binary search, as is an upper bound for the keys</li>
+ * <li>Each key after the common prefix is treated as a number, with a digit for each character based upon
+ * 		the characters seen in the sampled keys, so that marker keys can be spaced evenly through the key space
+ * 		and the density of keys can be estimated</li>
+ * <li>Sample pages are listed at evenly spaced markers, then further pages are listed in the unexplored gaps
+ * 		which could hold the most keys, until the request budget is used</li>
+ * <li>The range boundaries are chosen from the sampled keys where possible, or are interpolated from the
+ * 		estimated key density in the unexplored gaps</li>
+ * </ol>
+ * The ranges always cover the whole key space, the first range has no start and the last range has no end.
+ * The balance of the ranges depends on how evenly the keys are distributed within the unexplored gaps. Fewer
+ * ranges than requested are returned if there are not enough distinct boundaries.
+ * </p>
+ */
+public class KeyRangePartitioner {
+	private static final Logger LOG = LoggerFactory.getLogger(KeyRangePartitioner.class);
+	public static final int DEFAULT_SAMPLE_PAGE_SIZE = 100;
+	public static final int DEFAULT_REQUESTS_PER_PARTITION = 8;
+	private static final int MIN_SAMPLE_REQUESTS = 32;
+	private static final int MAX_SAMPLE_REQUESTS = 1024;
+	private static final int MAX_COMMON_PREFIX_LENGTH = 1024;
+	private static final int POSITION_DIGITS = 48;
+	private static final Comparator<String> MARKER_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+	private final BlobStore blobStore;
+	private final String containerName;
+	private final String dirPathName;
+	private final int samplePageSize;
+	private final int requestsPerPartition;
+
+	/**
+	 * @param blobStore		The blob store to sample
+	 * @param containerName	The container
+	 * @param dirPathName	The directory within the container, or null to partition the whole container
+	 */
+	public KeyRangePartitioner(BlobStore blobStore, String containerName, String dirPathName) {
+		this(blobStore, containerName, dirPathName, DEFAULT_SAMPLE_PAGE_SIZE, DEFAULT_REQUESTS_PER_PARTITION);
+	}
+
+	/**
+	 * @param blobStore				The blob store to sample
+	 * @param containerName			The container
+	 * @param dirPathName			The directory within the container, or null to partition the whole container
+	 * @param samplePageSize		The number of keys listed in each sample page
+	 * @param requestsPerPartition	The number of sample listing requests to make for each partition, which
+	 * 								is limited to between {@value #MIN_SAMPLE_REQUESTS} and {@value #MAX_SAMPLE_REQUESTS}.
+	 * 								Around 20 further requests are made to find the bounds of the key space.
+	 */
+	public KeyRangePartitioner(BlobStore blobStore, String containerName, String dirPathName, int samplePageSize,
+			int requestsPerPartition) {
+		if (samplePageSize < 1 || requestsPerPartition < 1) {
+			throw new IllegalArgumentException("The sample page size and requests per partition must be positive");
+		}
+
+		this.blobStore = blobStore;
+		this.containerName = containerName;
+		this.dirPathName = dirPathName;
+		this.samplePageSize = samplePageSize;
+		this.requestsPerPartition = requestsPerPartition;
+	}
+
+	/**
+	 * Splits the key space into ranges
+	 * @param partitions	The number of ranges to create
+	 * @return	The ranges in key order, which together cover every key
+	 */
+	public List<KeyRange> partition(int partitions) {
+		if (partitions < 1) {
+			throw new IllegalArgumentException("The number of partitions must be positive: " + partitions);
+		}
+
+		if (partitions == 1) {
+			return Collections.singletonList(KeyRange.ALL);
+		}
+
+		Sampling sampling = new Sampling();
+		Sample first = sampling.list(null, 1);
+		if (first.keys.isEmpty()) {
+			return Collections.singletonList(KeyRange.ALL);
+		}
+
+		sampling.initialise(first.keys.get(0));
+		sampling.sample(Math.min(MAX_SAMPLE_REQUESTS, Math.max(MIN_SAMPLE_REQUESTS, partitions * requestsPerPartition)));
+		List<String> boundaries = sampling.chooseBoundaries(partitions);
+		LOG.debug("Partitioned '{}/{}' into {} ranges using {} listing requests",
+				containerName, StringUtils.defaultString(dirPathName), boundaries.size() + 1, sampling.requests);
+
+		List<KeyRange> ranges = new ArrayList<>(boundaries.size() + 1);
+		String start = null;
+		for (String boundary : boundaries) {
+			ranges.add(new KeyRange(start, boundary));
+			start = boundary;
+		}
+		ranges.add(new KeyRange(start, null));
+
+		return ranges;
+	}
+
+	/**
+	 * A listing page started after a marker
+	 */
+	private static final class Sample {
+		private final String marker;
+		private final List<String> keys;
+		private final boolean complete;
+
+		Sample(String marker, List<String> keys, boolean complete) {
+			this.marker = marker;
+			this.keys = keys;
+			this.complete = complete;
+		}
+
+		String getLastKey() {
+			return keys.isEmpty() ? marker : keys.get(keys.size() - 1);
+		}
+	}
+
+	/**
+	 * An unexplored part of the key space between two samples
+	 */
+	private static final class Gap {
+		private final String startKey;
+		private final String endMarker;
+		private final double estimatedKeys;
+		private final double possibleKeys;
+		private final String probeMarker;
+
+		Gap(String startKey, String endMarker, double estimatedKeys, double possibleKeys, String probeMarker) {
+			this.startKey = startKey;
+			this.endMarker = endMarker;
+			this.estimatedKeys = estimatedKeys;
+			this.possibleKeys = possibleKeys;
+			this.probeMarker = probeMarker;
+		}
+	}
+
+	/**
+	 * The density of the keys at one end of a sample, and the width of the key space over which it was measured
+	 */
+	private static final class Edge {
+		private static final Edge EMPTY = new Edge(0d, BigInteger.ZERO);
+		private final double density;
+		private final BigInteger width;
+
+		Edge(double density, BigInteger width) {
+			this.density = density;
+			this.width = width;
+		}
+	}
+
+	/**
+	 * The state for a single {@link KeyRangePartitioner#partition(int)} operation
+	 */
+	private final class Sampling {
+		private final TreeMap<String,Sample> samples = new TreeMap<>(MARKER_ORDER);
+		private int requests = 0;
+		private String commonPrefix;
+		private String firstKey;
+		private String upperKey;
+		private final TreeSet<Character> alphabet = new TreeSet<>();
+		private char[] symbols = null;
+		private BigInteger radix;
+		private final Map<String,BigInteger> positions = new HashMap<>();
+
+		Sample list(String marker, int maxResults) {
+			ListContainerOptions options = new ListContainerOptions().recursive().maxResults(maxResults);
+
+			if (dirPathName != null) {
+				options.inDirectory(dirPathName);
+			}
+
+			if (marker != null) {
+				options.afterMarker(marker);
+			}
+
+			requests++;
+			PageSet<? extends StorageMetadata> pageSet = blobStore.list(containerName, options);
+			List<String> keys = new ArrayList<>(pageSet.size());
+			pageSet.forEach(m -> keys.add(m.getName()));
+			keys.forEach(this::addToAlphabet);
+			return new Sample(marker, keys, pageSet.getNextMarker() == null);
+		}
+
+		boolean hasKeysAfter(String marker) {
+			return !list(marker, 1).keys.isEmpty();
+		}
+
+		/**
+		 * Finds the common prefix of all keys and an upper bound for the keys
+		 */
+		void initialise(String firstKey) {
+			String listingPrefix = dirPathName == null ? "" :
+				StringUtils.appendIfMissing(dirPathName, CloudPath.DEFAULT_PATH_SEPARATOR);
+			String suffix = StringUtils.left(StringUtils.removeStart(firstKey, listingPrefix), MAX_COMMON_PREFIX_LENGTH);
+
+			// Every key shares a prefix of the first key if there are no keys after the prefix range
+			int low = 0;
+			int high = suffix.length();
+			while (low < high) {
+				int mid = (low + high + 1) >>> 1;
+				if (hasKeysAfter(listingPrefix + suffix.substring(0, mid) + Character.MAX_VALUE)) {
+					high = mid - 1;
+				} else {
+					low = mid;
+				}
+			}
+			commonPrefix = listingPrefix + suffix.substring(0, low);
+			this.firstKey = firstKey;
+
+			// Find the highest character after the common prefix which has keys after it
+			int firstChar = firstKey.length() > commonPrefix.length() ? firstKey.charAt(commonPrefix.length()) : 0;
+			int lowChar = firstChar - 1;
+			int highChar = Character.MAX_VALUE - 1;
+			while (lowChar < highChar) {
+				int midChar = (lowChar + highChar + 1) >>> 1;
+				if (hasKeysAfter(commonPrefix + (char)midChar)) {
+					lowChar = midChar;
+				} else {
+					highChar = midChar - 1;
+				}
+			}
+			upperKey = commonPrefix + (char)(lowChar + 1);
+		}
+
+		/**
+		 * Lists sample pages at evenly spaced markers, then in the gaps estimated to contain the most keys
+		 */
+		void sample(int maxRequests) {
+			int requestLimit = requests + maxRequests;
+			int initialSamples = Math.max(2, maxRequests / 4);
+			BigInteger firstPosition = position(firstKey);
+			BigInteger span = upperPosition().subtract(firstPosition);
+			List<String> initialMarkers = new ArrayList<>(initialSamples);
+
+			// Work out all of the markers first as the positions change when sampled keys add to the alphabet
+			for (int i = 0; i < initialSamples; i++) {
+				initialMarkers.add(i == 0 ? null :
+					keyAt(firstPosition.add(span.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(initialSamples)))));
+			}
+			initialMarkers.forEach(this::addSample);
+
+			while (requests < requestLimit) {
+				Gap largestGap = null;
+
+				for (Gap gap : findGaps()) {
+					if (largestGap == null || gap.possibleKeys > largestGap.possibleKeys) {
+						largestGap = gap;
+					}
+				}
+
+				if (largestGap == null || largestGap.possibleKeys < 1d) {
+					break;
+				}
+
+				String marker = largestGap.probeMarker;
+				if (samples.containsKey(marker)) {
+					break;
+				}
+
+				addSample(marker);
+			}
+		}
+
+		void addSample(String marker) {
+			if (!samples.containsKey(marker)) {
+				samples.put(marker, list(marker, samplePageSize));
+			}
+		}
+
+		String getEndKey(String endMarker) {
+			return endMarker == null ? upperKey : endMarker;
+		}
+
+		List<Gap> findGaps() {
+			List<Gap> gaps = new ArrayList<>();
+			Sample explorer = null;
+			String exploredTo = null;
+
+			for (Sample sample : samples.values()) {
+				if (explorer != null && MARKER_ORDER.compare(sample.marker, exploredTo) > 0) {
+					gaps.add(createGap(exploredTo, sample.marker, explorer, sample));
+				}
+
+				if (sample.complete) {
+					return gaps;
+				}
+
+				if (explorer == null || MARKER_ORDER.compare(sample.getLastKey(), exploredTo) > 0) {
+					explorer = sample;
+					exploredTo = sample.getLastKey();
+				}
+			}
+
+			if (explorer != null) {
+				gaps.add(createGap(exploredTo, null, explorer, null));
+			}
+
+			return gaps;
+		}
+
+		/**
+		 * <p>
+		 * Estimates the number of keys in a gap. The density of the keys measured at the edge of each neighbouring
+		 * sample is assumed to carry on into the gap for about the width over which it was measured, with the
+		 * lower of the two densities used for the rest of the gap. This stops the keys in a dense cluster from
+		 * being extrapolated across a wide gap.
+		 * </p>
+		 * <p>
+		 * The next sample in the gap is placed just beyond a denser edge to find out whether the dense keys carry on,
+		 * otherwise in the middle of the gap.
+		 * </p>
+		 */
+		Gap createGap(String startKey, String endMarker, Sample before, Sample after) {
+			Edge left = endEdge(before);
+			Edge right = after == null ? Edge.EMPTY : startEdge(after);
+			BigInteger start = position(startKey);
+			BigInteger end = endMarker == null ? upperPosition() : position(endMarker);
+			BigInteger width = end.subtract(start);
+			double base = Math.min(left.density, right.density);
+			double estimate = base * width.doubleValue() +
+					(left.density - base) * width.min(left.width).doubleValue() +
+					(right.density - base) * width.min(right.width).doubleValue();
+
+			BigInteger probe = start.add(end).shiftRight(1);
+			if (left.density > right.density && left.width.shiftLeft(1).compareTo(width) < 0) {
+				probe = start.add(left.width);
+			} else if (right.density > left.density && right.width.shiftLeft(1).compareTo(width) < 0) {
+				probe = end.subtract(right.width);
+			}
+
+			// Carry on listing from the start of the gap if it is too narrow to place a marker in it
+			String probeMarker = keyAt(probe);
+			if (probeMarker.compareTo(startKey) <= 0 || probeMarker.compareTo(getEndKey(endMarker)) >= 0) {
+				probeMarker = startKey;
+			}
+
+			// The densest edge may carry on across the whole gap
+			double possible = Math.max(left.density, right.density) * width.doubleValue();
+			return new Gap(startKey, endMarker, Math.max(0d, estimate), Math.max(estimate, possible), probeMarker);
+		}
+
+		/**
+		 * The density of the keys next to a gap is measured from the half of the sample page nearest to the gap,
+		 * so that a page which runs from a sparse part of the key space into a dense part, or the other way
+		 * around, gives the density at the gap
+		 */
+		Edge endEdge(Sample sample) {
+			int size = sample.keys.size();
+			if (size < 2) {
+				return startEdge(sample);
+			}
+
+			int half = size / 2;
+			BigInteger width = position(sample.getLastKey()).subtract(position(sample.keys.get(size - half - 1)));
+			return createEdge(half, width);
+		}
+
+		Edge startEdge(Sample sample) {
+			int size = sample.keys.size();
+			if (size == 0) {
+				return Edge.EMPTY;
+			}
+
+			int half = Math.max(1, size / 2);
+			BigInteger start = sample.marker == null ? position(firstKey).subtract(BigInteger.ONE) : position(sample.marker);
+			return createEdge(half, position(sample.keys.get(half - 1)).subtract(start));
+		}
+
+		Edge createEdge(int keys, BigInteger width) {
+			BigInteger nonZeroWidth = width.max(BigInteger.ONE);
+			return new Edge(keys / nonZeroWidth.doubleValue(), nonZeroWidth);
+		}
+
+		/**
+		 * Walks through the sampled keys and the estimated keys in each gap to find the boundaries which
+		 * divide the keys into equal sized partitions
+		 */
+		List<String> chooseBoundaries(int partitions) {
+			TreeSet<String> knownKeys = new TreeSet<>();
+			samples.values().forEach(s -> knownKeys.addAll(s.keys));
+			Map<String,Gap> gapsAfterKey = new HashMap<>();
+			double total = knownKeys.size();
+
+			for (Gap gap : findGaps()) {
+				gapsAfterKey.put(gap.startKey, gap);
+				total += gap.estimatedKeys;
+			}
+
+			List<String> boundaries = new ArrayList<>(partitions - 1);
+			if (knownKeys.isEmpty()) {
+				return boundaries;
+			}
+
+			String firstKey = knownKeys.first();
+			double cumulative = 0d;
+			int partition = 1;
+
+			for (String key : knownKeys) {
+				while (partition < partitions && cumulative >= total * partition / partitions) {
+					addBoundary(boundaries, firstKey, key);
+					partition++;
+				}
+				cumulative++;
+
+				Gap gap = gapsAfterKey.get(key);
+				if (gap != null) {
+					while (partition < partitions && cumulative + gap.estimatedKeys > total * partition / partitions) {
+						double fraction = (total * partition / partitions - cumulative) / gap.estimatedKeys;
+						addBoundary(boundaries, firstKey, interpolate(gap, fraction));
+						partition++;
+					}
+					cumulative += gap.estimatedKeys;
+				}
+			}
+
+			return boundaries;
+		}
+
+		void addBoundary(List<String> boundaries, String firstKey, String boundary) {
+			if (boundary != null && boundary.compareTo(firstKey) > 0 &&
+					(boundaries.isEmpty() || boundary.compareTo(boundaries.get(boundaries.size() - 1)) > 0)) {
+				boundaries.add(boundary);
+			}
+		}
+
+		String interpolate(Gap gap, double fraction) {
+			BigInteger start = position(gap.startKey);
+			BigInteger width = position(getEndKey(gap.endMarker)).subtract(start);
+			String key = keyAt(start.add(new BigDecimal(width).multiply(BigDecimal.valueOf(fraction)).toBigInteger()));
+
+			// Use the end of the gap if the keys differ beyond the resolution of the positions
+			if (key.compareTo(gap.startKey) <= 0 || key.compareTo(getEndKey(gap.endMarker)) >= 0) {
+				return gap.endMarker;
+			}
+
+			return key;
+		}
+
+		BigInteger upperPosition() {
+			return position(upperKey).add(BigInteger.ONE);
+		}
+
+		void addToAlphabet(String key) {
+			for (int i = 0; i < key.length(); i++) {
+				if (alphabet.add(key.charAt(i))) {
+					symbols = null;
+				}
+			}
+		}
+
+		/**
+		 * The positions are based upon the characters which have been seen in the sampled keys rather than
+		 * every possible character, otherwise the keys would be packed into a tiny part of the key space
+		 * and the density of the keys could not be estimated. Each character is a digit in the position, which
+		 * is the number of characters in the alphabet up to and including the character. Zero is used for
+		 * the end of a key.
+		 */
+		void ensureSymbols() {
+			if (symbols == null) {
+				symbols = new char[alphabet.size()];
+				int i = 0;
+				for (Character symbol : alphabet) {
+					symbols[i++] = symbol;
+				}
+
+				radix = BigInteger.valueOf(symbols.length + 1);
+				positions.clear();
+			}
+		}
+
+		int toDigit(char ch) {
+			int index = Arrays.binarySearch(symbols, ch);
+			return index >= 0 ? index + 1 : -(index + 1);
+		}
+
+		char fromDigit(int digit) {
+			return symbols[Math.max(0, digit - 1)];
+		}
+
+		/**
+		 * Converts the first {@value KeyRangePartitioner#POSITION_DIGITS} characters after the common prefix
+		 * to a number, with a digit for each character
+		 */
+		BigInteger position(String key) {
+			ensureSymbols();
+			BigInteger position = positions.get(key);
+
+			if (position == null) {
+				position = BigInteger.ZERO;
+
+				for (int i = 0; i < POSITION_DIGITS; i++) {
+					int index = commonPrefix.length() + i;
+					int digit = index < key.length() ? toDigit(key.charAt(index)) : 0;
+					position = position.multiply(radix).add(BigInteger.valueOf(digit));
+				}
+
+				positions.put(key, position);
+			}
+
+			return position;
+		}
+
+		String keyAt(BigInteger position) {
+			ensureSymbols();
+			int[] digits = new int[POSITION_DIGITS];
+			BigInteger remaining = position;
+
+			for (int i = POSITION_DIGITS - 1; i >= 0; i--) {
+				BigInteger[] divided = remaining.divideAndRemainder(radix);
+				digits[i] = divided[1].intValue();
+				remaining = divided[0];
+			}
+
+			int length = POSITION_DIGITS;
+			while (length > 0 && digits[length - 1] == 0) {
+				length--;
+			}
+
+			StringBuilder key = new StringBuilder(commonPrefix);
+			for (int i = 0; i < length; i++) {
+				key.append(fromDigit(digits[i]));
+			}
+
+			return key.toString();
+		}
+	}
+
+}
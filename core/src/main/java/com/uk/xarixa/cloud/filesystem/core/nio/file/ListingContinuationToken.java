@@ -0,0 +1,228 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+
+/**
+ * <p>
+ * Records a position within a {@link CloudDirectoryStream} listing so that the listing can be resumed
+ * from that position by a different stream, process or host. The position is the marker used to request
+ * the listing page and the number of entries within that page which have already been consumed. The
+ * {@link KeyRange} of a key range listing is also recorded, so that the resumed listing stops at the same key.
+ * </p>
+ * <p>
+ * A token is passed around in its {@link #encode() encoded} form, which is an opaque URL safe string
+ * that can be {@link #decode(String) decoded} back into a token.
+ * </p>
+ * <p>
+ * The entries returned after resuming are consistent with the original listing as long as the
+ * directory content before the page marker has not changed. If entries have been added to or removed from
+ * the page which was being read then entries from that page may be repeated or skipped.
+ * </p>
+ * @see CloudDirectoryStream#getContinuationToken()
+ */
+public final class ListingContinuationToken {
+	private static final int TOKEN_VERSION = 3;
+	private static final int LISTING_MODE_TOKEN_VERSION = 2;
+	private final String containerName;
+	private final String pathName;
+	private final ListingMode listingMode;
+	private final KeyRange keyRange;
+	private final String pageMarker;
+	private final int pageOffset;
+
+	/**
+	 * @param containerName	The container listed
+	 * @param pathName		The directory listed within the container, or null if the container was listed
+	 * @param listingMode	How the directory was listed
+	 * @param pageMarker	The marker used to request the current page, null for the first page
+	 * @param pageOffset	The number of entries in the current page which have been consumed
+	 */
+	public ListingContinuationToken(String containerName, String pathName, ListingMode listingMode,
+			String pageMarker, int pageOffset) {
+		this(containerName, pathName, listingMode, null, pageMarker, pageOffset);
+	}
+
+	/**
+	 * @param containerName	The container listed
+	 * @param pathName		The directory listed within the container, or null if the container was listed
+	 * @param listingMode	How the directory was listed
+	 * @param keyRange		The range of keys listed, or null if all keys were listed
+	 * @param pageMarker	The marker used to request the current page, null for the first page
+	 * @param pageOffset	The number of entries in the current page which have been consumed
+	 */
+	public ListingContinuationToken(String containerName, String pathName, ListingMode listingMode,
+			KeyRange keyRange, String pageMarker, int pageOffset) {
+		if (StringUtils.isBlank(containerName)) {
+			throw new IllegalArgumentException("A container name is required");
+		}
+
+		if (listingMode == null) {
+			throw new IllegalArgumentException("A listing mode is required");
+		}
+
+		if (pageOffset < 0) {
+			throw new IllegalArgumentException("The page offset cannot be negative: " + pageOffset);
+		}
+
+		this.containerName = containerName;
+		this.pathName = pathName;
+		this.listingMode = listingMode;
+		this.keyRange = keyRange;
+		this.pageMarker = pageMarker;
+		this.pageOffset = pageOffset;
+	}
+
+	/**
+	 * Decodes a token created with {@link #encode()}
+	 * @throws IllegalArgumentException If the token is not valid
+	 */
+	public static ListingContinuationToken decode(String encodedToken) {
+		if (StringUtils.isBlank(encodedToken)) {
+			throw new IllegalArgumentException("Cannot decode an empty continuation token");
+		}
+
+		try (DataInputStream in = new DataInputStream(
+				new ByteArrayInputStream(Base64.getUrlDecoder().decode(encodedToken)))) {
+			int version = in.readUnsignedByte();
+			if (version != TOKEN_VERSION && version != LISTING_MODE_TOKEN_VERSION) {
+				throw new IllegalArgumentException("Unsupported continuation token version " + version);
+			}
+
+			String containerName = in.readUTF();
+			String pathName = readOptionalString(in);
+			ListingMode listingMode = ListingMode.values()[in.readUnsignedByte()];
+			KeyRange keyRange = version == TOKEN_VERSION && in.readBoolean() ?
+					new KeyRange(readOptionalString(in), readOptionalString(in)) : null;
+			String pageMarker = readOptionalString(in);
+			int pageOffset = in.readInt();
+			return new ListingContinuationToken(containerName, pathName, listingMode, keyRange, pageMarker, pageOffset);
+		} catch (IOException | IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Invalid continuation token '" + encodedToken + "'", e);
+		}
+	}
+
+	/**
+	 * @return An opaque URL safe string which can be passed to {@link #decode(String)}
+	 */
+	public String encode() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(TOKEN_VERSION);
+			out.writeUTF(containerName);
+			writeOptionalString(out, pathName);
+			out.writeByte(listingMode.ordinal());
+			out.writeBoolean(keyRange != null);
+			if (keyRange != null) {
+				writeOptionalString(out, keyRange.getStart());
+				writeOptionalString(out, keyRange.getEnd());
+			}
+			writeOptionalString(out, pageMarker);
+			out.writeInt(pageOffset);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not encode continuation token " + this, e);
+		}
+
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+	}
+
+	private static String readOptionalString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static void writeOptionalString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	/**
+	 * Tests if this token was created from a listing of the directory
+	 */
+	public boolean isListingOf(CloudPath dirPath) {
+		return containerName.equals(dirPath.getContainerName()) && StringUtils.equals(pathName, dirPath.getPathName());
+	}
+
+	public String getContainerName() {
+		return containerName;
+	}
+
+	public String getPathName() {
+		return pathName;
+	}
+
+	public boolean isRecursive() {
+		return ListingMode.RECURSIVE.equals(listingMode);
+	}
+
+	public ListingMode getListingMode() {
+		return listingMode;
+	}
+
+	/**
+	 * @return The range of keys listed, or null if all keys were listed
+	 */
+	public KeyRange getKeyRange() {
+		return keyRange;
+	}
+
+	public String getPageMarker() {
+		return pageMarker;
+	}
+
+	public int getPageOffset() {
+		return pageOffset;
+	}
+
+	@Override
+	public int hashCode() {
+		return new HashCodeBuilder()
+				.append(containerName)
+				.append(pathName)
+				.append(listingMode)
+				.append(keyRange)
+				.append(pageMarker)
+				.append(pageOffset)
+				.toHashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+
+		if (!(obj instanceof ListingContinuationToken)) {
+			return false;
+		}
+
+		ListingContinuationToken other = (ListingContinuationToken)obj;
+		return new EqualsBuilder()
+				.append(containerName, other.containerName)
+				.append(pathName, other.pathName)
+				.append(listingMode, other.listingMode)
+				.append(keyRange, other.keyRange)
+				.append(pageMarker, other.pageMarker)
+				.append(pageOffset, other.pageOffset)
+				.isEquals();
+	}
+
+	@Override
+	public String toString() {
+		return ToStringBuilder.reflectionToString(this);
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+/**
+ * How a {@link CloudDirectoryStream} lists a directory
+ */
+public enum ListingMode {
+	/**
+	 * Lists the direct children of the directory using
+	 * {@link org.jclouds.blobstore.options.ListContainerOptions#inDirectory(String)}, which depends upon
+	 * the blob store for how subdirectories are found
+	 */
+	DIRECTORY,
+
+	/**
+	 * Lists every key beneath the directory
+	 */
+	RECURSIVE,
+
+	/**
+	 * Lists the direct children of the directory by key prefix with a <em>/</em> delimiter, so that each
+	 * common prefix in the listing is returned as a directory. Subdirectories are found whether or not they
+	 * have a directory marker blob, using a single request for each page of the directory.
+	 */
+	DELIMITED;
+
+	public static ListingMode valueOf(boolean isRecursive) {
+		return isRecursive ? RECURSIVE : DIRECTORY;
+	}
+
+}
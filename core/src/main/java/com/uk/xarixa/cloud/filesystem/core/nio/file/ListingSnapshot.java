@@ -0,0 +1,532 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.domain.internal.StorageMetadataImpl;
+import org.jclouds.blobstore.options.ListContainerOptions;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPathWithAttributes;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudBasicFileAttributes;
+import com.uk.xarixa.cloud.filesystem.core.nio.index.MetadataIndex;
+
+/**
+ * <p>
+ * An immutable, compact in-memory copy of a directory listing which is intended for bulk operations over
+ * very large listings, such as summing the disk usage or comparing two listings. Rather than holding a
+ * {@link CloudPathWithAttributes} for each entry, the listing is stored in columns:
+ * <ul>
+ * <li>The directory part of each key is held once in a prefix dictionary and referenced by index</li>
+ * <li>The rest of each key is held as UTF-8 in a single shared byte array</li>
+ * <li>Sizes and modification times are held in primitive <em>long</em> arrays</li>
+ * <li>ETags which are hex MD5 digests are packed into two <em>longs</em>, other ETags are interned</li>
+ * </ul>
+ * This takes around 60-70 bytes for each entry with typical key lengths.
+ * </p>
+ * <p>
+ * Entries are read by index, or through {@link Entry} flyweight views which hold only the index of the
+ * entry. A full {@link CloudPath} is only created when {@link Entry#toPath()} is called.
+ * </p>
+ */
+public final class ListingSnapshot implements Iterable<ListingSnapshot.Entry> {
+	private static final StorageType[] STORAGE_TYPES = StorageType.values();
+	private static final int NO_ETAG = -1;
+	private static final int PACKED_ETAG = -2;
+	private static final int PACKED_ETAG_HEX_LENGTH = 32;
+	private final CloudPath dirPath;
+	private final String dirPathName;
+	private final int size;
+	private final String[] prefixes;
+	private final int[] prefixIds;
+	private final byte[] names;
+	private final int[] nameOffsets;
+	private final long[] sizes;
+	private final long[] lastModifiedTimes;
+	private final byte[] types;
+	private final boolean[] quotedETags;
+	private final int[] eTagIds;
+	private final long[] packedETags;
+	private final String[] eTags;
+
+	private ListingSnapshot(Builder builder) {
+		this.dirPath = builder.dirPath;
+		this.dirPathName = builder.dirPath.getPathName();
+		this.size = builder.size;
+		this.prefixes = builder.prefixes.toArray(new String[builder.prefixes.size()]);
+		this.prefixIds = Arrays.copyOf(builder.prefixIds, size);
+		this.names = Arrays.copyOf(builder.names, builder.namesLength);
+		this.nameOffsets = Arrays.copyOf(builder.nameOffsets, size + 1);
+		this.sizes = Arrays.copyOf(builder.sizes, size);
+		this.lastModifiedTimes = Arrays.copyOf(builder.lastModifiedTimes, size);
+		this.types = Arrays.copyOf(builder.types, size);
+		this.quotedETags = Arrays.copyOf(builder.quotedETags, size);
+		this.eTagIds = Arrays.copyOf(builder.eTagIds, size);
+		this.packedETags = Arrays.copyOf(builder.packedETags, size * 2);
+		this.eTags = builder.eTags.toArray(new String[builder.eTags.size()]);
+	}
+
+	/**
+	 * Lists a directory or container straight into a snapshot, without creating a path for each entry
+	 * @param dirPath		The directory to list
+	 * @param isContainer	Whether this is a top-level container or not
+	 * @param isRecursive	Whether to list all of the keys beneath the directory or only its direct children
+	 */
+	public static ListingSnapshot create(CloudPath dirPath, boolean isContainer, boolean isRecursive) {
+		BlobStore blobStore = dirPath.getFileSystem().getBlobStoreContext().getBlobStore();
+		ListContainerOptions options = new ListContainerOptions();
+
+		if (!isContainer) {
+			options.inDirectory(dirPath.getPathName());
+		}
+
+		if (isRecursive) {
+			options.recursive();
+		}
+
+		Builder builder = new Builder(dirPath);
+		MetadataIndex metadataIndex = dirPath.getFileSystem().getMetadataIndex(dirPath.getContainerName());
+		String marker = null;
+
+		do {
+			ListContainerOptions pageOptions = options.clone();
+			if (marker != null) {
+				pageOptions.afterMarker(marker);
+			}
+
+			PageSet<? extends StorageMetadata> pageSet = blobStore.list(dirPath.getContainerName(), pageOptions);
+			pageSet.forEach(builder::add);
+			if (metadataIndex != null) {
+				metadataIndex.putListed(pageSet);
+			}
+			marker = pageSet.getNextMarker();
+		} while (marker != null);
+
+		return builder.build();
+	}
+
+	/**
+	 * @return The directory which was listed
+	 */
+	public CloudPath getDirPath() {
+		return dirPath;
+	}
+
+	/**
+	 * @return The number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return The full key of the entry within the container
+	 */
+	public String getKey(int index) {
+		checkIndex(index);
+		return prefixes[prefixIds[index]] + new String(names, nameOffsets[index],
+				nameOffsets[index + 1] - nameOffsets[index], StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return The name of the entry relative to the {@link #getDirPath() listed directory}
+	 */
+	public String getRelativeName(int index) {
+		String key = getKey(index);
+		return dirPathName == null ? key : StringUtils.removeStart(StringUtils.removeStart(key, dirPathName),
+				CloudPath.DEFAULT_PATH_SEPARATOR);
+	}
+
+	public long getSize(int index) {
+		checkIndex(index);
+		return sizes[index];
+	}
+
+	/**
+	 * @return The last modified time in milliseconds, or 0 if it is not known
+	 */
+	public long getLastModified(int index) {
+		checkIndex(index);
+		return lastModifiedTimes[index];
+	}
+
+	public StorageType getStorageType(int index) {
+		checkIndex(index);
+		return STORAGE_TYPES[types[index]];
+	}
+
+	public boolean isDirectory(int index) {
+		StorageType type = getStorageType(index);
+		return StorageType.RELATIVE_PATH.equals(type) || StorageType.FOLDER.equals(type);
+	}
+
+	public String getETag(int index) {
+		checkIndex(index);
+		int eTagId = eTagIds[index];
+
+		if (eTagId == NO_ETAG) {
+			return null;
+		}
+
+		if (eTagId != PACKED_ETAG) {
+			return eTags[eTagId];
+		}
+
+		String hex = StringUtils.leftPad(Long.toHexString(packedETags[index * 2]), PACKED_ETAG_HEX_LENGTH / 2, '0') +
+				StringUtils.leftPad(Long.toHexString(packedETags[index * 2 + 1]), PACKED_ETAG_HEX_LENGTH / 2, '0');
+		return quotedETags[index] ? '"' + hex + '"' : hex;
+	}
+
+	/**
+	 * @return The sum of the sizes of all of the entries
+	 */
+	public long getTotalSize() {
+		long total = 0;
+		for (int i = 0; i < size; i++) {
+			total += sizes[i];
+		}
+		return total;
+	}
+
+	/**
+	 * Finds an entry by key using a binary search. The entries must be in key order, which they are when the
+	 * snapshot was created from a listing.
+	 * @return The index of the entry, or <em>(-(insertion point) - 1)</em> if there is no such key
+	 */
+	public int indexOf(String key) {
+		int low = 0;
+		int high = size - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int comparison = getKey(mid).compareTo(key);
+
+			if (comparison < 0) {
+				low = mid + 1;
+			} else if (comparison > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+
+		return -(low + 1);
+	}
+
+	/**
+	 * @return A flyweight view of the entry
+	 */
+	public Entry get(int index) {
+		checkIndex(index);
+		return new Entry(index);
+	}
+
+	@Override
+	public Iterator<Entry> iterator() {
+		return new Iterator<Entry>() {
+			private int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			public Entry next() {
+				if (index >= size) {
+					throw new NoSuchElementException();
+				}
+
+				return new Entry(index++);
+			}
+		};
+	}
+
+	/**
+	 * Estimates the number of bytes of heap used by this snapshot, excluding the {@link #getDirPath() directory path}
+	 */
+	public long estimateMemoryUsage() {
+		long usage = 16L * 14;
+		usage += 16L + 4L * prefixIds.length;
+		usage += 16L + names.length;
+		usage += 16L + 4L * nameOffsets.length;
+		usage += 16L + 8L * sizes.length;
+		usage += 16L + 8L * lastModifiedTimes.length;
+		usage += 16L + types.length;
+		usage += 16L + quotedETags.length;
+		usage += 16L + 4L * eTagIds.length;
+		usage += 16L + 8L * packedETags.length;
+		usage += estimateMemoryUsage(prefixes);
+		usage += estimateMemoryUsage(eTags);
+		return usage;
+	}
+
+	private static long estimateMemoryUsage(String[] strings) {
+		long usage = 16L + 4L * strings.length;
+		for (String string : strings) {
+			usage += 40L + 2L * string.length();
+		}
+		return usage;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " is not within the " + size + " entries");
+		}
+	}
+
+	/**
+	 * A flyweight view of a single entry in a {@link ListingSnapshot}, which holds only the index of the
+	 * entry and reads the attributes from the snapshot when they are requested
+	 */
+	public final class Entry implements BasicFileAttributes {
+		private final int index;
+
+		private Entry(int index) {
+			this.index = index;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public String getKey() {
+			return ListingSnapshot.this.getKey(index);
+		}
+
+		/**
+		 * @see ListingSnapshot#getRelativeName(int)
+		 */
+		public String getRelativeName() {
+			return ListingSnapshot.this.getRelativeName(index);
+		}
+
+		public String getETag() {
+			return ListingSnapshot.this.getETag(index);
+		}
+
+		public StorageType getStorageType() {
+			return ListingSnapshot.this.getStorageType(index);
+		}
+
+		/**
+		 * Creates a path for this entry, in the same form as the paths returned by a {@link CloudDirectoryStream}
+		 */
+		public CloudPathWithAttributes toPath() {
+			Date lastModified = new Date(lastModifiedTimes[index]);
+			StorageMetadata meta = new StorageMetadataImpl(getStorageType(), null, getKey(), null, null, getETag(),
+					null, lastModified, Collections.<String,String>emptyMap(), sizes[index]);
+			String filename = dirPathName == null ? meta.getName() : StringUtils.substringAfter(meta.getName(), dirPathName);
+			return new CloudPathWithAttributes(dirPath.getFileSystem(), false, dirPath, filename,
+					new CloudBasicFileAttributes(meta));
+		}
+
+		@Override
+		public FileTime lastModifiedTime() {
+			return FileTime.from(lastModifiedTimes[index], TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public FileTime lastAccessTime() {
+			return lastModifiedTime();
+		}
+
+		@Override
+		public FileTime creationTime() {
+			return lastModifiedTime();
+		}
+
+		@Override
+		public boolean isRegularFile() {
+			return StorageType.BLOB.equals(getStorageType());
+		}
+
+		@Override
+		public boolean isDirectory() {
+			return ListingSnapshot.this.isDirectory(index);
+		}
+
+		/**
+		 * Always returns false
+		 */
+		@Override
+		public boolean isSymbolicLink() {
+			return false;
+		}
+
+		@Override
+		public boolean isOther() {
+			return !isRegularFile() && !isDirectory();
+		}
+
+		@Override
+		public long size() {
+			return sizes[index];
+		}
+
+		/**
+		 * @return The key of the entry
+		 */
+		@Override
+		public Object fileKey() {
+			return getKey();
+		}
+
+		@Override
+		public String toString() {
+			return getKey();
+		}
+	}
+
+	/**
+	 * Builds a {@link ListingSnapshot} from listing entries, which are stored in the order that they are added
+	 */
+	public static final class Builder {
+		private static final int INITIAL_CAPACITY = 64;
+		private final CloudPath dirPath;
+		private final String dirPathName;
+		private final List<String> prefixes = new ArrayList<>();
+		private final Map<String,Integer> prefixIdMap = new HashMap<>();
+		private final List<String> eTags = new ArrayList<>();
+		private final Map<String,Integer> eTagIdMap = new HashMap<>();
+		private int size = 0;
+		private int[] prefixIds = new int[INITIAL_CAPACITY];
+		private byte[] names = new byte[INITIAL_CAPACITY * 16];
+		private int namesLength = 0;
+		private int[] nameOffsets = new int[INITIAL_CAPACITY + 1];
+		private long[] sizes = new long[INITIAL_CAPACITY];
+		private long[] lastModifiedTimes = new long[INITIAL_CAPACITY];
+		private byte[] types = new byte[INITIAL_CAPACITY];
+		private boolean[] quotedETags = new boolean[INITIAL_CAPACITY];
+		private int[] eTagIds = new int[INITIAL_CAPACITY];
+		private long[] packedETags = new long[INITIAL_CAPACITY * 2];
+
+		/**
+		 * @param dirPath	The directory which the entries were listed from
+		 */
+		public Builder(CloudPath dirPath) {
+			this.dirPath = dirPath;
+			this.dirPathName = dirPath.getPathName();
+		}
+
+		/**
+		 * Adds an entry from a listing. The listed directory itself is ignored, in the same way as it is
+		 * ignored by a {@link CloudDirectoryStream}.
+		 */
+		public Builder add(StorageMetadata meta) {
+			String filename = dirPathName == null ? meta.getName() : StringUtils.substringAfter(meta.getName(), dirPathName);
+			if (StringUtils.isBlank(filename)) {
+				return this;
+			}
+
+			return add(meta.getName(), meta.getType(), meta.getSize() == null ? 0L : meta.getSize(),
+					meta.getLastModified() == null ? 0L : meta.getLastModified().getTime(), meta.getETag());
+		}
+
+		/**
+		 * Adds an entry
+		 * @param key			The full key within the container
+		 * @param type			The type of the entry
+		 * @param size			The size in bytes
+		 * @param lastModified	The last modified time in milliseconds
+		 * @param eTag			The ETag, or null if there is none
+		 */
+		public Builder add(String key, StorageType type, long size, long lastModified, String eTag) {
+			ensureCapacity(this.size + 1);
+			int index = this.size;
+
+			// The directory part of the key, up to and including the last separator, goes in the dictionary
+			int prefixEnd = key.lastIndexOf(CloudPath.DEFAULT_PATH_SEPARATOR_CHAR, key.length() - 2) + 1;
+			String prefix = key.substring(0, prefixEnd);
+			Integer prefixId = prefixIdMap.get(prefix);
+			if (prefixId == null) {
+				prefixId = prefixes.size();
+				prefixes.add(prefix);
+				prefixIdMap.put(prefix, prefixId);
+			}
+			prefixIds[index] = prefixId;
+
+			byte[] name = key.substring(prefixEnd).getBytes(StandardCharsets.UTF_8);
+			if (namesLength + name.length > names.length) {
+				names = Arrays.copyOf(names, Math.max(names.length * 2, namesLength + name.length));
+			}
+			System.arraycopy(name, 0, names, namesLength, name.length);
+			namesLength += name.length;
+			nameOffsets[index + 1] = namesLength;
+
+			sizes[index] = size;
+			lastModifiedTimes[index] = lastModified;
+			types[index] = (byte)type.ordinal();
+			addETag(index, eTag);
+
+			this.size++;
+			return this;
+		}
+
+		private void addETag(int index, String eTag) {
+			if (eTag == null) {
+				eTagIds[index] = NO_ETAG;
+				return;
+			}
+
+			boolean quoted = eTag.length() == PACKED_ETAG_HEX_LENGTH + 2 && eTag.startsWith("\"") && eTag.endsWith("\"");
+			String hex = quoted ? eTag.substring(1, eTag.length() - 1) : eTag;
+
+			// Only lower case hex digests can be packed, as the case is not stored
+			if (hex.length() == PACKED_ETAG_HEX_LENGTH && StringUtils.containsOnly(hex, "0123456789abcdef")) {
+				eTagIds[index] = PACKED_ETAG;
+				quotedETags[index] = quoted;
+				packedETags[index * 2] = Long.parseUnsignedLong(hex.substring(0, PACKED_ETAG_HEX_LENGTH / 2), 16);
+				packedETags[index * 2 + 1] = Long.parseUnsignedLong(hex.substring(PACKED_ETAG_HEX_LENGTH / 2), 16);
+				return;
+			}
+
+			Integer eTagId = eTagIdMap.get(eTag);
+			if (eTagId == null) {
+				eTagId = eTags.size();
+				eTags.add(eTag);
+				eTagIdMap.put(eTag, eTagId);
+			}
+			eTagIds[index] = eTagId;
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (capacity > sizes.length) {
+				int newCapacity = Math.max(capacity, sizes.length * 2);
+				prefixIds = Arrays.copyOf(prefixIds, newCapacity);
+				nameOffsets = Arrays.copyOf(nameOffsets, newCapacity + 1);
+				sizes = Arrays.copyOf(sizes, newCapacity);
+				lastModifiedTimes = Arrays.copyOf(lastModifiedTimes, newCapacity);
+				types = Arrays.copyOf(types, newCapacity);
+				quotedETags = Arrays.copyOf(quotedETags, newCapacity);
+				eTagIds = Arrays.copyOf(eTagIds, newCapacity);
+				packedETags = Arrays.copyOf(packedETags, newCapacity * 2);
+			}
+		}
+
+		public ListingSnapshot build() {
+			return new ListingSnapshot(this);
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+
+/**
+ * <p>
+ * Merges the listings of several {@link CloudDirectoryStream CloudDirectoryStreams}, usually of the same
+ * directory in different containers, into a single stream in key order. Each listing is already in key order,
+ * so only the next path of each listing is held. Paths with the same key are returned in the order of the
+ * streams.
+ * </p>
+ * <p>
+ * This lets a report over several containers be produced in a single pass, rather than a separate walk of
+ * each container. Closing this stream closes all of the merged streams.
+ * </p>
+ */
+public class MergedDirectoryStream implements DirectoryStream<CloudPath> {
+	private static final Logger LOG = LoggerFactory.getLogger(MergedDirectoryStream.class);
+	private final List<CloudDirectoryStream> streams;
+	private final AtomicBoolean closed = new AtomicBoolean(false);
+
+	/**
+	 * @param streams	The streams to merge, which should not have been iterated
+	 */
+	public MergedDirectoryStream(List<CloudDirectoryStream> streams) {
+		this.streams = Collections.unmodifiableList(new ArrayList<>(streams));
+	}
+
+	@Override
+	public Iterator<CloudPath> iterator() {
+		if (closed.get()) {
+			throw new IllegalStateException("This directory stream has already been closed");
+		}
+
+		return new MergedIterator();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed.getAndSet(true)) {
+			return;
+		}
+
+		IOException closeException = null;
+		for (CloudDirectoryStream stream : streams) {
+			try {
+				stream.close();
+			} catch (IOException e) {
+				LOG.warn("Could not close the directory stream", e);
+				closeException = e;
+			}
+		}
+
+		if (closeException != null) {
+			throw closeException;
+		}
+	}
+
+	public List<CloudDirectoryStream> getStreams() {
+		return streams;
+	}
+
+	/**
+	 * The next path from one of the merged streams
+	 */
+	private static final class Head implements Comparable<Head> {
+		private final int streamIndex;
+		private final Iterator<CloudPath> iterator;
+		private CloudPath path;
+		private String key;
+
+		Head(int streamIndex, Iterator<CloudPath> iterator) {
+			this.streamIndex = streamIndex;
+			this.iterator = iterator;
+		}
+
+		/**
+		 * @return true if there is a next path
+		 */
+		boolean advance() {
+			if (!iterator.hasNext()) {
+				return false;
+			}
+
+			path = iterator.next();
+			key = path.toAbsolutePath().getPathName();
+			return true;
+		}
+
+		@Override
+		public int compareTo(Head other) {
+			int comparison = key.compareTo(other.key);
+			return comparison != 0 ? comparison : Integer.compare(streamIndex, other.streamIndex);
+		}
+	}
+
+	class MergedIterator implements Iterator<CloudPath> {
+		private final PriorityQueue<Head> heads = new PriorityQueue<>();
+		private boolean started = false;
+
+		private void start() {
+			if (!started) {
+				started = true;
+
+				for (int i = 0; i < streams.size(); i++) {
+					Head head = new Head(i, streams.get(i).iterator());
+					if (head.advance()) {
+						heads.add(head);
+					}
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			start();
+			return !closed.get() && !heads.isEmpty();
+		}
+
+		@Override
+		public CloudPath next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			Head head = heads.poll();
+			CloudPath path = head.path;
+			if (head.advance()) {
+				heads.add(head);
+			}
+
+			return path;
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file.attribute;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * <p>
+ * An attributes string, as passed to {@link Files#readAttributes(Path, String, java.nio.file.LinkOption...)},
+ * compiled into the set of {@link CloudFileAttribute attributes} to compute. A selector is immutable and can be
+ * reused for any number of reads, so the string is only parsed once.
+ * </p>
+ * <p>
+ * Only the selected attributes are put in the returned map. The ACL's are only read when
+ * {@link CloudFileAttribute#ACL_SET aclSet} is selected, so a selector such as <em>size,lastModifiedTime</em>
+ * can be answered from the blob metadata alone, or from a listing index when one covers the path.
+ * </p>
+ */
+public final class AttributeSelector {
+	public static final String BASIC_VIEW_NAME = "basic";
+	private static final int MAX_COMPILED_SELECTORS = 256;
+	private static final ConcurrentMap<String,AttributeSelector> compiledSelectors = new ConcurrentHashMap<>();
+	private final String viewName;
+	private final Set<CloudFileAttribute> attributes;
+	private final boolean aclRequired;
+
+	private AttributeSelector(String viewName, Set<CloudFileAttribute> attributes) {
+		this.viewName = viewName;
+		this.attributes = Collections.unmodifiableSet(attributes);
+		this.aclRequired = attributes.stream().anyMatch(CloudFileAttribute::isAclAttribute);
+	}
+
+	/**
+	 * Compiles an attributes string of the form <em>[view:]name[,name...]</em> or <em>[view:]*</em>. The view
+	 * is either {@link #BASIC_VIEW_NAME basic}, which only has the basic attributes, or
+	 * {@link CloudFileAttributesView#VIEW_NAME}, which is the default. Recently compiled selectors are reused.
+	 * @throws IllegalArgumentException If the view or any of the attribute names are not recognised
+	 */
+	public static AttributeSelector compile(String attributes) {
+		AttributeSelector selector = compiledSelectors.get(attributes == null ? "" : attributes);
+
+		if (selector == null) {
+			selector = parse(attributes);
+
+			if (compiledSelectors.size() < MAX_COMPILED_SELECTORS) {
+				compiledSelectors.putIfAbsent(attributes, selector);
+			}
+		}
+
+		return selector;
+	}
+
+	/**
+	 * Creates a selector for the {@link CloudFileAttributesView#VIEW_NAME cloud view} with the given attributes
+	 */
+	public static AttributeSelector of(CloudFileAttribute first, CloudFileAttribute... rest) {
+		return new AttributeSelector(CloudFileAttributesView.VIEW_NAME, EnumSet.of(first, rest));
+	}
+
+	private static AttributeSelector parse(String attributes) {
+		if (StringUtils.isBlank(attributes)) {
+			throw new IllegalArgumentException("Attributes to read is empty!");
+		}
+
+		String viewName = CloudFileAttributesView.VIEW_NAME;
+		String names = attributes;
+		if (StringUtils.contains(attributes, ":")) {
+			viewName = StringUtils.substringBefore(attributes, ":");
+			names = StringUtils.substringAfter(attributes, ":");
+		}
+
+		boolean isBasicView = viewName.equals(BASIC_VIEW_NAME);
+		if (!viewName.equals(CloudFileAttributesView.VIEW_NAME) && !isBasicView) {
+			throw new IllegalArgumentException("Unsupported file attributes view '" + viewName +
+					"' from attributes string: " + attributes);
+		}
+
+		Set<CloudFileAttribute> selected = EnumSet.noneOf(CloudFileAttribute.class);
+		for (String name : StringUtils.split(names, ",")) {
+			String attributeName = StringUtils.trim(name);
+
+			if (attributeName.equals("*")) {
+				Arrays.stream(CloudFileAttribute.values())
+					.filter(a -> !isBasicView || a.isBasic())
+					.forEach(selected::add);
+			} else {
+				CloudFileAttribute attribute = CloudFileAttribute.forAttributeName(attributeName);
+
+				if (attribute == null || (isBasicView && !attribute.isBasic())) {
+					throw new IllegalArgumentException("Unknown attribute '" + attributeName + "' for the '" +
+							viewName + "' view in attributes string: " + attributes);
+				}
+
+				selected.add(attribute);
+			}
+		}
+
+		if (selected.isEmpty()) {
+			throw new IllegalArgumentException("No attributes to read in attributes string: " + attributes);
+		}
+
+		return new AttributeSelector(viewName, selected);
+	}
+
+	/**
+	 * @return true if the ACL's are needed, in which case {@link CloudAclFileAttributes} must be read
+	 */
+	public boolean isAclRequired() {
+		return aclRequired;
+	}
+
+	/**
+	 * @return The class of attributes to read for this selector
+	 */
+	public Class<? extends BasicFileAttributes> getAttributesType() {
+		return aclRequired ? CloudAclFileAttributes.class : CloudBasicFileAttributes.class;
+	}
+
+	/**
+	 * Computes the selected attributes
+	 * @param readAttributes	Must be {@link CloudAclFileAttributes} if the {@link #isAclRequired() ACL's are required}
+	 * @return A map of attribute name to value, in the order of {@link CloudFileAttribute}
+	 */
+	public Map<String,Object> select(CloudBasicFileAttributes readAttributes) {
+		Map<String,Object> mapAttributes = new LinkedHashMap<>((int)(attributes.size() / 0.75f) + 1);
+
+		for (CloudFileAttribute attribute : attributes) {
+			mapAttributes.put(attribute.getAttributeName(), attribute.read(readAttributes));
+		}
+
+		return mapAttributes;
+	}
+
+	public String getViewName() {
+		return viewName;
+	}
+
+	public Set<CloudFileAttribute> getAttributes() {
+		return attributes;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this)
+				.append("viewName", viewName)
+				.append("attributes", attributes.stream().map(CloudFileAttribute::getAttributeName)
+						.collect(Collectors.joining(",")))
+				.toString();
+	}
+
+}
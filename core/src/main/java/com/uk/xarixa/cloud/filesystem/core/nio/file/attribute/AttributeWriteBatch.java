@@ -0,0 +1,140 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file.attribute;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import org.jclouds.blobstore.domain.BlobAccess;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.utils.ParallelRequests;
+
+/**
+ * <p>
+ * Collects the attribute changes for many paths and then writes them with a bounded number of requests in
+ * flight at once, rather than one path at a time. The changes for one path are merged, so that each path is
+ * written once however many times it was changed in the batch. The last ACL set for a path replaces any
+ * earlier one.
+ * </p>
+ * <p>
+ * A path which cannot be written does not fail the whole batch, its exception is returned from
+ * {@link #write(AttributeWriter, int)}. Paths can be added from many threads.
+ * </p>
+ */
+public class AttributeWriteBatch {
+	private static final Logger LOG = LoggerFactory.getLogger(AttributeWriteBatch.class);
+	public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 16;
+	private final Map<CloudPath,CloudAclEntrySet> aclSets = new LinkedHashMap<>();
+	private final ExecutorService executor;
+
+	/**
+	 * Writes the attributes of a single path
+	 */
+	@FunctionalInterface
+	public interface AttributeWriter {
+		void writeAttributes(CloudPath path, CloudAclEntrySet aclSet) throws IOException;
+	}
+
+	/**
+	 * Writes on the shared {@link ParallelRequests#EXECUTOR}
+	 */
+	public AttributeWriteBatch() {
+		this(ParallelRequests.EXECUTOR);
+	}
+
+	/**
+	 * @param executor	The executor to write the paths on
+	 */
+	public AttributeWriteBatch(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets the ACL's to write for the path, replacing any which were set earlier in this batch
+	 * @return this
+	 */
+	public synchronized AttributeWriteBatch setAclSet(CloudPath path, CloudAclEntrySet aclSet) {
+		aclSets.put(path, aclSet);
+		return this;
+	}
+
+	/**
+	 * @return The ACL's to write for each path, in the order that the paths were first added
+	 */
+	public synchronized Map<CloudPath,CloudAclEntrySet> getAclSets() {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(aclSets));
+	}
+
+	public synchronized int size() {
+		return aclSets.size();
+	}
+
+	public synchronized boolean isEmpty() {
+		return aclSets.isEmpty();
+	}
+
+	/**
+	 * Writes each path in the batch and then empties the batch
+	 * @param attributeWriter		Writes the attributes of each path
+	 * @param maxConcurrentRequests	The maximum number of paths to write at once
+	 * @return The exception for each path which could not be written, in the order that the paths were added
+	 * @throws InterruptedIOException If the calling thread is interrupted while waiting for the writes
+	 * @throws IOException If the writes could not be run
+	 */
+	public Map<CloudPath,IOException> write(AttributeWriter attributeWriter, int maxConcurrentRequests) throws IOException {
+		if (maxConcurrentRequests < 1) {
+			throw new IllegalArgumentException("The maximum number of concurrent requests must be positive: " +
+					maxConcurrentRequests);
+		}
+
+		Map<CloudPath,CloudAclEntrySet> writes;
+		synchronized (this) {
+			writes = new LinkedHashMap<>(aclSets);
+			aclSets.clear();
+		}
+
+		if (writes.isEmpty()) {
+			return Collections.emptyMap();
+		}
+
+		LOG.debug("Writing the attributes of {} paths", writes.size());
+		Map<CloudPath,IOException> failures = ParallelRequests.apply(writes.keySet(),
+				path -> attributeWriter.writeAttributes(path, writes.get(path)),
+				maxConcurrentRequests, executor, "write the attributes of");
+
+		Map<CloudPath,IOException> orderedFailures = new LinkedHashMap<>();
+		writes.keySet().stream().filter(failures::containsKey).forEach(p -> orderedFailures.put(p, failures.get(p)));
+		return orderedFailures;
+	}
+
+	/**
+	 * Merges the {@link PublicPrivateCloudPermissionsPrincipal} entries of an ACL set into the single
+	 * {@link BlobAccess} to write, so that the access is set with one request however many entries there are.
+	 * {@link BlobAccess#PUBLIC_READ} is returned if any entry has it.
+	 * @return The access, or null if there are no such entries in the set
+	 */
+	public static BlobAccess getBlobAccess(Set<? extends CloudAclEntry<?>> aclEntries) {
+		BlobAccess blobAccess = null;
+
+		for (CloudAclEntry<?> entry : aclEntries) {
+			if (PublicPrivateCloudPermissionsPrincipal.class.isAssignableFrom(entry.getPrincipalClass())) {
+				BlobAccess entryAccess = ((PublicPrivateCloudPermissionsPrincipal)entry.getPrincipal()).getBlobAccess();
+
+				if (BlobAccess.PUBLIC_READ.equals(entryAccess)) {
+					return BlobAccess.PUBLIC_READ;
+				}
+
+				blobAccess = BlobAccess.PRIVATE;
+			}
+		}
+
+		return blobAccess;
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file.attribute;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.utils.ParallelRequests;
+
+/**
+ * <p>
+ * Reads the attributes of many paths with a bounded number of requests in flight at once, rather than one
+ * request at a time. Each distinct path is read once, however many times it appears in the collection.
+ * </p>
+ * <p>
+ * A path which cannot be read, including one which does not exist, does not fail the whole read. Its exception
+ * is returned in the {@link BulkAttributesResult#getFailures() failures} of the result.
+ * </p>
+ */
+public class BulkAttributesReader {
+	private static final Logger LOG = LoggerFactory.getLogger(BulkAttributesReader.class);
+	public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 16;
+	private final AttributesReader attributesReader;
+	private final int maxConcurrentRequests;
+	private final ExecutorService executor;
+
+	/**
+	 * Reads the attributes of a single path
+	 */
+	@FunctionalInterface
+	public interface AttributesReader {
+		CloudBasicFileAttributes readAttributes(CloudPath path) throws IOException;
+	}
+
+	/**
+	 * Reads on the shared {@link ParallelRequests#EXECUTOR}
+	 * @param attributesReader		Reads the attributes of each path
+	 * @param maxConcurrentRequests	The maximum number of paths to read at once
+	 */
+	public BulkAttributesReader(AttributesReader attributesReader, int maxConcurrentRequests) {
+		this(attributesReader, maxConcurrentRequests, ParallelRequests.EXECUTOR);
+	}
+
+	/**
+	 * @param attributesReader		Reads the attributes of each path
+	 * @param maxConcurrentRequests	The maximum number of paths to read at once
+	 * @param executor				The executor to read the paths on
+	 */
+	public BulkAttributesReader(AttributesReader attributesReader, int maxConcurrentRequests, ExecutorService executor) {
+		if (maxConcurrentRequests < 1) {
+			throw new IllegalArgumentException("The maximum number of concurrent requests must be positive: " +
+					maxConcurrentRequests);
+		}
+
+		this.attributesReader = attributesReader;
+		this.maxConcurrentRequests = maxConcurrentRequests;
+		this.executor = executor;
+	}
+
+	/**
+	 * Reads the attributes of each distinct path
+	 * @throws InterruptedIOException If the calling thread is interrupted while waiting for the reads
+	 * @throws IOException If the reads could not be run
+	 */
+	public BulkAttributesResult read(Collection<CloudPath> paths) throws IOException {
+		Set<CloudPath> distinctPaths = new LinkedHashSet<>(paths);
+		Map<CloudPath,CloudBasicFileAttributes> attributes = new ConcurrentHashMap<>();
+		LOG.debug("Reading the attributes of {} paths ({} requested)", distinctPaths.size(), paths.size());
+
+		Map<CloudPath,IOException> failures = ParallelRequests.apply(distinctPaths,
+				path -> attributes.put(path, attributesReader.readAttributes(path)),
+				maxConcurrentRequests, executor, "read the attributes of");
+		return new BulkAttributesResult(distinctPaths, attributes, failures);
+	}
+
+	public int getMaxConcurrentRequests() {
+		return maxConcurrentRequests;
+	}
+
+}
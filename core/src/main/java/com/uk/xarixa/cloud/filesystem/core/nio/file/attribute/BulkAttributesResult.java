@@ -0,0 +1,75 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file.attribute;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+
+/**
+ * The attributes read by a {@link BulkAttributesReader}. Both maps are in the order that the paths were
+ * first requested in, and each path is in exactly one of them.
+ */
+public class BulkAttributesResult {
+	private final Map<CloudPath,CloudBasicFileAttributes> attributes;
+	private final Map<CloudPath,IOException> failures;
+
+	public BulkAttributesResult(Collection<CloudPath> paths, Map<CloudPath,CloudBasicFileAttributes> readAttributes,
+			Map<CloudPath,IOException> readFailures) {
+		Map<CloudPath,CloudBasicFileAttributes> orderedAttributes = new LinkedHashMap<>();
+		Map<CloudPath,IOException> orderedFailures = new LinkedHashMap<>();
+
+		for (CloudPath path : paths) {
+			if (readAttributes.containsKey(path)) {
+				orderedAttributes.put(path, readAttributes.get(path));
+			} else if (readFailures.containsKey(path)) {
+				orderedFailures.put(path, readFailures.get(path));
+			}
+		}
+
+		this.attributes = Collections.unmodifiableMap(orderedAttributes);
+		this.failures = Collections.unmodifiableMap(orderedFailures);
+	}
+
+	/**
+	 * @return The attributes of each path which was read
+	 */
+	public Map<CloudPath,CloudBasicFileAttributes> getAttributes() {
+		return attributes;
+	}
+
+	/**
+	 * @return The exception for each path which could not be read
+	 */
+	public Map<CloudPath,IOException> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * @return The attributes of the path, or null if it could not be read
+	 */
+	public CloudBasicFileAttributes get(CloudPath path) {
+		return attributes.get(path);
+	}
+
+	/**
+	 * @return true if the path was found not to exist
+	 */
+	public boolean isMissing(CloudPath path) {
+		return failures.get(path) instanceof FileNotFoundException;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this)
+				.append("attributes", attributes.size())
+				.append("failures", failures.size())
+				.toString();
+	}
+
+}
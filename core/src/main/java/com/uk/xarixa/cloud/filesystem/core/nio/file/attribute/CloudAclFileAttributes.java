@@ -5,6 +5,7 @@ import java.nio.file.attribute.AclEntryType;
 import java.security.Principal;
 import java.security.acl.NotOwnerException;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.jclouds.blobstore.domain.BlobAccess;
 import org.jclouds.blobstore.domain.BlobMetadata;
@@ -23,7 +24,9 @@ import com.uk.xarixa.cloud.filesystem.core.security.AnonymousUserPrincipal;
  */
 public class CloudAclFileAttributes extends CloudBasicFileAttributes {
 	public static final String VIEW_NAME = "cloud:cloudAclFileAttributesView";
-	private CloudAclEntrySet aclSet;
+	private final CloudAclEntryConflictChecker conflictChecker;
+	private volatile CloudAclEntrySet aclSet;
+	private Supplier<BlobAccess> blobAccessSupplier;
 
 	/**
 	 * Creates an instance backed by a {@link CloudAclEntrySet} initialised with a {@link DefaultCloudAclEntryConflictChecker}
@@ -38,6 +41,7 @@ public class CloudAclFileAttributes extends CloudBasicFileAttributes {
 	 */
 	public CloudAclFileAttributes(CloudAclEntryConflictChecker conflictChecker) {
 		super();
+		this.conflictChecker = conflictChecker;
 		aclSet = new CloudAclEntrySet(AnonymousUserPrincipal.INSTANCE, conflictChecker);
 	}
 
@@ -65,7 +69,25 @@ public class CloudAclFileAttributes extends CloudBasicFileAttributes {
 	 */
 	public CloudAclFileAttributes(CloudAclEntryConflictChecker conflictChecker, BlobMetadata blobMetadata, BlobAccess blobAccess) {
 		super(blobMetadata);
-		aclSet = new CloudAclEntrySet(AnonymousUserPrincipal.INSTANCE, conflictChecker);
+		this.conflictChecker = conflictChecker;
+		aclSet = createAclSet(blobAccess);
+	}
+
+	/**
+	 * As {@link #CloudAclFileAttributes(CloudAclEntryConflictChecker, BlobMetadata, BlobAccess)}, except that
+	 * the {@link BlobAccess} is only fetched when the ACL's are first used. Reading the basic attributes does
+	 * not fetch it, which saves a request to the cloud.
+	 * @param blobAccessSupplier	Fetches the blob access, this is invoked at most once
+	 */
+	public CloudAclFileAttributes(CloudAclEntryConflictChecker conflictChecker, BlobMetadata blobMetadata,
+			Supplier<BlobAccess> blobAccessSupplier) {
+		super(blobMetadata);
+		this.conflictChecker = conflictChecker;
+		this.blobAccessSupplier = blobAccessSupplier;
+	}
+
+	private CloudAclEntrySet createAclSet(BlobAccess blobAccess) {
+		CloudAclEntrySet acls = new CloudAclEntrySet(AnonymousUserPrincipal.INSTANCE, conflictChecker);
 		CloudAclEntry<PublicPrivateCloudPermissionsPrincipal> entry =
 			new CloudAclEntryBuilder<>(PublicPrivateCloudPermissionsPrincipal.class)
 				.addPermissions(AclEntryPermission.READ_DATA, AclEntryPermission.WRITE_DATA, AclEntryPermission.APPEND_DATA,
@@ -76,7 +98,15 @@ public class CloudAclFileAttributes extends CloudBasicFileAttributes {
 				.setType(AclEntryType.ALLOW)
 				.setPrincipal(new PublicPrivateCloudPermissionsPrincipal(blobAccess))
 				.build();
-		addAcl(AnonymousUserPrincipal.INSTANCE, entry);
+
+		try {
+			acls.addAclEntry(AnonymousUserPrincipal.INSTANCE, entry, false);
+		} catch (NotOwnerException e) {
+			throw new RuntimeException("Cannot add ACL for " + AnonymousUserPrincipal.INSTANCE.getName() +
+					", the user is not one of the owners of the ACL", e);
+		}
+
+		return acls;
 	}
 
 	public String name() {
@@ -84,11 +114,31 @@ public class CloudAclFileAttributes extends CloudBasicFileAttributes {
 	}
 
 	/**
-	 * Retrieves the ACL's
+	 * Retrieves the ACL's, fetching the {@link BlobAccess} first if it was deferred
 	 * @return A set, may be empty
 	 */
 	public CloudAclEntrySet getAclSet() {
-		return aclSet;
+		CloudAclEntrySet acls = aclSet;
+
+		if (acls == null) {
+			synchronized (this) {
+				if (aclSet == null) {
+					aclSet = createAclSet(blobAccessSupplier.get());
+					blobAccessSupplier = null;
+				}
+
+				acls = aclSet;
+			}
+		}
+
+		return acls;
+	}
+
+	/**
+	 * @return true if the ACL's have been created, false if fetching the {@link BlobAccess} is still deferred
+	 */
+	public boolean isAclSetLoaded() {
+		return aclSet != null;
 	}
 
 	/**
@@ -96,7 +146,8 @@ public class CloudAclFileAttributes extends CloudBasicFileAttributes {
 	 * @return
 	 */
 	public void setAclSet(Principal caller, CloudAclEntrySet acl) {
-		if (aclSet != null && !aclSet.isOwner(caller)) {
+		CloudAclEntrySet currentAclSet = getAclSet();
+		if (currentAclSet != null && !currentAclSet.isOwner(caller)) {
 			throw new RuntimeException("Cannot add ACL for " + caller.getName() +
 					", the user is not one of the owners of the original ACL");
 		}
@@ -123,7 +174,7 @@ public class CloudAclFileAttributes extends CloudBasicFileAttributes {
 		Set<CloudAclEntry<?>> conflicts;
 
 		try {
-			conflicts = aclSet.addAclEntry(caller, acl, force);
+			conflicts = getAclSet().addAclEntry(caller, acl, force);
 		} catch (NotOwnerException e) {
 			throw new RuntimeException("Cannot add ACL for " + caller.getName() +
 					", the user is not one of the owners of the ACL", e);
@@ -137,7 +188,7 @@ public class CloudAclFileAttributes extends CloudBasicFileAttributes {
 	 * @return
 	 */
 	public Set<Principal> getOwners() {
-		return aclSet.getOwners();
+		return getAclSet().getOwners();
 	}
 
 }
@@ -3,8 +3,8 @@ package com.uk.xarixa.cloud.filesystem.core.nio.file.attribute;
 import java.net.URI;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
+import java.util.Date;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
@@ -16,115 +16,73 @@ import org.jclouds.io.ContentMetadata;
 
 import com.google.common.hash.HashCode;
 
+/**
+ * <p>
+ * The basic attributes of a path. These wrap the {@link StorageMetadata} or {@link BlobMetadata} of the path
+ * rather than copying it, and each attribute is decoded from the metadata when it is asked for. A listing creates
+ * attributes for every entry whilst callers usually read only one or two of them, so this avoids creating the
+ * {@link FileTime FileTimes} and other objects for the attributes which are never read.
+ * </p>
+ * <p>
+ * The metadata should not be modified after the attributes have been created.
+ * </p>
+ */
 public class CloudBasicFileAttributes implements BasicFileAttributes {
-	private final FileTime lastModified;
-	private final FileTime created;
-	private final String key;
-	private final StorageType storageType;
-	private final Location physicalLocation;
-	private final URI uri;
-	private final Long size;
-	private final String eTag;
-	private final String contentDisposition;
-	private final String contentEncoding;
-	private final String contentLanguage;
-	private final HashCode contentMD5;
-	private final String contentType;
-	private final FileTime expires;
-	private final Map<String, String> userMetadata;
-	
+	private static final FileTime EPOCH = FileTime.fromMillis(0L);
+	private final StorageMetadata metadata;
+
 	public CloudBasicFileAttributes(BlobMetadata blobMetadata) {
-		lastModified = FileTime.from(Optional.ofNullable(blobMetadata.getLastModified().getTime()).orElse(0L), TimeUnit.MILLISECONDS);
-		created = blobMetadata.getCreationDate() == null ? lastModified : FileTime.from(blobMetadata.getCreationDate().getTime(), TimeUnit.MILLISECONDS);
-		key = blobMetadata.getProviderId();
-		storageType = blobMetadata.getType();
-		physicalLocation = blobMetadata.getLocation();
-		uri = blobMetadata.getUri();
-		size = Optional.ofNullable(blobMetadata.getSize()).orElse(Long.valueOf(0));
-		eTag = blobMetadata.getETag();
-		userMetadata = blobMetadata.getUserMetadata();
-
-		if (isRegularFile()) {
-			ContentMetadata contentMetadata = blobMetadata.getContentMetadata();
-			contentDisposition = contentMetadata.getContentDisposition();
-			contentEncoding = contentMetadata.getContentEncoding();
-			contentLanguage = contentMetadata.getContentLanguage();
-			contentMD5 = contentMetadata.getContentMD5AsHashCode();
-			contentType = contentMetadata.getContentType();
-			expires = contentMetadata.getExpires() == null ? null :
-				FileTime.from(contentMetadata.getExpires().getTime(), TimeUnit.MILLISECONDS);
-		} else {
-			contentDisposition = null;
-			contentEncoding = null;
-			contentLanguage = null;
-			contentMD5 = null;
-			contentType = null;
-			expires = null;
-		}
+		this((StorageMetadata)blobMetadata);
 	}
 
 	/**
 	 * Placeholder indicates a directory
 	 */
 	public CloudBasicFileAttributes() {
-		lastModified = FileTime.from(0L, TimeUnit.MILLISECONDS);
-		created = FileTime.from(0L, TimeUnit.MILLISECONDS);
-		key = null;
-		storageType = StorageType.FOLDER;
-		physicalLocation = null;
-		uri = null;
-		size = null;
-		eTag = null;
-		userMetadata = null;
-		contentDisposition = null;
-		contentEncoding = null;
-		contentLanguage = null;
-		contentMD5 = null;
-		contentType = null;
-		expires = null;
+		this.metadata = null;
 	}
 
 	public CloudBasicFileAttributes(StorageMetadata meta) {
-		lastModified = meta.getLastModified() == null ? FileTime.from(0L, TimeUnit.MILLISECONDS) :
-			FileTime.from(meta.getLastModified().getTime(), TimeUnit.MILLISECONDS);
-		created = meta.getCreationDate() == null ? lastModified : FileTime.from(meta.getCreationDate().getTime(), TimeUnit.MILLISECONDS);
-		key = meta.getProviderId();
-		storageType = meta.getType();
-		physicalLocation = meta.getLocation();
-		uri = meta.getUri();
-		size = Optional.ofNullable(meta.getSize()).orElse(Long.valueOf(0));
-		eTag = meta.getETag();
-		userMetadata = meta.getUserMetadata();
-		contentDisposition = null;
-		contentEncoding = null;
-		contentLanguage = null;
-		contentMD5 = null;
-		contentType = null;
-		expires = null;
+		this.metadata = meta;
+	}
+
+	private static FileTime toFileTime(Date date) {
+		return date == null ? null : FileTime.from(date.getTime(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return The content metadata if this is a regular file with BLOB metadata, null otherwise
+	 */
+	private ContentMetadata getContentMetadata() {
+		return metadata instanceof BlobMetadata && isRegularFile() ?
+				((BlobMetadata)metadata).getContentMetadata() : null;
 	}
 
 	@Override
 	public FileTime lastModifiedTime() {
-		return lastModified;
+		FileTime lastModified = metadata == null ? null : toFileTime(metadata.getLastModified());
+		return lastModified == null ? EPOCH : lastModified;
 	}
 
 	@Override
 	public FileTime lastAccessTime() {
-		return lastModified;
+		return lastModifiedTime();
 	}
 
 	@Override
 	public FileTime creationTime() {
-		return created;
+		FileTime created = metadata == null ? null : toFileTime(metadata.getCreationDate());
+		return created == null ? lastModifiedTime() : created;
 	}
 
 	@Override
 	public boolean isRegularFile() {
-		return StorageType.BLOB.equals(storageType);
+		return StorageType.BLOB.equals(getStorageType());
 	}
 
 	@Override
 	public boolean isDirectory() {
+		StorageType storageType = getStorageType();
 		return StorageType.RELATIVE_PATH.equals(storageType) || StorageType.FOLDER.equals(storageType);
 	}
 
@@ -142,12 +100,13 @@ public class CloudBasicFileAttributes implements BasicFileAttributes {
 	}
 	
 	public boolean isContainer() {
-		return StorageType.CONTAINER.equals(storageType);
+		return StorageType.CONTAINER.equals(getStorageType());
 	}
 
 	@Override
 	public long size() {
-		return size;
+		Long size = metadata == null ? null : metadata.getSize();
+		return size == null ? 0L : size;
 	}
 
 	/**
@@ -155,7 +114,7 @@ public class CloudBasicFileAttributes implements BasicFileAttributes {
 	 */
 	@Override
 	public Object fileKey() {
-		return key;
+		return metadata == null ? null : metadata.getProviderId();
 	}
 	
 	@Override
@@ -168,7 +127,7 @@ public class CloudBasicFileAttributes implements BasicFileAttributes {
 	 * @return
 	 */
 	public Location getPhysicalLocation() {
-		return physicalLocation;
+		return metadata == null ? null : metadata.getLocation();
 	}
 
 	/**
@@ -176,7 +135,7 @@ public class CloudBasicFileAttributes implements BasicFileAttributes {
 	 * @return
 	 */
 	public URI getUri() {
-		return uri;
+		return metadata == null ? null : metadata.getUri();
 	}
 
 	/**
@@ -184,7 +143,7 @@ public class CloudBasicFileAttributes implements BasicFileAttributes {
 	 * @return
 	 */
 	public String getETag() {
-		return eTag;
+		return metadata == null ? null : metadata.getETag();
 	}
 
 	/**
@@ -192,7 +151,8 @@ public class CloudBasicFileAttributes implements BasicFileAttributes {
 	 * @return
 	 */
 	public String getContentDisposition() {
-		return contentDisposition;
+		ContentMetadata contentMetadata = getContentMetadata();
+		return contentMetadata == null ? null : contentMetadata.getContentDisposition();
 	}
 
 	/**
@@ -200,7 +160,8 @@ public class CloudBasicFileAttributes implements BasicFileAttributes {
 	 * @return
 	 */
 	public String getContentEncoding() {
-		return contentEncoding;
+		ContentMetadata contentMetadata = getContentMetadata();
+		return contentMetadata == null ? null : contentMetadata.getContentEncoding();
 	}
 
 	/**
@@ -208,7 +169,8 @@ public class CloudBasicFileAttributes implements BasicFileAttributes {
 	 * @return
 	 */
 	public String getContentLanguage() {
-		return contentLanguage;
+		ContentMetadata contentMetadata = getContentMetadata();
+		return contentMetadata == null ? null : contentMetadata.getContentLanguage();
 	}
 
 	/**
@@ -216,7 +178,8 @@ public class CloudBasicFileAttributes implements BasicFileAttributes {
 	 * @return
 	 */
 	public HashCode getContentMD5() {
-		return contentMD5;
+		ContentMetadata contentMetadata = getContentMetadata();
+		return contentMetadata == null ? null : contentMetadata.getContentMD5AsHashCode();
 	}
 
 	/**
@@ -224,7 +187,8 @@ public class CloudBasicFileAttributes implements BasicFileAttributes {
 	 * @return
 	 */
 	public String getContentType() {
-		return contentType;
+		ContentMetadata contentMetadata = getContentMetadata();
+		return contentMetadata == null ? null : contentMetadata.getContentType();
 	}
 
 	/**
@@ -232,14 +196,15 @@ public class CloudBasicFileAttributes implements BasicFileAttributes {
 	 * @return
 	 */
 	public FileTime getContentExpires() {
-		return expires;
+		ContentMetadata contentMetadata = getContentMetadata();
+		return contentMetadata == null ? null : toFileTime(contentMetadata.getExpires());
 	}
 
 	public Map<String, String> getUserMetadata() {
-		return userMetadata;
+		return metadata == null ? null : metadata.getUserMetadata();
 	}
 
 	public StorageType getStorageType() {
-		return storageType;
+		return metadata == null ? StorageType.FOLDER : metadata.getType();
 	}
 }
@@ -0,0 +1,84 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file.attribute;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.Function;
+
+/**
+ * The attributes which can be read by name through an {@link AttributeSelector}, and how each is computed
+ * from the {@link CloudBasicFileAttributes}
+ */
+public enum CloudFileAttribute {
+	LAST_MODIFIED_TIME("lastModifiedTime", true, BasicFileAttributes::lastModifiedTime),
+	LAST_ACCESS_TIME("lastAccessTime", true, BasicFileAttributes::lastAccessTime),
+	CREATION_TIME("creationTime", true, BasicFileAttributes::creationTime),
+	SIZE("size", true, BasicFileAttributes::size),
+	IS_REGULAR_FILE("isRegularFile", true, BasicFileAttributes::isRegularFile),
+	IS_DIRECTORY("isDirectory", true, BasicFileAttributes::isDirectory),
+	IS_SYMBOLIC_LINK("isSymbolicLink", true, BasicFileAttributes::isSymbolicLink),
+	IS_OTHER("isOther", true, BasicFileAttributes::isOther),
+	FILE_KEY("fileKey", true, BasicFileAttributes::fileKey),
+	CONTENT_DISPOSITION("contentDisposition", false, CloudBasicFileAttributes::getContentDisposition),
+	CONTENT_ENCODING("contentEncoding", false, CloudBasicFileAttributes::getContentEncoding),
+	CONTENT_EXPIRES("contentExpires", false, CloudBasicFileAttributes::getContentExpires),
+	CONTENT_LANGUAGE("contentLanguage", false, CloudBasicFileAttributes::getContentLanguage),
+	CONTENT_MD5("contentMD5", false, CloudBasicFileAttributes::getContentMD5),
+	CONTENT_TYPE("contentType", false, CloudBasicFileAttributes::getContentType),
+	ETAG("eTag", false, CloudBasicFileAttributes::getETag),
+	PHYSICAL_LOCATION("physicalLocation", false, CloudBasicFileAttributes::getPhysicalLocation),
+	URI("uri", false, CloudBasicFileAttributes::getUri),
+	USER_METADATA("userMetadata", false, CloudBasicFileAttributes::getUserMetadata),
+	ACL_SET("aclSet", false, a -> ((CloudAclFileAttributes)a).getAclSet());
+
+	private final String attributeName;
+	private final boolean basic;
+	private final Function<CloudBasicFileAttributes,Object> reader;
+
+	private CloudFileAttribute(String attributeName, boolean basic, Function<CloudBasicFileAttributes,Object> reader) {
+		this.attributeName = attributeName;
+		this.basic = basic;
+		this.reader = reader;
+	}
+
+	/**
+	 * @return The name of the attribute in an attributes string
+	 */
+	public String getAttributeName() {
+		return attributeName;
+	}
+
+	/**
+	 * @return true if this attribute is in the <em>basic</em> view
+	 */
+	public boolean isBasic() {
+		return basic;
+	}
+
+	/**
+	 * @return true if the ACL's must be read to compute this attribute
+	 */
+	public boolean isAclAttribute() {
+		return this == ACL_SET;
+	}
+
+	/**
+	 * Computes the value of this attribute
+	 * @param attributes	Must be {@link CloudAclFileAttributes} for an {@link #isAclAttribute() ACL attribute}
+	 */
+	public Object read(CloudBasicFileAttributes attributes) {
+		return reader.apply(attributes);
+	}
+
+	/**
+	 * @return The attribute with the name, or null if there is none
+	 */
+	public static CloudFileAttribute forAttributeName(String attributeName) {
+		for (CloudFileAttribute attribute : values()) {
+			if (attribute.attributeName.equals(attributeName)) {
+				return attribute;
+			}
+		}
+
+		return null;
+	}
+
+}
@@ -7,8 +7,10 @@ import java.nio.file.attribute.AclEntryPermission;
 import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.UserPrincipal;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -17,11 +19,16 @@ import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.blobstore.KeyNotFoundException;
 import org.jclouds.blobstore.domain.BlobAccess;
 import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.StorageType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.uk.xarixa.cloud.filesystem.core.host.configuration.CloudHostConfiguration;
 import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.MetadataCache;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.NegativeCache;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.SingleFlight;
 import com.uk.xarixa.cloud.filesystem.core.security.AnonymousUserPrincipal;
 import com.uk.xarixa.cloud.filesystem.core.security.CloudHostSecurityManager;
 import com.uk.xarixa.cloud.filesystem.core.security.UserGroupLookupService;
@@ -34,10 +41,20 @@ public class CloudFileAttributesView implements BasicFileAttributeView {
 	private static final Logger LOG = LoggerFactory.getLogger(CloudFileAttributesView.class);
 	private final BlobStoreContext context;
 	private final CloudPath path;
+	private final SingleFlight<List<Object>,CloudAclFileAttributes> attributeReads;
 
 	public CloudFileAttributesView(BlobStoreContext context, CloudPath path) {
+		this(context, path, null);
+	}
+
+	/**
+	 * @param attributeReads	Shares concurrent reads of the same path's attributes from the cloud, may be null
+	 */
+	public CloudFileAttributesView(BlobStoreContext context, CloudPath path,
+			SingleFlight<List<Object>,CloudAclFileAttributes> attributeReads) {
 		this.context = context;
 		this.path = path;
+		this.attributeReads = attributeReads;
 	}
 
 	@Override
@@ -94,8 +111,23 @@ public class CloudFileAttributesView implements BasicFileAttributeView {
 	 */
 	public CloudAclFileAttributes checkAccess(Set<AclEntryPermission> checkPermissions) throws IOException {
 		// Throws FileNotFoundException
-		CloudAclFileAttributes readAttributes = readInternalAclFileAttributes();
-		
+		return checkAccess(readInternalAclFileAttributes(), checkPermissions);
+	}
+
+	/**
+	 * As {@link #checkAccess(Set)}, but for a file whose {@link BlobMetadata} has already been read, such as from a
+	 * listing, so that the metadata is not read again. The {@link BlobAccess} is still read when the
+	 * {@link CloudHostSecurityManager} uses the ACL's. The attributes are not cached.
+	 * @throws SecurityException If access is not allowed
+	 */
+	public CloudAclFileAttributes checkAccess(BlobMetadata blobMetadata, Set<AclEntryPermission> checkPermissions)
+			throws IOException {
+		return checkAccess(new CloudAclFileAttributes(DefaultCloudAclEntryConflictChecker.INSTANCE, blobMetadata,
+				this::readBlobAccess), checkPermissions);
+	}
+
+	private CloudAclFileAttributes checkAccess(CloudAclFileAttributes readAttributes,
+			Set<AclEntryPermission> checkPermissions) throws IOException {
 		// Read the config
 		CloudHostConfiguration cloudHostConfiguration = path.getFileSystem().getCloudHostConfiguration();
 
@@ -130,11 +162,49 @@ public class CloudFileAttributesView implements BasicFileAttributeView {
 	}
 	
 	/**
-	 * Reads all of the basic + ACL file attributes. Access is not checked here.
+	 * Reads all of the basic + ACL file attributes. Access is not checked here. If the file system has a
+	 * {@link MetadataCache} then the attributes are read from it, or read from the cloud and then cached.
+	 * Cached attributes are shared and should not be modified. If the file system has a {@link NegativeCache}
+	 * then a path which was recently found not to exist is not read again. Concurrent reads of the same path
+	 * share a single read from the cloud when this view was created with a {@link SingleFlight}.
 	 * @return
 	 * @throws IOException
 	 */
 	protected CloudAclFileAttributes readInternalAclFileAttributes() throws IOException {
+		NegativeCache negativeCache = path.getFileSystem().getNegativeCache();
+		if (negativeCache != null && negativeCache.isMissing(path)) {
+			throw new FileNotFoundException("Unable to locate the file '" + path.getContainerName() + "|" + path.getPathName() + "'");
+		}
+
+		MetadataCache metadataCache = path.getFileSystem().getMetadataCache();
+		CloudAclFileAttributes attributes = metadataCache == null ? null : metadataCache.get(path);
+
+		if (attributes == null) {
+			try {
+				attributes = attributeReads == null ? readCloudAclFileAttributes() :
+					attributeReads.execute(Arrays.asList(context, path.getContainerName(), path.getPathName()),
+							this::readCloudAclFileAttributes);
+			} catch (FileNotFoundException e) {
+				if (negativeCache != null) {
+					negativeCache.putMissing(path);
+				}
+				throw e;
+			}
+
+			if (metadataCache != null) {
+				metadataCache.put(path, attributes);
+			}
+		}
+
+		return attributes;
+	}
+
+	/**
+	 * Reads all of the basic + ACL file attributes from the cloud. The blob metadata is read first, which
+	 * for a file is the only request made. The directory check is only made when there is no blob, and the
+	 * {@link BlobAccess} is only fetched when the {@link CloudAclFileAttributes#getAclSet() ACL's} are used.
+	 */
+	protected CloudAclFileAttributes readCloudAclFileAttributes() throws IOException {
 		// Check for a container
 		if (path.getPathName() == null) {
 			if (isContainer()) {
@@ -144,26 +214,48 @@ public class CloudFileAttributesView implements BasicFileAttributeView {
 			throw new FileNotFoundException("Unable to locate the file '" + path.getContainerName() + "|" + path.getPathName() + "'");
 		}
 
-		if (isDirectory()) {
-			return new CloudAclFileAttributes();
-		}
-
+		BlobMetadata blobMetadata;
 		try {
-			BlobMetadata blobMetadata = context.getBlobStore().blobMetadata(path.getContainerName(), path.getPathName());
-			BlobAccess blobAccess = context.getBlobStore().getBlobAccess(path.getContainerName(), path.getPathName());
-			return new CloudAclFileAttributes(blobMetadata, blobAccess);
+			blobMetadata = context.getBlobStore().blobMetadata(path.getContainerName(), path.getPathName());
 		} catch (KeyNotFoundException k) {
-			if (context.getBlobStore().directoryExists(path.getContainerName(), path.getPathName())) {
+			// Most blob stores return null rather than throwing for a missing key
+			blobMetadata = null;
+		}
+
+		if (blobMetadata == null) {
+			if (isDirectory()) {
 				return new CloudAclFileAttributes();
 			}
+
 			throw new FileNotFoundException("Unable to locate the file '" + path.getContainerName() + "|" + path.getPathName() + "'");
 		}
+
+		// A directory marker blob
+		if (StorageType.FOLDER.equals(blobMetadata.getType()) || StorageType.RELATIVE_PATH.equals(blobMetadata.getType())) {
+			return new CloudAclFileAttributes();
+		}
+
+		return new CloudAclFileAttributes(DefaultCloudAclEntryConflictChecker.INSTANCE, blobMetadata, this::readBlobAccess);
+	}
+
+	/**
+	 * Fetches the {@link BlobAccess} for the file, if the file has since been deleted then
+	 * {@link BlobAccess#PRIVATE} is assumed
+	 */
+	protected BlobAccess readBlobAccess() {
+		try {
+			return context.getBlobStore().getBlobAccess(path.getContainerName(), path.getPathName());
+		} catch (KeyNotFoundException k) {
+			LOG.debug("Could not read the blob access for '{}', the file no longer exists", path);
+			return BlobAccess.PRIVATE;
+		}
 	}
 
 	/**
 	 * Sets ACL attributes for the file. Only {@link PublicPrivateCloudPermissionsPrincipal} is accepted in the ACL
 	 * permissions set by this class. Extend it to allow for storage of other ACL's. The set is first
-	 * {@link CloudAclEntrySet#optimise() optimised} before being set.
+	 * {@link CloudAclEntrySet#optimise() optimised} before being set, and all of the entries are merged into
+	 * a single {@link AttributeWriteBatch#getBlobAccess(Set) blob access} request.
 	 * @param	cloudAclEntrySet	The ACL entry set for this file
 	 * @return	The ACL entries which could not be set.
 	 * @throws IOException 
@@ -180,8 +272,13 @@ public class CloudFileAttributesView implements BasicFileAttributeView {
 				.collect(Collectors.toSet());
 		// TODO: Reverse PublicPrivateCloudPermissionsPrincipal if the permission is DENY
 		// TODO: Maybe add validation methods on the entry and principal?
-		validPrincipals.forEach(pe -> context.getBlobStore().setBlobAccess(path.getContainerName(), path.getPathName(),
-					((PublicPrivateCloudPermissionsPrincipal)pe.getPrincipal()).getBlobAccess()));
+		BlobAccess blobAccess = AttributeWriteBatch.getBlobAccess(validPrincipals);
+		StorageMetadata indexedMetadata = path.getFileSystem().getIndexedMetadata(path);
+		if (blobAccess != null) {
+			context.getBlobStore().setBlobAccess(path.getContainerName(), path.getPathName(), blobAccess);
+		}
+		// The access does not change the metadata of the path
+		path.getFileSystem().invalidateCaches(path, indexedMetadata);
 
 		// If we got only a subset of the principals then log the invalid ones
 		if (validPrincipals.size() < cloudAclEntrySet.size()) {
@@ -0,0 +1,93 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file.attribute;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.FileStoreAttributeView;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.jclouds.blobstore.BlobStoreContext;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystem;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystemImplementation;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.ExpiringCache;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.DirectoryUsage;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.DirectoryUsageCalculator;
+
+/**
+ * <p>
+ * A {@link FileStoreAttributeView} which gives the {@link DirectoryUsage} of each container in a
+ * {@link com.uk.xarixa.cloud.filesystem.core.nio.CloudFileStore}. Calculating the usage lists every key in
+ * the container, so the usage is cached for a time to live. The cached usage of a container is invalidated
+ * when it is changed through the {@link CloudFileSystem}.
+ * </p>
+ * <p>
+ * The caller must have {@link AclEntryPermission#LIST_DIRECTORY} access to the container, which is checked
+ * with {@link CloudFileSystemImplementation#checkAccess(BlobStoreContext, CloudPath, Set)} before the cached
+ * or calculated usage is returned.
+ * </p>
+ */
+public class CloudFileStoreUsageView implements FileStoreAttributeView {
+	public static final String VIEW_NAME = "usage";
+	public static final long DEFAULT_TIME_TO_LIVE_MS = 60000L;
+	private static final int MAX_CACHED_CONTAINERS = 256;
+	private static final Set<AclEntryPermission> CONTAINER_USAGE_PERMS = EnumSet.of(AclEntryPermission.LIST_DIRECTORY);
+	private final CloudFileSystem fileSystem;
+	private final ExpiringCache<String,DirectoryUsage> containerUsage;
+
+	public CloudFileStoreUsageView(CloudFileSystem fileSystem) {
+		this(fileSystem, DEFAULT_TIME_TO_LIVE_MS);
+	}
+
+	/**
+	 * @param fileSystem	The file system
+	 * @param timeToLiveMs	The time in ms that the usage of a container is cached for
+	 */
+	public CloudFileStoreUsageView(CloudFileSystem fileSystem, long timeToLiveMs) {
+		this.fileSystem = fileSystem;
+		this.containerUsage = new ExpiringCache<>(timeToLiveMs, MAX_CACHED_CONTAINERS);
+	}
+
+	@Override
+	public String name() {
+		return VIEW_NAME;
+	}
+
+	/**
+	 * Gets the usage of a container, including the usage of each top level directory
+	 * @param containerName	The container
+	 * @return The cached usage, or the usage calculated from a listing of the container
+	 * @throws AccessDeniedException If the container cannot be listed
+	 */
+	public DirectoryUsage getContainerUsage(String containerName) throws IOException {
+		BlobStoreContext blobStoreContext = fileSystem.getBlobStoreContext();
+		fileSystem.getCloudHostConfiguration().getCloudFileSystemImplementation().checkAccess(blobStoreContext,
+				new CloudPath(fileSystem, true, CloudPath.DEFAULT_PATH_SEPARATOR + containerName), CONTAINER_USAGE_PERMS);
+		DirectoryUsage usage = containerUsage.get(containerName);
+
+		if (usage == null) {
+			usage = new DirectoryUsageCalculator(blobStoreContext.getBlobStore(), containerName, null, 1)
+					.calculate();
+			containerUsage.put(containerName, usage);
+		}
+
+		return usage;
+	}
+
+	/**
+	 * Removes the cached usage of a container
+	 */
+	public void invalidate(String containerName) {
+		containerUsage.invalidate(containerName);
+	}
+
+	/**
+	 * Removes the cached usage of all containers
+	 */
+	public void clear() {
+		containerUsage.clear();
+	}
+
+}
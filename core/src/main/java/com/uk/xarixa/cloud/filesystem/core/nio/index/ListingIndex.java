@@ -0,0 +1,587 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.domain.internal.PageSetImpl;
+import org.jclouds.blobstore.domain.internal.StorageMetadataImpl;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystem;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.ExpiringCache;
+
+/**
+ * <p>
+ * A sorted index of every key beneath a container or a directory, built from a single recursive listing,
+ * which can be saved to a local file or a blob and loaded again later. Listing a large archive container
+ * from scratch can take hours, whereas the index can be loaded and read in seconds.
+ * </p>
+ * <p>
+ * The entries are held in blocks of consecutive keys. Each block is GZIP compressed, with each key stored as
+ * the length of the prefix it shares with the previous key and the rest of the key. A block index holds the
+ * first key of each block, so that a lookup or a listing only decompresses the blocks it reads. A small number
+ * of decompressed blocks are cached.
+ * </p>
+ * <p>
+ * The index is a snapshot, it can be {@link #refresh(BlobStore) refreshed} by listing the keys after the last
+ * key in the index. This only finds keys which sort after all of the indexed keys, as is the case for
+ * time-ordered archive keys. Keys which have been changed or deleted are not seen until the index is rebuilt.
+ * </p>
+ * <p>
+ * When an index is {@link CloudFileSystem#attachListingIndex(ListingIndex) attached} to a file system, directory
+ * listings and basic attribute reads for the paths it covers are answered from the index instead of the cloud.
+ * </p>
+ */
+public final class ListingIndex {
+	private static final Logger LOG = LoggerFactory.getLogger(ListingIndex.class);
+	private static final int INDEX_MAGIC = 0x43464c49;
+	private static final int INDEX_VERSION = 1;
+	public static final int DEFAULT_BLOCK_SIZE = 1024;
+	private static final int DEFAULT_PAGE_SIZE = 1000;
+	private static final int CACHED_BLOCKS = 8;
+	private static final StorageType[] STORAGE_TYPES = StorageType.values();
+	private final String containerName;
+	private final String pathName;
+	private final String listingPrefix;
+	private final String lastKey;
+	private final long entryCount;
+	private final long lastRefreshed;
+	private final int blockSize;
+	private final List<Block> blocks;
+	private final ExpiringCache<Integer,List<IndexEntry>> decompressedBlocks =
+			new ExpiringCache<>(Long.MAX_VALUE, CACHED_BLOCKS);
+
+	private ListingIndex(String containerName, String pathName, String lastKey, long entryCount,
+			long lastRefreshed, int blockSize, List<Block> blocks) {
+		this.containerName = containerName;
+		this.pathName = pathName;
+		this.listingPrefix = pathName == null ? "" : StringUtils.appendIfMissing(pathName, CloudPath.DEFAULT_PATH_SEPARATOR);
+		this.lastKey = lastKey;
+		this.entryCount = entryCount;
+		this.lastRefreshed = lastRefreshed;
+		this.blockSize = blockSize;
+		this.blocks = Collections.unmodifiableList(blocks);
+	}
+
+	/**
+	 * Builds an index from a recursive listing using the {@link #DEFAULT_BLOCK_SIZE}
+	 * @param blobStore		The blob store
+	 * @param containerName	The container to index
+	 * @param pathName		The directory within the container to index, or null for the whole container
+	 */
+	public static ListingIndex build(BlobStore blobStore, String containerName, String pathName) {
+		return build(blobStore, containerName, pathName, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Builds an index from a recursive listing
+	 * @param blobStore		The blob store
+	 * @param containerName	The container to index
+	 * @param pathName		The directory within the container to index, or null for the whole container
+	 * @param blockSize		The number of entries in each compressed block
+	 */
+	public static ListingIndex build(BlobStore blobStore, String containerName, String pathName, int blockSize) {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("The block size must be positive: " + blockSize);
+		}
+
+		BlockWriter writer = new BlockWriter(blockSize, Collections.<Block>emptyList());
+		String lastKey = listInto(blobStore, containerName, pathName, null, writer);
+		LOG.debug("Built listing index of '{}/{}' with {} entries in {} blocks", containerName,
+				StringUtils.defaultString(pathName), writer.entryCount, writer.blocks.size());
+		return new ListingIndex(containerName, pathName, lastKey, writer.entryCount, System.currentTimeMillis(),
+				blockSize, writer.finish());
+	}
+
+	/**
+	 * Lists the keys after the marker into the writer
+	 * @return The last key listed, or the marker if there were no keys
+	 */
+	private static String listInto(BlobStore blobStore, String containerName, String pathName, String afterMarker,
+			BlockWriter writer) {
+		ListContainerOptions options = new ListContainerOptions().recursive();
+		if (pathName != null) {
+			options.inDirectory(pathName);
+		}
+
+		String lastKey = afterMarker;
+		String marker = afterMarker;
+
+		do {
+			ListContainerOptions pageOptions = options.clone();
+			if (marker != null) {
+				pageOptions.afterMarker(marker);
+			}
+
+			PageSet<? extends StorageMetadata> pageSet = blobStore.list(containerName, pageOptions);
+			for (StorageMetadata meta : pageSet) {
+				writer.add(new IndexEntry(meta.getName(), meta.getType(), meta.getSize() == null ? 0L : meta.getSize(),
+						meta.getLastModified() == null ? 0L : meta.getLastModified().getTime(), meta.getETag()));
+				lastKey = meta.getName();
+			}
+
+			marker = pageSet.getNextMarker();
+		} while (marker != null);
+
+		return lastKey;
+	}
+
+	/**
+	 * Creates a new index with the keys which have been added after the last key in this index. Only the
+	 * last block of this index is rewritten.
+	 * @return The refreshed index
+	 */
+	public ListingIndex refresh(BlobStore blobStore) {
+		List<Block> retainedBlocks = blocks.isEmpty() ? blocks : blocks.subList(0, blocks.size() - 1);
+		BlockWriter writer = new BlockWriter(blockSize, retainedBlocks);
+
+		if (!blocks.isEmpty()) {
+			readBlock(blocks.size() - 1).forEach(writer::add);
+		}
+
+		String refreshedLastKey = listInto(blobStore, containerName, pathName, lastKey, writer);
+		LOG.debug("Refreshed listing index of '{}/{}' with {} new entries", containerName,
+				StringUtils.defaultString(pathName), writer.entryCount - entryCount);
+		return new ListingIndex(containerName, pathName, refreshedLastKey, writer.entryCount,
+				System.currentTimeMillis(), blockSize, writer.finish());
+	}
+
+	/**
+	 * Writes the index to a file, which can be a local file or a path in a cloud file system
+	 */
+	public void save(Path file) throws IOException {
+		try (OutputStream out = Files.newOutputStream(file)) {
+			writeTo(out);
+		}
+	}
+
+	/**
+	 * Loads an index written by {@link #save(Path)}
+	 */
+	public static ListingIndex load(Path file) throws IOException {
+		try (InputStream in = Files.newInputStream(file)) {
+			return readFrom(in);
+		}
+	}
+
+	/**
+	 * Writes the index to a blob
+	 */
+	public void saveToBlob(BlobStore blobStore, String indexContainerName, String indexKey) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		writeTo(bytes);
+		blobStore.putBlob(indexContainerName, blobStore.blobBuilder(indexKey).payload(bytes.toByteArray()).build());
+	}
+
+	/**
+	 * Loads an index written by {@link #saveToBlob(BlobStore, String, String)}
+	 * @throws IOException If the blob does not exist or is not a valid index
+	 */
+	public static ListingIndex loadFromBlob(BlobStore blobStore, String indexContainerName, String indexKey)
+			throws IOException {
+		Blob blob = blobStore.getBlob(indexContainerName, indexKey);
+		if (blob == null) {
+			throw new IOException("There is no listing index at '" + indexContainerName + "/" + indexKey + "'");
+		}
+
+		try (InputStream in = blob.getPayload().openStream()) {
+			return readFrom(in);
+		}
+	}
+
+	public void writeTo(OutputStream outputStream) throws IOException {
+		DataOutputStream out = new DataOutputStream(outputStream);
+		out.writeInt(INDEX_MAGIC);
+		out.writeByte(INDEX_VERSION);
+		out.writeUTF(containerName);
+		writeOptionalString(out, pathName);
+		writeOptionalString(out, lastKey);
+		out.writeLong(entryCount);
+		out.writeLong(lastRefreshed);
+		out.writeInt(blockSize);
+		out.writeInt(blocks.size());
+
+		for (Block block : blocks) {
+			out.writeUTF(block.firstKey);
+			out.writeInt(block.entryCount);
+			out.writeInt(block.data.length);
+			out.write(block.data);
+		}
+
+		out.flush();
+	}
+
+	public static ListingIndex readFrom(InputStream inputStream) throws IOException {
+		DataInputStream in = new DataInputStream(inputStream);
+		if (in.readInt() != INDEX_MAGIC) {
+			throw new IOException("The stream does not contain a listing index");
+		}
+
+		int version = in.readUnsignedByte();
+		if (version != INDEX_VERSION) {
+			throw new IOException("Unsupported listing index version " + version);
+		}
+
+		String containerName = in.readUTF();
+		String pathName = readOptionalString(in);
+		String lastKey = readOptionalString(in);
+		long entryCount = in.readLong();
+		long lastRefreshed = in.readLong();
+		int blockSize = in.readInt();
+		int blockCount = in.readInt();
+		List<Block> blocks = new ArrayList<>(blockCount);
+
+		for (int i = 0; i < blockCount; i++) {
+			String firstKey = in.readUTF();
+			int blockEntryCount = in.readInt();
+			byte[] data = new byte[in.readInt()];
+			in.readFully(data);
+			blocks.add(new Block(firstKey, blockEntryCount, data));
+		}
+
+		return new ListingIndex(containerName, pathName, lastKey, entryCount, lastRefreshed, blockSize, blocks);
+	}
+
+	private static String readOptionalString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static void writeOptionalString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	public String getContainerName() {
+		return containerName;
+	}
+
+	/**
+	 * @return The indexed directory, or null if the whole container is indexed
+	 */
+	public String getPathName() {
+		return pathName;
+	}
+
+	/**
+	 * @return The last key in the index, which the next {@link #refresh(BlobStore) refresh} lists after
+	 */
+	public String getLastKey() {
+		return lastKey;
+	}
+
+	public long getEntryCount() {
+		return entryCount;
+	}
+
+	/**
+	 * @return The time in milliseconds when the index was built or last refreshed
+	 */
+	public long getLastRefreshed() {
+		return lastRefreshed;
+	}
+
+	/**
+	 * Tests if a path is within the indexed keys
+	 * @param containerName	The container
+	 * @param key			The key within the container, or null for the container itself
+	 */
+	public boolean covers(String containerName, String key) {
+		if (!this.containerName.equals(containerName)) {
+			return false;
+		}
+
+		return pathName == null || (key != null && (key.equals(pathName) || key.startsWith(listingPrefix)));
+	}
+
+	/**
+	 * Looks up a single key
+	 * @return The metadata for the key, or null if it is not in the index
+	 */
+	public StorageMetadata get(String key) {
+		Cursor cursor = new Cursor();
+		cursor.seek(key, false);
+		IndexEntry entry = cursor.current();
+		return entry != null && entry.key.equals(key) ? entry.toStorageMetadata() : null;
+	}
+
+	/**
+	 * Tests if there are any keys beneath a directory, so that the directory exists implicitly
+	 * @param directoryKey	The directory, or null for the container
+	 */
+	public boolean hasKeysBeneath(String directoryKey) {
+		String prefix = directoryKey == null ? "" : StringUtils.appendIfMissing(directoryKey, CloudPath.DEFAULT_PATH_SEPARATOR);
+		Cursor cursor = new Cursor();
+		cursor.seek(prefix, false);
+		IndexEntry entry = cursor.current();
+		return entry != null && entry.key.startsWith(prefix) && entry.key.length() > prefix.length();
+	}
+
+	/**
+	 * Answers a listing request from the index in the same way as {@link BlobStore#list(String, ListContainerOptions)}.
+	 * Directory, prefix, recursive, delimiter, marker and maximum results options are supported. A non-recursive
+	 * listing returns each subdirectory as a {@link StorageType#RELATIVE_PATH} ending with a separator.
+	 */
+	public PageSet<? extends StorageMetadata> list(ListContainerOptions options) {
+		String prefix = StringUtils.isNotEmpty(options.getDir()) ?
+				StringUtils.appendIfMissing(options.getDir(), CloudPath.DEFAULT_PATH_SEPARATOR) :
+				StringUtils.defaultString(options.getPrefix());
+		boolean groupSubdirectories = !options.isRecursive() || options.getDelimiter() != null;
+		int maxResults = options.getMaxResults() == null ? DEFAULT_PAGE_SIZE : options.getMaxResults();
+		String marker = options.getMarker();
+		Cursor cursor = new Cursor();
+
+		if (marker == null || marker.compareTo(prefix) < 0) {
+			cursor.seek(prefix, false);
+		} else if (groupSubdirectories && marker.endsWith(CloudPath.DEFAULT_PATH_SEPARATOR)) {
+			// The marker is a subdirectory, skip everything beneath it
+			cursor.seek(marker + Character.MAX_VALUE, true);
+		} else {
+			cursor.seek(marker, true);
+		}
+
+		List<StorageMetadata> page = new ArrayList<>();
+		IndexEntry entry;
+
+		while (page.size() < maxResults && (entry = cursor.current()) != null && entry.key.startsWith(prefix)) {
+			int separatorIndex = entry.key.indexOf(CloudPath.DEFAULT_PATH_SEPARATOR_CHAR, prefix.length());
+
+			if (entry.key.length() == prefix.length()) {
+				// The directory marker of the listed directory itself
+				cursor.next();
+			} else if (groupSubdirectories && separatorIndex >= 0) {
+				String subdirectory = entry.key.substring(0, separatorIndex + 1);
+				page.add(new StorageMetadataImpl(StorageType.RELATIVE_PATH, null, subdirectory, null, null, null,
+						null, null, Collections.<String,String>emptyMap(), null));
+				cursor.seek(subdirectory + Character.MAX_VALUE, true);
+			} else {
+				page.add(entry.toStorageMetadata());
+				cursor.next();
+			}
+		}
+
+		String nextMarker = page.size() == maxResults ? page.get(page.size() - 1).getName() : null;
+		return new PageSetImpl<StorageMetadata>(page, nextMarker);
+	}
+
+	List<IndexEntry> readBlock(int blockNumber) {
+		List<IndexEntry> entries = decompressedBlocks.get(blockNumber);
+
+		if (entries == null) {
+			entries = blocks.get(blockNumber).decompress();
+			decompressedBlocks.put(blockNumber, entries);
+		}
+
+		return entries;
+	}
+
+	/**
+	 * A position within the index entries
+	 */
+	private final class Cursor {
+		private int blockNumber;
+		private int offset;
+		private List<IndexEntry> entries;
+
+		/**
+		 * Moves to the first key at or after the key, or strictly after it if <em>after</em> is true
+		 */
+		void seek(String key, boolean after) {
+			// Find the last block whose first key is before the key
+			int low = 0;
+			int high = blocks.size() - 1;
+			blockNumber = 0;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (blocks.get(mid).firstKey.compareTo(key) <= 0) {
+					blockNumber = mid;
+					low = mid + 1;
+				} else {
+					high = mid - 1;
+				}
+			}
+
+			if (blocks.isEmpty()) {
+				entries = Collections.emptyList();
+				offset = 0;
+				return;
+			}
+
+			entries = readBlock(blockNumber);
+			low = 0;
+			high = entries.size();
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				int comparison = entries.get(mid).key.compareTo(key);
+				if (comparison < 0 || (after && comparison == 0)) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			offset = low;
+			moveToNextBlockIfRequired();
+		}
+
+		IndexEntry current() {
+			return offset < entries.size() ? entries.get(offset) : null;
+		}
+
+		void next() {
+			offset++;
+			moveToNextBlockIfRequired();
+		}
+
+		private void moveToNextBlockIfRequired() {
+			if (offset >= entries.size() && blockNumber < blocks.size() - 1) {
+				blockNumber++;
+				entries = readBlock(blockNumber);
+				offset = 0;
+			}
+		}
+	}
+
+	/**
+	 * A single indexed key
+	 */
+	static final class IndexEntry {
+		private final String key;
+		private final StorageType type;
+		private final long size;
+		private final long lastModified;
+		private final String eTag;
+
+		IndexEntry(String key, StorageType type, long size, long lastModified, String eTag) {
+			this.key = key;
+			this.type = type == null ? StorageType.BLOB : type;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.eTag = eTag;
+		}
+
+		StorageMetadata toStorageMetadata() {
+			return new StorageMetadataImpl(type, null, key, null, null, eTag, null,
+					lastModified == 0L ? null : new Date(lastModified), Collections.<String,String>emptyMap(), size);
+		}
+	}
+
+	/**
+	 * A compressed block of consecutive entries
+	 */
+	private static final class Block {
+		private final String firstKey;
+		private final int entryCount;
+		private final byte[] data;
+
+		Block(String firstKey, int entryCount, byte[] data) {
+			this.firstKey = firstKey;
+			this.entryCount = entryCount;
+			this.data = data;
+		}
+
+		List<IndexEntry> decompress() {
+			List<IndexEntry> entries = new ArrayList<>(entryCount);
+
+			try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(data)))) {
+				String previousKey = "";
+
+				for (int i = 0; i < entryCount; i++) {
+					int sharedLength = in.readUnsignedShort();
+					String key = previousKey.substring(0, sharedLength) + in.readUTF();
+					StorageType type = STORAGE_TYPES[in.readUnsignedByte()];
+					long size = in.readLong();
+					long lastModified = in.readLong();
+					String eTag = readOptionalString(in);
+					entries.add(new IndexEntry(key, type, size, lastModified, eTag));
+					previousKey = key;
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("Cannot decompress listing index block starting at '" + firstKey + "'", e);
+			}
+
+			return entries;
+		}
+	}
+
+	/**
+	 * Collects entries into compressed blocks
+	 */
+	private static final class BlockWriter {
+		private final int blockSize;
+		private final List<Block> blocks;
+		private final List<IndexEntry> pending = new ArrayList<>();
+		private long entryCount;
+
+		BlockWriter(int blockSize, List<Block> existingBlocks) {
+			this.blockSize = blockSize;
+			this.blocks = new ArrayList<>(existingBlocks);
+			existingBlocks.forEach(b -> entryCount += b.entryCount);
+		}
+
+		void add(IndexEntry entry) {
+			pending.add(entry);
+			entryCount++;
+
+			if (pending.size() >= blockSize) {
+				flush();
+			}
+		}
+
+		private void flush() {
+			if (pending.isEmpty()) {
+				return;
+			}
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+				String previousKey = "";
+
+				for (IndexEntry entry : pending) {
+					int sharedLength = Math.min(StringUtils.indexOfDifference(previousKey, entry.key) < 0 ?
+							entry.key.length() : StringUtils.indexOfDifference(previousKey, entry.key), 0xffff);
+					out.writeShort(sharedLength);
+					out.writeUTF(entry.key.substring(sharedLength));
+					out.writeByte(entry.type.ordinal());
+					out.writeLong(entry.size);
+					out.writeLong(entry.lastModified);
+					writeOptionalString(out, entry.eTag);
+					previousKey = entry.key;
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("Cannot compress listing index block", e);
+			}
+
+			blocks.add(new Block(pending.get(0).key, pending.size(), bytes.toByteArray()));
+			pending.clear();
+		}
+
+		List<Block> finish() {
+			flush();
+			return blocks;
+		}
+	}
+
+}
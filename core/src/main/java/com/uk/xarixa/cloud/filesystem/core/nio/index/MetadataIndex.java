@@ -0,0 +1,351 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.index;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.domain.internal.MutableBlobMetadataImpl;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.uk.xarixa.cloud.filesystem.core.file.attribute.UserDefinedFileAttributes;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystem;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+
+/**
+ * <p>
+ * A local index of the {@link UserDefinedFileAttributes user metadata} and content type of the objects in a
+ * container, which answers queries such as "all of the objects with tag=x under prefix p" without reading the
+ * metadata of every object under the prefix from the cloud. The index holds the metadata of each object it
+ * knows about, sorted by key, and for each user metadata value and content type the keys which have it.
+ * </p>
+ * <p>
+ * Objects written through the {@link CloudFileSystem} are {@link #put(String, StorageMetadata) put} into the
+ * index as they are written, and any other change to an object through the file system
+ * {@link #remove(String) removes} it. Listings through the file system refresh the objects which are already
+ * indexed and add those whose user metadata is in the listing, on clouds which return it. An object which a listing
+ * shows has changed, but whose metadata is not in the listing, is removed. Objects written by other clients are
+ * <em>not</em> seen until they are listed, so the index only holds the objects whose metadata it knows and a
+ * query never returns an object whose metadata is out of date. {@link #populate(BlobStore, String) Populating}
+ * the index reads the metadata of every object under a prefix once, so that they can then be queried.
+ * </p>
+ * <p>
+ * The index is safe to use from many threads.
+ * </p>
+ * @see CloudFileSystem#enableMetadataIndex(String)
+ */
+public class MetadataIndex {
+	private static final Logger LOG = LoggerFactory.getLogger(MetadataIndex.class);
+	private static final char POSTING_SEPARATOR = '\u0000';
+	private final String containerName;
+	private final ConcurrentNavigableMap<String,StorageMetadata> entries = new ConcurrentSkipListMap<>();
+	private final ConcurrentMap<String,NavigableSet<String>> userMetadataPostings = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String,NavigableSet<String>> contentTypePostings = new ConcurrentHashMap<>();
+
+	public MetadataIndex(String containerName) {
+		this.containerName = containerName;
+	}
+
+	public String getContainerName() {
+		return containerName;
+	}
+
+	/**
+	 * Lists the objects under a prefix and reads the metadata of each one which the listing does not describe,
+	 * so that every object under the prefix can be queried. This is a request for each object on clouds which
+	 * do not return the metadata in a listing.
+	 * @param blobStore
+	 * @param prefix	The key prefix, or null for the whole container
+	 * @return The number of objects indexed
+	 */
+	public long populate(BlobStore blobStore, String prefix) {
+		ListContainerOptions options = new ListContainerOptions().recursive();
+		if (StringUtils.isNotEmpty(prefix)) {
+			options.prefix(prefix);
+		}
+
+		String marker = null;
+		long indexed = 0;
+
+		do {
+			ListContainerOptions pageOptions = options.clone();
+			if (marker != null) {
+				pageOptions.afterMarker(marker);
+			}
+
+			PageSet<? extends StorageMetadata> pageSet = blobStore.list(containerName, pageOptions);
+			for (StorageMetadata meta : pageSet) {
+				if (!isIndexable(meta)) {
+					continue;
+				}
+
+				putListed(meta);
+				if (!entries.containsKey(meta.getName())) {
+					BlobMetadata blobMetadata = blobStore.blobMetadata(containerName, meta.getName());
+					if (blobMetadata == null) {
+						continue;
+					}
+
+					put(meta.getName(), blobMetadata);
+				}
+
+				indexed++;
+			}
+
+			marker = pageSet.getNextMarker();
+		} while (marker != null);
+
+		LOG.debug("Populated the metadata index for container '{}' with {} objects under '{}'",
+				containerName, indexed, prefix);
+		return indexed;
+	}
+
+	/**
+	 * Puts the metadata of an object which has been written through the file system, replacing any metadata
+	 * which was indexed for the key
+	 * @param key		The key of the object
+	 * @param metadata	The metadata which was written
+	 */
+	public synchronized void put(String key, StorageMetadata metadata) {
+		if (StringUtils.isEmpty(key) || key.endsWith(CloudPath.DEFAULT_PATH_SEPARATOR)) {
+			return;
+		}
+
+		removeEntry(key);
+		entries.put(key, metadata);
+		addPostings(key, metadata);
+	}
+
+	/**
+	 * Refreshes the index from the entries of a listing
+	 * @see #putListed(StorageMetadata)
+	 */
+	public void putListed(Iterable<? extends StorageMetadata> listing) {
+		for (StorageMetadata meta : listing) {
+			if (isIndexable(meta)) {
+				putListed(meta);
+			}
+		}
+	}
+
+	/**
+	 * Refreshes the index from an entry of a listing. If the object is already indexed and the entry has the
+	 * same ETag then the user metadata and content type which are indexed are kept, unless the listing has its
+	 * own user metadata. Otherwise the entry is indexed if the listing has the user metadata of the object,
+	 * or the object is removed from the index. Most clouds leave the user metadata out of a listing, and an
+	 * object without any user metadata cannot be told apart from these, so it is not indexed from a listing.
+	 */
+	public synchronized void putListed(StorageMetadata meta) {
+		String key = meta.getName();
+		StorageMetadata existing = entries.get(key);
+		boolean described = !meta.getUserMetadata().isEmpty();
+
+		if (existing != null && !described && isSameVersion(existing, meta)) {
+			StorageMetadata refreshed = copyOf(meta, existing.getUserMetadata(), getContentType(existing));
+			entries.put(key, refreshed);
+		} else if (described) {
+			put(key, meta);
+		} else if (existing != null) {
+			removeEntry(key);
+		}
+	}
+
+	/**
+	 * @param key	The key of the object
+	 * @return The indexed metadata, or null if the object is not indexed
+	 */
+	public StorageMetadata get(String key) {
+		return key == null ? null : entries.get(key);
+	}
+
+	/**
+	 * Removes an object and any objects beneath it from the index
+	 * @param pathName	The path within the container, or null to remove every object
+	 */
+	public synchronized void remove(String pathName) {
+		if (StringUtils.isEmpty(pathName)) {
+			clear();
+			return;
+		}
+
+		String key = StringUtils.removeEnd(pathName, CloudPath.DEFAULT_PATH_SEPARATOR);
+		removeEntry(key);
+		for (String childKey : prefixRange(key + CloudPath.DEFAULT_PATH_SEPARATOR).keySet()) {
+			removeEntry(childKey);
+		}
+	}
+
+	/**
+	 * Finds the indexed objects under a prefix which match a query. The most selective condition of the query
+	 * chooses the keys to check, so that a query for a rare value does not visit every object under the prefix.
+	 * @param prefix	The key prefix, or null for the whole container
+	 * @param query		The query
+	 * @return The metadata of each matching object sorted by key
+	 */
+	public SortedMap<String,StorageMetadata> query(String prefix, MetadataQuery query) {
+		String keyPrefix = StringUtils.defaultString(prefix);
+		Iterable<String> candidates = prefixRange(keyPrefix).keySet();
+		int candidatesSize = Integer.MAX_VALUE;
+
+		for (Entry<String,String> condition : query.getUserMetadata().entrySet()) {
+			NavigableSet<String> posting = userMetadataPostings.get(toPosting(condition.getKey(), condition.getValue()));
+			if (posting == null) {
+				return Collections.emptySortedMap();
+			} else if (posting.size() < candidatesSize) {
+				candidates = prefixRange(posting, keyPrefix);
+				candidatesSize = posting.size();
+			}
+		}
+
+		if (query.getContentType() != null) {
+			NavigableSet<String> posting = contentTypePostings.get(query.getContentType());
+			if (posting == null) {
+				return Collections.emptySortedMap();
+			} else if (posting.size() < candidatesSize) {
+				candidates = prefixRange(posting, keyPrefix);
+			}
+		}
+
+		SortedMap<String,StorageMetadata> results = new TreeMap<>();
+		for (String key : candidates) {
+			StorageMetadata meta = entries.get(key);
+			if (meta != null && matches(meta, query)) {
+				results.put(key, meta);
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * @return The number of objects in the index
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		userMetadataPostings.clear();
+		contentTypePostings.clear();
+	}
+
+	private static boolean isIndexable(StorageMetadata meta) {
+		return StorageType.BLOB.equals(meta.getType()) && meta.getName() != null &&
+				!meta.getName().endsWith(CloudPath.DEFAULT_PATH_SEPARATOR);
+	}
+
+	/**
+	 * Metadata put when an object was written may not have an ETag, in which case the object is taken to be
+	 * unchanged since it was written
+	 */
+	private static boolean isSameVersion(StorageMetadata existing, StorageMetadata listed) {
+		return existing.getETag() == null || Objects.equals(existing.getETag(), listed.getETag());
+	}
+
+	private static boolean matches(StorageMetadata meta, MetadataQuery query) {
+		if (query.getContentType() != null &&
+				!query.getContentType().equals(MetadataQuery.normaliseContentType(getContentType(meta)))) {
+			return false;
+		}
+
+		Map<String,String> userMetadata = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		userMetadata.putAll(meta.getUserMetadata());
+		return query.getUserMetadata().entrySet().stream()
+				.allMatch(c -> c.getValue().equals(userMetadata.get(c.getKey())));
+	}
+
+	private static String getContentType(StorageMetadata meta) {
+		return meta instanceof BlobMetadata && ((BlobMetadata)meta).getContentMetadata() != null ?
+				((BlobMetadata)meta).getContentMetadata().getContentType() : null;
+	}
+
+	private static StorageMetadata copyOf(StorageMetadata meta, Map<String,String> userMetadata, String contentType) {
+		MutableBlobMetadataImpl copy = meta instanceof BlobMetadata ?
+				new MutableBlobMetadataImpl((BlobMetadata)meta) : new MutableBlobMetadataImpl();
+
+		if (!(meta instanceof BlobMetadata)) {
+			copy.setType(meta.getType());
+			copy.setId(meta.getProviderId());
+			copy.setName(meta.getName());
+			copy.setLocation(meta.getLocation());
+			copy.setUri(meta.getUri());
+			copy.setETag(meta.getETag());
+			copy.setCreationDate(meta.getCreationDate());
+			copy.setLastModified(meta.getLastModified());
+			copy.setSize(meta.getSize());
+			copy.setTier(meta.getTier());
+		}
+
+		copy.setUserMetadata(userMetadata);
+		copy.getContentMetadata().setContentType(contentType);
+		return copy;
+	}
+
+	private static String toPosting(String name, String value) {
+		return MetadataQuery.normaliseName(name) + POSTING_SEPARATOR + value;
+	}
+
+	private ConcurrentNavigableMap<String,StorageMetadata> prefixRange(String prefix) {
+		return prefix.isEmpty() ? entries : entries.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+	}
+
+	private static NavigableSet<String> prefixRange(NavigableSet<String> keys, String prefix) {
+		return prefix.isEmpty() ? keys : keys.subSet(prefix, true, prefix + Character.MAX_VALUE, false);
+	}
+
+	private void addPostings(String key, StorageMetadata meta) {
+		for (Entry<String,String> userMetadata : meta.getUserMetadata().entrySet()) {
+			userMetadataPostings.computeIfAbsent(toPosting(userMetadata.getKey(), userMetadata.getValue()),
+					p -> new ConcurrentSkipListSet<>()).add(key);
+		}
+
+		String contentType = MetadataQuery.normaliseContentType(getContentType(meta));
+		if (contentType != null) {
+			contentTypePostings.computeIfAbsent(contentType, p -> new ConcurrentSkipListSet<>()).add(key);
+		}
+	}
+
+	private void removeEntry(String key) {
+		StorageMetadata meta = entries.remove(key);
+		if (meta == null) {
+			return;
+		}
+
+		for (Entry<String,String> userMetadata : meta.getUserMetadata().entrySet()) {
+			removePosting(userMetadataPostings, toPosting(userMetadata.getKey(), userMetadata.getValue()), key);
+		}
+
+		String contentType = MetadataQuery.normaliseContentType(getContentType(meta));
+		if (contentType != null) {
+			removePosting(contentTypePostings, contentType, key);
+		}
+	}
+
+	private static void removePosting(ConcurrentMap<String,NavigableSet<String>> postings, String posting, String key) {
+		NavigableSet<String> keys = postings.get(posting);
+		if (keys != null) {
+			keys.remove(key);
+			if (keys.isEmpty()) {
+				postings.remove(posting, keys);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.index;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.uk.xarixa.cloud.filesystem.core.file.attribute.UserDefinedFileAttributes;
+
+/**
+ * A query of a {@link MetadataIndex} for the objects which have all of the given
+ * {@link UserDefinedFileAttributes user metadata} values and content type. User metadata names and the
+ * content type are matched without regard to case, as some clouds change the case of the names which are
+ * stored. User metadata values are matched exactly.
+ */
+public class MetadataQuery {
+	private final Map<String,String> userMetadata = new LinkedHashMap<>();
+	private String contentType;
+
+	/**
+	 * Matches the objects with this user metadata value
+	 * @return this
+	 */
+	public MetadataQuery userMetadata(String name, String value) {
+		if (StringUtils.isBlank(name) || value == null) {
+			throw new IllegalArgumentException("A user metadata name and value are required");
+		}
+
+		userMetadata.put(normaliseName(name), value);
+		return this;
+	}
+
+	/**
+	 * Matches the objects with this content type, such as <em>text/plain</em>
+	 * @return this
+	 */
+	public MetadataQuery contentType(String contentType) {
+		if (StringUtils.isBlank(contentType)) {
+			throw new IllegalArgumentException("A content type is required");
+		}
+
+		this.contentType = normaliseContentType(contentType);
+		return this;
+	}
+
+	/**
+	 * @return The user metadata values to match, with the names in lower case
+	 */
+	public Map<String,String> getUserMetadata() {
+		return Collections.unmodifiableMap(userMetadata);
+	}
+
+	/**
+	 * @return The content type to match in lower case, or null to match any content type
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * @return true if this query matches every object under the prefix
+	 */
+	public boolean isEmpty() {
+		return userMetadata.isEmpty() && contentType == null;
+	}
+
+	static String normaliseName(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+
+	static String normaliseContentType(String contentType) {
+		return contentType == null ? null : contentType.trim().toLowerCase(Locale.ROOT);
+	}
+
+	@Override
+	public String toString() {
+		return "MetadataQuery [userMetadata=" + userMetadata + ", contentType=" + contentType + "]";
+	}
+
+}
@@ -7,7 +7,8 @@ public enum DeleteOption {
 	/**
 	 * Performs a recursive delete, which is more optimal than using
 	 * {@link Files#walkFileTree(java.nio.file.Path, java.nio.file.FileVisitor)} as it only uses a single
-	 * directory listing remote method invocation.
+	 * directory listing remote method invocation. The delete access of each path beneath the directory is only
+	 * checked when there is a {@link com.uk.xarixa.cloud.filesystem.core.security.CloudHostSecurityManager}.
 	 */
 	RECURSIVE,
 
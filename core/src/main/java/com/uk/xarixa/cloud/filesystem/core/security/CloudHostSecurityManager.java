@@ -41,4 +41,12 @@ public interface CloudHostSecurityManager {
 	boolean checkAccessAllowed(CloudAclEntrySet assetPermissions, UserPrincipal userOrGroup,
 			Set<AclEntryPermission> checkPermissions);
 
+	/**
+	 * Whether the existence of a path is itself protected by this security manager. If it is not then
+	 * an existence check can be answered by the cheapest possible request to the cloud without reading or
+	 * evaluating the ACL's of the path.
+	 * @return true if existence checks must go through an access check, false otherwise
+	 */
+	boolean isExistenceProtected();
+
 }
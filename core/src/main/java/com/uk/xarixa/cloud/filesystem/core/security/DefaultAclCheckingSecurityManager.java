@@ -113,6 +113,14 @@ public class DefaultAclCheckingSecurityManager implements CloudHostSecurityManag
 		return doesUserHaveAccess(assetPermissions, userOrGroup, userGroups, checkPermissions);
 	}
 
+	/**
+	 * @return Always true, existence checks go through the ACL checks in this implementation
+	 */
+	@Override
+	public boolean isExistenceProtected() {
+		return true;
+	}
+
 	/**
 	 * Calculates if the user/group has access to this resource.
 	 * @param assetPermissions 		Permissions granted on the asset
@@ -34,4 +34,12 @@ public class DeferringCloudHostSecurityManager implements CloudHostSecurityManag
 		return true;
 	}
 
+	/**
+	 * @return Always false in this implementation
+	 */
+	@Override
+	public boolean isExistenceProtected() {
+		return false;
+	}
+
 }
@@ -0,0 +1,240 @@
+package com.uk.xarixa.cloud.filesystem.core.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <p>
+ * The shared pool of daemon threads which the bulk operations of the file system make their cloud requests on,
+ * such as bulk attribute reads and writes, bulk deletes, recursive copies and listing prefetches. The pool has
+ * at most {@link #MAX_THREADS} threads and queues any further requests. Each operation also bounds the number of
+ * its own requests in flight.
+ * </p>
+ * <p>
+ * {@link #apply(Collection, ItemAction, int, ExecutorService, String)} applies an action to many items with a
+ * bounded number of requests in flight. The calling thread is one of the workers, so an operation makes
+ * progress even when every thread of the pool is busy. {@link BoundedRequests} makes requests as they are
+ * produced instead, such as whilst a listing is read.
+ * </p>
+ */
+public final class ParallelRequests {
+	private static final Logger LOG = LoggerFactory.getLogger(ParallelRequests.class);
+	public static final int MAX_THREADS = 64;
+	public static final ExecutorService EXECUTOR;
+
+	static {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(),
+				new ThreadFactoryBuilder().setDaemon(true).setNameFormat("cloud-requests-%d").build());
+		executor.allowCoreThreadTimeOut(true);
+		EXECUTOR = executor;
+	}
+
+	/**
+	 * Applies an action to a single item
+	 */
+	@FunctionalInterface
+	public interface ItemAction<T> {
+		void apply(T item) throws IOException;
+	}
+
+	private ParallelRequests() {
+	}
+
+	/**
+	 * Applies the action to each item with up to <em>maxConcurrentRequests</em> items at once, on the executor
+	 * and the calling thread. An item whose action fails does not stop the other items.
+	 * @param items					The items
+	 * @param action				The action to apply to each item
+	 * @param maxConcurrentRequests	The maximum number of items to apply the action to at once
+	 * @param executor				The executor for the workers other than the calling thread
+	 * @param description			What the action does, such as <em>read the attributes of</em>, for messages
+	 * @return The exception for each item whose action failed
+	 * @throws InterruptedIOException If the calling thread is interrupted whilst waiting for the workers
+	 * @throws IOException If the workers could not be run
+	 */
+	public static <T> Map<T,IOException> apply(Collection<T> items, ItemAction<? super T> action,
+			int maxConcurrentRequests, ExecutorService executor, String description) throws IOException {
+		if (maxConcurrentRequests < 1) {
+			throw new IllegalArgumentException("The maximum number of concurrent requests must be positive: " +
+					maxConcurrentRequests);
+		}
+
+		if (items.isEmpty()) {
+			return Collections.emptyMap();
+		}
+
+		Queue<T> remainingItems = new ConcurrentLinkedQueue<>(items);
+		Map<T,IOException> failures = new ConcurrentHashMap<>();
+		int workers = Math.min(maxConcurrentRequests, items.size());
+		LOG.debug("Applying '{}' to {} items with {} concurrent requests", description, items.size(), workers);
+
+		Runnable worker = () -> {
+			T item;
+			while (!Thread.currentThread().isInterrupted() && (item = remainingItems.poll()) != null) {
+				try {
+					action.apply(item);
+				} catch (IOException e) {
+					failures.put(item, e);
+				} catch (RuntimeException e) {
+					failures.put(item, new IOException("Could not " + description + " '" + item + "'", e));
+				}
+			}
+		};
+
+		List<Future<?>> futures = new ArrayList<>(workers - 1);
+		try {
+			for (int i = 1; i < workers; i++) {
+				futures.add(executor.submit(worker));
+			}
+
+			worker.run();
+
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			futures.forEach(f -> f.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted whilst waiting to " + description + " " +
+					items.size() + " items");
+		} catch (ExecutionException | RejectedExecutionException e) {
+			futures.forEach(f -> f.cancel(true));
+			throw new IOException("Could not " + description + " " + items.size() + " items",
+					e instanceof ExecutionException ? e.getCause() : e);
+		}
+
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedIOException("Interrupted whilst waiting to " + description + " " +
+					items.size() + " items");
+		}
+
+		return failures;
+	}
+
+	/**
+	 * Makes requests as they are produced with at most a maximum number in flight at once. Submitting a request
+	 * waits whilst the maximum are in flight. A request handles its own failures, as nothing is returned from it.
+	 */
+	public static final class BoundedRequests {
+		private final int maxConcurrentRequests;
+		private final ExecutorService executor;
+		private final String description;
+		private final Semaphore permits;
+		private final Set<Future<?>> inFlight = ConcurrentHashMap.newKeySet();
+
+		/**
+		 * @param maxConcurrentRequests	The maximum number of requests in flight at once
+		 * @param executor				The executor to make the requests on
+		 * @param description			What the requests do, such as <em>delete keys from container 'c'</em>,
+		 * 								for messages
+		 */
+		public BoundedRequests(int maxConcurrentRequests, ExecutorService executor, String description) {
+			if (maxConcurrentRequests < 1) {
+				throw new IllegalArgumentException("The maximum number of concurrent requests must be positive: " +
+						maxConcurrentRequests);
+			}
+
+			this.maxConcurrentRequests = maxConcurrentRequests;
+			this.executor = executor;
+			this.description = description;
+			this.permits = new Semaphore(maxConcurrentRequests);
+		}
+
+		/**
+		 * Makes the request once fewer than the maximum number of requests are in flight
+		 * @throws InterruptedIOException If the calling thread is interrupted whilst waiting, the requests in
+		 * 			flight are cancelled
+		 * @throws IOException If the request could not be run
+		 */
+		public void submit(Runnable request) throws IOException {
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				cancel();
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted whilst waiting to " + description);
+			}
+
+			FutureTask<Void> task = new FutureTask<Void>(request, null) {
+				@Override
+				protected void done() {
+					inFlight.remove(this);
+					permits.release();
+				}
+			};
+
+			inFlight.add(task);
+			try {
+				executor.execute(task);
+			} catch (RejectedExecutionException e) {
+				inFlight.remove(task);
+				permits.release();
+				throw new IOException("Could not " + description, e);
+			}
+		}
+
+		/**
+		 * Waits for every request in flight to complete
+		 * @throws InterruptedIOException If the calling thread is interrupted whilst waiting, the requests in
+		 * 			flight are cancelled
+		 */
+		public void await() throws InterruptedIOException {
+			try {
+				permits.acquire(maxConcurrentRequests);
+				permits.release(maxConcurrentRequests);
+			} catch (InterruptedException e) {
+				cancel();
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted whilst waiting to " + description);
+			}
+		}
+
+		/**
+		 * Waits for every request in flight to complete, even if the calling thread is interrupted
+		 */
+		public void awaitUninterruptibly() {
+			permits.acquireUninterruptibly(maxConcurrentRequests);
+			permits.release(maxConcurrentRequests);
+		}
+
+		/**
+		 * Cancels the requests in flight, interrupting those which have started
+		 */
+		public void cancel() {
+			inFlight.forEach(f -> f.cancel(true));
+		}
+
+		/**
+		 * @return The number of requests in flight
+		 */
+		public int getInFlight() {
+			return inFlight.size();
+		}
+
+	}
+
+}
@@ -0,0 +1,94 @@
+package com.uk.xarixa.cloud.filesystem.core;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystem;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+
+/**
+ * Runs each test against a new in-memory <em>transient</em> {@link BlobStore}, so unlike
+ * {@link AbstractJCloudsIntegrationTest} no cloud is needed.
+ */
+public abstract class AbstractTransientBlobStoreTest {
+	public final static String TEST_CONTAINER = "test-container";
+	protected BlobStoreContext blobStoreContext;
+	protected BlobStore blobStore;
+	protected CloudFileSystem fileSystem;
+
+	@Rule
+	public JUnitRuleMockery context = new JUnitRuleMockery() {{
+		setImposteriser(ClassImposteriser.INSTANCE);
+	}};
+
+	/**
+	 * <ul>
+	 * <li>Creates a transient {@link #blobStoreContext} with the {@link #TEST_CONTAINER container}.
+	 * <li>Creates a mock {@link #fileSystem}, which has no expectations.
+	 * </ul>
+	 */
+	@Before
+	public final void setUp() {
+		preSetUp();
+		blobStoreContext = ContextBuilder.newBuilder("transient").buildView(BlobStoreContext.class);
+		blobStore = blobStoreContext.getBlobStore();
+		blobStore.createContainerInLocation(null, TEST_CONTAINER);
+		fileSystem = context.mock(CloudFileSystem.class);
+		postSetUp();
+	}
+
+	protected void postSetUp() {
+	}
+
+	protected void preSetUp() {
+	}
+
+	@After
+	public final void tearDown() {
+		preTearDown();
+		blobStoreContext.close();
+		postTearDown();
+	}
+
+	protected void postTearDown() {
+	}
+
+	protected void preTearDown() {
+	}
+
+	/**
+	 * Allows the {@link #fileSystem} to list directories straight from the {@link #blobStore}, without a
+	 * listing cache, a listing index or a metadata index
+	 */
+	protected final void allowUncachedListings() {
+		context.checking(new Expectations() {{
+			allowing(fileSystem).getBlobStoreContext();
+			will(returnValue(blobStoreContext));
+
+			allowing(fileSystem).getListingCache();
+			will(returnValue(null));
+
+			allowing(fileSystem).getMetadataIndex(with(any(String.class)));
+			will(returnValue(null));
+
+			allowing(fileSystem).getListingIndex(with(any(String.class)), with(Expectations.<String>anything()));
+			will(returnValue(null));
+		}});
+	}
+
+	/**
+	 * @param pathName	A path in the {@link #TEST_CONTAINER}, or null for the container itself
+	 * @return The absolute path on the {@link #fileSystem}
+	 */
+	protected final CloudPath path(String pathName) {
+		return new CloudPath(fileSystem, true, "/" + TEST_CONTAINER + (pathName == null ? "" : "/" + pathName));
+	}
+
+}
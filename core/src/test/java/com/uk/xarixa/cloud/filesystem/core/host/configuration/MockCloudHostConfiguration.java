@@ -8,6 +8,9 @@ import com.uk.xarixa.cloud.filesystem.core.host.CloudHostConfigurationType;
 import com.uk.xarixa.cloud.filesystem.core.host.configuration.AbstractCloudHostConfiguration;
 import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystemImplementation;
 import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.ListingCache;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.MetadataCache;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.NegativeCache;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.CloudWatchService;
 import com.uk.xarixa.cloud.filesystem.core.security.CloudHostSecurityManager;
 import com.uk.xarixa.cloud.filesystem.core.security.UserGroupLookupService;
@@ -56,6 +59,26 @@ public class MockCloudHostConfiguration extends AbstractCloudHostConfiguration {
 		return null;
 	}
 
+	@Override
+	public ListingCache createListingCache() {
+		return null;
+	}
+
+	@Override
+	public long getRootDirectoriesCacheTimeToLive() {
+		return 0L;
+	}
+
+	@Override
+	public MetadataCache createMetadataCache() {
+		return null;
+	}
+
+	@Override
+	public NegativeCache createNegativeCache() {
+		return null;
+	}
+
 	@Override
 	protected BlobStoreContext createBlobStoreContextInternal() {
 		// TODO Auto-generated method stub
@@ -0,0 +1,34 @@
+package com.uk.xarixa.cloud.filesystem.core.nio;
+
+import org.jclouds.blobstore.domain.BlobAccess;
+import org.jclouds.s3.domain.AccessControlList;
+import org.jclouds.s3.domain.AccessControlList.CanonicalUserGrantee;
+import org.jclouds.s3.domain.AccessControlList.Permission;
+import org.jclouds.s3.domain.CannedAccessPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class AwsCloudFileSystemImplementationTest {
+
+	@Test
+	public void testCannedAccessControlListsArePutAsABlobAccess() {
+		Assert.assertEquals(BlobAccess.PRIVATE, AwsCloudFileSystemImplementation.toCannedBlobAccess(
+				AccessControlList.fromCannedAccessPolicy(CannedAccessPolicy.PRIVATE, "owner")));
+		Assert.assertEquals(BlobAccess.PUBLIC_READ, AwsCloudFileSystemImplementation.toCannedBlobAccess(
+				AccessControlList.fromCannedAccessPolicy(CannedAccessPolicy.PUBLIC_READ, "owner")));
+	}
+
+	@Test
+	public void testOtherAccessControlListsHaveNoBlobAccess() {
+		AccessControlList accessControlList =
+				AccessControlList.fromCannedAccessPolicy(CannedAccessPolicy.PRIVATE, "owner");
+		accessControlList.addPermission(new CanonicalUserGrantee("another-user"), Permission.READ);
+
+		Assert.assertNull(AwsCloudFileSystemImplementation.toCannedBlobAccess(accessControlList));
+		Assert.assertNull(AwsCloudFileSystemImplementation.toCannedBlobAccess(new AccessControlList()));
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.uk.xarixa.cloud.filesystem.core.nio;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.uk.xarixa.cloud.filesystem.core.AbstractTransientBlobStoreTest;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class BulkDeleteTest extends AbstractTransientBlobStoreTest {
+	private ExecutorService executor;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	@Override
+	protected void postSetUp() {
+		executor = Executors.newCachedThreadPool();
+
+		for (int i = 0; i < 100; i++) {
+			blobStore.putBlob(TEST_CONTAINER, blobStore.blobBuilder(String.format("file-%03d.txt", i)).payload("x").build());
+		}
+	}
+
+	@Override
+	protected void preTearDown() {
+		executor.shutdownNow();
+	}
+
+	private List<String> listKeys() {
+		return blobStore.list(TEST_CONTAINER, new ListContainerOptions().recursive()).stream()
+				.map(StorageMetadata::getName).collect(Collectors.toList());
+	}
+
+	private void checkKey(String key) throws IOException {
+		maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+		try {
+			Thread.sleep(1L);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			inFlight.decrementAndGet();
+		}
+
+		if (key.endsWith("7.txt")) {
+			throw new AccessDeniedException(key);
+		}
+	}
+
+	@Test
+	public void testKeysAreDeletedInBatchesWithBoundedConcurrencyAndKeysFailingTheCheckAreKept() throws IOException {
+		BulkDelete bulkDelete = new BulkDelete(blobStore, TEST_CONTAINER, this::checkKey, 7, 3, executor);
+		for (String key : listKeys()) {
+			bulkDelete.add(key);
+		}
+
+		Map<String,IOException> failures = bulkDelete.finish();
+
+		List<String> deniedKeys = Arrays.asList("file-007.txt", "file-017.txt", "file-027.txt", "file-037.txt",
+				"file-047.txt", "file-057.txt", "file-067.txt", "file-077.txt", "file-087.txt", "file-097.txt");
+		Assert.assertEquals(deniedKeys, new ArrayList<>(failures.keySet()));
+		failures.values().forEach(e -> Assert.assertTrue(e instanceof AccessDeniedException));
+		Assert.assertEquals(deniedKeys, listKeys());
+		Assert.assertEquals(90, bulkDelete.getDeletedKeys());
+		Assert.assertTrue("Too many concurrent requests: " + maxInFlight.get(), maxInFlight.get() <= 3);
+	}
+
+	@Test
+	public void testAbortingDropsTheKeysWhichHaveNotBeenSent() throws IOException {
+		BulkDelete bulkDelete = new BulkDelete(blobStore, TEST_CONTAINER, null, 7, 3, executor);
+		List<String> keys = listKeys();
+		for (String key : keys.subList(0, 10)) {
+			bulkDelete.add(key);
+		}
+
+		bulkDelete.abort();
+
+		Assert.assertEquals(7, bulkDelete.getDeletedKeys());
+		Assert.assertEquals(keys.subList(7, keys.size()), listKeys());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMoreKeysPerRequestThanTheCloudAllowsIsRejected() {
+		new BulkDelete(blobStore, TEST_CONTAINER, null, BulkDelete.MAX_KEYS_PER_REQUEST + 1, 1, executor);
+	}
+
+}
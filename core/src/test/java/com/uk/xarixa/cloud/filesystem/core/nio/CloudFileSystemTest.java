@@ -4,9 +4,19 @@ import java.io.IOException;
 import java.nio.file.ClosedFileSystemException;
 import java.nio.file.attribute.UserPrincipalLookupService;
 import java.nio.file.spi.FileSystemProvider;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 
+import org.jclouds.Context;
+import org.jclouds.apis.ApiMetadata;
+import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.domain.internal.PageSetImpl;
+import org.jclouds.blobstore.domain.internal.StorageMetadataImpl;
+import org.jclouds.providers.ProviderMetadata;
 import org.jmock.Expectations;
 import org.jmock.Sequence;
 import org.jmock.integration.junit4.JUnitRuleMockery;
@@ -167,4 +177,42 @@ public class CloudFileSystemTest {
 		}
 	}
 
+	@Test
+	public void testRootDirectoriesAreCachedUntilAContainerIsChanged() {
+		BlobStore blobStore = context.mock(BlobStore.class);
+		Context unwrappedContext = context.mock(Context.class);
+		ProviderMetadata providerMetadata = context.mock(ProviderMetadata.class);
+
+		context.checking(new Expectations() {{
+			allowing(blobStoreContext).getBlobStore();
+			will(returnValue(blobStore));
+
+			allowing(blobStoreContext).unwrap();
+			will(returnValue(unwrappedContext));
+
+			allowing(unwrappedContext).getProviderMetadata();
+			will(returnValue(providerMetadata));
+
+			allowing(providerMetadata).getApiMetadata();
+			will(returnValue(context.mock(ApiMetadata.class)));
+
+			allowing(cloudHostSettings).getRootDirectoriesCacheTimeToLive();
+			will(returnValue(60000L));
+
+			allowing(cloudHostSettings).createListingCache();
+			will(returnValue(null));
+
+			exactly(2).of(blobStore).list();
+			will(returnValue(new PageSetImpl<StorageMetadata>(Arrays.asList(
+					new StorageMetadataImpl(StorageType.CONTAINER, null, "container1", null, null, null, null, null,
+							Collections.<String,String>emptyMap(), null)), null)));
+		}});
+
+		Assert.assertEquals("/container1", impl.getRootDirectories().iterator().next().toString());
+		Assert.assertEquals("/container1", impl.getRootDirectories().iterator().next().toString());
+
+		impl.invalidateCaches(impl.getPath("container2"));
+		Assert.assertEquals("/container1", impl.getRootDirectories().iterator().next().toString());
+	}
+
 }
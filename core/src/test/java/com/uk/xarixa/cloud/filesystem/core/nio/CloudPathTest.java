@@ -1,9 +1,7 @@
 package com.uk.xarixa.cloud.filesystem.core.nio;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
@@ -196,8 +194,8 @@ public class CloudPathTest {
 			allowing(fs).provider();
 			will(returnValue(fsProvider));
 
-			atLeast(1).of(fsProvider).checkAccess(cp);
-			will(throwException(new FileNotFoundException()));
+			atLeast(1).of(fsProvider).exists(cp);
+			will(returnValue(false));
 		}});
 		
 		try {
@@ -220,11 +218,8 @@ public class CloudPathTest {
 			allowing(fs).provider();
 			will(returnValue(fsProvider));
 
-			atLeast(1).of(fsProvider).checkAccess(cp);
-
-			atMost(1).of(fsProvider).readAttributes(
-					with(cp), with(any(Class.class)), with(any(LinkOption[].class)));
-			will(returnValue(null));
+			atLeast(1).of(fsProvider).exists(cp);
+			will(returnValue(true));
 		}});
 		
 		Assert.assertEquals(cp, cp.toRealPath());
@@ -241,8 +236,8 @@ public class CloudPathTest {
 			allowing(fs).provider();
 			will(returnValue(fsProvider));
 			
-			atLeast(1).of(fsProvider).checkAccess(cp);
-			will(throwException(new FileNotFoundException()));
+			atLeast(1).of(fsProvider).exists(cp);
+			will(returnValue(false));
 		}});
 		
 		try {
@@ -263,11 +258,8 @@ public class CloudPathTest {
 			allowing(fs).provider();
 			will(returnValue(fsProvider));
 			
-			atLeast(1).of(fsProvider).checkAccess(cp);
-
-			atMost(1).of(fsProvider).readAttributes(
-					with(cp), with(any(Class.class)), with(any(LinkOption[].class)));
-			will(returnValue(null));
+			atLeast(1).of(fsProvider).exists(cp);
+			will(returnValue(true));
 		}});
 
 		Assert.assertEquals(cp, cp.toRealPath());
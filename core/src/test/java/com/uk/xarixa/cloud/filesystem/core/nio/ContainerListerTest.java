@@ -0,0 +1,106 @@
+package com.uk.xarixa.cloud.filesystem.core.nio;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.jclouds.azure.storage.domain.internal.BoundedHashSet;
+import org.jclouds.azure.storage.options.ListOptions;
+import org.jclouds.azureblob.AzureBlobClient;
+import org.jclouds.azureblob.domain.ContainerProperties;
+import org.jclouds.openstack.swift.v1.domain.Container;
+import org.jclouds.openstack.swift.v1.features.ContainerApi;
+import org.jclouds.openstack.swift.v1.options.ListContainerOptions;
+import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.google.common.collect.FluentIterable;
+import com.uk.xarixa.cloud.filesystem.core.AbstractTransientBlobStoreTest;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ContainerListerTest extends AbstractTransientBlobStoreTest {
+
+	private ContainerProperties containerProperties(String name) {
+		ContainerProperties properties = context.mock(ContainerProperties.class, name);
+		context.checking(new Expectations() {{
+			allowing(properties).getName();
+			will(returnValue(name));
+		}});
+
+		return properties;
+	}
+
+	@Test
+	public void testTheFirstPageIsListedForABlobStoreWithoutPagedContainers() {
+		blobStore.createContainerInLocation(null, "another-container");
+
+		Assert.assertEquals(new TreeSet<>(Arrays.asList("another-container", TEST_CONTAINER)),
+				new TreeSet<>(ContainerLister.listContainerNames(blobStoreContext)));
+	}
+
+	@Test
+	public void testEveryPageOfAzureContainersIsListedWithTheNextMarker() {
+		AzureBlobClient client = context.mock(AzureBlobClient.class);
+		List<ContainerProperties> firstPage = Arrays.asList(containerProperties("a"), containerProperties("b"));
+		List<ContainerProperties> lastPage = Arrays.asList(containerProperties("c"));
+		List<String> markers = new ArrayList<>();
+		context.checking(new Expectations() {{
+			allowing(client).listContainers(with(any(ListOptions[].class)));
+			will(new CustomAction("List a page of containers") {
+				@Override
+				public Object invoke(Invocation invocation) throws Throwable {
+					ListOptions[] options = (ListOptions[])invocation.getParameter(0);
+					String marker = options.length == 0 ? null : options[0].getMarker();
+					markers.add(marker);
+
+					if (marker == null) {
+						return new BoundedHashSet<>(firstPage,
+								URI.create("https://account.blob.core.windows.net"), null, null, 2, "c");
+					}
+
+					return new BoundedHashSet<>(lastPage,
+							URI.create("https://account.blob.core.windows.net"), null, marker, 2, "");
+				}
+			});
+		}});
+
+		Set<String> names = new TreeSet<>(ContainerLister.listAzureContainerNames(client));
+		Assert.assertEquals(new TreeSet<>(Arrays.asList("a", "b", "c")), names);
+		Assert.assertEquals(Arrays.asList(null, "c"), markers);
+	}
+
+	@Test
+	public void testEveryPageOfSwiftContainersIsListedFromTheLastContainerName() {
+		ContainerApi containerApi = context.mock(ContainerApi.class);
+		List<String> markers = new ArrayList<>();
+		context.checking(new Expectations() {{
+			oneOf(containerApi).list();
+			will(returnValue(FluentIterable.from(Arrays.asList(
+					Container.builder().name("a").build(), Container.builder().name("b").build()))));
+
+			exactly(2).of(containerApi).list(with(any(ListContainerOptions.class)));
+			will(new CustomAction("List the containers after the marker") {
+				@Override
+				public Object invoke(Invocation invocation) throws Throwable {
+					String marker = ((ListContainerOptions)invocation.getParameter(0)).buildQueryParameters()
+							.get("marker").iterator().next();
+					markers.add(marker);
+					return FluentIterable.from(marker.equals("b") ?
+							Arrays.asList(Container.builder().name("c").build()) : Arrays.<Container>asList());
+				}
+			});
+		}});
+
+		Assert.assertEquals(Arrays.asList("a", "b", "c"), ContainerLister.listSwiftContainerNames(containerApi));
+		Assert.assertEquals(Arrays.asList("b", "c"), markers);
+	}
+
+}
@@ -1,10 +1,18 @@
 package com.uk.xarixa.cloud.filesystem.core.nio;
 
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
 import java.nio.file.attribute.AclEntryPermission;
 import java.nio.file.attribute.AclEntryType;
 import java.nio.file.attribute.BasicFileAttributeView;
@@ -13,17 +21,31 @@ import java.nio.file.attribute.PosixFileAttributeView;
 import java.nio.file.attribute.UserPrincipal;
 import java.nio.file.spi.FileSystemProvider;
 import java.security.acl.NotOwnerException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.commons.lang3.NotImplementedException;
+import org.jclouds.ContextBuilder;
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.blobstore.domain.BlobAccess;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.options.GetOptions;
+import org.jclouds.blobstore.options.ListContainerOptions;
 import org.jmock.Expectations;
+import org.jmock.api.Invocation;
 import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.action.CustomAction;
+import org.jmock.lib.concurrent.Synchroniser;
 import org.jmock.lib.legacy.ClassImposteriser;
 import org.junit.Assert;
 import org.junit.Before;
@@ -34,7 +56,9 @@ import org.junit.runners.BlockJUnit4ClassRunner;
 import org.powermock.reflect.internal.WhiteboxImpl;
 
 import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
 import com.uk.xarixa.cloud.filesystem.core.host.configuration.CloudHostConfiguration;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystemImplementation.CloudMethod;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudAclEntry;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudAclEntryBuilder;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudAclEntrySet;
@@ -42,8 +66,11 @@ import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudAclFileAttrib
 import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudFileAttributesView;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.PublicPrivateCloudPermissionsPrincipal;
 import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.TestUserImpl;
+import com.uk.xarixa.cloud.filesystem.core.nio.options.CloudCopyOption;
+import com.uk.xarixa.cloud.filesystem.core.nio.options.DeleteOption;
 import com.uk.xarixa.cloud.filesystem.core.security.AnonymousUserPrincipal;
 import com.uk.xarixa.cloud.filesystem.core.security.CloudHostSecurityManager;
+import com.uk.xarixa.cloud.filesystem.core.security.DeferringCloudHostSecurityManager;
 import com.uk.xarixa.cloud.filesystem.core.security.UserGroupLookupService;
 
 @RunWith(BlockJUnit4ClassRunner.class)
@@ -54,6 +81,8 @@ public class DefaultCloudFileSystemImplementationTest {
 	@Rule
 	public JUnitRuleMockery context = new JUnitRuleMockery() {{
 		setImposteriser(ClassImposteriser.INSTANCE);
+		// The recursive copies call the mocks from many threads
+		setThreadingPolicy(new Synchroniser());
 	}};
 
 	private DefaultCloudFileSystemImplementation impl;
@@ -74,6 +103,15 @@ public class DefaultCloudFileSystemImplementationTest {
         	
         	allowing(fs).getCloudHostConfiguration();
         	will(returnValue(config));
+
+        	allowing(fs).getExistenceFilter(with(any(String.class)));
+        	will(returnValue(null));
+
+        	allowing(fs).getMetadataCache();
+        	will(returnValue(null));
+
+        	allowing(fs).getNegativeCache();
+        	will(returnValue(null));
         }});
 	}
 
@@ -164,8 +202,16 @@ public class DefaultCloudFileSystemImplementationTest {
 			allowing(blobStore).directoryExists(TEST_CONTAINER, TEST_PATH);
 			will(returnValue(true));
 
+			allowing(blobStore).blobMetadata(TEST_CONTAINER, TEST_PATH);
+			will(returnValue(null));
+
 			// Set the public read BLOB access
 			exactly(1).of(blobStore).setBlobAccess(TEST_CONTAINER, TEST_PATH, BlobAccess.PUBLIC_READ);
+
+			allowing(fs).getIndexedMetadata(path);
+			will(returnValue(null));
+
+			exactly(1).of(fs).invalidateCaches(path, null);
 		}});
 
 		impl.setAttribute(blobStoreContext, path, DefaultCloudFileSystemImplementation.ACL_SET_ATTRIBUTE, acls);
@@ -227,6 +273,9 @@ public class DefaultCloudFileSystemImplementationTest {
 			allowing(blobStore).directoryExists(TEST_CONTAINER, TEST_PATH);
 			will(returnValue(true));
 
+			allowing(blobStore).blobMetadata(TEST_CONTAINER, TEST_PATH);
+			will(returnValue(null));
+
 			exactly(1).of(securityManager).checkAccessAllowed(aclEntrySet, currentUser, perms);
 			will(returnValue(false));
 		}});
@@ -306,6 +355,9 @@ public class DefaultCloudFileSystemImplementationTest {
 			
 			allowing(blobStore).directoryExists(TEST_CONTAINER, TEST_PATH);
 			will(returnValue(true));
+
+			allowing(blobStore).blobMetadata(TEST_CONTAINER, TEST_PATH);
+			will(returnValue(null));
 			
 			allowing(path).exists();
 			will(returnValue(false));
@@ -368,6 +420,9 @@ public class DefaultCloudFileSystemImplementationTest {
 			
 			allowing(blobStore).directoryExists(TEST_CONTAINER, TEST_PATH);
 			will(returnValue(true));
+
+			allowing(blobStore).blobMetadata(TEST_CONTAINER, TEST_PATH);
+			will(returnValue(null));
 			
 			allowing(path).exists();
 			will(returnValue(true));
@@ -438,6 +493,9 @@ public class DefaultCloudFileSystemImplementationTest {
 			allowing(blobStore).directoryExists(TEST_CONTAINER, TEST_PATH);
 			will(returnValue(true));
 
+			allowing(blobStore).blobMetadata(TEST_CONTAINER, TEST_PATH);
+			will(returnValue(null));
+
 			// Path access check
 			exactly(1).of(securityManager).checkAccessAllowed(aclEntrySet, currentUser, pathPerms);
 			will(returnValue(false));
@@ -509,6 +567,9 @@ public class DefaultCloudFileSystemImplementationTest {
 			allowing(blobStore).directoryExists(TEST_CONTAINER, TEST_PATH);
 			will(returnValue(true));
 
+			allowing(blobStore).blobMetadata(TEST_CONTAINER, TEST_PATH);
+			will(returnValue(null));
+
 			// Path access check
 			exactly(1).of(securityManager).checkAccessAllowed(aclEntrySet, currentUser, pathPerms);
 			will(returnValue(false));
@@ -583,6 +644,9 @@ public class DefaultCloudFileSystemImplementationTest {
 
 			allowing(blobStore).directoryExists(TEST_CONTAINER, TEST_PATH);
 			will(returnValue(true));
+
+			allowing(blobStore).blobMetadata(TEST_CONTAINER, TEST_PATH);
+			will(returnValue(null));
 			
 			// Path access check
 			exactly(1).of(securityManager).checkAccessAllowed(aclEntrySet, currentUser, pathPerms);
@@ -649,4 +713,507 @@ public class DefaultCloudFileSystemImplementationTest {
 		}
 	}
 
+	@Test
+	public void testExistsProbesTheCloudWithoutReadingTheAclsWhenExistenceIsNotProtected() throws IOException {
+		BlobStoreContext blobStoreContext = ContextBuilder.newBuilder("transient").buildView(BlobStoreContext.class);
+		BlobStore blobStore = blobStoreContext.getBlobStore();
+		blobStore.createContainerInLocation(null, TEST_CONTAINER);
+		blobStore.putBlob(TEST_CONTAINER, blobStore.blobBuilder("dir/sub/file.txt").payload("content").build());
+		blobStore.createDirectory(TEST_CONTAINER, "empty-dir");
+
+		context.checking(new Expectations() {{
+			allowing(config).getCloudHostSecurityManager();
+			will(returnValue(new DeferringCloudHostSecurityManager()));
+		}});
+
+		try {
+			Assert.assertTrue(impl.exists(blobStoreContext, new CloudPath(fs, true, "/" + TEST_CONTAINER)));
+			Assert.assertTrue(impl.exists(blobStoreContext, new CloudPath(fs, true, "/" + TEST_CONTAINER + "/dir/sub/file.txt")));
+			Assert.assertTrue(impl.exists(blobStoreContext, new CloudPath(fs, true, "/" + TEST_CONTAINER + "/dir")));
+			Assert.assertTrue(impl.exists(blobStoreContext, new CloudPath(fs, true, "/" + TEST_CONTAINER + "/dir/sub")));
+			Assert.assertTrue(impl.exists(blobStoreContext, new CloudPath(fs, true, "/" + TEST_CONTAINER + "/empty-dir")));
+			Assert.assertFalse(impl.exists(blobStoreContext, new CloudPath(fs, true, "/" + TEST_CONTAINER + "/dir/su")));
+			Assert.assertFalse(impl.exists(blobStoreContext, new CloudPath(fs, true, "/" + TEST_CONTAINER + "/missing.txt")));
+			Assert.assertFalse(impl.exists(blobStoreContext, new CloudPath(fs, true, "/missing-container")));
+			Assert.assertFalse(impl.exists(blobStoreContext, new CloudPath(fs, true, "/missing-container/file.txt")));
+		} finally {
+			blobStoreContext.close();
+		}
+	}
+
+	@Test
+	public void testARecursiveDeleteListsTheTreeOnceAndDeletesTheKeysInBulk() throws IOException {
+		BlobStoreContext blobStoreContext = ContextBuilder.newBuilder("transient").buildView(BlobStoreContext.class);
+		BlobStore blobStore = blobStoreContext.getBlobStore();
+		blobStore.createContainerInLocation(null, TEST_CONTAINER);
+		blobStore.createDirectory(TEST_CONTAINER, "dir");
+		blobStore.createDirectory(TEST_CONTAINER, "dir/sub");
+		blobStore.createDirectory(TEST_CONTAINER, "dir/sub/empty");
+		for (int i = 0; i < 2500; i++) {
+			blobStore.putBlob(TEST_CONTAINER,
+					blobStore.blobBuilder(String.format("dir/%s/file-%04d.txt", i % 2 == 0 ? "sub" : "other", i))
+						.payload("content").build());
+		}
+		blobStore.putBlob(TEST_CONTAINER, blobStore.blobBuilder("dir-control.txt").payload("content").build());
+		CloudPath dirPath = new CloudPath(fs, true, "/" + TEST_CONTAINER + "/dir");
+
+		context.checking(new Expectations() {{
+			allowing(config).getCloudHostSecurityManager();
+			will(returnValue(null));
+
+			allowing(fs).getListingIndex(with(any(String.class)), with(any(String.class)));
+			will(returnValue(null));
+
+			allowing(fs).invalidateCaches(dirPath);
+		}});
+
+		try {
+			try {
+				impl.delete(blobStoreContext, dirPath, EnumSet.noneOf(DeleteOption.class));
+				Assert.fail("Did not expect to be able to delete a non-empty directory");
+			} catch (DirectoryNotEmptyException e) {
+				// OK
+			}
+			Assert.assertTrue(blobStore.blobExists(TEST_CONTAINER, "dir/sub/file-0000.txt"));
+
+			impl.delete(blobStoreContext, dirPath, EnumSet.of(DeleteOption.RECURSIVE));
+
+			Assert.assertEquals(Arrays.asList("dir-control.txt"), blobStore.list(TEST_CONTAINER,
+					new ListContainerOptions().recursive()).stream().map(StorageMetadata::getName).collect(Collectors.toList()));
+		} finally {
+			blobStoreContext.close();
+		}
+	}
+
+	@Test
+	public void testEmptyingAContainerReportsProgressAndCanBeCancelled() throws IOException {
+		BlobStoreContext blobStoreContext = ContextBuilder.newBuilder("transient").buildView(BlobStoreContext.class);
+		BlobStore blobStore = blobStoreContext.getBlobStore();
+		blobStore.createContainerInLocation(null, TEST_CONTAINER);
+		blobStore.createDirectory(TEST_CONTAINER, "dir/sub");
+		for (int i = 0; i < 2500; i++) {
+			blobStore.putBlob(TEST_CONTAINER,
+					blobStore.blobBuilder(String.format("dir/file-%04d.txt", i)).payload("content").build());
+		}
+		CloudPath containerPath = new CloudPath(fs, true, "/" + TEST_CONTAINER);
+
+		context.checking(new Expectations() {{
+			allowing(config).getCloudHostSecurityManager();
+			will(returnValue(null));
+
+			allowing(fs).invalidateCaches(containerPath);
+		}});
+
+		try {
+			// Cancel after the first page has been handed to the delete requests
+			try {
+				impl.emptyContainer(blobStoreContext, containerPath, (path, deletedKeys) -> {
+					throw new CancelException("Cancelled after " + deletedKeys + " keys");
+				});
+				Assert.fail("Expected the delete to be cancelled");
+			} catch (CancelException e) {
+				// OK
+			}
+			long remainingKeys = IntStream.range(0, 2500)
+					.filter(i -> blobStore.blobExists(TEST_CONTAINER, String.format("dir/file-%04d.txt", i))).count();
+			Assert.assertTrue("Unexpected remaining keys " + remainingKeys, remainingKeys > 0 && remainingKeys < 2500);
+
+			List<Long> progress = new ArrayList<>();
+			impl.emptyContainer(blobStoreContext, containerPath, (path, deletedKeys) -> progress.add(deletedKeys));
+
+			Assert.assertTrue(blobStore.containerExists(TEST_CONTAINER));
+			Assert.assertTrue(blobStore.list(TEST_CONTAINER, new ListContainerOptions().recursive()).isEmpty());
+			Assert.assertTrue(progress.size() > 1);
+			Assert.assertEquals(Long.valueOf(remainingKeys), progress.get(progress.size() - 1));
+			for (int i = 1; i < progress.size(); i++) {
+				Assert.assertTrue(progress.get(i) >= progress.get(i - 1));
+			}
+		} finally {
+			blobStoreContext.close();
+		}
+	}
+
+	@Test
+	public void testCancellingInTheMiddleOfABatchKeepsTheKeysWhichWereNotSent() throws IOException {
+		BlobStoreContext blobStoreContext = ContextBuilder.newBuilder("transient").buildView(BlobStoreContext.class);
+		BlobStore blobStore = blobStoreContext.getBlobStore();
+		blobStore.createContainerInLocation(null, TEST_CONTAINER);
+		// The directory is in the first page, so the page does not fill a batch
+		blobStore.createDirectory(TEST_CONTAINER, "dir/a-sub");
+		for (int i = 0; i < 1500; i++) {
+			blobStore.putBlob(TEST_CONTAINER,
+					blobStore.blobBuilder(String.format("dir/file-%04d.txt", i)).payload("content").build());
+		}
+		CloudPath containerPath = new CloudPath(fs, true, "/" + TEST_CONTAINER);
+
+		context.checking(new Expectations() {{
+			allowing(config).getCloudHostSecurityManager();
+			will(returnValue(null));
+
+			allowing(fs).invalidateCaches(containerPath);
+		}});
+
+		try {
+			try {
+				impl.emptyContainer(blobStoreContext, containerPath, (path, deletedKeys) -> {
+					throw new CancelException("Cancelled after " + deletedKeys + " keys");
+				});
+				Assert.fail("Expected the delete to be cancelled");
+			} catch (CancelException e) {
+				// OK
+			}
+
+			long remainingKeys = IntStream.range(0, 1500)
+					.filter(i -> blobStore.blobExists(TEST_CONTAINER, String.format("dir/file-%04d.txt", i))).count();
+			Assert.assertEquals(1500, remainingKeys);
+			Assert.assertTrue(blobStore.directoryExists(TEST_CONTAINER, "dir/a-sub"));
+		} finally {
+			blobStoreContext.close();
+		}
+	}
+
+	@Test
+	public void testDeletingAContainerClearsItWithoutAListenerAndCanBeCancelledWithAListener() throws IOException {
+		BlobStoreContext transientContext = ContextBuilder.newBuilder("transient").buildView(BlobStoreContext.class);
+		BlobStore transientBlobStore = transientContext.getBlobStore();
+		List<String> blobStoreMethods = new ArrayList<>();
+		BlobStore blobStore = recordingBlobStore(transientBlobStore, blobStoreMethods);
+		BlobStoreContext blobStoreContext = context.mock(BlobStoreContext.class);
+		for (String containerName : new String[] {TEST_CONTAINER, "cancelled-container"}) {
+			transientBlobStore.createContainerInLocation(null, containerName);
+			for (int i = 0; i < 1500; i++) {
+				transientBlobStore.putBlob(containerName,
+						transientBlobStore.blobBuilder(String.format("dir/file-%04d.txt", i)).payload("content").build());
+			}
+		}
+		CloudPath containerPath = new CloudPath(fs, true, "/" + TEST_CONTAINER);
+		CloudPath cancelledContainerPath = new CloudPath(fs, true, "/cancelled-container");
+
+		context.checking(new Expectations() {{
+			allowing(blobStoreContext).getBlobStore();
+			will(returnValue(blobStore));
+
+			allowing(config).getCloudHostSecurityManager();
+			will(returnValue(null));
+
+			allowing(fs).invalidateCaches(containerPath);
+			allowing(fs).invalidateCaches(cancelledContainerPath);
+		}});
+
+		try {
+			impl.delete(blobStoreContext, containerPath, EnumSet.of(DeleteOption.RECURSIVE));
+			Assert.assertFalse(transientBlobStore.containerExists(TEST_CONTAINER));
+			Assert.assertTrue(blobStoreMethods.toString(), blobStoreMethods.contains("clearContainer"));
+			Assert.assertFalse(blobStoreMethods.toString(), blobStoreMethods.contains("list"));
+
+			blobStoreMethods.clear();
+			try {
+				impl.deleteContainer(blobStoreContext, cancelledContainerPath, (path, deletedKeys) -> {
+					throw new CancelException("Cancelled after " + deletedKeys + " keys");
+				});
+				Assert.fail("Expected the delete to be cancelled");
+			} catch (CancelException e) {
+				// OK
+			}
+			Assert.assertFalse(blobStoreMethods.toString(), blobStoreMethods.contains("clearContainer"));
+			Assert.assertTrue(transientBlobStore.containerExists("cancelled-container"));
+			Assert.assertTrue(transientBlobStore.blobExists("cancelled-container", "dir/file-1499.txt"));
+		} finally {
+			transientContext.close();
+		}
+	}
+
+	/**
+	 * @param calls	Receives the name of each method invoked, followed by the key for methods on a key
+	 * @return A blob store which records each method invoked and then invokes it on the blob store
+	 */
+	private static BlobStore recordingBlobStore(BlobStore blobStore, List<String> calls) {
+		return (BlobStore)Proxy.newProxyInstance(BlobStore.class.getClassLoader(),
+				new Class<?>[] {BlobStore.class}, (proxy, method, args) -> {
+					calls.add(args != null && args.length > 1 && args[1] instanceof String ?
+							method.getName() + " " + args[1] : method.getName());
+					try {
+						return method.invoke(blobStore, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+	}
+
+	@Test
+	public void testARecursiveDeleteWithoutASecurityManagerDoesNotReadTheAttributesBeneathTheDirectory()
+			throws IOException {
+		BlobStoreContext transientContext = ContextBuilder.newBuilder("transient").buildView(BlobStoreContext.class);
+		BlobStore transientBlobStore = transientContext.getBlobStore();
+		List<String> blobStoreMethods = Collections.synchronizedList(new ArrayList<>());
+		BlobStore blobStore = recordingBlobStore(transientBlobStore, blobStoreMethods);
+		BlobStoreContext blobStoreContext = context.mock(BlobStoreContext.class);
+		transientBlobStore.createContainerInLocation(null, TEST_CONTAINER);
+		transientBlobStore.createDirectory(TEST_CONTAINER, "dir");
+		transientBlobStore.createDirectory(TEST_CONTAINER, "dir/sub");
+		for (int i = 0; i < 10; i++) {
+			transientBlobStore.putBlob(TEST_CONTAINER, transientBlobStore.blobBuilder(
+					String.format("dir/%sfile-%d.txt", i % 2 == 0 ? "sub/" : "", i)).payload("content").build());
+		}
+		CloudPath dirPath = new CloudPath(fs, true, "/" + TEST_CONTAINER + "/dir");
+
+		context.checking(new Expectations() {{
+			allowing(blobStoreContext).getBlobStore();
+			will(returnValue(blobStore));
+
+			allowing(config).getCloudHostSecurityManager();
+			will(returnValue(null));
+
+			allowing(fs).getListingIndex(with(any(String.class)), with(any(String.class)));
+			will(returnValue(null));
+
+			allowing(fs).invalidateCaches(dirPath);
+		}});
+
+		try {
+			impl.delete(blobStoreContext, dirPath, EnumSet.of(DeleteOption.RECURSIVE));
+
+			Assert.assertTrue(transientBlobStore.list(TEST_CONTAINER, new ListContainerOptions().recursive()).isEmpty());
+			List<String> keyReads = blobStoreMethods.stream()
+					.filter(m -> m.startsWith("blobMetadata dir/") || m.startsWith("getBlobAccess "))
+					.collect(Collectors.toList());
+			Assert.assertEquals(Collections.emptyList(), keyReads);
+		} finally {
+			transientContext.close();
+		}
+	}
+
+	@Test
+	public void testARecursiveDeleteWithASecurityManagerChecksEachKeyFromTheListing() throws IOException {
+		BlobStoreContext transientContext = ContextBuilder.newBuilder("transient").buildView(BlobStoreContext.class);
+		BlobStore transientBlobStore = transientContext.getBlobStore();
+		List<String> blobStoreMethods = Collections.synchronizedList(new ArrayList<>());
+		BlobStore blobStore = recordingBlobStore(transientBlobStore, blobStoreMethods);
+		BlobStoreContext blobStoreContext = context.mock(BlobStoreContext.class);
+		CloudHostSecurityManager securityManager = context.mock(CloudHostSecurityManager.class);
+		transientBlobStore.createContainerInLocation(null, TEST_CONTAINER);
+		transientBlobStore.createDirectory(TEST_CONTAINER, "dir");
+		for (int i = 0; i < 10; i++) {
+			transientBlobStore.putBlob(TEST_CONTAINER,
+					transientBlobStore.blobBuilder("dir/file-" + i + ".txt").payload("content").build());
+		}
+		// Public keys cannot be deleted
+		transientBlobStore.setBlobAccess(TEST_CONTAINER, "dir/file-3.txt", BlobAccess.PUBLIC_READ);
+		CloudPath dirPath = new CloudPath(fs, true, "/" + TEST_CONTAINER + "/dir");
+
+		context.checking(new Expectations() {{
+			allowing(blobStoreContext).getBlobStore();
+			will(returnValue(blobStore));
+
+			allowing(config).getCloudHostSecurityManager();
+			will(returnValue(securityManager));
+
+			allowing(config).getUserGroupLookupService();
+			will(returnValue(null));
+
+			allowing(securityManager).checkAccessAllowed(with(any(CloudAclEntrySet.class)),
+					with(same(AnonymousUserPrincipal.INSTANCE)), with(any(Set.class)));
+			will(new CustomAction("Deny access to public keys") {
+				@Override
+				public Object invoke(Invocation invocation) throws Throwable {
+					return ((CloudAclEntrySet)invocation.getParameter(0)).stream()
+							.map(CloudAclEntry::getPrincipal)
+							.noneMatch(p -> p instanceof PublicPrivateCloudPermissionsPrincipal &&
+									BlobAccess.PUBLIC_READ.equals(
+											((PublicPrivateCloudPermissionsPrincipal)p).getBlobAccess()));
+				}
+			});
+
+			allowing(fs).getListingIndex(with(any(String.class)), with(any(String.class)));
+			will(returnValue(null));
+
+			allowing(fs).invalidateCaches(dirPath);
+		}});
+
+		try {
+			try {
+				impl.delete(blobStoreContext, dirPath, EnumSet.of(DeleteOption.RECURSIVE));
+				Assert.fail("Did not expect to be able to delete a public key");
+			} catch (IOException e) {
+				Assert.assertEquals(1, e.getSuppressed().length);
+				Assert.assertTrue(e.getSuppressed()[0] instanceof AccessDeniedException);
+			}
+
+			Assert.assertEquals(Arrays.asList("dir/file-3.txt"), transientBlobStore.list(TEST_CONTAINER,
+					new ListContainerOptions().prefix("dir/").recursive()).stream()
+						.map(StorageMetadata::getName).collect(Collectors.toList()));
+			Assert.assertFalse(blobStoreMethods.toString(),
+					blobStoreMethods.stream().anyMatch(m -> m.startsWith("blobMetadata dir/")));
+			Assert.assertEquals(10,
+					blobStoreMethods.stream().filter(m -> m.startsWith("getBlobAccess dir/")).count());
+		} finally {
+			transientContext.close();
+		}
+	}
+
+	@Test
+	public void testARecursiveCopyListsTheSourceOnceAndReturnsTheMethodForEachPath() throws IOException {
+		BlobStoreContext blobStoreContext = ContextBuilder.newBuilder("transient").buildView(BlobStoreContext.class);
+		BlobStore blobStore = blobStoreContext.getBlobStore();
+		blobStore.createContainerInLocation(null, TEST_CONTAINER);
+		blobStore.createDirectory(TEST_CONTAINER, "src");
+		blobStore.createDirectory(TEST_CONTAINER, "src/sub");
+		for (int i = 0; i < 1500; i++) {
+			// The "other" directory does not have a directory marker
+			blobStore.putBlob(TEST_CONTAINER,
+					blobStore.blobBuilder(String.format("src/%s/file-%04d.txt", i % 2 == 0 ? "sub" : "other", i))
+						.payload("content").build());
+		}
+		blobStore.putBlob(TEST_CONTAINER, blobStore.blobBuilder("src/top.txt").payload("content").build());
+		CloudPath sourcePath = new CloudPath(fs, true, "/" + TEST_CONTAINER + "/src");
+		CloudPath targetPath = new CloudPath(fs, true, "/" + TEST_CONTAINER + "/dst");
+
+		allowCopies(blobStoreContext);
+
+		try {
+			CopyResults results = impl.copy(blobStoreContext, Collections.singleton(sourcePath), targetPath,
+					Sets.<CopyOption>newHashSet(CloudCopyOption.RECURSIVE));
+
+			List<String> sourceKeys = listKeys(blobStore, "src/");
+			List<String> targetKeys = listKeys(blobStore, "dst/");
+			Assert.assertEquals(1501, sourceKeys.stream().filter(k -> k.endsWith(".txt")).count());
+			Assert.assertEquals(sourceKeys.stream().map(k -> k.replaceFirst("^src/", "dst/")).collect(Collectors.toList()),
+					targetKeys);
+
+			// The file and directory paths beneath the source, and the source itself
+			Assert.assertEquals(1501 + 2, results.size());
+			Assert.assertTrue(results.values().stream().allMatch(CloudMethod.CLOUD_OPTIMISED::equals));
+			Assert.assertTrue(results.containsKey(sourcePath));
+			Assert.assertTrue(results.containsKey(new CloudPath(fs, true, "/" + TEST_CONTAINER + "/src/sub")));
+			Assert.assertTrue(results.containsKey(new CloudPath(fs, true, "/" + TEST_CONTAINER + "/src/sub/file-0000.txt")));
+			Assert.assertEquals(1501 * "content".length(), results.getCopiedBytes());
+			Assert.assertTrue(results.getFailures().isEmpty());
+			Assert.assertTrue(results.getPathsPerSecond() > 0);
+
+			// The existing target is only replaced when asked
+			try {
+				impl.copy(blobStoreContext, sourcePath, targetPath, Sets.<CopyOption>newHashSet(CloudCopyOption.RECURSIVE));
+				Assert.fail("Did not expect to be able to copy over an existing directory");
+			} catch (FileAlreadyExistsException e) {
+				// OK
+			}
+
+			blobStore.putBlob(TEST_CONTAINER, blobStore.blobBuilder("src/sub/file-0000.txt").payload("updated").build());
+			results = impl.copy(blobStoreContext, Collections.singleton(sourcePath), targetPath,
+					Sets.<CopyOption>newHashSet(CloudCopyOption.RECURSIVE, StandardCopyOption.REPLACE_EXISTING));
+			Assert.assertEquals(1501 + 2, results.size());
+			Assert.assertEquals("updated", new String(ByteStreams.toByteArray(
+					blobStore.getBlob(TEST_CONTAINER, "dst/sub/file-0000.txt").getPayload().openStream()), "UTF-8"));
+		} finally {
+			blobStoreContext.close();
+		}
+	}
+
+	@Test
+	public void testTheAclsOfThePathsCopiedBeforeACopyFailsAreStillWritten() throws IOException {
+		BlobStoreContext blobStoreContext = ContextBuilder.newBuilder("transient").buildView(BlobStoreContext.class);
+		BlobStore blobStore = blobStoreContext.getBlobStore();
+		blobStore.createContainerInLocation(null, TEST_CONTAINER);
+		blobStore.createDirectory(TEST_CONTAINER, "src");
+		blobStore.createDirectory(TEST_CONTAINER, "src/sub");
+		for (int i = 0; i < 100; i++) {
+			String key = String.format("src/sub/file-%04d.txt", i);
+			blobStore.putBlob(TEST_CONTAINER, blobStore.blobBuilder(key).payload("content").build());
+			blobStore.setBlobAccess(TEST_CONTAINER, key, BlobAccess.PUBLIC_READ);
+		}
+		CloudPath sourcePath = new CloudPath(fs, true, "/" + TEST_CONTAINER + "/src");
+		CloudPath targetPath = new CloudPath(fs, true, "/" + TEST_CONTAINER + "/dst");
+		impl = new DefaultCloudFileSystemImplementation() {
+			@Override
+			protected boolean copyBlobContent(BlobStoreContext context, CloudPath source, CloudPath target,
+					CloudAclFileAttributes originalAttributes) throws IOException {
+				if ("src/sub/file-0050.txt".equals(source.getPathName())) {
+					throw new IOException("Copy failed for " + source);
+				}
+				return super.copyBlobContent(context, source, target, originalAttributes);
+			}
+		};
+		allowCopies(blobStoreContext);
+
+		try {
+			try {
+				impl.copy(blobStoreContext, sourcePath, targetPath, Sets.<CopyOption>newHashSet(CloudCopyOption.RECURSIVE));
+				Assert.fail("Expected the copy to fail");
+			} catch (IOException e) {
+				Assert.assertTrue(e.getMessage(), e.getMessage().contains("src/sub/file-0050.txt"));
+			}
+
+			List<String> copiedFiles = listKeys(blobStore, "dst/sub/file-");
+			Assert.assertFalse(copiedFiles.isEmpty());
+			Assert.assertFalse(copiedFiles.contains("dst/sub/file-0050.txt"));
+			for (String key : copiedFiles) {
+				Assert.assertEquals(key, BlobAccess.PUBLIC_READ, blobStore.getBlobAccess(TEST_CONTAINER, key));
+			}
+
+			// The ACL's batched by the copy of the first source are written when the second source fails
+			CloudPath fileTargetPath = new CloudPath(fs, true, "/" + TEST_CONTAINER + "/file-dst.txt");
+			Set<CloudPath> sources = new LinkedHashSet<>(Arrays.asList(
+					new CloudPath(fs, true, "/" + TEST_CONTAINER + "/src/sub/file-0001.txt"),
+					new CloudPath(fs, true, "/" + TEST_CONTAINER + "/src/sub/file-0050.txt")));
+			try {
+				impl.copy(blobStoreContext, sources, fileTargetPath, Sets.<CopyOption>newHashSet());
+				Assert.fail("Expected the copy to fail");
+			} catch (IOException e) {
+				// OK
+			}
+			Assert.assertEquals(BlobAccess.PUBLIC_READ, blobStore.getBlobAccess(TEST_CONTAINER, "file-dst.txt"));
+		} finally {
+			blobStoreContext.close();
+		}
+	}
+
+	private void allowCopies(BlobStoreContext blobStoreContext) throws IOException {
+		context.checking(new Expectations() {{
+			allowing(config).getCloudHostSecurityManager();
+			will(returnValue(null));
+
+			allowing(config).canOptimiseOperationsFor(with(any(CloudPath.class)));
+			will(returnValue(true));
+
+			allowing(fs).getListingIndex(with(any(String.class)), with(any(String.class)));
+			will(returnValue(null));
+
+			allowing(fs).getMetadataIndex(with(any(String.class)));
+			will(returnValue(null));
+
+			allowing(fs).getIndexedMetadata(with(any(CloudPath.class)));
+			will(returnValue(null));
+
+			allowing(fs).invalidateCaches(with(any(CloudPath.class)));
+			allowing(fs).invalidateCaches(with(any(CloudPath.class)), with(aNull(StorageMetadata.class)));
+
+			allowing(provider).checkAccess(with(any(Path.class)), with(any(AccessMode[].class)));
+			will(new CustomAction("Check existence") {
+				@Override
+				public Object invoke(Invocation invocation) throws Throwable {
+					CloudPath path = (CloudPath)invocation.getParameter(0);
+					if (!impl.exists(blobStoreContext, path)) {
+						throw new NoSuchFileException(path.toString());
+					}
+					return null;
+				}
+			});
+		}});
+	}
+
+	private static List<String> listKeys(BlobStore blobStore, String prefix) {
+		List<String> keys = new ArrayList<>();
+		String marker = null;
+		do {
+			ListContainerOptions options = new ListContainerOptions().recursive().prefix(prefix);
+			if (marker != null) {
+				options.afterMarker(marker);
+			}
+			PageSet<? extends StorageMetadata> pageSet = blobStore.list(TEST_CONTAINER, options);
+			pageSet.forEach(m -> keys.add(m.getName()));
+			marker = pageSet.getNextMarker();
+		} while (marker != null);
+		return keys;
+	}
+
 }
@@ -0,0 +1,94 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.cache;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.nio.file.attribute.AclEntryPermission;
+
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jmock.Expectations;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.uk.xarixa.cloud.filesystem.core.AbstractTransientBlobStoreTest;
+import com.uk.xarixa.cloud.filesystem.core.nio.DefaultCloudFileSystemImplementation;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ExistenceFilterTest extends AbstractTransientBlobStoreTest {
+
+	@Override
+	protected void postSetUp() {
+		for (int i = 0; i < 500; i++) {
+			blobStore.putBlob(TEST_CONTAINER, blobStore.blobBuilder(
+					String.format("ingest/batch-%02d/item-%04d.json", i % 10, i)).payload(new byte[1]).build());
+		}
+	}
+
+	@Test
+	public void testEveryPathMightExistUntilTheFilterIsPopulated() {
+		ExistenceFilter filter = new ExistenceFilter(TEST_CONTAINER, 1000, 0.01d);
+
+		Assert.assertFalse(filter.isPopulated());
+		Assert.assertTrue(filter.mightExist("ingest/batch-00/missing.json"));
+	}
+
+	@Test
+	public void testPopulatedFilterContainsTheKeysAndTheirDirectories() {
+		ExistenceFilter filter = new ExistenceFilter(TEST_CONTAINER, 1000, 0.01d);
+		filter.populate(blobStore);
+
+		Assert.assertTrue(filter.isPopulated());
+		for (int i = 0; i < 500; i++) {
+			Assert.assertTrue(filter.mightExist(String.format("ingest/batch-%02d/item-%04d.json", i % 10, i)));
+		}
+		Assert.assertTrue(filter.mightExist("ingest"));
+		Assert.assertTrue(filter.mightExist("ingest/batch-03"));
+		Assert.assertTrue(filter.mightExist("ingest/batch-03/"));
+
+		// Almost all of the paths which do not exist are filtered out
+		int falsePositives = 0;
+		for (int i = 0; i < 10000; i++) {
+			if (filter.mightExist("ingest/batch-00/missing-" + i + ".json")) {
+				falsePositives++;
+			}
+		}
+		Assert.assertTrue("Too many false positives: " + falsePositives, falsePositives < 300);
+		Assert.assertTrue(filter.getExpectedFalsePositiveProbability() < 0.03d);
+	}
+
+	@Test
+	public void testAddedPathsAndTheirDirectoriesMightExist() {
+		ExistenceFilter filter = new ExistenceFilter(TEST_CONTAINER, 1000, 0.01d);
+		filter.populate(blobStore);
+		Assert.assertFalse(filter.mightExist("new/dir/file.txt"));
+		Assert.assertFalse(filter.mightExist("new/dir"));
+
+		filter.add("new/dir/file.txt");
+		Assert.assertTrue(filter.mightExist("new/dir/file.txt"));
+		Assert.assertTrue(filter.mightExist("new/dir"));
+		Assert.assertTrue(filter.mightExist("new"));
+	}
+
+	@Test
+	public void testAccessCheckFailsWithoutARequestWhenThePathDoesNotExist() throws IOException {
+		ExistenceFilter filter = new ExistenceFilter(TEST_CONTAINER, 1000, 0.001d);
+		filter.populate(blobStore);
+		BlobStoreContext unusedContext = context.mock(BlobStoreContext.class);
+		context.checking(new Expectations() {{
+			allowing(fileSystem).getExistenceFilter(TEST_CONTAINER);
+			will(returnValue(filter));
+		}});
+
+		try {
+			new DefaultCloudFileSystemImplementation().checkAccess(unusedContext,
+					path("ingest/batch-00/missing.json"),
+					EnumSet.noneOf(AclEntryPermission.class));
+			Assert.fail("Expected the path not to be found");
+		} catch (FileNotFoundException e) {
+			// OK
+		}
+	}
+
+}
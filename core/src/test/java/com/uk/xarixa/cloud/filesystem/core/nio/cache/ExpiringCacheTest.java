@@ -0,0 +1,115 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ExpiringCacheTest {
+	private AtomicLong clock;
+	private ExpiringCache<String,String> cache;
+
+	@Before
+	public void setUp() {
+		clock = new AtomicLong(0L);
+		cache = new ExpiringCache<>(1000L, 3, clock::get);
+	}
+
+	@Test
+	public void testGetReturnsAValueUntilItExpires() {
+		cache.put("key1", "value1");
+		Assert.assertEquals("value1", cache.get("key1"));
+
+		clock.set(TimeUnit.MILLISECONDS.toNanos(999L));
+		Assert.assertEquals("value1", cache.get("key1"));
+
+		clock.set(TimeUnit.MILLISECONDS.toNanos(1000L));
+		Assert.assertNull(cache.get("key1"));
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testPutEvictsTheLeastRecentlyUsedEntryWhenTheCacheIsFull() {
+		cache.put("key1", "value1");
+		cache.put("key2", "value2");
+		cache.put("key3", "value3");
+
+		// Access key1 so that key2 is the least recently used
+		Assert.assertEquals("value1", cache.get("key1"));
+		cache.put("key4", "value4");
+
+		Assert.assertEquals(3, cache.size());
+		Assert.assertNull(cache.get("key2"));
+		Assert.assertEquals("value1", cache.get("key1"));
+		Assert.assertEquals("value3", cache.get("key3"));
+		Assert.assertEquals("value4", cache.get("key4"));
+	}
+
+	@Test
+	public void testInvalidateIfRemovesMatchingEntries() {
+		cache.put("a/1", "value1");
+		cache.put("a/2", "value2");
+		cache.put("b/1", "value3");
+
+		Assert.assertEquals(2, cache.invalidateIf(k -> k.startsWith("a/")));
+		Assert.assertNull(cache.get("a/1"));
+		Assert.assertNull(cache.get("a/2"));
+		Assert.assertEquals("value3", cache.get("b/1"));
+	}
+
+	@Test
+	public void testAnEntryWithAnUnlimitedTimeToLiveDoesNotExpire() {
+		ExpiringCache<String,String> unlimitedCache = new ExpiringCache<>(Long.MAX_VALUE, 3, clock::get);
+		unlimitedCache.put("key1", "value1");
+		clock.set(Long.MAX_VALUE - 1);
+		Assert.assertEquals("value1", unlimitedCache.get("key1"));
+	}
+
+	@Test
+	public void testInvalidatePathsRemovesEntriesByTheirPath() {
+		ExpiringCache<String,String> pathCache = new ExpiringCache<>(1000L, 10, k -> k, clock::get);
+		for (String key : new String[] {"c/", "c/a", "c/a/", "c/a/b", "c/ab", "c/b", "d/a"}) {
+			pathCache.put(key, key);
+		}
+
+		Assert.assertEquals(1, pathCache.invalidatePath("c/b"));
+		Assert.assertEquals(0, pathCache.invalidatePath("c/b"));
+		Assert.assertEquals(2, pathCache.invalidatePathsStartingWith("c/a/"));
+		Assert.assertNull(pathCache.get("c/a/b"));
+		Assert.assertEquals("c/ab", pathCache.get("c/ab"));
+
+		Assert.assertEquals(2, pathCache.invalidatePathsPrefixing("c/a/x"));
+		Assert.assertNull(pathCache.get("c/"));
+		Assert.assertNull(pathCache.get("c/a"));
+		Assert.assertEquals("c/ab", pathCache.get("c/ab"));
+		Assert.assertEquals("d/a", pathCache.get("d/a"));
+		Assert.assertEquals(2, pathCache.size());
+	}
+
+	@Test
+	public void testEvictedAndExpiredEntriesAreNotInvalidatedByTheirPath() {
+		ExpiringCache<String,String> pathCache = new ExpiringCache<>(1000L, 2, k -> k, clock::get);
+		pathCache.put("c/a", "value1");
+		pathCache.put("c/b", "value2");
+		pathCache.put("c/c", "value3");
+		Assert.assertEquals(2, pathCache.invalidatePathsStartingWith("c/"));
+
+		pathCache.put("c/a", "value1");
+		clock.set(TimeUnit.MILLISECONDS.toNanos(1000L));
+		Assert.assertNull(pathCache.get("c/a"));
+		pathCache.put("c/a", "value4");
+		Assert.assertEquals(1, pathCache.invalidatePathsPrefixing("c/a/b"));
+		Assert.assertEquals(0, pathCache.size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAPathCannotBeInvalidatedWithoutThePathOfEachKey() {
+		cache.invalidatePath("key1");
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.cache;
+
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.action.CustomAction;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystem;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ListingCacheTest {
+	private static final String TEST_CONTAINER = "test-container";
+	private BlobStore blobStore;
+	private CloudFileSystem fileSystem;
+	private ListingCache listingCache;
+
+	@Rule
+	public JUnitRuleMockery context = new JUnitRuleMockery() {{
+		setImposteriser(ClassImposteriser.INSTANCE);
+	}};
+
+	@Before
+	public void setUp() {
+		blobStore = context.mock(BlobStore.class);
+		fileSystem = context.mock(CloudFileSystem.class);
+		listingCache = new ListingCache(60000L, 100);
+	}
+
+	@SuppressWarnings("unchecked")
+	private PageSet<? extends StorageMetadata> expectListing(int times, String marker) {
+		PageSet<? extends StorageMetadata> pageSet = context.mock(PageSet.class, "pageSet-" + marker);
+
+		context.checking(new Expectations() {{
+			exactly(times).of(blobStore).list(with(equal(TEST_CONTAINER)), with(any(ListContainerOptions.class)));
+			will(returnValue(pageSet));
+		}});
+
+		return pageSet;
+	}
+
+	@Test
+	public void testListReturnsTheCachedPageForTheSameListingOptions() {
+		PageSet<? extends StorageMetadata> pageSet = expectListing(1, "first");
+
+		Assert.assertSame(pageSet,
+				listingCache.list(blobStore, TEST_CONTAINER, new ListContainerOptions().inDirectory("dir").recursive()));
+		Assert.assertSame(pageSet,
+				listingCache.list(blobStore, TEST_CONTAINER, new ListContainerOptions().inDirectory("dir").recursive()));
+		Assert.assertEquals(1, listingCache.size());
+	}
+
+	@Test
+	public void testListCachesEachPageMarkerSeparately() {
+		expectListing(2, "pages");
+
+		listingCache.list(blobStore, TEST_CONTAINER, new ListContainerOptions().inDirectory("dir"));
+		listingCache.list(blobStore, TEST_CONTAINER, new ListContainerOptions().inDirectory("dir").afterMarker("dir/b"));
+		listingCache.list(blobStore, TEST_CONTAINER, new ListContainerOptions().inDirectory("dir").afterMarker("dir/b"));
+		Assert.assertEquals(2, listingCache.size());
+	}
+
+	@Test
+	public void testInvalidateRemovesListingsWhichContainTheChangedPath() {
+		expectListing(4, "invalidated");
+		listingCache.list(blobStore, TEST_CONTAINER, new ListContainerOptions());
+		listingCache.list(blobStore, TEST_CONTAINER, new ListContainerOptions().inDirectory("dir"));
+		listingCache.list(blobStore, TEST_CONTAINER, new ListContainerOptions().inDirectory("dir/sub").recursive());
+		listingCache.list(blobStore, TEST_CONTAINER, new ListContainerOptions().inDirectory("other"));
+		Assert.assertEquals(4, listingCache.size());
+
+		// Only the container and dir listings contain the changed file
+		listingCache.invalidate(new CloudPath(fileSystem, true, "/" + TEST_CONTAINER + "/dir/file.txt"));
+		Assert.assertEquals(2, listingCache.size());
+	}
+
+	@Test
+	public void testInvalidateOfADirectoryRemovesListingsBeneathTheDirectory() {
+		expectListing(2, "directory");
+		listingCache.list(blobStore, TEST_CONTAINER, new ListContainerOptions().inDirectory("dir/sub"));
+		listingCache.list(blobStore, TEST_CONTAINER, new ListContainerOptions().inDirectory("dirty"));
+
+		listingCache.invalidate(new CloudPath(fileSystem, true, "/" + TEST_CONTAINER + "/dir"));
+		Assert.assertEquals(1, listingCache.size());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testAPageListedWhilstTheContainerIsInvalidatedIsNotCached() {
+		PageSet<? extends StorageMetadata> pageSet = context.mock(PageSet.class);
+		CloudPath changedPath = new CloudPath(fileSystem, true, "/" + TEST_CONTAINER + "/dir/file.txt");
+
+		context.checking(new Expectations() {{
+			exactly(2).of(blobStore).list(with(equal(TEST_CONTAINER)), with(any(ListContainerOptions.class)));
+			will(new CustomAction("Change the directory whilst it is listed") {
+				@Override
+				public Object invoke(Invocation invocation) throws Throwable {
+					listingCache.invalidate(changedPath);
+					return pageSet;
+				}
+			});
+		}});
+
+		Assert.assertSame(pageSet, listingCache.list(blobStore, TEST_CONTAINER, new ListContainerOptions().inDirectory("dir")));
+		Assert.assertEquals(0, listingCache.size());
+		Assert.assertSame(pageSet, listingCache.list(blobStore, TEST_CONTAINER, new ListContainerOptions().inDirectory("dir")));
+	}
+
+	@Test
+	public void testInvalidateOfAContainerRemovesAllListingsForTheContainer() {
+		expectListing(2, "container");
+		listingCache.list(blobStore, TEST_CONTAINER, new ListContainerOptions().inDirectory("dir/sub"));
+		listingCache.list(blobStore, TEST_CONTAINER, new ListContainerOptions().inDirectory("other"));
+
+		listingCache.invalidate(new CloudPath(fileSystem, true, "/" + TEST_CONTAINER));
+		Assert.assertEquals(0, listingCache.size());
+	}
+
+}
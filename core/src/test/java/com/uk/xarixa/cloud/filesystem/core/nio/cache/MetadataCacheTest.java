@@ -0,0 +1,104 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.cache;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import org.jmock.Expectations;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.uk.xarixa.cloud.filesystem.core.AbstractTransientBlobStoreTest;
+import com.uk.xarixa.cloud.filesystem.core.host.configuration.CloudHostConfiguration;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudAclFileAttributes;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudFileAttributesView;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class MetadataCacheTest extends AbstractTransientBlobStoreTest {
+
+	@Override
+	protected void postSetUp() {
+		blobStore.putBlob(TEST_CONTAINER, blobStore.blobBuilder("dir/file.txt").payload("content").build());
+	}
+
+	@Test
+	public void testStrictModeCannotBeCached() {
+		try {
+			new MetadataCache(MetadataCacheMode.STRICT, 1000L, 10);
+			Assert.fail("Expected attributes not to be cached in strict mode");
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+	}
+
+	@Test
+	public void testAttributesExpireInTtlModeButNotInSessionMode() throws InterruptedException {
+		MetadataCache ttlCache = new MetadataCache(MetadataCacheMode.TTL, 20L, 10);
+		MetadataCache sessionCache = new MetadataCache(MetadataCacheMode.SESSION, 20L, 10);
+		CloudAclFileAttributes attributes = new CloudAclFileAttributes();
+		ttlCache.put(path("dir/file.txt"), attributes);
+		sessionCache.put(path("dir/file.txt"), attributes);
+
+		Thread.sleep(50L);
+		Assert.assertNull(ttlCache.get(path("dir/file.txt")));
+		Assert.assertSame(attributes, sessionCache.get(path("dir/file.txt")));
+	}
+
+	@Test
+	public void testInvalidateRemovesThePathItsParentsAndItsChildren() {
+		MetadataCache cache = new MetadataCache(MetadataCacheMode.SESSION, 0L, 100);
+		for (String pathName : new String[] {"dir", "dir/sub", "dir/sub/file.txt", "dir/sub-other", "other/file.txt"}) {
+			cache.put(path(pathName), new CloudAclFileAttributes());
+		}
+		cache.put(path(null), new CloudAclFileAttributes());
+
+		cache.invalidate(path("dir/sub"));
+		Assert.assertNull(cache.get(path("dir")));
+		Assert.assertNull(cache.get(path("dir/sub")));
+		Assert.assertNull(cache.get(path("dir/sub/file.txt")));
+		Assert.assertNull(cache.get(path(null)));
+		Assert.assertNotNull(cache.get(path("dir/sub-other")));
+		Assert.assertNotNull(cache.get(path("other/file.txt")));
+
+		cache.invalidate(path(null));
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testAttributesViewReadsFromTheCacheUntilThePathIsInvalidated() throws IOException {
+		MetadataCache cache = new MetadataCache(MetadataCacheMode.SESSION, 0L, 100);
+		CloudHostConfiguration config = context.mock(CloudHostConfiguration.class);
+		context.checking(new Expectations() {{
+			allowing(fileSystem).getMetadataCache();
+			will(returnValue(cache));
+
+			allowing(fileSystem).getNegativeCache();
+			will(returnValue(null));
+
+			allowing(fileSystem).getCloudHostConfiguration();
+			will(returnValue(config));
+
+			allowing(config).getCloudHostSecurityManager();
+			will(returnValue(null));
+		}});
+
+		CloudPath file = path("dir/file.txt");
+		CloudAclFileAttributes attributes = new CloudFileAttributesView(blobStoreContext, file).readAttributes();
+		Assert.assertTrue(attributes.isRegularFile());
+
+		// Removed by another client, which is not seen in session mode
+		blobStore.removeBlob(TEST_CONTAINER, "dir/file.txt");
+		Assert.assertSame(attributes, new CloudFileAttributesView(blobStoreContext, file).readAttributes());
+
+		cache.invalidate(file);
+		try {
+			new CloudFileAttributesView(blobStoreContext, file).readAttributes();
+			Assert.fail("Expected the file not to be found");
+		} catch (FileNotFoundException e) {
+			// OK
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.cache;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import org.jmock.Expectations;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.uk.xarixa.cloud.filesystem.core.AbstractTransientBlobStoreTest;
+import com.uk.xarixa.cloud.filesystem.core.host.configuration.CloudHostConfiguration;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudFileAttributesView;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class NegativeCacheTest extends AbstractTransientBlobStoreTest {
+
+	@Test
+	public void testInvalidateForgetsThePathItsParentsAndItsChildren() {
+		NegativeCache cache = new NegativeCache(60000L, 100);
+		for (String pathName : new String[] {"a", "a/b", "a/b/c.txt", "a/bc", "x/y.txt"}) {
+			cache.putMissing(path(pathName));
+		}
+
+		cache.invalidate(path("a/b"));
+		Assert.assertFalse(cache.isMissing(path("a")));
+		Assert.assertFalse(cache.isMissing(path("a/b")));
+		Assert.assertFalse(cache.isMissing(path("a/b/c.txt")));
+		Assert.assertTrue(cache.isMissing(path("a/bc")));
+		Assert.assertTrue(cache.isMissing(path("x/y.txt")));
+	}
+
+	@Test
+	public void testMissingPathsAreNotReadAgainUntilInvalidated() throws IOException {
+		NegativeCache cache = new NegativeCache(60000L, 100);
+		CloudHostConfiguration config = context.mock(CloudHostConfiguration.class);
+		context.checking(new Expectations() {{
+			allowing(fileSystem).getNegativeCache();
+			will(returnValue(cache));
+
+			allowing(fileSystem).getMetadataCache();
+			will(returnValue(null));
+
+			allowing(fileSystem).getCloudHostConfiguration();
+			will(returnValue(config));
+
+			allowing(config).getCloudHostSecurityManager();
+			will(returnValue(null));
+		}});
+
+		CloudPath file = path("dir/file.txt");
+		assertNotFound(file);
+		Assert.assertTrue(cache.isMissing(file));
+
+		// Created by another client, which is not seen until the entry expires
+		blobStore.putBlob(TEST_CONTAINER, blobStore.blobBuilder("dir/file.txt").payload("content").build());
+		assertNotFound(file);
+
+		// Created through the file system, which invalidates the path
+		cache.invalidate(file);
+		Assert.assertTrue(new CloudFileAttributesView(blobStoreContext, file).readAttributes().isRegularFile());
+	}
+
+	private void assertNotFound(CloudPath path) throws IOException {
+		try {
+			new CloudFileAttributesView(blobStoreContext, path).readAttributes();
+			Assert.fail("Expected the file not to be found");
+		} catch (FileNotFoundException e) {
+			// OK
+		}
+	}
+
+}
@@ -0,0 +1,144 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.cache;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class SingleFlightTest {
+	private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testConcurrentCallsShareOneCallAndReleaseTheResultOnce() throws Exception {
+		SingleFlight<String,String> singleFlight = new SingleFlight<>();
+		AtomicInteger callsMade = new AtomicInteger();
+		AtomicInteger releases = new AtomicInteger();
+		CountDownLatch callStarted = new CountDownLatch(1);
+		CountDownLatch finishCall = new CountDownLatch(1);
+		List<Future<String>> futures = new ArrayList<>();
+
+		for (int i = 0; i < 8; i++) {
+			futures.add(executor.submit(() -> singleFlight.execute("key", () -> {
+					callsMade.incrementAndGet();
+					callStarted.countDown();
+					finishCall.await();
+					return "result";
+				}, result -> result + "-used", result -> releases.incrementAndGet())));
+		}
+
+		Assert.assertTrue(callStarted.await(10, TimeUnit.SECONDS));
+		// Wait for the other calls to join the call in flight
+		long deadline = System.currentTimeMillis() + 10000L;
+		while (singleFlight.getMergedCalls() < 7 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5L);
+		}
+		finishCall.countDown();
+
+		for (Future<String> future : futures) {
+			Assert.assertEquals("result-used", future.get(10, TimeUnit.SECONDS));
+		}
+		Assert.assertEquals(1, callsMade.get());
+		Assert.assertEquals(8, singleFlight.getCalls());
+		Assert.assertEquals(7, singleFlight.getMergedCalls());
+		Assert.assertEquals(1, releases.get());
+		Assert.assertEquals(0, singleFlight.getInFlight());
+	}
+
+	@Test
+	public void testTheCallerHandingOverTheResultUsesItAfterEveryOtherThread() throws Exception {
+		SingleFlight<String,String> singleFlight = new SingleFlight<>();
+		CountDownLatch callStarted = new CountDownLatch(1);
+		CountDownLatch finishCall = new CountDownLatch(1);
+		List<String> uses = Collections.synchronizedList(new ArrayList<>());
+		List<Future<String>> futures = new ArrayList<>();
+
+		for (int i = 0; i < 4; i++) {
+			futures.add(executor.submit(() -> singleFlight.executeAndHandOver("key", () -> {
+					callStarted.countDown();
+					finishCall.await();
+					return "result";
+				}, result -> {
+					uses.add("leader");
+					return result + "-leader";
+				}, result -> {
+					try {
+						Thread.sleep(20L);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					uses.add("follower");
+					return result + "-follower";
+				})));
+		}
+
+		Assert.assertTrue(callStarted.await(10, TimeUnit.SECONDS));
+		long deadline = System.currentTimeMillis() + 10000L;
+		while (singleFlight.getMergedCalls() < 3 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5L);
+		}
+		finishCall.countDown();
+
+		List<String> results = new ArrayList<>();
+		for (Future<String> future : futures) {
+			results.add(future.get(10, TimeUnit.SECONDS));
+		}
+		Collections.sort(results);
+		Assert.assertEquals(Arrays.asList("result-follower", "result-follower", "result-follower", "result-leader"),
+				results);
+		Assert.assertEquals(Arrays.asList("follower", "follower", "follower", "leader"), uses);
+	}
+
+	@Test
+	public void testCallsAfterTheSharedCallHasCompletedRunAgain() throws IOException {
+		SingleFlight<String,Integer> singleFlight = new SingleFlight<>();
+		AtomicInteger callsMade = new AtomicInteger();
+
+		Assert.assertEquals(Integer.valueOf(1), singleFlight.execute("key", callsMade::incrementAndGet));
+		Assert.assertEquals(Integer.valueOf(2), singleFlight.execute("key", callsMade::incrementAndGet));
+		Assert.assertEquals(0, singleFlight.getMergedCalls());
+	}
+
+	@Test
+	public void testTheExceptionOfTheSharedCallIsThrown() {
+		SingleFlight<String,String> singleFlight = new SingleFlight<>();
+
+		try {
+			singleFlight.execute("key", () -> {
+				throw new FileNotFoundException("missing");
+			});
+			Assert.fail("Expected the exception to be thrown");
+		} catch (IOException e) {
+			Assert.assertTrue(e instanceof FileNotFoundException);
+		}
+
+		try {
+			singleFlight.execute("key", () -> {
+				throw new InterruptedException();
+			});
+			Assert.fail("Expected the exception to be thrown");
+		} catch (IOException e) {
+			Assert.assertTrue(e.getCause() instanceof InterruptedException);
+		}
+	}
+
+}
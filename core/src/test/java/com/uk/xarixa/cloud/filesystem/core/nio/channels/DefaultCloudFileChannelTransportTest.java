@@ -0,0 +1,109 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.channels;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.domain.BlobAccess;
+import org.jclouds.blobstore.options.PutOptions;
+import org.jmock.Expectations;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.uk.xarixa.cloud.filesystem.core.AbstractTransientBlobStoreTest;
+import com.uk.xarixa.cloud.filesystem.core.file.attribute.CloudPermissionFileAttribute;
+import com.uk.xarixa.cloud.filesystem.core.file.attribute.FileAttributeLookupMap;
+import com.uk.xarixa.cloud.filesystem.core.file.attribute.PutOptionFileAttribute;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class DefaultCloudFileChannelTransportTest extends AbstractTransientBlobStoreTest {
+	private CloudFileChannel channel;
+	private CloudPath path;
+
+	@Override
+	protected void postSetUp() {
+		channel = context.mock(CloudFileChannel.class);
+		path = context.mock(CloudPath.class);
+	}
+
+	@Test
+	public void testTheBlobAccessIsPutInTheUploadAndNotSetAfterwards() {
+		PutOptions channelPutOptions = new PutOptions().multipart();
+
+		context.checking(new Expectations() {{
+			allowing(channel).getContext();
+			will(returnValue(blobStoreContext));
+
+			allowing(channel).getPath();
+			will(returnValue(path));
+
+			allowing(channel).getPutOption();
+			will(returnValue(new PutOptionFileAttribute(channelPutOptions)));
+
+			allowing(channel).getCloudFileAttributes();
+			will(returnValue(new FileAttributeLookupMap(
+					new CloudPermissionFileAttribute<BlobAccess>(BlobAccess.PUBLIC_READ))));
+		}});
+
+		DefaultCloudFileChannelTransport transport = new DefaultCloudFileChannelTransport();
+		PutOptions putOptions = transport.getPutOption(channel, true).value();
+		Assert.assertEquals(BlobAccess.PUBLIC_READ, putOptions.getBlobAccess());
+		Assert.assertTrue(putOptions.isMultipart());
+		Assert.assertNotSame(channelPutOptions, putOptions);
+		Assert.assertEquals(BlobAccess.PRIVATE, channelPutOptions.getBlobAccess());
+
+		// The path is never asked for its container, so no separate access request is made
+		transport.postSyncToCloud(channel, true);
+	}
+
+	@Test
+	public void testTheBlobAccessIsPutInTheUploadToAws() {
+		BlobStoreContext awsContext = ContextBuilder.newBuilder("aws-s3")
+				.credentials("identity", "credential").buildView(BlobStoreContext.class);
+
+		try {
+			context.checking(new Expectations() {{
+				allowing(channel).getContext();
+				will(returnValue(awsContext));
+
+				allowing(channel).getPath();
+				will(returnValue(path));
+
+				allowing(channel).getPutOption();
+				will(returnValue(null));
+
+				allowing(channel).getCloudFileAttributes();
+				will(returnValue(new FileAttributeLookupMap(
+						new CloudPermissionFileAttribute<BlobAccess>(BlobAccess.PUBLIC_READ))));
+			}});
+
+			DefaultCloudFileChannelTransport transport = new DefaultCloudFileChannelTransport();
+			Assert.assertTrue(transport.canPutBlobAccess(awsContext));
+			Assert.assertEquals(BlobAccess.PUBLIC_READ, transport.getPutOption(channel, true).value().getBlobAccess());
+		} finally {
+			awsContext.close();
+		}
+	}
+
+	@Test
+	public void testThePutOptionsAreUnchangedWithoutMetadataOrABlobAccessAttribute() {
+		PutOptionFileAttribute putOption = new PutOptionFileAttribute(new PutOptions());
+
+		context.checking(new Expectations() {{
+			allowing(channel).getContext();
+			will(returnValue(blobStoreContext));
+
+			allowing(channel).getPutOption();
+			will(returnValue(putOption));
+
+			allowing(channel).getCloudFileAttributes();
+			will(returnValue(new FileAttributeLookupMap()));
+		}});
+
+		DefaultCloudFileChannelTransport transport = new DefaultCloudFileChannelTransport();
+		Assert.assertSame(putOption, transport.getPutOption(channel, false));
+		Assert.assertSame(putOption, transport.getPutOption(channel, true));
+	}
+
+}
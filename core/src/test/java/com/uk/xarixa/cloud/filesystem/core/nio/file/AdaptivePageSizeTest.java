@@ -0,0 +1,44 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class AdaptivePageSizeTest {
+
+	@Test
+	public void testPageSizeGrowsWhenTheConsumerIsFasterThanTheFetch() {
+		AdaptivePageSize pageSize = new AdaptivePageSize(10, 100, 300);
+		Assert.assertEquals(100, pageSize.getPageSize(AdaptivePageSize.NO_LIMIT));
+
+		pageSize.pageRead(100, 100, 5000000L, 1000000L);
+		Assert.assertEquals(200, pageSize.getPageSize(AdaptivePageSize.NO_LIMIT));
+		pageSize.pageRead(200, 200, 5000000L, 1000000L);
+		Assert.assertEquals(300, pageSize.getPageSize(AdaptivePageSize.NO_LIMIT));
+
+		// A slow consumer keeps the page size
+		AdaptivePageSize slowConsumer = new AdaptivePageSize(10, 100, 300);
+		slowConsumer.pageRead(100, 100, 1000000L, 5000000L);
+		Assert.assertEquals(100, slowConsumer.getPageSize(AdaptivePageSize.NO_LIMIT));
+	}
+
+	@Test
+	public void testLimitedPageSizeAllowsForTheFilterAcceptanceRate() {
+		AdaptivePageSize pageSize = new AdaptivePageSize(10, 100, 1000);
+		Assert.assertEquals(20, pageSize.getPageSize(20));
+		Assert.assertEquals(10, pageSize.getPageSize(3));
+
+		// One in ten entries is accepted, so ten times the remaining paths are listed
+		pageSize.pageRead(200, 20, 1000000L, 5000000L);
+		Assert.assertEquals(300, pageSize.getPageSize(30));
+		Assert.assertEquals(1000, pageSize.getPageSize(500));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testInitialPageSizeMustBeWithinTheMinimumAndMaximum() {
+		new AdaptivePageSize(100, 10, 1000);
+	}
+
+}
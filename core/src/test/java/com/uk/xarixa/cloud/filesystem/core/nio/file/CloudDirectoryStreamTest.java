@@ -0,0 +1,366 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.action.CustomAction;
+import org.jmock.lib.concurrent.Synchroniser;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystem;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPathWithAttributes;
+import com.uk.xarixa.cloud.filesystem.core.nio.cache.ListingCache;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class CloudDirectoryStreamTest {
+	private static final String TEST_CONTAINER = "stream-test-container";
+	private static final int PAGE_SIZE = 2;
+	private BlobStoreContext transientContext;
+	private BlobStore transientBlobStore;
+	private CloudFileSystem fileSystem;
+	private CloudPath dirPath;
+	private volatile int forcedPageSize = PAGE_SIZE;
+	private final List<Integer> requestedPageSizes = Collections.synchronizedList(new ArrayList<>());
+	private volatile CountDownLatch blockLaterPages;
+	private volatile ListingCache listingCache;
+
+	@Rule
+	public JUnitRuleMockery context = new JUnitRuleMockery() {{
+		setImposteriser(ClassImposteriser.INSTANCE);
+		setThreadingPolicy(new Synchroniser());
+	}};
+
+	@Before
+	public void setUp() {
+		transientContext = ContextBuilder.newBuilder("transient").buildView(BlobStoreContext.class);
+		transientBlobStore = transientContext.getBlobStore();
+		BlobStoreContext blobStoreContext = context.mock(BlobStoreContext.class);
+		BlobStore blobStore = context.mock(BlobStore.class);
+		fileSystem = context.mock(CloudFileSystem.class);
+
+		context.checking(new Expectations() {{
+			allowing(fileSystem).getBlobStoreContext();
+			will(returnValue(blobStoreContext));
+
+			allowing(fileSystem).getListingCache();
+			will(new CustomAction("Get the listing cache") {
+				@Override
+				public Object invoke(Invocation invocation) throws Throwable {
+					return listingCache;
+				}
+			});
+
+			allowing(fileSystem).getMetadataIndex(with(any(String.class)));
+			will(returnValue(null));
+
+			allowing(fileSystem).getListingIndex(with(any(String.class)), with(Expectations.<String>anything()));
+			will(returnValue(null));
+
+			allowing(blobStoreContext).getBlobStore();
+			will(returnValue(blobStore));
+
+			// List with a small page size so that the listing spans several pages
+			allowing(blobStore).list(with(any(String.class)), with(any(ListContainerOptions.class)));
+			will(new CustomAction("List in pages of " + PAGE_SIZE) {
+				@Override
+				public Object invoke(Invocation invocation) throws Throwable {
+					ListContainerOptions options = ((ListContainerOptions)invocation.getParameter(1)).clone();
+					requestedPageSizes.add(options.getMaxResults());
+					if (blockLaterPages != null && options.getMarker() != null) {
+						blockLaterPages.await();
+					}
+
+					return transientBlobStore.list((String)invocation.getParameter(0),
+							forcedPageSize > 0 ? options.maxResults(forcedPageSize) : options);
+				}
+			});
+
+			allowing(blobStore).blobMetadata(with(any(String.class)), with(any(String.class)));
+			will(new CustomAction("Read the metadata") {
+				@Override
+				public Object invoke(Invocation invocation) throws Throwable {
+					return transientBlobStore.blobMetadata((String)invocation.getParameter(0),
+							(String)invocation.getParameter(1));
+				}
+			});
+		}});
+
+		transientBlobStore.createContainerInLocation(null, TEST_CONTAINER);
+		for (String name : Arrays.asList("dir/a.txt", "dir/b.txt", "dir/c.log", "dir/d.txt", "dir/e.txt")) {
+			transientBlobStore.putBlob(TEST_CONTAINER, transientBlobStore.blobBuilder(name).payload("content").build());
+		}
+
+		dirPath = new CloudPath(fileSystem, true, "/" + TEST_CONTAINER + "/dir");
+	}
+
+	@After
+	public void tearDown() {
+		transientContext.close();
+	}
+
+	private List<String> readAll(Iterator<CloudPath> iterator, int maxEntries) {
+		List<String> names = new ArrayList<>();
+
+		while (names.size() < maxEntries && iterator.hasNext()) {
+			names.add(iterator.next().getFileName().toString());
+		}
+
+		return names;
+	}
+
+	@Test
+	public void testListingReadsAllPages() throws IOException {
+		try (CloudDirectoryStream stream = new CloudDirectoryStream(dirPath, false, false, null)) {
+			Assert.assertEquals(Arrays.asList("a.txt", "b.txt", "c.log", "d.txt", "e.txt"),
+					readAll(stream.iterator(), Integer.MAX_VALUE));
+		}
+	}
+
+	@Test
+	public void testResumingFromEachPositionReturnsTheRemainingEntries() throws IOException {
+		List<String> allNames = Arrays.asList("a.txt", "b.txt", "c.log", "d.txt", "e.txt");
+
+		for (int consumed = 0; consumed <= allNames.size(); consumed++) {
+			String encodedToken;
+
+			try (CloudDirectoryStream stream = new CloudDirectoryStream(dirPath, false, false, null)) {
+				Assert.assertEquals(allNames.subList(0, consumed), readAll(stream.iterator(), consumed));
+				encodedToken = stream.getContinuationToken().encode();
+			}
+
+			try (CloudDirectoryStream resumed = new CloudDirectoryStream(dirPath, false,
+					ListingContinuationToken.decode(encodedToken), null)) {
+				Assert.assertEquals("Resumed after " + consumed + " entries",
+						allNames.subList(consumed, allNames.size()), readAll(resumed.iterator(), Integer.MAX_VALUE));
+			}
+		}
+	}
+
+	@Test
+	public void testResumingAFilteredListingSkipsEntriesWhichWereAlreadyFilteredOut() throws IOException {
+		DirectoryStream.Filter<CloudPath> txtFilter = p -> p.getFileName().toString().endsWith(".txt");
+		ListingContinuationToken token;
+
+		try (CloudDirectoryStream stream = new CloudDirectoryStream(dirPath, false, false, txtFilter)) {
+			Iterator<CloudPath> iterator = stream.iterator();
+			Assert.assertEquals(Arrays.asList("a.txt", "b.txt", "d.txt"), readAll(iterator, 3));
+			token = stream.getContinuationToken();
+		}
+
+		// d.txt is the second entry of the second page
+		Assert.assertEquals(2, token.getPageOffset());
+
+		try (CloudDirectoryStream resumed = new CloudDirectoryStream(dirPath, false, token, txtFilter)) {
+			Assert.assertEquals(Arrays.asList("e.txt"), readAll(resumed.iterator(), Integer.MAX_VALUE));
+		}
+	}
+
+	@Test
+	public void testResumingAKeyRangeListingStopsAtTheEndOfTheRange() throws IOException {
+		KeyRange keyRange = new KeyRange("dir/b.txt", "dir/e.txt");
+		List<String> rangeNames = Arrays.asList("b.txt", "c.log", "d.txt");
+
+		for (int consumed = 0; consumed <= rangeNames.size(); consumed++) {
+			String encodedToken;
+
+			try (CloudDirectoryStream stream = new CloudDirectoryStream(dirPath, false, keyRange, null)) {
+				Assert.assertEquals(rangeNames.subList(0, consumed), readAll(stream.iterator(), consumed));
+				encodedToken = stream.getContinuationToken().encode();
+			}
+
+			try (CloudDirectoryStream resumed = new CloudDirectoryStream(dirPath, false,
+					ListingContinuationToken.decode(encodedToken), null)) {
+				Assert.assertEquals(keyRange, resumed.getKeyRange());
+				Assert.assertEquals("Resumed after " + consumed + " entries",
+						rangeNames.subList(consumed, rangeNames.size()), readAll(resumed.iterator(), Integer.MAX_VALUE));
+			}
+		}
+	}
+
+	@Test
+	public void testTheContinuationTokenIsNotMovedOnByHasNext() throws IOException {
+		try (CloudDirectoryStream stream = new CloudDirectoryStream(dirPath, false, false, null)) {
+			Iterator<CloudPath> iterator = stream.iterator();
+			iterator.next();
+			iterator.next();
+
+			// This reads the next page but nothing has been returned from it
+			Assert.assertTrue(iterator.hasNext());
+			ListingContinuationToken token = stream.getContinuationToken();
+			Assert.assertNull(token.getPageMarker());
+			Assert.assertEquals(2, token.getPageOffset());
+		}
+	}
+
+	@Test
+	public void testDelimitedListingReturnsDirectoriesWithoutMarkers() throws IOException {
+		for (String name : Arrays.asList("dir/implicit/x.txt", "dir/implicit/y/z.txt", "dir/f.txt")) {
+			transientBlobStore.putBlob(TEST_CONTAINER, transientBlobStore.blobBuilder(name).payload("content").build());
+		}
+
+		List<String> names = new ArrayList<>();
+		CloudPath implicitDir = null;
+		try (CloudDirectoryStream stream = new CloudDirectoryStream(dirPath, false, ListingMode.DELIMITED, null)) {
+			for (CloudPath path : stream) {
+				names.add(path.getFileName().toString());
+				if (((CloudPathWithAttributes)path).getAttributes().isDirectory()) {
+					implicitDir = path;
+				}
+			}
+		}
+
+		Assert.assertEquals(Arrays.asList("a.txt", "b.txt", "c.log", "d.txt", "e.txt", "f.txt", "implicit"), names);
+		Assert.assertEquals("dir/implicit", implicitDir.toAbsolutePath().getPathName());
+	}
+
+	@Test
+	public void testResumingADelimitedListingKeepsTheListingMode() throws IOException {
+		transientBlobStore.putBlob(TEST_CONTAINER, transientBlobStore.blobBuilder("dir/sub/x.txt").payload("content").build());
+		String encodedToken;
+
+		try (CloudDirectoryStream stream = new CloudDirectoryStream(dirPath, false, ListingMode.DELIMITED, null)) {
+			readAll(stream.iterator(), 4);
+			encodedToken = stream.getContinuationToken().encode();
+		}
+
+		try (CloudDirectoryStream resumed = new CloudDirectoryStream(dirPath, false,
+				ListingContinuationToken.decode(encodedToken), null)) {
+			Assert.assertEquals(ListingMode.DELIMITED, resumed.getListingMode());
+			Assert.assertEquals(Arrays.asList("e.txt", "sub"), readAll(resumed.iterator(), Integer.MAX_VALUE));
+		}
+	}
+
+	@Test
+	public void testLimitedListingSizesThePagesToTheRemainingPaths() throws IOException {
+		forcedPageSize = 0;
+
+		try (CloudDirectoryStream stream = new CloudDirectoryStream(dirPath, false, false, null)) {
+			stream.setPageSize(new AdaptivePageSize(1, 10, 100));
+			stream.setLimit(2);
+			Assert.assertEquals(Arrays.asList("a.txt", "b.txt"), readAll(stream.iterator(), Integer.MAX_VALUE));
+		}
+
+		Assert.assertEquals(Arrays.asList(2), requestedPageSizes);
+	}
+
+	@Test
+	public void testListingTheSameDirectoryTwiceReadsTheCachedPages() throws IOException {
+		listingCache = new ListingCache(60000L, 100);
+		List<String> allNames = Arrays.asList("a.txt", "b.txt", "c.log", "d.txt", "e.txt");
+
+		try (CloudDirectoryStream stream = new CloudDirectoryStream(dirPath, false, false, null)) {
+			stream.setPageSize(new AdaptivePageSize(1, 1, 10));
+			Assert.assertEquals(allNames, readAll(stream.iterator(), Integer.MAX_VALUE));
+		}
+
+		Assert.assertEquals(Arrays.asList(10, 10, 10), requestedPageSizes);
+
+		try (CloudDirectoryStream stream = new CloudDirectoryStream(dirPath, false, false, null)) {
+			stream.setPageSize(new AdaptivePageSize(1, 1, 10));
+			Assert.assertEquals(allNames, readAll(stream.iterator(), Integer.MAX_VALUE));
+		}
+
+		Assert.assertEquals(3, requestedPageSizes.size());
+		Assert.assertEquals(3, listingCache.size());
+	}
+
+	@Test
+	public void testResumingWithSmallerPagesCarriesTheOffsetIntoTheNextPage() throws IOException {
+		forcedPageSize = 0;
+		ListingContinuationToken token;
+
+		try (CloudDirectoryStream stream = new CloudDirectoryStream(dirPath, false, false, null)) {
+			stream.setPageSize(new AdaptivePageSize(5));
+			readAll(stream.iterator(), 3);
+			token = stream.getContinuationToken();
+		}
+
+		try (CloudDirectoryStream resumed = new CloudDirectoryStream(dirPath, false, token, null)) {
+			resumed.setPageSize(new AdaptivePageSize(2));
+			Assert.assertEquals(Arrays.asList("d.txt", "e.txt"), readAll(resumed.iterator(), Integer.MAX_VALUE));
+		}
+	}
+
+	@Test
+	public void testPrefetchedListingReadsAllPages() throws IOException {
+		try (CloudDirectoryStream stream = new CloudDirectoryStream(dirPath, false, false, null)) {
+			stream.setPrefetch(true);
+			Assert.assertEquals(Arrays.asList("a.txt", "b.txt", "c.log", "d.txt", "e.txt"),
+					readAll(stream.iterator(), Integer.MAX_VALUE));
+		}
+	}
+
+	@Test
+	public void testClosingTheStreamCancelsThePrefetch() throws Exception {
+		blockLaterPages = new CountDownLatch(1);
+		CloudDirectoryStream stream = new CloudDirectoryStream(dirPath, false, false, null);
+		stream.setPrefetch(true);
+		Iterator<CloudPath> iterator = stream.iterator();
+		Assert.assertEquals(Arrays.asList("a.txt", "b.txt"), readAll(iterator, 2));
+
+		// The second page is blocked in the prefetch until it is cancelled
+		long waitUntil = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+		while (requestedPageSizes.size() < 2 && System.currentTimeMillis() < waitUntil) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(2, requestedPageSizes.size());
+
+		stream.close();
+		Assert.assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void testEncodedTokenCanBeDecoded() {
+		ListingContinuationToken token =
+				new ListingContinuationToken(TEST_CONTAINER, "dir", ListingMode.RECURSIVE, "dir/b.txt", 7);
+		Assert.assertEquals(token, ListingContinuationToken.decode(token.encode()));
+
+		ListingContinuationToken containerToken =
+				new ListingContinuationToken(TEST_CONTAINER, null, ListingMode.DIRECTORY, null, 0);
+		Assert.assertEquals(containerToken, ListingContinuationToken.decode(containerToken.encode()));
+
+		ListingContinuationToken delimitedToken =
+				new ListingContinuationToken(TEST_CONTAINER, "dir", ListingMode.DELIMITED, "dir/sub/", 1);
+		Assert.assertEquals(delimitedToken, ListingContinuationToken.decode(delimitedToken.encode()));
+
+		ListingContinuationToken keyRangeToken = new ListingContinuationToken(TEST_CONTAINER, "dir",
+				ListingMode.RECURSIVE, new KeyRange("dir/b.txt", null), "dir/c.log", 2);
+		Assert.assertEquals(keyRangeToken, ListingContinuationToken.decode(keyRangeToken.encode()));
+		Assert.assertNotEquals(token, keyRangeToken);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testDecodingAnInvalidTokenThrowsAnException() {
+		ListingContinuationToken.decode("not-a-token");
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testResumingAListingOfADifferentDirectoryThrowsAnException() {
+		ListingContinuationToken token =
+				new ListingContinuationToken(TEST_CONTAINER, "other", ListingMode.DIRECTORY, null, 1);
+		new CloudDirectoryStream(dirPath, false, token, null);
+	}
+
+}
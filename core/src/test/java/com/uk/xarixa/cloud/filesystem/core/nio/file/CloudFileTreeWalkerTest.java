@@ -0,0 +1,169 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.uk.xarixa.cloud.filesystem.core.AbstractTransientBlobStoreTest;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudBasicFileAttributes;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class CloudFileTreeWalkerTest extends AbstractTransientBlobStoreTest {
+	private CloudPath dirPath;
+
+	@Override
+	protected void postSetUp() {
+		allowUncachedListings();
+		createBlob("dir/a.txt");
+		createBlob("dir/sub/b.txt");
+		createBlob("dir/sub/deeper/c.txt");
+		blobStore.createDirectory(TEST_CONTAINER, "dir/empty");
+		createBlob("dir/z.txt");
+		createBlob("other/x.txt");
+		dirPath = path("dir");
+	}
+
+	private void createBlob(String name) {
+		blobStore.putBlob(TEST_CONTAINER, blobStore.blobBuilder(name).payload("content").build());
+	}
+
+	private List<String> walk(int maxDepth, RecordingVisitor visitor) throws IOException {
+		CloudDirectoryStream recursiveListing = new CloudDirectoryStream(dirPath, false, true, null);
+		new CloudFileTreeWalker(maxDepth, visitor).walk(dirPath, new CloudBasicFileAttributes(), recursiveListing);
+		return visitor.events;
+	}
+
+	@Test
+	public void testWalkVisitsAllDirectoriesAndFilesFromASingleListing() throws IOException {
+		List<String> events = walk(Integer.MAX_VALUE, new RecordingVisitor());
+		Assert.assertEquals(Arrays.asList(
+				"pre:/test-container/dir",
+				"file:/test-container/dir/a.txt",
+				"pre:/test-container/dir/empty",
+				"post:/test-container/dir/empty",
+				"pre:/test-container/dir/sub",
+				"file:/test-container/dir/sub/b.txt",
+				"pre:/test-container/dir/sub/deeper",
+				"file:/test-container/dir/sub/deeper/c.txt",
+				"post:/test-container/dir/sub/deeper",
+				"post:/test-container/dir/sub",
+				"file:/test-container/dir/z.txt",
+				"post:/test-container/dir"), events);
+	}
+
+	@Test
+	public void testWalkVisitsDirectoriesAtTheMaximumDepthAsFiles() throws IOException {
+		List<String> events = walk(1, new RecordingVisitor());
+		Assert.assertEquals(Arrays.asList(
+				"pre:/test-container/dir",
+				"file:/test-container/dir/a.txt",
+				"file:/test-container/dir/empty",
+				"file:/test-container/dir/sub",
+				"file:/test-container/dir/z.txt",
+				"post:/test-container/dir"), events);
+	}
+
+	@Test
+	public void testWalkWithAZeroMaximumDepthOnlyVisitsTheStartPath() throws IOException {
+		List<String> events = walk(0, new RecordingVisitor());
+		Assert.assertEquals(Arrays.asList("file:/test-container/dir"), events);
+	}
+
+	@Test
+	public void testWalkDoesNotVisitASkippedSubtree() throws IOException {
+		List<String> events = walk(Integer.MAX_VALUE, new RecordingVisitor() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				super.preVisitDirectory(dir, attrs);
+				return ((CloudPath)dir).toAbsolutePath().toString().endsWith("/sub") ?
+						FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+			}
+		});
+
+		Assert.assertEquals(Arrays.asList(
+				"pre:/test-container/dir",
+				"file:/test-container/dir/a.txt",
+				"pre:/test-container/dir/empty",
+				"post:/test-container/dir/empty",
+				"pre:/test-container/dir/sub",
+				"file:/test-container/dir/z.txt",
+				"post:/test-container/dir"), events);
+	}
+
+	@Test
+	public void testWalkSkipsTheSiblingsOfAFile() throws IOException {
+		List<String> events = walk(Integer.MAX_VALUE, new RecordingVisitor() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				super.visitFile(file, attrs);
+				return ((CloudPath)file).toAbsolutePath().toString().endsWith("/b.txt") ?
+						FileVisitResult.SKIP_SIBLINGS : FileVisitResult.CONTINUE;
+			}
+		});
+
+		Assert.assertEquals(Arrays.asList(
+				"pre:/test-container/dir",
+				"file:/test-container/dir/a.txt",
+				"pre:/test-container/dir/empty",
+				"post:/test-container/dir/empty",
+				"pre:/test-container/dir/sub",
+				"file:/test-container/dir/sub/b.txt",
+				"post:/test-container/dir/sub",
+				"file:/test-container/dir/z.txt",
+				"post:/test-container/dir"), events);
+	}
+
+	@Test
+	public void testWalkStopsWhenTerminated() throws IOException {
+		List<String> events = walk(Integer.MAX_VALUE, new RecordingVisitor() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				super.visitFile(file, attrs);
+				return ((CloudPath)file).toAbsolutePath().toString().endsWith("/b.txt") ?
+						FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+			}
+		});
+
+		Assert.assertEquals(Arrays.asList(
+				"pre:/test-container/dir",
+				"file:/test-container/dir/a.txt",
+				"pre:/test-container/dir/empty",
+				"post:/test-container/dir/empty",
+				"pre:/test-container/dir/sub",
+				"file:/test-container/dir/sub/b.txt"), events);
+	}
+
+	private static class RecordingVisitor extends SimpleFileVisitor<Path> {
+		private final List<String> events = new ArrayList<>();
+
+		@Override
+		public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+			events.add("pre:" + ((CloudPath)dir).toAbsolutePath());
+			return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+			events.add("file:" + ((CloudPath)file).toAbsolutePath());
+			return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+			events.add("post:" + ((CloudPath)dir).toAbsolutePath());
+			return FileVisitResult.CONTINUE;
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.attribute.AclEntryPermission;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jmock.Expectations;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.uk.xarixa.cloud.filesystem.core.AbstractTransientBlobStoreTest;
+import com.uk.xarixa.cloud.filesystem.core.host.configuration.CloudHostConfiguration;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystemImplementation;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudFileStoreUsageView;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class DirectoryUsageCalculatorTest extends AbstractTransientBlobStoreTest {
+
+	@Override
+	protected void postSetUp() {
+		createBlob("dir/a.txt", 10);
+		createBlob("dir/sub1/b.txt", 20);
+		createBlob("dir/sub1/c.txt", 30);
+		createBlob("dir/sub1/deep/d.txt", 40);
+		createBlob("dir/sub2/e.txt", 50);
+		createBlob("other/f.txt", 1000);
+	}
+
+	private void createBlob(String name, int size) {
+		blobStore.putBlob(TEST_CONTAINER, blobStore.blobBuilder(name).payload(new byte[size]).build());
+	}
+
+	private void assertUsage(DirectoryUsage usage, String path, long size, long fileCount) {
+		Assert.assertNotNull("No usage for " + path, usage);
+		Assert.assertEquals(path, usage.getPath());
+		Assert.assertEquals("Size of " + path, size, usage.getSize());
+		Assert.assertEquals("File count of " + path, fileCount, usage.getFileCount());
+	}
+
+	@Test
+	public void testUsageIsCalculatedForEachDirectoryToTheMaximumDepth() {
+		DirectoryUsage usage = new DirectoryUsageCalculator(blobStore, TEST_CONTAINER, "dir", 1).calculate();
+
+		assertUsage(usage, "", 150, 5);
+		Assert.assertEquals(2, usage.getChildren().size());
+		assertUsage(usage.getChild("sub1"), "sub1", 90, 3);
+		assertUsage(usage.getChild("sub2"), "sub2", 50, 1);
+
+		// Beyond the maximum depth the usage is included in the ancestor
+		Assert.assertTrue(usage.getChild("sub1").getChildren().isEmpty());
+	}
+
+	@Test
+	public void testUsageWithUnlimitedDepthForAContainer() {
+		DirectoryUsage usage = new DirectoryUsageCalculator(blobStore, TEST_CONTAINER, null,
+				DirectoryUsageCalculator.UNLIMITED_DEPTH).calculate();
+
+		assertUsage(usage, "", 1150, 6);
+		assertUsage(usage.getChild("other"), "other", 1000, 1);
+		assertUsage(usage.getChild("dir").getChild("sub1").getChild("deep"), "dir/sub1/deep", 40, 1);
+	}
+
+	@Test
+	public void testShardedUsageIsTheSameAsASingleListing() throws IOException {
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			names.add(String.format("dir/sub%d/file-%03d.dat", i % 3, i));
+		}
+		names.forEach(n -> createBlob(n, 3));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			DirectoryUsageCalculator calculator = new DirectoryUsageCalculator(blobStore, TEST_CONTAINER, "dir", 2);
+			DirectoryUsage expected = calculator.calculate();
+			DirectoryUsage sharded = calculator.calculate(executor, 4);
+
+			assertUsage(sharded, "", expected.getSize(), expected.getFileCount());
+			Assert.assertEquals(expected.getChildren().size(), sharded.getChildren().size());
+			for (DirectoryUsage child : expected.getChildren()) {
+				assertUsage(sharded.getChild(child.getName()), child.getPath(), child.getSize(), child.getFileCount());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private CloudFileSystemImplementation expectUsageView() {
+		CloudHostConfiguration config = context.mock(CloudHostConfiguration.class);
+		CloudFileSystemImplementation impl = context.mock(CloudFileSystemImplementation.class);
+
+		context.checking(new Expectations() {{
+			allowing(fileSystem).getBlobStoreContext();
+			will(returnValue(blobStoreContext));
+
+			allowing(fileSystem).getCloudHostConfiguration();
+			will(returnValue(config));
+
+			allowing(config).getCloudFileSystemImplementation();
+			will(returnValue(impl));
+		}});
+
+		return impl;
+	}
+
+	@Test
+	public void testFileStoreUsageViewCachesTheContainerUsageUntilItIsInvalidated() throws IOException {
+		CloudFileSystemImplementation impl = expectUsageView();
+		context.checking(new Expectations() {{
+			exactly(3).of(impl).checkAccess(with(same(blobStoreContext)),
+					with(equal(path(null))),
+					with(equal(EnumSet.of(AclEntryPermission.LIST_DIRECTORY))));
+		}});
+
+		CloudFileStoreUsageView view = new CloudFileStoreUsageView(fileSystem);
+		assertUsage(view.getContainerUsage(TEST_CONTAINER), "", 1150, 6);
+
+		createBlob("dir/new.txt", 5);
+		assertUsage(view.getContainerUsage(TEST_CONTAINER), "", 1150, 6);
+
+		view.invalidate(TEST_CONTAINER);
+		assertUsage(view.getContainerUsage(TEST_CONTAINER), "", 1155, 7);
+	}
+
+	@Test
+	public void testFileStoreUsageViewChecksTheContainerCanBeListed() throws IOException {
+		CloudFileSystemImplementation impl = expectUsageView();
+		context.checking(new Expectations() {{
+			oneOf(impl).checkAccess(with(same(blobStoreContext)), with(any(CloudPath.class)),
+					with(Expectations.<Set<AclEntryPermission>>anything()));
+			will(throwException(new AccessDeniedException("/" + TEST_CONTAINER)));
+		}});
+
+		try {
+			new CloudFileStoreUsageView(fileSystem).getContainerUsage(TEST_CONTAINER);
+			Assert.fail("Expected access to be denied");
+		} catch (AccessDeniedException e) {
+			// OK
+		}
+	}
+
+}
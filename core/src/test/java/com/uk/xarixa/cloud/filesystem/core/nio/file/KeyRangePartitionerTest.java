@@ -0,0 +1,144 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.uk.xarixa.cloud.filesystem.core.AbstractTransientBlobStoreTest;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class KeyRangePartitionerTest extends AbstractTransientBlobStoreTest {
+	private CloudPath dirPath;
+
+	@Override
+	protected void postSetUp() {
+		allowUncachedListings();
+		dirPath = path("dir");
+	}
+
+	private List<String> createBlobs(List<String> names) {
+		for (String name : names) {
+			blobStore.putBlob(TEST_CONTAINER, blobStore.blobBuilder(name).payload("content").build());
+		}
+
+		List<String> sortedNames = new ArrayList<>(names);
+		Collections.sort(sortedNames);
+		return sortedNames;
+	}
+
+	/**
+	 * Lists each key range in turn and checks that every key is listed exactly once and in order
+	 * @return The number of keys in each range
+	 */
+	private List<Integer> listRanges(List<KeyRange> ranges, List<String> expectedKeys) throws IOException {
+		List<String> listedKeys = new ArrayList<>();
+		List<Integer> rangeSizes = new ArrayList<>();
+
+		for (KeyRange range : ranges) {
+			int rangeSize = 0;
+
+			try (CloudDirectoryStream stream = new CloudDirectoryStream(dirPath, false, range, null)) {
+				for (CloudPath path : stream) {
+					String key = path.toAbsolutePath().getPathName();
+					Assert.assertTrue("Key " + key + " is not in range " + range, range.contains(key));
+					listedKeys.add(key);
+					rangeSize++;
+				}
+			}
+
+			rangeSizes.add(rangeSize);
+		}
+
+		Assert.assertEquals(expectedKeys, listedKeys);
+		return rangeSizes;
+	}
+
+	private void assertRangesAreContiguous(List<KeyRange> ranges) {
+		Assert.assertNull(ranges.get(0).getStart());
+		Assert.assertNull(ranges.get(ranges.size() - 1).getEnd());
+
+		for (int i = 1; i < ranges.size(); i++) {
+			Assert.assertEquals(ranges.get(i - 1).getEnd(), ranges.get(i).getStart());
+		}
+	}
+
+	private void assertBalanced(List<Integer> rangeSizes, int totalKeys) {
+		int average = totalKeys / rangeSizes.size();
+
+		for (int rangeSize : rangeSizes) {
+			Assert.assertTrue("Unbalanced range sizes " + rangeSizes,
+					rangeSize > average / 2 && rangeSize < average * 3 / 2);
+		}
+	}
+
+	@Test
+	public void testPartitionSplitsUniformlyDistributedKeysIntoBalancedRanges() throws IOException {
+		List<String> names = new ArrayList<>();
+		for (long i = 0; i < 1000; i++) {
+			names.add(String.format("dir/%08x.dat", (i * 2654435761L) & 0xffffffffL));
+		}
+		List<String> keys = createBlobs(names);
+
+		List<KeyRange> ranges = new KeyRangePartitioner(blobStore, TEST_CONTAINER, "dir", 50, 8).partition(4);
+		Assert.assertEquals(4, ranges.size());
+		assertRangesAreContiguous(ranges);
+		assertBalanced(listRanges(ranges, keys), keys.size());
+	}
+
+	@Test
+	public void testPartitionSplitsClusteredKeysIntoBalancedRanges() throws IOException {
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			names.add(String.format("dir/file-%03d.txt", i));
+		}
+		for (int i = 0; i < 50; i++) {
+			names.add(String.format("dir/sub/x-%02d.txt", i));
+		}
+		names.add("other/outside.txt");
+		List<String> keys = createBlobs(names);
+		keys.remove("other/outside.txt");
+
+		List<KeyRange> ranges = new KeyRangePartitioner(blobStore, TEST_CONTAINER, "dir", 50, 8).partition(3);
+		Assert.assertEquals(3, ranges.size());
+		assertRangesAreContiguous(ranges);
+		assertBalanced(listRanges(ranges, keys), keys.size());
+	}
+
+	@Test
+	public void testPartitionReturnsASingleRangeForAnEmptyDirectory() {
+		Assert.assertEquals(Collections.singletonList(KeyRange.ALL),
+				new KeyRangePartitioner(blobStore, TEST_CONTAINER, "dir").partition(8));
+	}
+
+	@Test
+	public void testPartitionReturnsFewerRangesWhenThereAreFewerKeys() throws IOException {
+		List<String> keys = createBlobs(new ArrayList<>(new TreeSet<String>() {{
+			add("dir/a.txt");
+			add("dir/b.txt");
+		}}));
+
+		List<KeyRange> ranges = new KeyRangePartitioner(blobStore, TEST_CONTAINER, "dir").partition(8);
+		Assert.assertTrue(ranges.size() <= 2);
+		assertRangesAreContiguous(ranges);
+		listRanges(ranges, keys);
+	}
+
+	@Test
+	public void testKeyRangeContainsTheStartKeyButNotTheEndKey() {
+		KeyRange range = new KeyRange("dir/b", "dir/d");
+		Assert.assertFalse(range.contains("dir/a"));
+		Assert.assertTrue(range.contains("dir/b"));
+		Assert.assertTrue(range.contains("dir/c/e.txt"));
+		Assert.assertFalse(range.contains("dir/d"));
+		Assert.assertTrue(KeyRange.ALL.contains("anything"));
+	}
+
+}
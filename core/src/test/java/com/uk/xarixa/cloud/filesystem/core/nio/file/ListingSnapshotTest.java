@@ -0,0 +1,100 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jclouds.blobstore.domain.StorageType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.uk.xarixa.cloud.filesystem.core.AbstractTransientBlobStoreTest;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPathWithAttributes;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ListingSnapshotTest extends AbstractTransientBlobStoreTest {
+	private CloudPath dirPath;
+
+	@Override
+	protected void postSetUp() {
+		allowUncachedListings();
+		dirPath = path("dir");
+	}
+
+	@Test
+	public void testCreateSnapshotFromARecursiveListing() {
+		for (String name : Arrays.asList("dir/a.txt", "dir/sub/b.txt", "dir/sub/c.txt", "other/d.txt")) {
+			blobStore.putBlob(TEST_CONTAINER, blobStore.blobBuilder(name).payload(name).build());
+		}
+
+		ListingSnapshot snapshot = ListingSnapshot.create(dirPath, false, true);
+		Assert.assertEquals(3, snapshot.size());
+
+		List<String> keys = new ArrayList<>();
+		snapshot.forEach(e -> keys.add(e.getKey()));
+		Assert.assertEquals(Arrays.asList("dir/a.txt", "dir/sub/b.txt", "dir/sub/c.txt"), keys);
+		Assert.assertEquals("sub/b.txt", snapshot.getRelativeName(1));
+		Assert.assertEquals("dir/a.txt".length() + "dir/sub/b.txt".length() + "dir/sub/c.txt".length(),
+				snapshot.getTotalSize());
+		Assert.assertEquals(blobStore.blobMetadata(TEST_CONTAINER, "dir/sub/c.txt").getETag(), snapshot.getETag(2));
+		Assert.assertTrue(snapshot.get(0).isRegularFile());
+
+		CloudPathWithAttributes path = snapshot.get(1).toPath();
+		Assert.assertEquals("b.txt", path.getFileName().toString());
+		Assert.assertEquals("dir/sub/b.txt", path.toAbsolutePath().getPathName());
+		Assert.assertEquals("dir/sub/b.txt".length(), path.getAttributes().size());
+	}
+
+	@Test
+	public void testETagsAreStoredExactly() {
+		List<String> eTags = Arrays.asList("\"0123456789abcdef0123456789abcdef\"", "00000000000000000000000000000001",
+				"\"d41d8cd98f00b204e9800998ecf8427e-12\"", "0123456789ABCDEF0123456789ABCDEF", null, "W/\"abc\"");
+		ListingSnapshot.Builder builder = new ListingSnapshot.Builder(dirPath);
+
+		for (int i = 0; i < eTags.size(); i++) {
+			builder.add("dir/file-" + i, StorageType.BLOB, i, 1000L * i, eTags.get(i));
+		}
+
+		ListingSnapshot snapshot = builder.build();
+		for (int i = 0; i < eTags.size(); i++) {
+			Assert.assertEquals(eTags.get(i), snapshot.getETag(i));
+			Assert.assertEquals(i, snapshot.getSize(i));
+			Assert.assertEquals(1000L * i, snapshot.get(i).lastModifiedTime().toMillis());
+		}
+	}
+
+	@Test
+	public void testDirectoriesAndKeyLookup() {
+		ListingSnapshot snapshot = new ListingSnapshot.Builder(dirPath)
+				.add("dir/a/", StorageType.FOLDER, 0, 0, null)
+				.add("dir/a/b.txt", StorageType.BLOB, 10, 0, null)
+				.add("dir/c.txt", StorageType.BLOB, 20, 0, null)
+				.build();
+
+		Assert.assertTrue(snapshot.isDirectory(0));
+		Assert.assertEquals("dir/a/", snapshot.getKey(0));
+		Assert.assertEquals(1, snapshot.indexOf("dir/a/b.txt"));
+		Assert.assertEquals(2, snapshot.indexOf("dir/c.txt"));
+		Assert.assertEquals(-3, snapshot.indexOf("dir/b.txt"));
+	}
+
+	@Test
+	public void testLargeSnapshotUsesLessThan100BytesPerEntry() {
+		ListingSnapshot.Builder builder = new ListingSnapshot.Builder(dirPath);
+		int entries = 100000;
+
+		for (int i = 0; i < entries; i++) {
+			builder.add(String.format("dir/logs/2020-%02d-%02d/event-%06d.json", 1 + i % 12, 1 + i % 28, i),
+					StorageType.BLOB, i, System.currentTimeMillis(), String.format("\"%032x\"", i * 31L));
+		}
+
+		ListingSnapshot snapshot = builder.build();
+		Assert.assertEquals(entries, snapshot.size());
+		Assert.assertTrue("Memory usage per entry was " + snapshot.estimateMemoryUsage() / entries,
+				snapshot.estimateMemoryUsage() / entries < 100);
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jclouds.blobstore.options.CreateContainerOptions;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.uk.xarixa.cloud.filesystem.core.AbstractTransientBlobStoreTest;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class MergedDirectoryStreamTest extends AbstractTransientBlobStoreTest {
+
+	@Override
+	protected void postSetUp() {
+		allowUncachedListings();
+		createBlobs("bucket-a", "logs/01.log", "logs/03.log", "logs/05.log");
+		createBlobs("bucket-b", "logs/02.log", "logs/03.log", "logs/04.log", "logs/06.log");
+		createBlobs("bucket-c");
+	}
+
+	private void createBlobs(String containerName, String... names) {
+		blobStore.createContainerInLocation(null, containerName, new CreateContainerOptions());
+		for (String name : names) {
+			blobStore.putBlob(containerName, blobStore.blobBuilder(name).payload("content").build());
+		}
+	}
+
+	private CloudDirectoryStream newStream(String containerName) {
+		return new CloudDirectoryStream(new CloudPath(fileSystem, true, "/" + containerName + "/logs"), false, false, null);
+	}
+
+	@Test
+	public void testListingsAreMergedInKeyOrder() throws IOException {
+		List<String> paths = new ArrayList<>();
+
+		try (MergedDirectoryStream stream = new MergedDirectoryStream(
+				Arrays.asList(newStream("bucket-a"), newStream("bucket-b"), newStream("bucket-c")))) {
+			stream.forEach(p -> paths.add(p.toAbsolutePath().toString()));
+		}
+
+		Assert.assertEquals(Arrays.asList("/bucket-a/logs/01.log", "/bucket-b/logs/02.log", "/bucket-a/logs/03.log",
+				"/bucket-b/logs/03.log", "/bucket-b/logs/04.log", "/bucket-a/logs/05.log", "/bucket-b/logs/06.log"), paths);
+	}
+
+	@Test
+	public void testClosingTheMergedStreamClosesEachStream() throws IOException {
+		CloudDirectoryStream streamA = newStream("bucket-a");
+		CloudDirectoryStream streamB = newStream("bucket-b");
+		MergedDirectoryStream stream = new MergedDirectoryStream(Arrays.asList(streamA, streamB));
+		stream.close();
+
+		try {
+			streamA.iterator();
+			Assert.fail("Expected the stream to be closed");
+		} catch (IllegalStateException e) {
+			// OK
+		}
+
+		try {
+			streamB.iterator();
+			Assert.fail("Expected the stream to be closed");
+		} catch (IllegalStateException e) {
+			// OK
+		}
+	}
+
+}
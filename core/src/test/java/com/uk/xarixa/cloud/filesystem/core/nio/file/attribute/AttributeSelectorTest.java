@@ -0,0 +1,83 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file.attribute;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+import org.jclouds.blobstore.domain.BlobAccess;
+import org.jclouds.blobstore.domain.MutableBlobMetadata;
+import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.domain.internal.MutableBlobMetadataImpl;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class AttributeSelectorTest {
+
+	private MutableBlobMetadata createBlobMetadata() {
+		MutableBlobMetadata blobMetadata = new MutableBlobMetadataImpl();
+		blobMetadata.setName("file.txt");
+		blobMetadata.setType(StorageType.BLOB);
+		blobMetadata.setLastModified(new Date(1000L));
+		blobMetadata.setSize(42L);
+		return blobMetadata;
+	}
+
+	@Test
+	public void testCompiledSelectorsAreReused() {
+		Assert.assertSame(AttributeSelector.compile("size,lastModifiedTime"),
+				AttributeSelector.compile("size,lastModifiedTime"));
+	}
+
+	@Test
+	public void testOnlyTheSelectedAttributesAreComputedWithoutReadingTheAcls() {
+		AttributeSelector selector = AttributeSelector.compile("basic:size,lastModifiedTime");
+		Assert.assertFalse(selector.isAclRequired());
+		Assert.assertEquals(CloudBasicFileAttributes.class, selector.getAttributesType());
+
+		CloudAclFileAttributes attributes = new CloudAclFileAttributes(DefaultCloudAclEntryConflictChecker.INSTANCE,
+				createBlobMetadata(), () -> {
+					throw new AssertionError("The blob access should not be read");
+				});
+		Map<String,Object> selected = selector.select(attributes);
+
+		Assert.assertEquals(Arrays.asList("lastModifiedTime", "size"), Arrays.asList(selected.keySet().toArray()));
+		Assert.assertEquals(42L, selected.get("size"));
+		Assert.assertFalse(attributes.isAclSetLoaded());
+	}
+
+	@Test
+	public void testAllAttributesOfTheCloudViewIncludeTheAclSet() {
+		AttributeSelector selector = AttributeSelector.compile("*");
+		Assert.assertTrue(selector.isAclRequired());
+		Assert.assertEquals(CloudFileAttribute.values().length, selector.getAttributes().size());
+
+		Map<String,Object> selected = selector.select(new CloudAclFileAttributes(DefaultCloudAclEntryConflictChecker.INSTANCE,
+				createBlobMetadata(), () -> BlobAccess.PRIVATE));
+		Assert.assertNotNull(selected.get("aclSet"));
+		Assert.assertEquals(Boolean.TRUE, selected.get("isRegularFile"));
+	}
+
+	@Test
+	public void testAllAttributesOfTheBasicViewAreOnlyTheBasicAttributes() {
+		AttributeSelector selector = AttributeSelector.compile("basic:*");
+		Assert.assertFalse(selector.isAclRequired());
+		Assert.assertFalse(selector.getAttributes().contains(CloudFileAttribute.ETAG));
+		Assert.assertTrue(selector.getAttributes().contains(CloudFileAttribute.SIZE));
+	}
+
+	@Test
+	public void testUnknownViewsAndAttributesAreRejected() {
+		for (String attributes : new String[] {"posix:permissions", "size,unknown", "basic:eTag", ""}) {
+			try {
+				AttributeSelector.compile(attributes);
+				Assert.fail("Expected '" + attributes + "' to be rejected");
+			} catch (IllegalArgumentException e) {
+				// OK
+			}
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file.attribute;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.attribute.AclEntryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.blobstore.domain.BlobAccess;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystem;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.security.AnonymousUserPrincipal;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class AttributeWriteBatchTest {
+	private CloudFileSystem fileSystem;
+	private final Map<CloudPath,List<CloudAclEntrySet>> writes = new ConcurrentHashMap<>();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	@Rule
+	public JUnitRuleMockery context = new JUnitRuleMockery() {{
+		setImposteriser(ClassImposteriser.INSTANCE);
+	}};
+
+	@Before
+	public void setUp() {
+		fileSystem = context.mock(CloudFileSystem.class);
+	}
+
+	private CloudPath path(String pathName) {
+		return new CloudPath(fileSystem, true, "/container/" + pathName);
+	}
+
+	private void writeAttributes(CloudPath path, CloudAclEntrySet aclSet) throws IOException {
+		writes.computeIfAbsent(path, p -> new ArrayList<>()).add(aclSet);
+		maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+		try {
+			Thread.sleep(5L);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			inFlight.decrementAndGet();
+		}
+
+		if (path.getPathName().startsWith("denied")) {
+			throw new AccessDeniedException(path.toString());
+		}
+	}
+
+	private static CloudAclEntry<PublicPrivateCloudPermissionsPrincipal> blobAccessEntry(BlobAccess blobAccess) {
+		return new CloudAclEntryBuilder<PublicPrivateCloudPermissionsPrincipal>(PublicPrivateCloudPermissionsPrincipal.class)
+				.setPrincipal(new PublicPrivateCloudPermissionsPrincipal(blobAccess))
+				.setType(AclEntryType.ALLOW)
+				.addPermissions()
+				.build();
+	}
+
+	@Test
+	public void testEachPathIsWrittenOnceWithTheLastAclSetAndBoundedConcurrency() throws IOException {
+		AttributeWriteBatch batch = new AttributeWriteBatch();
+		CloudAclEntrySet lastAclSet = new CloudAclEntrySet(AnonymousUserPrincipal.INSTANCE);
+
+		for (int i = 0; i < 200; i++) {
+			batch.setAclSet(path("file-" + (i % 50)),
+					i < 150 ? new CloudAclEntrySet(AnonymousUserPrincipal.INSTANCE) : lastAclSet);
+		}
+		Assert.assertEquals(50, batch.size());
+
+		Map<CloudPath,IOException> failures = batch.write(this::writeAttributes, 4);
+
+		Assert.assertTrue(failures.isEmpty());
+		Assert.assertTrue(batch.isEmpty());
+		Assert.assertEquals(50, writes.size());
+		writes.values().forEach(w -> {
+			Assert.assertEquals(1, w.size());
+			Assert.assertSame(lastAclSet, w.get(0));
+		});
+		Assert.assertTrue("Too many concurrent writes: " + maxInFlight.get(), maxInFlight.get() <= 4);
+	}
+
+	@Test
+	public void testPathsWhichCannotBeWrittenAreReturnedWithoutFailingTheBatch() throws IOException {
+		AttributeWriteBatch batch = new AttributeWriteBatch();
+		for (String pathName : Arrays.asList("file-1", "denied-1", "file-2", "denied-2")) {
+			batch.setAclSet(path(pathName), new CloudAclEntrySet(AnonymousUserPrincipal.INSTANCE));
+		}
+
+		Map<CloudPath,IOException> failures = batch.write(this::writeAttributes, 2);
+
+		Assert.assertEquals(4, writes.size());
+		Assert.assertEquals(Arrays.asList(path("denied-1"), path("denied-2")), new ArrayList<>(failures.keySet()));
+		failures.values().forEach(e -> Assert.assertTrue(e instanceof AccessDeniedException));
+	}
+
+	@Test
+	public void testBlobAccessEntriesAreMergedIntoASingleAccess() {
+		Assert.assertNull(AttributeWriteBatch.getBlobAccess(new HashSet<>()));
+		Assert.assertEquals(BlobAccess.PRIVATE,
+				AttributeWriteBatch.getBlobAccess(new HashSet<>(Arrays.asList(blobAccessEntry(BlobAccess.PRIVATE)))));
+		Assert.assertEquals(BlobAccess.PUBLIC_READ, AttributeWriteBatch.getBlobAccess(new HashSet<>(
+				Arrays.asList(blobAccessEntry(BlobAccess.PRIVATE), blobAccessEntry(BlobAccess.PUBLIC_READ)))));
+	}
+
+}
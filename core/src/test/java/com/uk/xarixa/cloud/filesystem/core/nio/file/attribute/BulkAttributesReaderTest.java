@@ -0,0 +1,98 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file.attribute;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystem;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class BulkAttributesReaderTest {
+	private CloudFileSystem fileSystem;
+	private final Map<CloudPath,AtomicInteger> reads = new ConcurrentHashMap<>();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	@Rule
+	public JUnitRuleMockery context = new JUnitRuleMockery() {{
+		setImposteriser(ClassImposteriser.INSTANCE);
+	}};
+
+	@Before
+	public void setUp() {
+		fileSystem = context.mock(CloudFileSystem.class);
+	}
+
+	private CloudPath path(String pathName) {
+		return new CloudPath(fileSystem, true, "/container/" + pathName);
+	}
+
+	private CloudBasicFileAttributes readAttributes(CloudPath path) throws IOException {
+		reads.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+		maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+		try {
+			Thread.sleep(5L);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			inFlight.decrementAndGet();
+		}
+
+		if (path.getPathName().startsWith("missing")) {
+			throw new FileNotFoundException(path.toString());
+		}
+
+		return new CloudBasicFileAttributes();
+	}
+
+	@Test
+	public void testEachDistinctPathIsReadOnceWithBoundedConcurrency() throws IOException {
+		List<CloudPath> paths = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			paths.add(path("file-" + (i % 50)));
+		}
+
+		BulkAttributesResult result = new BulkAttributesReader(this::readAttributes, 4).read(paths);
+
+		Assert.assertEquals(50, result.getAttributes().size());
+		Assert.assertTrue(result.getFailures().isEmpty());
+		Assert.assertEquals(50, reads.size());
+		reads.values().forEach(count -> Assert.assertEquals(1, count.get()));
+		Assert.assertTrue("Too many concurrent reads: " + maxInFlight.get(), maxInFlight.get() <= 4);
+
+		// In the order first requested
+		Assert.assertEquals(paths.subList(0, 50), new ArrayList<>(result.getAttributes().keySet()));
+	}
+
+	@Test
+	public void testPathsWhichCannotBeReadAreReturnedAsFailures() throws IOException {
+		List<CloudPath> paths = new ArrayList<>();
+		paths.add(path("file-1"));
+		paths.add(path("missing-1"));
+		paths.add(path("file-2"));
+
+		BulkAttributesResult result = new BulkAttributesReader(this::readAttributes, 2).read(paths);
+
+		Assert.assertNotNull(result.get(path("file-1")));
+		Assert.assertNotNull(result.get(path("file-2")));
+		Assert.assertNull(result.get(path("missing-1")));
+		Assert.assertTrue(result.isMissing(path("missing-1")));
+		Assert.assertFalse(result.isMissing(path("file-1")));
+	}
+
+}
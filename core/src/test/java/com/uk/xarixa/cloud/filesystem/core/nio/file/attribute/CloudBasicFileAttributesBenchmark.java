@@ -0,0 +1,117 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.file.attribute;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.options.CreateContainerOptions;
+import org.jclouds.blobstore.options.ListContainerOptions;
+
+/**
+ * <p>
+ * Measures the bytes allocated for each listed entry when the {@link CloudBasicFileAttributes} of a listing
+ * are created and one or all of the attributes are read. An eager copy of every attribute, as the attributes
+ * were created before they wrapped the metadata, is measured for comparison.
+ * </p>
+ * <p>
+ * This is not run as part of the tests, run it with the test classpath:
+ * </p>
+ * <pre>
+ * java -cp ... com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudBasicFileAttributesBenchmark [entries] [rounds]
+ * </pre>
+ */
+public class CloudBasicFileAttributesBenchmark {
+	private static final String CONTAINER = "benchmark-container";
+	private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+			(com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+	private static volatile Object sink;
+
+	/**
+	 * A copy of every attribute of the metadata
+	 */
+	static final class EagerAttributes {
+		final Object[] values;
+
+		EagerAttributes(StorageMetadata meta) {
+			values = new Object[] {
+					meta.getLastModified() == null ? null : FileTime.fromMillis(meta.getLastModified().getTime()),
+					meta.getCreationDate() == null ? null : FileTime.fromMillis(meta.getCreationDate().getTime()),
+					meta.getProviderId(), meta.getType(), meta.getLocation(), meta.getUri(), meta.getSize(),
+					meta.getETag(), meta.getUserMetadata()};
+		}
+	}
+
+	public static void main(String[] args) {
+		int entries = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		List<StorageMetadata> listing = createListing(entries);
+
+		for (int round = 1; round <= rounds; round++) {
+			System.out.printf("Round %d of %d, %d entries%n", round, rounds, listing.size());
+			report("eager copy of all attributes", listing, EagerAttributes::new);
+			report("lazy attributes, none read", listing, CloudBasicFileAttributes::new);
+			report("lazy attributes, size read", listing, m -> new CloudBasicFileAttributes(m).size());
+			report("lazy attributes, last modified read", listing,
+					m -> new CloudBasicFileAttributes(m).lastModifiedTime());
+			report("lazy attributes, all read", listing, m -> {
+				CloudBasicFileAttributes attributes = new CloudBasicFileAttributes(m);
+				return new Object[] {attributes.lastModifiedTime(), attributes.creationTime(), attributes.fileKey(),
+						attributes.getStorageType(), attributes.getPhysicalLocation(), attributes.getUri(),
+						attributes.size(), attributes.getETag(), attributes.getUserMetadata()};
+			});
+		}
+	}
+
+	private static List<StorageMetadata> createListing(int entries) {
+		BlobStoreContext blobStoreContext = ContextBuilder.newBuilder("transient").buildView(BlobStoreContext.class);
+
+		try {
+			BlobStore blobStore = blobStoreContext.getBlobStore();
+			blobStore.createContainerInLocation(null, CONTAINER, new CreateContainerOptions());
+			for (int i = 0; i < entries; i++) {
+				blobStore.putBlob(CONTAINER,
+						blobStore.blobBuilder(String.format("dir-%02d/file-%06d.txt", i % 100, i)).payload("x").build());
+			}
+
+			List<StorageMetadata> listing = new ArrayList<>(entries);
+			String marker = null;
+			do {
+				ListContainerOptions options = new ListContainerOptions().recursive();
+				if (marker != null) {
+					options.afterMarker(marker);
+				}
+
+				PageSet<? extends StorageMetadata> pageSet = blobStore.list(CONTAINER, options);
+				listing.addAll(pageSet);
+				marker = pageSet.getNextMarker();
+			} while (marker != null);
+
+			return listing;
+		} finally {
+			blobStoreContext.close();
+		}
+	}
+
+	private static void report(String name, List<StorageMetadata> listing, Function<StorageMetadata,Object> create) {
+		Object[] results = new Object[listing.size()];
+		long threadId = Thread.currentThread().getId();
+		long before = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+
+		for (int i = 0; i < results.length; i++) {
+			results[i] = create.apply(listing.get(i));
+		}
+
+		long allocated = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - before;
+		sink = results;
+		System.out.printf("  %-40s %8.1f bytes per entry%n", name,
+				(allocated - 16d - 4d * results.length) / results.length);
+	}
+
+}
@@ -9,12 +9,16 @@ import java.nio.file.attribute.UserPrincipal;
 import java.nio.file.spi.FileSystemProvider;
 import java.security.acl.NotOwnerException;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.EnumSet;
 import java.util.Set;
 
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.blobstore.domain.BlobAccess;
+import org.jclouds.blobstore.domain.MutableBlobMetadata;
+import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.domain.internal.MutableBlobMetadataImpl;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JUnitRuleMockery;
 import org.jmock.lib.legacy.ClassImposteriser;
@@ -68,6 +72,12 @@ public class CloudFileAttributesViewTest {
         	
         	allowing(fs).getCloudHostConfiguration();
         	will(returnValue(config));
+
+        	allowing(fs).getMetadataCache();
+        	will(returnValue(null));
+
+        	allowing(fs).getNegativeCache();
+        	will(returnValue(null));
         	
         	allowing(cloudPath).getFileSystem();
         	will(returnValue(fs));
@@ -92,6 +102,9 @@ public class CloudFileAttributesViewTest {
 
 			allowing(blobStore).directoryExists(TEST_CONTAINER, TEST_PATH);
 			will(returnValue(true));
+
+			allowing(blobStore).blobMetadata(TEST_CONTAINER, TEST_PATH);
+			will(returnValue(null));
 		}});
 
 		view.checkAccess(EnumSet.of(AclEntryPermission.ADD_FILE));
@@ -112,6 +125,9 @@ public class CloudFileAttributesViewTest {
 			allowing(blobStore).directoryExists(TEST_CONTAINER, TEST_PATH);
 			will(returnValue(true));
 
+			allowing(blobStore).blobMetadata(TEST_CONTAINER, TEST_PATH);
+			will(returnValue(null));
+
 			exactly(1).of(securityManager).checkAccessAllowed(with(any(CloudAclEntrySet.class)),
 					with(equal(AnonymousUserPrincipal.INSTANCE)), with(equal(perms)));
 			will(returnValue(false));
@@ -140,6 +156,9 @@ public class CloudFileAttributesViewTest {
 			allowing(blobStore).directoryExists(TEST_CONTAINER, TEST_PATH);
 			will(returnValue(true));
 
+			allowing(blobStore).blobMetadata(TEST_CONTAINER, TEST_PATH);
+			will(returnValue(null));
+
 			exactly(1).of(securityManager).checkAccessAllowed(with(any(CloudAclEntrySet.class)),
 					with(equal(AnonymousUserPrincipal.INSTANCE)), with(equal(perms)));
 			will(returnValue(true));
@@ -168,6 +187,9 @@ public class CloudFileAttributesViewTest {
 			allowing(blobStore).directoryExists(TEST_CONTAINER, TEST_PATH);
 			will(returnValue(true));
 
+			allowing(blobStore).blobMetadata(TEST_CONTAINER, TEST_PATH);
+			will(returnValue(null));
+
 			exactly(1).of(securityManager).checkAccessAllowed(with(any(CloudAclEntrySet.class)),
 					with(equal(currentUser)), with(equal(perms)));
 			will(returnValue(false));
@@ -201,6 +223,9 @@ public class CloudFileAttributesViewTest {
 			allowing(blobStore).directoryExists(TEST_CONTAINER, TEST_PATH);
 			will(returnValue(true));
 
+			allowing(blobStore).blobMetadata(TEST_CONTAINER, TEST_PATH);
+			will(returnValue(null));
+
 			exactly(1).of(securityManager).checkAccessAllowed(with(any(CloudAclEntrySet.class)),
 					with(equal(currentUser)), with(equal(perms)));
 			will(returnValue(true));
@@ -256,11 +281,19 @@ public class CloudFileAttributesViewTest {
 			allowing(blobStore).directoryExists(TEST_CONTAINER, TEST_PATH);
 			will(returnValue(true));
 
+			allowing(blobStore).blobMetadata(TEST_CONTAINER, TEST_PATH);
+			will(returnValue(null));
+
 			exactly(1).of(securityManager).checkAccessAllowed(with(any(CloudAclEntrySet.class)),
 					with(equal(currentUser)), with(equal(perms)));
 			will(returnValue(true));
 
 			exactly(1).of(blobStore).setBlobAccess(TEST_CONTAINER, TEST_PATH, BlobAccess.PUBLIC_READ);
+
+			allowing(fs).getIndexedMetadata(cloudPath);
+			will(returnValue(null));
+
+			exactly(1).of(fs).invalidateCaches(cloudPath, null);
 		}});
 
 		// Now invoke the view method to set the ACL's
@@ -282,4 +315,37 @@ public class CloudFileAttributesViewTest {
 		}
 	}
 
+	@Test
+	public void testReadAttributesForAFileMakesOneRequestAndFetchesTheBlobAccessOnlyWhenTheAclsAreUsed() throws IOException {
+		MutableBlobMetadata blobMetadata = new MutableBlobMetadataImpl();
+		blobMetadata.setName(TEST_PATH);
+		blobMetadata.setType(StorageType.BLOB);
+		blobMetadata.setLastModified(new Date());
+		blobMetadata.setSize(10L);
+
+		context.checking(new Expectations() {{
+			allowing(config).getCloudHostSecurityManager();
+			will(returnValue(null));
+
+			exactly(1).of(blobStore).blobMetadata(TEST_CONTAINER, TEST_PATH);
+			will(returnValue(blobMetadata));
+
+			never(blobStore).directoryExists(TEST_CONTAINER, TEST_PATH);
+		}});
+
+		CloudAclFileAttributes attributes = view.readAttributes();
+		Assert.assertTrue(attributes.isRegularFile());
+		Assert.assertEquals(10L, attributes.size());
+		Assert.assertFalse(attributes.isAclSetLoaded());
+
+		context.checking(new Expectations() {{
+			exactly(1).of(blobStore).getBlobAccess(TEST_CONTAINER, TEST_PATH);
+			will(returnValue(BlobAccess.PUBLIC_READ));
+		}});
+
+		Assert.assertEquals(1, attributes.getAclSet().size());
+		Assert.assertEquals(1, attributes.getAclSet().size());
+		Assert.assertTrue(attributes.isAclSetLoaded());
+	}
+
 }
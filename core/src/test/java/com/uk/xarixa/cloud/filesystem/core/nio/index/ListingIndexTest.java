@@ -0,0 +1,190 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.uk.xarixa.cloud.filesystem.core.AbstractTransientBlobStoreTest;
+import com.uk.xarixa.cloud.filesystem.core.host.configuration.CloudHostConfiguration;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.DefaultCloudFileSystemImplementation;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.CloudDirectoryStream;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.ListingMode;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ListingIndexTest extends AbstractTransientBlobStoreTest {
+
+	@Override
+	protected void postSetUp() {
+		createBlob("archive/2019/01/a.log", 10);
+		createBlob("archive/2019/01/b.log", 20);
+		createBlob("archive/2019/02/c.log", 30);
+		createBlob("archive/2020/01/d.log", 40);
+		createBlob("archive/0-readme.txt", 5);
+		createBlob("other/e.txt", 50);
+		for (int i = 0; i < 50; i++) {
+			createBlob(String.format("archive/2021/file-%03d.log", i), i);
+		}
+	}
+
+	private void createBlob(String name, int size) {
+		blobStore.putBlob(TEST_CONTAINER, blobStore.blobBuilder(name).payload(new byte[size]).build());
+	}
+
+	private List<String> listAll(ListingIndex index, ListContainerOptions options, boolean fromIndex) {
+		List<String> names = new ArrayList<>();
+		String marker = null;
+
+		do {
+			ListContainerOptions pageOptions = options.clone();
+			if (marker != null) {
+				pageOptions.afterMarker(marker);
+			}
+
+			PageSet<? extends StorageMetadata> pageSet = fromIndex ? index.list(pageOptions) :
+				blobStore.list(TEST_CONTAINER, pageOptions);
+			pageSet.forEach(m -> names.add(m.getName() + ":" + m.getType()));
+			marker = pageSet.getNextMarker();
+		} while (marker != null);
+
+		return names;
+	}
+
+	private void assertSameListing(ListingIndex index, ListContainerOptions options) {
+		Assert.assertEquals(options.toString(), listAll(index, options, false), listAll(index, options, true));
+	}
+
+	@Test
+	public void testIndexListingsAreTheSameAsTheBlobStoreListings() {
+		ListingIndex index = ListingIndex.build(blobStore, TEST_CONTAINER, null, 4);
+		Assert.assertEquals(56, index.getEntryCount());
+
+		assertSameListing(index, new ListContainerOptions().recursive());
+		assertSameListing(index, new ListContainerOptions().recursive().maxResults(7));
+		assertSameListing(index, new ListContainerOptions());
+		assertSameListing(index, new ListContainerOptions().inDirectory("archive"));
+		assertSameListing(index, new ListContainerOptions().inDirectory("archive").maxResults(2));
+		assertSameListing(index, new ListContainerOptions().inDirectory("archive/2021").maxResults(9));
+		assertSameListing(index, new ListContainerOptions().inDirectory("archive").recursive().maxResults(5));
+		assertSameListing(index, new ListContainerOptions().prefix("archive/").delimiter("/").maxResults(2));
+	}
+
+	@Test
+	public void testLookupsFromTheIndex() {
+		ListingIndex index = ListingIndex.build(blobStore, TEST_CONTAINER, "archive", 8);
+
+		Assert.assertTrue(index.covers(TEST_CONTAINER, "archive/2019"));
+		Assert.assertFalse(index.covers(TEST_CONTAINER, "other/e.txt"));
+		Assert.assertFalse(index.covers("another-container", "archive/2019"));
+
+		Assert.assertEquals(Long.valueOf(30), index.get("archive/2019/02/c.log").getSize());
+		Assert.assertNull(index.get("archive/2019/02/missing.log"));
+		Assert.assertTrue(index.hasKeysBeneath("archive/2019"));
+		Assert.assertFalse(index.hasKeysBeneath("archive/2019/02/c.log"));
+		Assert.assertFalse(index.hasKeysBeneath("archive/2018"));
+	}
+
+	@Test
+	public void testIndexCanBeWrittenAndReadBack() throws IOException {
+		ListingIndex index = ListingIndex.build(blobStore, TEST_CONTAINER, null, 4);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		index.writeTo(bytes);
+		ListingIndex readIndex = ListingIndex.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+
+		Assert.assertEquals(index.getEntryCount(), readIndex.getEntryCount());
+		Assert.assertEquals(index.getLastKey(), readIndex.getLastKey());
+		ListContainerOptions options = new ListContainerOptions().recursive();
+		Assert.assertEquals(listAll(index, options, true), listAll(readIndex, options, true));
+
+		index.saveToBlob(blobStore, TEST_CONTAINER, "indexes/listing.idx");
+		readIndex = ListingIndex.loadFromBlob(blobStore, TEST_CONTAINER, "indexes/listing.idx");
+		Assert.assertEquals(index.getEntryCount(), readIndex.getEntryCount());
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadingSomethingWhichIsNotAnIndexFails() throws IOException {
+		ListingIndex.readFrom(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6}));
+	}
+
+	@Test
+	public void testRefreshAddsTheKeysAfterTheLastKey() {
+		ListingIndex index = ListingIndex.build(blobStore, TEST_CONTAINER, "archive", 4);
+		createBlob("archive/2022/01/f.log", 60);
+		createBlob("archive/2022/02/g.log", 70);
+		Assert.assertNull(index.get("archive/2022/01/f.log"));
+
+		ListingIndex refreshed = index.refresh(blobStore);
+		Assert.assertEquals(index.getEntryCount() + 2, refreshed.getEntryCount());
+		Assert.assertEquals("archive/2022/02/g.log", refreshed.getLastKey());
+		Assert.assertEquals(Long.valueOf(60), refreshed.get("archive/2022/01/f.log").getSize());
+		assertSameListing(refreshed, new ListContainerOptions().inDirectory("archive").recursive());
+	}
+
+	@Test
+	public void testListingsAndAttributesAreReadFromAnAttachedIndex() throws IOException {
+		ListingIndex index = ListingIndex.build(blobStore, TEST_CONTAINER, "archive/2019");
+		CloudHostConfiguration config = context.mock(CloudHostConfiguration.class);
+		context.checking(new Expectations() {{
+			allowing(fileSystem).getBlobStoreContext();
+			will(returnValue(blobStoreContext));
+
+			allowing(fileSystem).getCloudHostConfiguration();
+			will(returnValue(config));
+
+			allowing(config).getCloudHostSecurityManager();
+			will(returnValue(null));
+
+			allowing(fileSystem).getListingIndex(with(any(String.class)), with(Expectations.<String>anything()));
+			will(new CustomAction("Get the index if it covers the path") {
+				@Override
+				public Object invoke(Invocation invocation) throws Throwable {
+					return index.covers((String)invocation.getParameter(0), (String)invocation.getParameter(1)) ? index : null;
+				}
+			});
+		}});
+
+		// The snapshot does not see the deleted blob
+		blobStore.removeBlob(TEST_CONTAINER, "archive/2019/01/b.log");
+		CloudPath dirPath = new CloudPath(fileSystem, true, "/" + TEST_CONTAINER + "/archive/2019");
+		List<String> names = new ArrayList<>();
+		try (CloudDirectoryStream stream = new CloudDirectoryStream(dirPath, false, ListingMode.RECURSIVE, null)) {
+			stream.forEach(p -> names.add(p.getFileName().toString()));
+		}
+		Assert.assertEquals(3, names.size());
+		Assert.assertTrue(names.contains("b.log"));
+
+		DefaultCloudFileSystemImplementation implementation = new DefaultCloudFileSystemImplementation();
+		BasicFileAttributes fileAttributes = implementation.readAttributes(blobStoreContext, BasicFileAttributes.class,
+				new CloudPath(fileSystem, true, "/" + TEST_CONTAINER + "/archive/2019/01/b.log"));
+		Assert.assertTrue(fileAttributes.isRegularFile());
+		Assert.assertEquals(20, fileAttributes.size());
+
+		BasicFileAttributes dirAttributes = implementation.readAttributes(blobStoreContext, BasicFileAttributes.class,
+				new CloudPath(fileSystem, true, "/" + TEST_CONTAINER + "/archive/2019/01"));
+		Assert.assertTrue(dirAttributes.isDirectory());
+
+		try {
+			implementation.readAttributes(blobStoreContext, BasicFileAttributes.class,
+					new CloudPath(fileSystem, true, "/" + TEST_CONTAINER + "/archive/2019/03"));
+			Assert.fail("Expected the missing directory not to be found");
+		} catch (FileNotFoundException e) {
+			// OK
+		}
+	}
+
+}
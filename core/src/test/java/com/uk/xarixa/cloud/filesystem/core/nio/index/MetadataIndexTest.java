@@ -0,0 +1,127 @@
+package com.uk.xarixa.cloud.filesystem.core.nio.index;
+
+import java.nio.file.spi.FileSystemProvider;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.domain.internal.StorageMetadataImpl;
+import org.jmock.Expectations;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.google.common.collect.ImmutableMap;
+import com.uk.xarixa.cloud.filesystem.core.AbstractTransientBlobStoreTest;
+import com.uk.xarixa.cloud.filesystem.core.host.configuration.CloudHostConfiguration;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudFileSystem;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPath;
+import com.uk.xarixa.cloud.filesystem.core.nio.CloudPathWithAttributes;
+import com.uk.xarixa.cloud.filesystem.core.nio.file.attribute.CloudBasicFileAttributes;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class MetadataIndexTest extends AbstractTransientBlobStoreTest {
+
+	@Override
+	protected void postSetUp() {
+		createBlob("photos/2019/a.jpg", "image/jpeg", ImmutableMap.of("tag", "holiday"));
+		createBlob("photos/2019/b.jpg", "image/jpeg", ImmutableMap.of("tag", "work"));
+		createBlob("photos/2020/c.png", "image/png", ImmutableMap.of("Tag", "holiday", "camera", "x100"));
+		createBlob("docs/d.txt", "text/plain", ImmutableMap.of("tag", "holiday"));
+		createBlob("docs/e.txt", "text/plain", Collections.emptyMap());
+	}
+
+	private Blob createBlob(String name, String contentType, Map<String,String> userMetadata) {
+		Blob blob = blobStore.blobBuilder(name).payload(name).contentType(contentType).userMetadata(userMetadata).build();
+		blobStore.putBlob(TEST_CONTAINER, blob);
+		return blob;
+	}
+
+	private static StorageMetadata listedEntry(String name, String eTag) {
+		return new StorageMetadataImpl(StorageType.BLOB, null, name, null, null, eTag, null, null,
+				Collections.<String,String>emptyMap(), 1L);
+	}
+
+	@Test
+	public void testAPopulatedIndexIsQueriedByUserMetadataContentTypeAndPrefix() {
+		MetadataIndex index = new MetadataIndex(TEST_CONTAINER);
+		Assert.assertEquals(5, index.populate(blobStore, null));
+
+		Assert.assertEquals(Arrays.asList("docs/d.txt", "photos/2019/a.jpg", "photos/2020/c.png"),
+				new ArrayList<>(index.query(null, new MetadataQuery().userMetadata("TAG", "holiday")).keySet()));
+		Assert.assertEquals(Arrays.asList("photos/2019/a.jpg", "photos/2020/c.png"),
+				new ArrayList<>(index.query("photos/", new MetadataQuery().userMetadata("tag", "holiday")).keySet()));
+		Assert.assertEquals(Arrays.asList("photos/2019/a.jpg"), new ArrayList<>(index.query("photos/",
+				new MetadataQuery().userMetadata("tag", "holiday").contentType("IMAGE/JPEG")).keySet()));
+		Assert.assertEquals(Arrays.asList("docs/d.txt", "docs/e.txt"),
+				new ArrayList<>(index.query(null, new MetadataQuery().contentType("text/plain")).keySet()));
+		Assert.assertEquals(5, index.query(null, new MetadataQuery()).size());
+		Assert.assertTrue(index.query(null, new MetadataQuery().userMetadata("tag", "unknown")).isEmpty());
+		Assert.assertTrue(index.query("other/", new MetadataQuery().userMetadata("camera", "x100")).isEmpty());
+	}
+
+	@Test
+	public void testListingsKeepTheIndexedMetadataOfUnchangedObjectsAndRemoveChangedObjects() {
+		MetadataIndex index = new MetadataIndex(TEST_CONTAINER);
+		index.put("photos/2019/a.jpg", blobStore.blobMetadata(TEST_CONTAINER, "photos/2019/a.jpg"));
+		index.put("photos/2019/b.jpg", blobStore.blobMetadata(TEST_CONTAINER, "photos/2019/b.jpg"));
+		index.put("docs/d.txt", createBlob("docs/d.txt", "text/plain", ImmutableMap.of("tag", "holiday")).getMetadata());
+		Assert.assertEquals(3, index.size());
+
+		// A listing without any metadata, as from S3, only refreshes the objects which have not changed
+		String unchangedETag = index.get("photos/2019/a.jpg").getETag();
+		index.putListed(Arrays.asList(listedEntry("photos/2019/a.jpg", unchangedETag),
+				listedEntry("photos/2019/b.jpg", "changed"), listedEntry("docs/d.txt", "written"),
+				listedEntry("docs/new.txt", "new")));
+
+		Assert.assertEquals(2, index.size());
+		Assert.assertNull(index.get("photos/2019/b.jpg"));
+		Assert.assertNull(index.get("docs/new.txt"));
+		Assert.assertEquals("written", index.get("docs/d.txt").getETag());
+		Assert.assertEquals(Arrays.asList("docs/d.txt", "photos/2019/a.jpg"),
+				new ArrayList<>(index.query(null, new MetadataQuery().userMetadata("tag", "holiday")).keySet()));
+		Assert.assertTrue(index.query(null, new MetadataQuery().userMetadata("tag", "work")).isEmpty());
+
+		// Removing a directory removes everything beneath it
+		index.remove("photos");
+		Assert.assertEquals(Arrays.asList("docs/d.txt"), new ArrayList<>(index.query(null, new MetadataQuery()).keySet()));
+	}
+
+	@Test
+	public void testTheFileSystemIndexesWrittenMetadataAndReturnsPathsWithAttributes() {
+		CloudHostConfiguration config = context.mock(CloudHostConfiguration.class);
+		context.checking(new Expectations() {{
+			allowing(config).createListingCache();
+			will(returnValue(null));
+		}});
+
+		CloudFileSystem cloudFileSystem =
+				new CloudFileSystem(context.mock(FileSystemProvider.class), config, blobStoreContext);
+		MetadataIndex index = cloudFileSystem.enableMetadataIndex(TEST_CONTAINER);
+		Assert.assertSame(index, cloudFileSystem.enableMetadataIndex(TEST_CONTAINER));
+
+		CloudPath path = new CloudPath(cloudFileSystem, true, "/" + TEST_CONTAINER + "/docs/new.txt");
+		cloudFileSystem.invalidateCaches(path,
+				createBlob("docs/new.txt", "text/plain", ImmutableMap.of("tag", "holiday")).getMetadata());
+
+		List<CloudPathWithAttributes> paths = cloudFileSystem.queryMetadataIndex(
+				new CloudPath(cloudFileSystem, true, "/" + TEST_CONTAINER + "/docs"), new MetadataQuery().userMetadata("tag", "holiday"));
+		Assert.assertEquals(1, paths.size());
+		Assert.assertEquals(path, paths.get(0));
+		CloudBasicFileAttributes attributes = paths.get(0).getAttributes();
+		Assert.assertTrue(attributes.isRegularFile());
+		Assert.assertEquals("text/plain", attributes.getContentType());
+		Assert.assertEquals("holiday", attributes.getUserMetadata().get("tag"));
+
+		// Any other change removes the path from the index
+		cloudFileSystem.invalidateCaches(path);
+		Assert.assertNull(cloudFileSystem.getIndexedMetadata(path));
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.uk.xarixa.cloud.filesystem.core.utils;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import com.uk.xarixa.cloud.filesystem.core.utils.ParallelRequests.BoundedRequests;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ParallelRequestsTest {
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private void request() {
+		maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+		try {
+			Thread.sleep(2L);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			inFlight.decrementAndGet();
+		}
+	}
+
+	@Test
+	public void testApplyRunsEachItemWithBoundedConcurrencyAndReturnsTheFailures() throws IOException {
+		List<Integer> items = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+		Set<Integer> applied = ConcurrentHashMap.newKeySet();
+
+		Map<Integer,IOException> failures = ParallelRequests.apply(items, item -> {
+			request();
+			applied.add(item);
+			if (item % 10 == 7) {
+				throw new AccessDeniedException(item.toString());
+			}
+		}, 4, executor, "test");
+
+		Assert.assertEquals(new TreeSet<>(items), new TreeSet<>(applied));
+		Assert.assertEquals(IntStream.range(0, 10).map(i -> i * 10 + 7).boxed().collect(Collectors.toSet()),
+				failures.keySet());
+		failures.values().forEach(e -> Assert.assertTrue(e instanceof AccessDeniedException));
+		Assert.assertTrue("Too many concurrent requests: " + maxInFlight.get(), maxInFlight.get() <= 4);
+	}
+
+	@Test
+	public void testBoundedRequestsLimitTheRequestsInFlightAndCanBeAwaited() throws IOException {
+		BoundedRequests requests = new BoundedRequests(3, executor, "test");
+		List<Integer> completed = new ArrayList<>();
+
+		for (int i = 0; i < 50; i++) {
+			int request = i;
+			requests.submit(() -> {
+				request();
+				synchronized (completed) {
+					completed.add(request);
+				}
+			});
+		}
+
+		requests.await();
+		Assert.assertEquals(50, completed.size());
+		Assert.assertEquals(0, requests.getInFlight());
+		Assert.assertTrue("Too many concurrent requests: " + maxInFlight.get(), maxInFlight.get() <= 3);
+	}
+
+}